@@ -0,0 +1,161 @@
+package benchmarks;
+
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.TypeToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appends a JMH result file to the benchmark history and reports regressions.
+ * <p>
+ * Each benchmark score is stored as one JSON line tagged with the current git commit. The new
+ * scores are then compared with the most recent entry for the same benchmark and parameters
+ * from a different commit; a benchmark is reported as a regression when it got slower by more
+ * than the threshold and by more than the combined error margins.
+ * <p>
+ * Usage: {@code BenchmarkHistory <jmh-result.json> <history.jsonl> [thresholdPercent] [failOnRegression]}
+ */
+public final class BenchmarkHistory {
+
+    private static final Json JSON = new Json();
+    private static final Type LIST_OF_MAPS = new TypeToken<List<Map<String, Object>>>() {
+    }.getType();
+    private static final Type MAP = new TypeToken<Map<String, Object>>() {
+    }.getType();
+
+    private BenchmarkHistory() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkHistory <jmh-result.json> <history.jsonl> [thresholdPercent] [failOnRegression]");
+            System.exit(2);
+        }
+        Path resultFile = Path.of(args[0]);
+        Path historyFile = Path.of(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        boolean failOnRegression = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+        String commit = gitCommit();
+        List<Map<String, Object>> history = readHistory(historyFile);
+        List<Map<String, Object>> current = toEntries(readResults(resultFile), commit);
+
+        int regressions = 0;
+        for (Map<String, Object> entry : current) {
+            Map<String, Object> previous = latestFromOtherCommit(history, entry);
+            if (previous == null) {
+                System.out.printf("  new        %-70s %12.2f %s%n", entry.get("benchmark"), score(entry), entry.get("unit"));
+                continue;
+            }
+            double before = score(previous);
+            double after = score(entry);
+            double change = before == 0 ? 0 : (after - before) / before * 100;
+            boolean beyondNoise = Math.abs(after - before) > error(previous) + error(entry);
+            boolean regression = change > threshold && beyondNoise;
+            regressions += regression ? 1 : 0;
+            System.out.printf("  %-10s %-70s %12.2f -> %12.2f %s (%+.1f%% vs %s)%n",
+                    regression ? "REGRESSED" : change < -threshold && beyondNoise ? "improved" : "same",
+                    entry.get("benchmark"), before, after, entry.get("unit"), change, previous.get("commit"));
+        }
+
+        Files.createDirectories(historyFile.toAbsolutePath().getParent());
+        StringBuilder lines = new StringBuilder();
+        current.forEach(entry -> lines.append(JSON.toJson(entry).replaceAll("\\s*\\n\\s*", "")).append('\n'));
+        Files.writeString(historyFile, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        System.out.printf("Recorded %d benchmark results for %s in %s; %d regression(s) above %.0f%%%n",
+                current.size(), commit, historyFile, regressions, threshold);
+        if (failOnRegression && regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static List<Map<String, Object>> readResults(Path resultFile) throws IOException {
+        return JSON.toType(Files.readString(resultFile), LIST_OF_MAPS);
+    }
+
+    private static List<Map<String, Object>> readHistory(Path historyFile) throws IOException {
+        List<Map<String, Object>> history = new ArrayList<>();
+        if (Files.exists(historyFile)) {
+            for (String line : Files.readAllLines(historyFile, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    history.add(JSON.toType(line, MAP));
+                }
+            }
+        }
+        return history;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> toEntries(List<Map<String, Object>> results, String commit) {
+        List<Map<String, Object>> entries = new ArrayList<>();
+        String timestamp = Instant.now().toString();
+        for (Map<String, Object> result : results) {
+            Map<String, Object> metric = (Map<String, Object>) result.get("primaryMetric");
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("commit", commit);
+            entry.put("timestamp", timestamp);
+            entry.put("benchmark", result.get("benchmark") + params(result));
+            entry.put("mode", result.get("mode"));
+            entry.put("score", metric.get("score"));
+            entry.put("error", metric.get("scoreError"));
+            entry.put("unit", metric.get("scoreUnit"));
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String params(Map<String, Object> result) {
+        Object params = result.get("params");
+        if (!(params instanceof Map<?, ?> map) || map.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        ((Map<String, Object>) map).forEach((key, value) -> sb.append(sb.length() == 0 ? "[" : ",").append(key).append('=').append(value));
+        return sb.append(']').toString();
+    }
+
+    private static Map<String, Object> latestFromOtherCommit(List<Map<String, Object>> history, Map<String, Object> entry) {
+        for (int i = history.size() - 1; i >= 0; i--) {
+            Map<String, Object> candidate = history.get(i);
+            if (candidate.get("benchmark").equals(entry.get("benchmark"))
+                    && candidate.get("mode").equals(entry.get("mode"))
+                    && !candidate.get("commit").equals(entry.get("commit"))) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static double score(Map<String, Object> entry) {
+        return ((Number) entry.get("score")).doubleValue();
+    }
+
+    private static double error(Map<String, Object> entry) {
+        Object error = entry.get("error");
+        return error instanceof Number number && !Double.isNaN(number.doubleValue()) ? number.doubleValue() : 0;
+    }
+
+    private static String gitCommit() throws IOException, InterruptedException {
+        try {
+            Process process = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").redirectErrorStream(true).start();
+            try (InputStream in = process.getInputStream()) {
+                String output = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+                return process.waitFor() == 0 ? output : "unknown";
+            }
+        } catch (IOException e) {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Keeps benchmark logging realistic but bounded.
+ * <p>
+ * The framework logs through {@code log4j2.xml} as usual, so formatting and appender costs are
+ * part of every measurement. Console output is redirected to a null stream (the terminal is not
+ * what we want to measure) and the log file, which the benchmark forks place under
+ * {@code -Dlog.dir}, is truncated between iterations so it cannot grow without bound.
+ */
+public final class BenchmarkLogs {
+
+    private BenchmarkLogs() {
+    }
+
+    /**
+     * Must run before the first logger is created, so log4j's console appender binds to the null stream.
+     */
+    public static void silenceConsole() {
+        PrintStream nowhere = new PrintStream(OutputStream.nullOutputStream());
+        System.setOut(nowhere);
+        System.setErr(nowhere);
+    }
+
+    /**
+     * Empties the log file; the appender keeps writing in append mode from the new end.
+     */
+    public static void truncateLogFile() {
+        Path logFile = Path.of(System.getProperty("log.dir", "logs"), "framework.log");
+        if (Files.exists(logFile)) {
+            try {
+                Files.newOutputStream(logFile, StandardOpenOption.TRUNCATE_EXISTING).close();
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot truncate " + logFile, e);
+            }
+        }
+    }
+}
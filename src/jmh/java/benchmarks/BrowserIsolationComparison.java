@@ -0,0 +1,113 @@
+package benchmarks;
+
+import org.openqa.selenium.WebDriver;
+import pages.LoginPage;
+import utils.ConfigReader;
+import utils.DriverFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Compares one browser process per scenario with isolated contexts in shared browsers.
+ * <p>
+ * For each mode, {@code N} threads each start a browser (or context) through {@link DriverFactory}
+ * at the same time, check that it starts without cookies, and log in through {@link LoginPage}.
+ * While all of them are live, the proportional memory of every browser process is summed from
+ * {@code /proc}. The output shows browser startup time and memory per scenario for both models.
+ * <p>
+ * Needs Chrome; runs against the hermetic stand-in unless {@code -Dhermetic=false} is given.
+ * Usage: {@code BrowserIsolationComparison [scenarios]}
+ */
+public final class BrowserIsolationComparison {
+
+    private record Result(String mode, int scenarios, long processes, long pssBytes, double avgStartupMillis,
+                          double maxStartupMillis, boolean isolated) {
+    }
+
+    private BrowserIsolationComparison() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int scenarios = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        if (System.getProperty("hermetic") == null) {
+            System.setProperty("hermetic", "true");
+        }
+        System.setProperty("pool.enabled", "false");
+        System.setProperty("metrics.events", "false");
+
+        List<Result> results = List.of(run("process", scenarios), run("context", scenarios));
+
+        System.out.printf("%n%-8s %9s %9s %12s %14s %14s %14s %8s%n", "mode", "scenarios", "processes",
+                "PSS MB", "PSS/scenario", "startup avg", "startup max", "isolated");
+        for (Result r : results) {
+            System.out.printf("%-8s %9d %9d %12.1f %12.1f MB %11.0f ms %11.0f ms %8s%n", r.mode(), r.scenarios(),
+                    r.processes(), r.pssBytes() / 1048576.0, r.pssBytes() / 1048576.0 / r.scenarios(),
+                    r.avgStartupMillis(), r.maxStartupMillis(), r.isolated());
+        }
+        Result process = results.get(0);
+        Result context = results.get(1);
+        System.out.printf("%ncontext vs process: %.0f%% of the memory, %.0f%% of the average startup time%n",
+                100.0 * context.pssBytes() / Math.max(1, process.pssBytes()),
+                100.0 * context.avgStartupMillis() / Math.max(1, process.avgStartupMillis()));
+        System.exit(0);
+    }
+
+    private static Result run(String mode, int scenarios) throws InterruptedException {
+        System.setProperty("browser.isolation", mode);
+        CountDownLatch started = new CountDownLatch(scenarios);
+        CountDownLatch release = new CountDownLatch(1);
+        long[] startupNanos = new long[scenarios];
+        AtomicBoolean isolated = new AtomicBoolean(true);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < scenarios; i++) {
+            int index = i;
+            threads.add(Thread.ofPlatform().name(mode + "-" + i).start(() -> {
+                try {
+                    long start = System.nanoTime();
+                    WebDriver driver = DriverFactory.getDriver();
+                    startupNanos[index] = System.nanoTime() - start;
+                    driver.get(ConfigReader.getProperty("url"));
+                    if (!driver.manage().getCookies().isEmpty()) {
+                        isolated.set(false);
+                    }
+                    new LoginPage(driver).loginAs(ConfigReader.getProperty("username"), ConfigReader.getProperty("password"));
+                    started.countDown();
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                    started.countDown();
+                } finally {
+                    DriverFactory.quitDriver();
+                }
+            }));
+        }
+        if (!started.await(5, TimeUnit.MINUTES)) {
+            throw new IllegalStateException(mode + ": browsers did not start within 5 minutes");
+        }
+        if (failure.get() != null) {
+            release.countDown();
+            throw new IllegalStateException(mode + ": a scenario failed to start", failure.get());
+        }
+        long pss = ProcessMemory.descendantsPssBytes();
+        long processes = ProcessMemory.descendantCount();
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double avg = 0;
+        double max = 0;
+        for (long nanos : startupNanos) {
+            avg += nanos / 1e6 / scenarios;
+            max = Math.max(max, nanos / 1e6);
+        }
+        return new Result(mode, scenarios, processes, pss, avg, max, isolated.get());
+    }
+}
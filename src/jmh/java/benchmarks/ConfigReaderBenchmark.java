@@ -0,0 +1,35 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import utils.ConfigReader;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link ConfigReader} lookups, which page objects perform on construction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConfigReaderBenchmark {
+
+    @Benchmark
+    public String getProperty() {
+        return ConfigReader.getProperty("url");
+    }
+
+    @Benchmark
+    public String getMissingPropertyWithDefault() {
+        return ConfigReader.getProperty("wait.LoginPage.strategy", "observer");
+    }
+
+    @Benchmark
+    public int getInt() {
+        return ConfigReader.getInt("wait.timeoutSeconds", 10);
+    }
+}
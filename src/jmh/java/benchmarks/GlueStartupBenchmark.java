@@ -0,0 +1,213 @@
+package benchmarks;
+
+import io.cucumber.core.backend.Backend;
+import io.cucumber.core.backend.DataTableTypeDefinition;
+import io.cucumber.core.backend.DefaultDataTableCellTransformerDefinition;
+import io.cucumber.core.backend.DefaultDataTableEntryTransformerDefinition;
+import io.cucumber.core.backend.DefaultObjectFactory;
+import io.cucumber.core.backend.DefaultParameterTransformerDefinition;
+import io.cucumber.core.backend.DocStringTypeDefinition;
+import io.cucumber.core.backend.Glue;
+import io.cucumber.core.backend.HookDefinition;
+import io.cucumber.core.backend.ParameterTypeDefinition;
+import io.cucumber.core.backend.StaticHookDefinition;
+import io.cucumber.core.backend.StepDefinition;
+import io.cucumber.java.JavaBackendProviderService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.GlueIndex;
+import utils.GlueIndexBackend;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cost of loading the Cucumber glue at suite startup: scanning the glue package with the Java
+ * backend versus reading the build-time {@link GlueIndex}, for suites of tens to thousands of steps.
+ * <p>
+ * The setup generates classes of 25 step definitions and one hook each and compiles them with
+ * {@code utils.GlueIndexProcessor}. Every invocation loads them in a fresh class loader, as a new
+ * JVM or shard would, and registers the glue the way Cucumber does before the first scenario,
+ * including the parameter lookup of every step definition.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+public class GlueStartupBenchmark {
+
+    private static final int STEPS_PER_CLASS = 25;
+
+    @Param({"10", "100", "1000", "3000"})
+    public int steps;
+
+    @Param({"scan", "index"})
+    public String glue;
+
+    private Path classes;
+
+    @Setup(Level.Trial)
+    public void generateGlue() throws IOException {
+        Path sources = Files.createTempDirectory("glue-src");
+        classes = Files.createTempDirectory("glue-classes");
+        List<String> files = new ArrayList<>();
+        for (int c = 0; c * STEPS_PER_CLASS < steps; c++) {
+            StringBuilder java = new StringBuilder("package generated;\n\n")
+                    .append("public class Steps").append(c).append(" {\n")
+                    .append("    @io.cucumber.java.Before(\"@class").append(c).append("\")\n")
+                    .append("    public void before(io.cucumber.java.Scenario scenario) {\n    }\n");
+            for (int s = c * STEPS_PER_CLASS; s < Math.min(steps, (c + 1) * STEPS_PER_CLASS); s++) {
+                java.append("\n    @io.cucumber.java.en.").append(s % 2 == 0 ? "Given" : "Then")
+                        .append("(\"step ").append(s).append(" has {int} items named {string}\")\n")
+                        .append("    public void step").append(s).append("(int count, String name) {\n    }\n");
+            }
+            java.append("}\n");
+            Path file = sources.resolve("Steps" + c + ".java");
+            Files.writeString(file, java);
+            files.add(file.toString());
+        }
+        List<String> args = new ArrayList<>(List.of("-d", classes.toString(),
+                "-cp", System.getProperty("java.class.path"), "-processor", "utils.GlueIndexProcessor"));
+        args.addAll(files);
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler.run(null, null, null, args.toArray(String[]::new)) != 0) {
+            throw new IllegalStateException("Failed to compile the generated glue");
+        }
+        delete(sources);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteGlue() throws IOException {
+        delete(classes);
+    }
+
+    @Benchmark
+    public int loadGlue() throws IOException {
+        try (GlueLoader loader = new GlueLoader(classes.toUri().toURL())) {
+            DefaultObjectFactory objectFactory = new DefaultObjectFactory();
+            Backend backend = "index".equals(glue)
+                    ? new GlueIndexBackend.Provider().create(objectFactory, objectFactory, () -> loader)
+                    : new JavaBackendProviderService().create(objectFactory, objectFactory, () -> loader);
+            CountingGlue counting = new CountingGlue();
+            URI gluePath = URI.create("classpath:/" + ("index".equals(glue) ? GlueIndex.GLUE_PACKAGE : "generated"));
+            backend.loadGlue(counting, List.of(gluePath));
+            if (counting.steps != steps) {
+                throw new IllegalStateException("Loaded " + counting.steps + " step definitions, expected " + steps);
+            }
+            return counting.steps + counting.parameters;
+        }
+    }
+
+    /**
+     * Class loader for the generated glue that finds the generated index before the one of the
+     * framework's own tests on the parent class path.
+     */
+    private static final class GlueLoader extends URLClassLoader {
+        GlueLoader(URL classes) {
+            super(new URL[]{classes}, GlueStartupBenchmark.class.getClassLoader());
+        }
+
+        @Override
+        public URL getResource(String name) {
+            URL own = findResource(name);
+            return own != null ? own : super.getResource(name);
+        }
+    }
+
+    /** Glue that counts what is registered and looks up step parameters like Cucumber's glue does. */
+    private static final class CountingGlue implements Glue {
+        int steps;
+        int parameters;
+        int hooks;
+
+        @Override
+        public void addStepDefinition(StepDefinition stepDefinition) {
+            steps++;
+            parameters += stepDefinition.parameterInfos().size();
+        }
+
+        @Override
+        public void addBeforeHook(HookDefinition hookDefinition) {
+            hooks++;
+        }
+
+        @Override
+        public void addAfterHook(HookDefinition hookDefinition) {
+            hooks++;
+        }
+
+        @Override
+        public void addBeforeStepHook(HookDefinition hookDefinition) {
+            hooks++;
+        }
+
+        @Override
+        public void addAfterStepHook(HookDefinition hookDefinition) {
+            hooks++;
+        }
+
+        @Override
+        public void addBeforeAllHook(StaticHookDefinition staticHookDefinition) {
+            hooks++;
+        }
+
+        @Override
+        public void addAfterAllHook(StaticHookDefinition staticHookDefinition) {
+            hooks++;
+        }
+
+        @Override
+        public void addParameterType(ParameterTypeDefinition parameterTypeDefinition) {
+        }
+
+        @Override
+        public void addDataTableType(DataTableTypeDefinition dataTableTypeDefinition) {
+        }
+
+        @Override
+        public void addDefaultParameterTransformer(DefaultParameterTransformerDefinition definition) {
+        }
+
+        @Override
+        public void addDefaultDataTableEntryTransformer(DefaultDataTableEntryTransformerDefinition definition) {
+        }
+
+        @Override
+        public void addDefaultDataTableCellTransformer(DefaultDataTableCellTransformerDefinition definition) {
+        }
+
+        @Override
+        public void addDocStringType(DocStringTypeDefinition docStringTypeDefinition) {
+        }
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
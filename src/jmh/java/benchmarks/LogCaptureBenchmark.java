@@ -0,0 +1,78 @@
+package benchmarks;
+
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.ScenarioLog;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency of page-object logging from parallel scenarios under each logging setup:
+ * <ul>
+ *     <li>{@code sync}: {@code log4j2.xml} with {@code log.async=false}, console and file appenders
+ *     called on the logging thread;</li>
+ *     <li>{@code async}: {@code log4j2.xml} as configured by default, console and file behind the
+ *     {@code Global} async appender;</li>
+ *     <li>{@code scenario}: the default with {@code log.capture=scenario}, every thread logging
+ *     for a passing scenario whose buffer is dropped at the end of each iteration.</li>
+ * </ul>
+ * Four threads log at once, so contention on the appenders is part of the measurement. Throughput
+ * mode gives operations per microsecond, sample mode the latency percentiles of a single call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class LogCaptureBenchmark {
+
+    @Param({"sync", "async", "scenario"})
+    public String mode;
+
+    private Logger logger;
+
+    /** One scenario per benchmark thread. */
+    @State(Scope.Thread)
+    public static class Scenario {
+
+        @Setup(Level.Iteration)
+        public void begin() {
+            ScenarioLog.begin();
+        }
+
+        @TearDown(Level.Iteration)
+        public void end() {
+            ScenarioLog.end(false);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkLogs.silenceConsole();
+        System.setProperty("log.capture", "scenario".equals(mode) ? "scenario" : "global");
+        System.setProperty("log.async", String.valueOf(!"sync".equals(mode)));
+        Configurator.reconfigure();
+        logger = LoggerFactory.getLogger("pages.LoginPage");
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncateLogs() {
+        BenchmarkLogs.truncateLogFile();
+    }
+
+    @Benchmark
+    public void infoWithArguments(Scenario scenario) {
+        logger.info("Typed '{}' into '{}'", "standard_user", "Username field");
+    }
+}
@@ -0,0 +1,48 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one log statement through SLF4J and {@code log4j2.xml}, as page objects log them:
+ * an enabled INFO line with arguments, and a DEBUG line filtered out by the root level.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LoggingBenchmark {
+
+    private Logger logger;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkLogs.silenceConsole();
+        logger = LoggerFactory.getLogger("pages.LoginPage");
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncateLogs() {
+        BenchmarkLogs.truncateLogFile();
+    }
+
+    @Benchmark
+    public void infoWithArguments() {
+        logger.info("Typed '{}' into '{}'", "standard_user", "Username field");
+    }
+
+    @Benchmark
+    public void debugFilteredOut() {
+        logger.debug("Text retrieved from '{}': {}", "Title text", "Products");
+    }
+}
@@ -0,0 +1,61 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Memory used by the browsers this JVM started, read from {@code /proc} on Linux.
+ * <p>
+ * Chrome runs as a tree of processes (chromedriver, browser, GPU, network service, one renderer
+ * per site) that share much of their memory, so adding up their RSS counts shared pages many
+ * times. The proportional set size (PSS) of each process splits every shared page between its
+ * users; summed over the tree it is the real footprint of the browsers.
+ */
+public final class ProcessMemory {
+
+    private ProcessMemory() {
+    }
+
+    /**
+     * Returns the summed PSS of all descendant processes of this JVM in bytes, or {@code -1} if
+     * {@code /proc} is not available. Falls back to RSS on kernels without {@code smaps_rollup}.
+     */
+    public static long descendantsPssBytes() {
+        if (!Files.isDirectory(Path.of("/proc/self"))) {
+            return -1;
+        }
+        return ProcessHandle.current().descendants()
+                .mapToLong(process -> pssBytes(process.pid()))
+                .sum();
+    }
+
+    /**
+     * Returns the number of live descendant processes of this JVM.
+     */
+    public static long descendantCount() {
+        return ProcessHandle.current().descendants().count();
+    }
+
+    private static long pssBytes(long pid) {
+        long pss = field(Path.of("/proc", String.valueOf(pid), "smaps_rollup"), "Pss:");
+        return pss >= 0 ? pss : Math.max(0, field(Path.of("/proc", String.valueOf(pid), "status"), "VmRSS:"));
+    }
+
+    /** Reads a {@code Name:   1234 kB} line; {@code -1} if absent or the process already exited. */
+    private static long field(Path file, String name) {
+        try {
+            List<String> lines = Files.readAllLines(file);
+            for (String line : lines) {
+                if (line.startsWith(name)) {
+                    String[] parts = line.substring(name.length()).trim().split("\\s+");
+                    return Long.parseLong(parts[0]) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // the process exited or the file is not readable
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,354 @@
+package benchmarks.stub;
+
+import org.openqa.selenium.Alert;
+import org.openqa.selenium.By;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoAlertPresentException;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WindowType;
+import org.openqa.selenium.logging.LogEntries;
+import org.openqa.selenium.logging.Logs;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory {@link WebDriver} for measuring framework overhead without a browser.
+ * <p>
+ * Every lookup finds the same visible, enabled {@link StubWebElement}, and scripts resolve
+ * immediately: the element wait script returns that element and the batched-actions script
+ * reports success for every op. Navigation, window and frame switches are no-ops; cookies and
+ * timeouts are kept in memory so code that saves and restores them works, and screenshots are a
+ * blank 1x1 PNG. There is never an alert.
+ */
+public class StubWebDriver implements WebDriver, JavascriptExecutor, TakesScreenshot {
+
+    private final StubWebElement element = new StubWebElement("Products");
+    private final Map<String, Cookie> cookies = new LinkedHashMap<>();
+    private final StubOptions options = new StubOptions();
+    private final StubTimeouts timeouts = new StubTimeouts();
+    private final StubWindow window = new StubWindow();
+    private final StubTargetLocator targetLocator = new StubTargetLocator();
+    private final StubNavigation navigation = new StubNavigation();
+    private String currentUrl = "about:blank";
+
+    @Override
+    public void get(String url) {
+        currentUrl = url;
+    }
+
+    @Override
+    public String getCurrentUrl() {
+        return currentUrl;
+    }
+
+    @Override
+    public String getTitle() {
+        return "Swag Labs";
+    }
+
+    @Override
+    public List<WebElement> findElements(By by) {
+        return List.of(element);
+    }
+
+    @Override
+    public WebElement findElement(By by) {
+        return element;
+    }
+
+    @Override
+    public String getPageSource() {
+        return "<html></html>";
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void quit() {
+    }
+
+    @Override
+    public Set<String> getWindowHandles() {
+        return Set.of("stub");
+    }
+
+    @Override
+    public String getWindowHandle() {
+        return "stub";
+    }
+
+    @Override
+    public TargetLocator switchTo() {
+        return targetLocator;
+    }
+
+    @Override
+    public Navigation navigate() {
+        return navigation;
+    }
+
+    @Override
+    public Options manage() {
+        return options;
+    }
+
+    @Override
+    public Object executeScript(String script, Object... args) {
+        return null;
+    }
+
+    @Override
+    public Object executeAsyncScript(String script, Object... args) {
+        if (args.length > 0 && args[0] instanceof List<?> ops) {
+            List<Object> results = new ArrayList<>(ops.size());
+            ops.forEach(op -> results.add(element.getText()));
+            return Map.of("ok", true, "results", results);
+        }
+        return element;
+    }
+
+    @Override
+    public <X> X getScreenshotAs(OutputType<X> target) {
+        return target.convertFromBase64Png(StubWebElement.SCREENSHOT_BASE64);
+    }
+
+    private final class StubOptions implements Options {
+        @Override
+        public void addCookie(Cookie cookie) {
+            cookies.put(cookie.getName(), cookie);
+        }
+
+        @Override
+        public void deleteCookieNamed(String name) {
+            cookies.remove(name);
+        }
+
+        @Override
+        public void deleteCookie(Cookie cookie) {
+            cookies.remove(cookie.getName());
+        }
+
+        @Override
+        public void deleteAllCookies() {
+            cookies.clear();
+        }
+
+        @Override
+        public Set<Cookie> getCookies() {
+            return Set.copyOf(cookies.values());
+        }
+
+        @Override
+        public Cookie getCookieNamed(String name) {
+            return cookies.get(name);
+        }
+
+        @Override
+        public Timeouts timeouts() {
+            return timeouts;
+        }
+
+        @Override
+        public Window window() {
+            return window;
+        }
+
+        @Override
+        public Logs logs() {
+            return new Logs() {
+                @Override
+                public LogEntries get(String logType) {
+                    return new LogEntries(List.of());
+                }
+
+                @Override
+                public Set<String> getAvailableLogTypes() {
+                    return Set.of();
+                }
+            };
+        }
+    }
+
+    /** Keeps the timeouts it is given; the W3C defaults until then. */
+    private static final class StubTimeouts implements Timeouts {
+        private Duration implicitWait = Duration.ZERO;
+        private Duration script = Duration.ofSeconds(30);
+        private Duration pageLoad = Duration.ofMinutes(5);
+
+        @Override
+        public Timeouts implicitlyWait(long time, TimeUnit unit) {
+            return implicitlyWait(Duration.of(time, unit.toChronoUnit()));
+        }
+
+        @Override
+        public Timeouts implicitlyWait(Duration duration) {
+            implicitWait = duration;
+            return this;
+        }
+
+        @Override
+        public Duration getImplicitWaitTimeout() {
+            return implicitWait;
+        }
+
+        @Override
+        public Timeouts setScriptTimeout(long time, TimeUnit unit) {
+            return scriptTimeout(Duration.of(time, unit.toChronoUnit()));
+        }
+
+        @Override
+        public Timeouts setScriptTimeout(Duration duration) {
+            return scriptTimeout(duration);
+        }
+
+        @Override
+        public Timeouts scriptTimeout(Duration duration) {
+            script = duration;
+            return this;
+        }
+
+        @Override
+        public Duration getScriptTimeout() {
+            return script;
+        }
+
+        @Override
+        public Timeouts pageLoadTimeout(long time, TimeUnit unit) {
+            return pageLoadTimeout(Duration.of(time, unit.toChronoUnit()));
+        }
+
+        @Override
+        public Timeouts pageLoadTimeout(Duration duration) {
+            pageLoad = duration;
+            return this;
+        }
+
+        @Override
+        public Duration getPageLoadTimeout() {
+            return pageLoad;
+        }
+    }
+
+    private static final class StubWindow implements Window {
+        private Dimension size = new Dimension(1280, 800);
+        private Point position = new Point(0, 0);
+
+        @Override
+        public Dimension getSize() {
+            return size;
+        }
+
+        @Override
+        public void setSize(Dimension targetSize) {
+            size = targetSize;
+        }
+
+        @Override
+        public Point getPosition() {
+            return position;
+        }
+
+        @Override
+        public void setPosition(Point targetPosition) {
+            position = targetPosition;
+        }
+
+        @Override
+        public void maximize() {
+        }
+
+        @Override
+        public void minimize() {
+        }
+
+        @Override
+        public void fullscreen() {
+        }
+    }
+
+    private final class StubTargetLocator implements TargetLocator {
+        @Override
+        public WebDriver frame(int index) {
+            return StubWebDriver.this;
+        }
+
+        @Override
+        public WebDriver frame(String nameOrId) {
+            return StubWebDriver.this;
+        }
+
+        @Override
+        public WebDriver frame(WebElement frameElement) {
+            return StubWebDriver.this;
+        }
+
+        @Override
+        public WebDriver parentFrame() {
+            return StubWebDriver.this;
+        }
+
+        @Override
+        public WebDriver window(String nameOrHandle) {
+            return StubWebDriver.this;
+        }
+
+        @Override
+        public WebDriver newWindow(WindowType typeHint) {
+            return StubWebDriver.this;
+        }
+
+        @Override
+        public WebDriver defaultContent() {
+            return StubWebDriver.this;
+        }
+
+        @Override
+        public WebElement activeElement() {
+            return element;
+        }
+
+        @Override
+        public Alert alert() {
+            throw new NoAlertPresentException("The stub driver never shows an alert");
+        }
+    }
+
+    private final class StubNavigation implements Navigation {
+        @Override
+        public void back() {
+        }
+
+        @Override
+        public void forward() {
+        }
+
+        @Override
+        public void to(String url) {
+            get(url);
+        }
+
+        @Override
+        public void to(URL url) {
+            get(url.toString());
+        }
+
+        @Override
+        public void refresh() {
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package pages;
+
+import benchmarks.BenchmarkLogs;
+import benchmarks.stub.StubWebDriver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Framework overhead of {@link BasePage} against an in-memory driver: page construction and
+ * the four core actions, for each wait strategy. Lives in {@code pages} so it can call the
+ * protected actions directly.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BasePageBenchmark {
+
+    private static final By USERNAME = By.id("user-name");
+    private static final By TITLE = By.className("title");
+
+    @Param({"observer", "polling", "legacy"})
+    public String waitStrategy;
+
+    private WebDriver driver;
+    private LoginPage page;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkLogs.silenceConsole();
+        System.setProperty("wait.strategy", waitStrategy);
+        driver = new StubWebDriver();
+        page = new LoginPage(driver);
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncateLogs() {
+        BenchmarkLogs.truncateLogFile();
+    }
+
+    @Benchmark
+    public LoginPage constructPage() {
+        return new LoginPage(driver);
+    }
+
+    @Benchmark
+    public WebElement findElement() {
+        return page.findElement(USERNAME, "Username field");
+    }
+
+    @Benchmark
+    public void click() {
+        page.click(USERNAME, "Login button");
+    }
+
+    @Benchmark
+    public void type() {
+        page.type(USERNAME, "standard_user", "Username field");
+    }
+
+    @Benchmark
+    public void typePassword() {
+        page.type(USERNAME, "secret_sauce", "Password field");
+    }
+
+    @Benchmark
+    public String getText() {
+        return page.getText(TITLE, "Title text");
+    }
+
+    @Benchmark
+    public String maskForLog() {
+        return BasePage.maskForLog("Password field", "secret_sauce");
+    }
+}
@@ -0,0 +1,87 @@
+package pages;
+
+import benchmarks.BenchmarkLogs;
+import benchmarks.stub.StubWebDriver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openqa.selenium.WebDriver;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of getting page objects in a long flow: {@code new} pages in every step, as the step
+ * definitions used to do, against the session's {@link Pages} registry, with and without cached
+ * elements ({@code pages.cacheElements}).
+ * <p>
+ * {@link #loginFlow()} is one login as the scenarios run it; {@link #productsSteps()} is
+ * {@link #STEPS} consecutive steps on the Products page, where cached elements pay off because
+ * nothing navigates in between. Run with {@code -prof gc} for the allocation per flow.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PageRegistryBenchmark {
+
+    static final int STEPS = 20;
+
+    @Param({"new", "registry", "cached"})
+    public String pages;
+
+    @Param({"observer", "polling"})
+    public String waitStrategy;
+
+    private WebDriver driver;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkLogs.silenceConsole();
+        System.setProperty("wait.strategy", waitStrategy);
+        System.setProperty("pages.cacheElements", String.valueOf(pages.equals("cached")));
+        driver = new StubWebDriver();
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncateLogs() {
+        BenchmarkLogs.truncateLogFile();
+    }
+
+    @Benchmark
+    public String loginFlow() {
+        driver.get("https://www.saucedemo.com/");
+        navigated();
+        page(LoginPage.class).enterUsername("standard_user");
+        page(LoginPage.class).enterPassword("secret_sauce");
+        page(LoginPage.class).clickLoginButton();
+        return page(ProductsPage.class).getTitleText();
+    }
+
+    @Benchmark
+    public int productsSteps() {
+        int length = 0;
+        for (int i = 0; i < STEPS; i++) {
+            length += page(ProductsPage.class).getTitleText().length();
+        }
+        return length;
+    }
+
+    private <T extends BasePage> T page(Class<T> type) {
+        if (pages.equals("new")) {
+            return type.cast(type == LoginPage.class ? new LoginPage(driver) : new ProductsPage(driver));
+        }
+        return Pages.of(driver).get(type);
+    }
+
+    private void navigated() {
+        if (!pages.equals("new")) {
+            Pages.of(driver).navigated();
+        }
+    }
+}
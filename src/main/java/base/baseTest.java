@@ -1,25 +1,23 @@
 package base;
 
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.chrome.ChromeDriver;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
+import utils.DriverFactory;
 
 public class baseTest {
     protected WebDriver driver;
 
     @BeforeMethod
     public void setup(){
-        // Initialize driver
-        driver=new ChromeDriver();
-        driver.manage().window().maximize();
+        // Check out a (warm) driver for this test
+        driver=DriverFactory.getDriver();
     }
 
     @AfterMethod
     public void postTest(){
-        // Quit driver after each test
-        if(driver!=null){
-            driver.quit();
-        }
+        // Return the driver to the pool after each test
+        DriverFactory.quitDriver();
+        driver=null;
     }
 }
@@ -0,0 +1,222 @@
+package pages;
+
+import exceptions.PageException;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriverException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A fluent chain of page actions that can be executed in a single WebDriver round-trip.
+ * <p>
+ * In batched mode (see {@link BasePage#isBatched()}) all queued actions are sent to the
+ * browser as one {@code executeAsyncScript} call which waits for, locates and acts on each
+ * element in order. Without batching, or after {@link #withNativeEvents()}, the same actions
+ * run one by one through the regular {@link BasePage} methods, which use real key and
+ * mouse events.
+ * <p>
+ * Each action in the script waits up to the page timeout for its element. A call never runs past
+ * the session's script timeout: when the chain has waited for {@value #SCRIPT_BUDGET_SECONDS} s,
+ * the script returns and the remaining actions continue in another call, so a batch is one
+ * round-trip unless its waits add up to that long.
+ * <p>
+ * Failures are reported for the first action that failed and are mapped to the same
+ * {@link PageException} messages as the corresponding {@link BasePage} methods.
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ *     batch().type(USERNAME_FIELD, username, "Username field")
+ *            .type(PASSWORD_FIELD, password, "Password field")
+ *            .click(LOGIN_BUTTON, "Login button")
+ *            .execute();
+ * </pre>
+ */
+public final class ActionBatch {
+
+    private static final String SCRIPT = Scripts.load("batch-actions.js");
+    /** Async scripts are cut off by the session's script timeout (30 s by default). */
+    private static final int SCRIPT_BUDGET_SECONDS = 20;
+
+    private final BasePage page;
+    private final List<Action> actions = new ArrayList<>();
+    private boolean nativeEvents;
+
+    private record Action(String op, By locator, String text, String elementName) {
+    }
+
+    ActionBatch(BasePage page) {
+        this.page = page;
+        this.nativeEvents = !page.isBatched();
+    }
+
+    /**
+     * Queues typing {@code text} into the element, replacing its current value.
+     */
+    public ActionBatch type(By locator, String text, String elementName) {
+        PageUsage.record(page, locator);
+        actions.add(new Action("type", locator, text, elementName));
+        return this;
+    }
+
+    /**
+     * Queues a click on the element once it is visible and enabled.
+     */
+    public ActionBatch click(By locator, String elementName) {
+        PageUsage.record(page, locator);
+        actions.add(new Action("click", locator, null, elementName));
+        return this;
+    }
+
+    /**
+     * Queues reading the visible text of the element; the value is returned by {@link #execute()}
+     * under the position of this action in the chain.
+     */
+    public ActionBatch getText(By locator, String elementName) {
+        PageUsage.record(page, locator);
+        actions.add(new Action("text", locator, null, elementName));
+        return this;
+    }
+
+    /**
+     * Executes this chain with native WebDriver events instead of a script, for flows where
+     * real key events matter (key handlers, input masks, autocompletion).
+     */
+    public ActionBatch withNativeEvents() {
+        this.nativeEvents = true;
+        return this;
+    }
+
+    /**
+     * Runs all queued actions in order.
+     *
+     * @return the texts read by {@link #getText(By, String)} actions, keyed by the zero-based
+     *         position of the action in the chain
+     * @throws PageException for the first action that failed
+     */
+    public Map<Integer, String> execute() {
+        if (actions.isEmpty()) {
+            return Map.of();
+        }
+        if (nativeEvents || !scriptable()) {
+            return executeNatively();
+        }
+        return executeAsScript();
+    }
+
+    private Map<Integer, String> executeNatively() {
+        Map<Integer, String> texts = new LinkedHashMap<>();
+        for (int i = 0; i < actions.size(); i++) {
+            Action action = actions.get(i);
+            switch (action.op()) {
+                case "type" -> page.type(action.locator(), action.text(), action.elementName());
+                case "click" -> page.click(action.locator(), action.elementName());
+                default -> texts.put(i, page.getText(action.locator(), action.elementName()));
+            }
+        }
+        return texts;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Integer, String> executeAsScript() {
+        List<Map<String, Object>> ops = new ArrayList<>(actions.size());
+        for (Action action : actions) {
+            By.Remotable.Parameters parameters = Scripts.scriptParameters(page.driver, action.locator());
+            Map<String, Object> op = new LinkedHashMap<>();
+            op.put("op", action.op());
+            op.put("using", parameters.using());
+            op.put("value", parameters.value());
+            op.put("text", action.text());
+            ops.add(op);
+        }
+
+        page.logger.debug("Executing {} batched actions in one script call", ops.size());
+        long start = System.nanoTime();
+        Map<Integer, String> texts = new LinkedHashMap<>();
+        int from = 0;
+        long firstTimeoutMillis = page.getTimeout().toMillis();
+        try {
+            while (true) {
+                Map<String, Object> outcome;
+                try {
+                    outcome = (Map<String, Object>) ((JavascriptExecutor) page.driver).executeAsyncScript(SCRIPT,
+                            ops.subList(from, ops.size()), page.getTimeout().toMillis(), SCRIPT_BUDGET_SECONDS * 1000L, firstTimeoutMillis);
+                } catch (WebDriverException e) {
+                    page.recordAction("batch", describe(), start, false);
+                    throw new PageException("Batched actions failed on " + page.getClass().getSimpleName(), e);
+                }
+                List<Object> results = (List<Object>) outcome.get("results");
+                for (int i = 0; i < results.size(); i++) {
+                    logSuccess(from + i, actions.get(from + i), results.get(i), texts);
+                }
+                if (Boolean.TRUE.equals(outcome.get("ok"))) {
+                    page.recordAction("batch", describe(), start, true);
+                    return texts;
+                }
+                int index = from + ((Number) outcome.get("index")).intValue();
+                String error = String.valueOf(outcome.get("error"));
+                if ("budget".equals(error)) {
+                    page.logger.debug("Batched actions reached the script budget at action {}; continuing in a new call", index);
+                    from = index;
+                    firstTimeoutMillis = Math.max(0, ((Number) outcome.get("remaining")).longValue());
+                    continue;
+                }
+                page.recordAction("batch", describe(), start, false);
+                throw toPageException(actions.get(index), error, String.valueOf(outcome.get("detail")));
+            }
+        } finally {
+            // a queued click may have navigated
+            page.pages().navigated();
+        }
+    }
+
+    private void logSuccess(int index, Action action, Object result, Map<Integer, String> texts) {
+        switch (action.op()) {
+            case "type" -> page.logger.info("Typed '{}' into '{}'", BasePage.maskForLog(action.elementName(), action.text()), action.elementName());
+            case "click" -> page.logger.debug("Clicked on '{}'", action.elementName());
+            default -> {
+                String text = result == null ? "" : result.toString();
+                page.logger.debug("Text retrieved from '{}': {}", action.elementName(), text);
+                texts.put(index, text);
+            }
+        }
+    }
+
+    private PageException toPageException(Action action, String error, String detail) {
+        String name = action.elementName();
+        page.logger.debug("Batched '{}' on '{}' failed: {} ({})", action.op(), name, error, detail);
+        return switch (error) {
+            case "timeout-visible" -> action.op().equals("click")
+                    ? new PageException("Timed out waiting for element to be clickable: " + name)
+                    : new PageException(name + " not visible after waiting on " + page.getClass().getSimpleName());
+            case "timeout-clickable" -> new PageException("Timed out waiting for element to be clickable: " + name);
+            case "not-interactable" -> action.op().equals("type")
+                    ? new PageException("Element not interactable for typing: " + name)
+                    : new PageException("Element not interactable while getting text from: " + name);
+            default -> switch (action.op()) {
+                case "type" -> new PageException("Unexpected error while typing into " + name + ": " + detail);
+                case "click" -> new PageException("Element not clickable: " + name + ": " + detail);
+                default -> new PageException("Unexpected error while getting text from: " + name + ": " + detail);
+            };
+        };
+    }
+
+    private String describe() {
+        StringBuilder sb = new StringBuilder();
+        for (Action action : actions) {
+            sb.append(sb.length() == 0 ? "" : ",").append(action.elementName());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Script execution needs a JavaScript-capable driver and locators that translate to
+     * CSS or XPath (link-text locators, for example, do not).
+     */
+    private boolean scriptable() {
+        return actions.stream().allMatch(action -> Scripts.scriptParameters(page.driver, action.locator()) != null);
+    }
+}
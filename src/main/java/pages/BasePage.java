@@ -2,12 +2,15 @@ package pages;
 
 import exceptions.PageException;
 import org.openqa.selenium.*;
-import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import utils.ConfigReader;
+import utils.Metrics;
 
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Base class for all Page Object classes in the framework.
@@ -35,19 +38,59 @@ public abstract class BasePage {
      */
     protected final WebDriver driver;
 
+    /**
+     * Settings read once per page class: the logger, the default timeout and the interaction mode.
+     */
+    private record Settings(Logger logger, Duration timeout, boolean batched) {
+    }
+
+    private static final ClassValue<Settings> SETTINGS = new ClassValue<>() {
+        @Override
+        protected Settings computeValue(Class<?> type) {
+            return new Settings(LoggerFactory.getLogger(type),
+                    Duration.ofSeconds(ConfigReader.getInt("wait." + type.getSimpleName() + ".timeoutSeconds",
+                            ConfigReader.getInt("wait.timeoutSeconds", 10))),
+                    "batched".equalsIgnoreCase(ConfigReader.getProperty("interaction.mode", "native")));
+        }
+    };
+
     /**
      * SLF4J logger instance for logging actions, errors, and debug info.
      */
-    protected final Logger logger = LoggerFactory.getLogger(getClass());
+    protected final Logger logger = SETTINGS.get(getClass()).logger();
 
     /**
-     * Explicit wait utility for WebElements using {@link WebDriverWait}.
+     * Explicit wait utility for WebElements, see {@link ElementWait}.
      * <p>
-     * This class provides reusable methods to wait for various element states such as
-     * visibility, clickability, and invisibility. It helps ensure stable interaction
-     * with web elements that may take time to appear or become ready for action.
+     * Waits for elements to become visible or clickable before they are used. It helps ensure
+     * stable interaction with web elements that may take time to appear or become ready for action.
+     * The strategy and polling bounds come from the {@code wait.*} properties in {@code config.properties};
+     * all pages of a session share one instance through {@link Pages}.
+     */
+    private final ElementWait wait;
+
+    /**
+     * The session this page belongs to, see {@link Pages}.
+     */
+    private final Pages session;
+
+    /**
+     * Elements resolved by this page, reused while {@link Pages#navigations()} equals
+     * {@link #elementsEpoch}; {@code null} unless {@code pages.cacheElements} is on.
+     */
+    private final Map<By, WebElement> elements;
+    private int elementsEpoch;
+
+    /**
+     * Default maximum time to wait for an element before an action fails.
+     */
+    private final Duration timeout;
+
+    /**
+     * Whether {@link #batch()} chains and {@link #getTexts(Map)} run as a single script call.
+     * Defaults to the {@code interaction.mode} property ({@code native} or {@code batched}).
      */
-    private final WebDriverWait wait;
+    private boolean batched;
 
     /**
      * Constructs a new BasePage instance.
@@ -56,20 +99,37 @@ public abstract class BasePage {
      * @throws IllegalArgumentException if the provided driver is {@code null}.
      */
     public BasePage(WebDriver driver) {
+        this(driver, null);
+    }
+
+    /**
+     * Constructs a new BasePage instance with a page-specific wait timeout.
+     *
+     * @param driver  WebDriver instance used to interact with the browser.
+     * @param timeout default wait timeout for this page, or {@code null} to use
+     *                {@code wait.<PageName>.timeoutSeconds} / {@code wait.timeoutSeconds} (10 s if unset).
+     * @throws IllegalArgumentException if the provided driver is {@code null}.
+     */
+    protected BasePage(WebDriver driver, Duration timeout) {
         if (driver == null) {
             throw new IllegalArgumentException("driver must not be null");
         }
         this.driver = driver;
-        logger.info("{} initialized successfully.", getClass().getSimpleName());
-        this.wait = new WebDriverWait(driver, Duration.ofSeconds(10));
+        Settings settings = SETTINGS.get(getClass());
+        this.session = Pages.of(driver);
+        this.timeout = timeout != null ? timeout : settings.timeout();
+        this.batched = settings.batched();
+        this.wait = session.elementWait();
+        this.elements = session.cachesElements() ? new HashMap<>() : null;
+        logger.debug("{} initialized successfully.", getClass().getSimpleName());
     }
 
     /**
      * Waits for the specified element to become visible on the page and returns it.
      * <p>
      * This method combines explicit wait and exception handling to locate a visible element reliably.
-     * It first waits for the element's visibility using {@link ExpectedConditions#visibilityOfElementLocated(By)},
-     * ensuring that the element is both present in the DOM and visible before interacting with it.
+     * It first waits for the element's visibility using {@link ElementWait}, ensuring that the
+     * element is both present in the DOM and visible before interacting with it.
      * <p>
      * If the element is not found or not visible within the specified wait duration, a {@link PageException}
      * is thrown with a descriptive error message.
@@ -80,15 +140,57 @@ public abstract class BasePage {
      * @throws PageException if the element is not found or not visible within the wait time
      */
     protected WebElement findElement(By locator, String elementName) {
+        return findElement(locator, elementName, timeout);
+    }
+
+    /**
+     * Same as {@link #findElement(By, String)} with a timeout for this call only.
+     *
+     * @param locator     the {@link By} locator used to find the WebElement
+     * @param elementName a human-readable name of the element for logging and debugging purposes
+     * @param timeout     maximum time to wait for the element
+     * @return the visible {@link WebElement} once located and visible
+     * @throws PageException if the element is not found or not visible within the wait time
+     */
+    protected WebElement findElement(By locator, String elementName, Duration timeout) {
+        PageUsage.record(this, locator);
+        long start = System.nanoTime();
+        boolean ok = false;
         try {
             logger.debug("Waiting for visibility of element: {}", elementName);
-            WebElement element = wait.until(ExpectedConditions.visibilityOfElementLocated(locator));
+            WebElement element = visibleElement(locator, timeout);
             logger.debug("Element '{}' is visible.", elementName);
+            ok = true;
             return element;
         } catch (TimeoutException e) {
             throw new PageException(elementName + " not visible after waiting on " + getClass().getSimpleName(), e);
         } catch (NoSuchElementException e) {
             throw new PageException(elementName + " not found on " + getClass().getSimpleName(), e);
+        } finally {
+            recordAction("findElement", elementName, start, ok);
+        }
+    }
+
+    /**
+     * Waits up to {@code timeout} for the element to become visible and reports whether it did,
+     * for checks that decide what to do next rather than fail.
+     *
+     * @param locator     the {@link By} locator used to find the WebElement
+     * @param elementName a human-readable name of the element for logging and debugging purposes
+     * @param timeout     maximum time to wait for the element
+     * @return {@code true} if the element is visible within {@code timeout}
+     */
+    protected boolean isVisible(By locator, String elementName, Duration timeout) {
+        PageUsage.record(this, locator);
+        long start = System.nanoTime();
+        try {
+            wait.until(locator, ElementWait.Condition.VISIBLE, timeout);
+            return true;
+        } catch (TimeoutException | NoSuchElementException e) {
+            logger.debug("Element '{}' not visible within {} ms", elementName, timeout.toMillis());
+            return false;
+        } finally {
+            recordAction("isVisible", elementName, start, true);
         }
     }
 
@@ -96,7 +198,7 @@ public abstract class BasePage {
     /**
      * Waits for the specified element to become clickable and performs a click action on it.
      * <p>
-     * This method uses an explicit wait via {@link ExpectedConditions#elementToBeClickable(By)}
+     * This method uses an explicit wait via {@link ElementWait} (visible and enabled)
      * to ensure the element is ready for interaction. It also includes a retry mechanism to handle
      * {@link org.openqa.selenium.StaleElementReferenceException}, which may occur when the DOM updates
      * before the click is performed.
@@ -109,12 +211,37 @@ public abstract class BasePage {
      * @throws PageException if the element is stale, not clickable, or not found within the wait time
      */
     protected void click(By locator, String elementName) {
+        click(locator, elementName, timeout);
+    }
+
+    /**
+     * Same as {@link #click(By, String)} with a timeout for this call only.
+     *
+     * @param locator     the {@link By} locator used to identify the clickable element
+     * @param elementName a human-readable name of the element, used for logging and error reporting
+     * @param timeout     maximum time to wait for the element to become clickable
+     * @throws PageException if the element is stale, not clickable, or not found within the wait time
+     */
+    protected void click(By locator, String elementName, Duration timeout) {
+        PageUsage.record(this, locator);
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            clickWithRetry(locator, elementName, timeout);
+            ok = true;
+        } finally {
+            recordAction("click", elementName, start, ok);
+        }
+    }
+
+    private void clickWithRetry(By locator, String elementName, Duration timeout) {
         int retries = 2;
         while (retries > 0) {
             try {
                 logger.info("Clicking on element: {}", elementName);
-                WebElement element = wait.until(ExpectedConditions.elementToBeClickable(locator));
+                WebElement element = wait.until(locator, ElementWait.Condition.CLICKABLE, timeout);
                 element.click();
+                session.navigated();
                 logger.debug("Clicked on '{}'", elementName);
                 return; // success, so exit method
             } catch (StaleElementReferenceException e) {
@@ -132,6 +259,43 @@ public abstract class BasePage {
     }
 
 
+    /**
+     * Waits until the element is visible, or reuses the element this page found for {@code locator}
+     * before if elements are cached, the session has not navigated since and the element is still
+     * displayed. Reusing costs one command, where a polling wait costs a lookup and a check per poll;
+     * clicks always wait, since they usually end the document the element belongs to.
+     */
+    private WebElement visibleElement(By locator, Duration timeout) {
+        if (elements == null) {
+            return wait.until(locator, ElementWait.Condition.VISIBLE, timeout);
+        }
+        if (elementsEpoch != session.navigations()) {
+            elements.clear();
+            elementsEpoch = session.navigations();
+        }
+        WebElement cached = elements.get(locator);
+        if (cached != null) {
+            try {
+                if (cached.isDisplayed()) {
+                    return cached;
+                }
+            } catch (StaleElementReferenceException e) {
+                // the document was replaced without this session noticing, e.g. by driver.get()
+            }
+            elements.remove(locator);
+        }
+        WebElement element = wait.until(locator, ElementWait.Condition.VISIBLE, timeout);
+        elements.put(locator, element);
+        return element;
+    }
+
+    /**
+     * Returns the page registry of this page's session.
+     */
+    protected Pages pages() {
+        return session;
+    }
+
     /**
      * Clears the existing text (if any) and types the specified value into the given element.
      * <p>
@@ -148,18 +312,20 @@ public abstract class BasePage {
      * @throws PageException if the element is not interactable or if any unexpected error occurs while typing
      */
     public void type(By locator, String text, String elementName) {
+        long start = System.nanoTime();
+        boolean ok = false;
         try {
             WebElement element = findElement(locator, elementName);
             element.clear();
             element.sendKeys(text);
-            String textForLog = elementName != null && elementName.toLowerCase().contains("password")
-                    ? "[HIDDEN]"
-                    : text;
-            logger.info("Typed '{}' into '{}'", textForLog, elementName);
+            logger.info("Typed '{}' into '{}'", maskForLog(elementName, text), elementName);
+            ok = true;
         } catch (ElementNotInteractableException e) {
             throw new PageException("Element not interactable for typing: " + elementName, e);
         } catch (Exception e) {
             throw new PageException("Unexpected error while typing into " + elementName, e);
+        } finally {
+            recordAction("type", elementName, start, ok);
         }
     }
 
@@ -172,6 +338,8 @@ public abstract class BasePage {
      * @throws PageException if the element is not interactable or an unexpected error occurs
      */
     public String getText(By locator, String elementName) {
+        long start = System.nanoTime();
+        boolean ok = false;
         try {
             logger.info("Getting text from element: {}", elementName);
             WebElement element = findElement(locator, elementName);
@@ -182,13 +350,114 @@ public abstract class BasePage {
             }
 
             logger.debug("Text retrieved from '{}': {}", elementName, text);
+            ok = true;
             return text;
 
         } catch (ElementNotInteractableException e) {
             throw new PageException("Element not interactable while getting text from: " + elementName, e);
         } catch (Exception e) {
             throw new PageException("Unexpected error while getting text from: " + elementName, e);
+        } finally {
+            recordAction("getText", elementName, start, ok);
+        }
+    }
+
+    /**
+     * Retrieves the visible text of several elements.
+     * <p>
+     * In batched mode all elements are read with a single script call; otherwise each element
+     * is read with {@link #getText(By, String)}.
+     *
+     * @param elements locators keyed by a descriptive element name, in the order to read them
+     * @return the text of each element, keyed by element name
+     * @throws PageException for the first element that could not be read
+     */
+    public Map<String, String> getTexts(Map<String, By> elements) {
+        ActionBatch reads = batch();
+        elements.forEach((elementName, locator) -> reads.getText(locator, elementName));
+        Map<Integer, String> read = reads.execute();
+        Map<String, String> texts = new LinkedHashMap<>();
+        int index = 0;
+        for (String elementName : elements.keySet()) {
+            texts.put(elementName, read.get(index++));
         }
+        logger.info("Retrieved text from {} elements", texts.size());
+        return texts;
+    }
+
+    /**
+     * Starts a chain of actions that runs as one script call in batched mode.
+     *
+     * @return a new, empty {@link ActionBatch} for this page
+     */
+    protected ActionBatch batch() {
+        return new ActionBatch(this);
+    }
+
+    /**
+     * Returns {@code true} if {@link #batch()} chains run as a single script call.
+     */
+    public boolean isBatched() {
+        return batched;
+    }
+
+    /**
+     * Switches batched interactions on or off for this page instance.
+     *
+     * @param batched {@code false} to always use native WebDriver events
+     */
+    public void setBatched(boolean batched) {
+        this.batched = batched;
+    }
+
+    /**
+     * Starts timing a transition away from this page, e.g. just before the click that submits a form.
+     * The page reached next stops the clock with {@link #measureLoad(By, String)}.
+     */
+    protected void startTransition() {
+        PagePerformance.startTransition(driver);
+    }
+
+    /**
+     * Waits until the element that marks this page as ready is visible and collects the page's
+     * performance, including the transition that led here if one was started within twice the
+     * wait timeout.
+     *
+     * @param readyLocator locator of the element the user waits for
+     * @param elementName  a human-readable name of the element for logging and debugging purposes
+     * @return the performance of this page load
+     * @throws PageException if the element is not visible within the wait time
+     */
+    protected PagePerformance.Snapshot measureLoad(By readyLocator, String elementName) {
+        findElement(readyLocator, elementName);
+        Double transitionMillis = PagePerformance.endTransition(driver, timeout.toMillis() * 2);
+        PagePerformance.Snapshot snapshot = PagePerformance.collect(driver, getClass().getSimpleName(), transitionMillis);
+        logger.info("Page performance: {}", snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Returns the maximum time this page waits for an element.
+     */
+    protected Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Records the latency of a page action in {@link Metrics}, keyed by page, action and element name.
+     */
+    void recordAction(String action, String elementName, long startNanos, boolean ok) {
+        Metrics.record(Metrics.ACTION, getClass().getSimpleName() + "." + action + ":" + elementName,
+                System.nanoTime() - startNanos, ok);
+    }
+
+    /**
+     * Hides the typed value in logs when the element name suggests a password.
+     */
+    static String maskForLog(String elementName, String text) {
+        return elementName != null && elementName.toLowerCase().contains("password")
+                ? "[HIDDEN]"
+                : text;
     }
 
 
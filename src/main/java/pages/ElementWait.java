@@ -0,0 +1,238 @@
+package pages;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.Metrics;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Wait engine used by {@link BasePage} to wait for elements to become visible or clickable.
+ * <p>
+ * Three strategies are available, selected with the {@code wait.strategy} property:
+ * <ul>
+ *     <li>{@link Strategy#OBSERVER} (default) installs a DOM {@code MutationObserver} through
+ *     {@code executeAsyncScript}, so the browser resolves the wait the moment the element becomes
+ *     ready and the whole wait costs one round-trip. Falls back to polling when the driver cannot
+ *     run scripts, the locator has no CSS/XPath form, or the page navigates during the wait.</li>
+ *     <li>{@link Strategy#POLLING} polls with adaptive backoff, starting at {@code wait.pollMillis}
+ *     and growing up to {@code wait.maxPollMillis}, so short waits end quickly and long waits do
+ *     not flood the driver with commands.</li>
+ *     <li>{@link Strategy#LEGACY} is the original {@link WebDriverWait} + {@link ExpectedConditions}
+ *     path with a fixed 500 ms poll, kept as a baseline for comparison.</li>
+ * </ul>
+ * Every wait is recorded in {@link Metrics} under {@value Metrics#WAIT}, keyed by the strategy that
+ * resolved it and the condition, so its percentiles are in the run's metrics summary next to the
+ * actions; the average per strategy is also logged at the end of the run. Run the suite once with
+ * {@code -Dwait.strategy=legacy} and once with the default to compare them.
+ * <p>
+ * All strategies signal a timeout with Selenium's {@link TimeoutException}.
+ */
+public final class ElementWait {
+
+    private static final Logger logger = LoggerFactory.getLogger(ElementWait.class);
+
+    private static final String SCRIPT = Scripts.load("wait-for-element.js");
+
+    /** Async scripts are cut off by the session's script timeout (30 s by default). */
+    private static final Duration MAX_SCRIPT_CHUNK = Duration.ofSeconds(20);
+
+    private static final Map<Strategy, Stats> STATS = new ConcurrentHashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            String summary = summary();
+            if (!summary.isEmpty()) {
+                logger.info(summary);
+            }
+        }, "element-wait-stats"));
+    }
+
+    /**
+     * How a wait is resolved.
+     */
+    public enum Strategy {
+        OBSERVER, POLLING, LEGACY;
+
+        /**
+         * Returns the strategy named {@code name}, ignoring case, as given in {@code wait.strategy}.
+         *
+         * @throws IllegalArgumentException if there is no such strategy
+         */
+        public static Strategy named(String name) {
+            for (Strategy strategy : values()) {
+                if (strategy.name().equalsIgnoreCase(name.trim())) {
+                    return strategy;
+                }
+            }
+            throw new IllegalArgumentException("Unknown wait.strategy '" + name + "'; expected one of "
+                    + Arrays.stream(values()).map(s -> s.name().toLowerCase()).collect(Collectors.joining(", ")));
+        }
+    }
+
+    /**
+     * The element state to wait for.
+     */
+    public enum Condition {
+        VISIBLE, CLICKABLE
+    }
+
+    private final WebDriver driver;
+    private final Strategy strategy;
+    private final Duration initialPoll;
+    private final Duration maxPoll;
+
+    /**
+     * @param driver      driver to wait on
+     * @param strategy    how waits are resolved
+     * @param initialPoll first polling interval for {@link Strategy#POLLING} and fallbacks
+     * @param maxPoll     upper bound the polling interval backs off to
+     */
+    public ElementWait(WebDriver driver, Strategy strategy, Duration initialPoll, Duration maxPoll) {
+        this.driver = driver;
+        this.strategy = strategy;
+        this.initialPoll = initialPoll;
+        this.maxPoll = maxPoll;
+    }
+
+    /**
+     * Waits until the element located by {@code locator} satisfies {@code condition}.
+     *
+     * @return the ready element
+     * @throws TimeoutException if the element is not ready within {@code timeout}
+     */
+    public WebElement until(By locator, Condition condition, Duration timeout) {
+        long start = System.nanoTime();
+        Strategy used = strategy;
+        boolean ready = false;
+        try {
+            WebElement element = switch (strategy) {
+                case LEGACY -> legacy(locator, condition, timeout);
+                case POLLING -> poll(locator, condition, start + timeout.toNanos());
+                case OBSERVER -> {
+                    if (Scripts.scriptParameters(driver, locator) == null) {
+                        used = Strategy.POLLING;
+                        yield poll(locator, condition, start + timeout.toNanos());
+                    }
+                    yield observe(locator, condition, start + timeout.toNanos());
+                }
+            };
+            ready = true;
+            return element;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            STATS.computeIfAbsent(used, s -> new Stats()).record(elapsed);
+            Metrics.record(Metrics.WAIT, used.name().toLowerCase() + ":" + condition.name().toLowerCase(), elapsed, ready);
+        }
+    }
+
+    /**
+     * Returns the average wait latency per strategy used so far in this JVM.
+     */
+    public static String summary() {
+        StringBuilder sb = new StringBuilder();
+        STATS.forEach((strategy, stats) -> {
+            long count = stats.count.sum();
+            if (count > 0) {
+                sb.append(String.format("Element waits [%s]: %d waits, avg %.1f ms, %d polling fallbacks%n",
+                        strategy.name().toLowerCase(), count, stats.nanos.sum() / 1e6 / count, stats.fallbacks.sum()));
+            }
+        });
+        return sb.toString().trim();
+    }
+
+    private WebElement legacy(By locator, Condition condition, Duration timeout) {
+        WebDriverWait wait = new WebDriverWait(driver, timeout);
+        return condition == Condition.CLICKABLE
+                ? wait.until(ExpectedConditions.elementToBeClickable(locator))
+                : wait.until(ExpectedConditions.visibilityOfElementLocated(locator));
+    }
+
+    private WebElement observe(By locator, Condition condition, long deadline) {
+        By.Remotable.Parameters parameters = Scripts.scriptParameters(driver, locator);
+        String state = condition == Condition.CLICKABLE ? "clickable" : "visible";
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw timeout(locator, condition);
+            }
+            long chunk = Math.min(remaining, MAX_SCRIPT_CHUNK.toNanos());
+            try {
+                Object result = ((JavascriptExecutor) driver).executeAsyncScript(SCRIPT,
+                        parameters.using(), parameters.value(), state, TimeUnit.NANOSECONDS.toMillis(chunk));
+                if (result instanceof WebElement element) {
+                    return element;
+                }
+            } catch (WebDriverException e) {
+                // Typically the document was unloaded by a navigation while the observer was
+                // installed; finish the wait by polling the new page.
+                logger.debug("Observer wait for {} interrupted ({}); falling back to polling", locator, e.getClass().getSimpleName());
+                STATS.computeIfAbsent(Strategy.OBSERVER, s -> new Stats()).fallbacks.increment();
+                return poll(locator, condition, deadline);
+            }
+        }
+    }
+
+    private WebElement poll(By locator, Condition condition, long deadline) {
+        long interval = initialPoll.toNanos();
+        while (true) {
+            try {
+                List<WebElement> candidates = driver.findElements(locator);
+                if (!candidates.isEmpty()) {
+                    WebElement element = candidates.get(0);
+                    if (element.isDisplayed() && (condition == Condition.VISIBLE || element.isEnabled())) {
+                        return element;
+                    }
+                }
+            } catch (StaleElementReferenceException e) {
+                // the element was replaced between lookup and check; look it up again
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw timeout(locator, condition);
+            }
+            sleep(Math.min(interval, remaining));
+            interval = Math.min(interval + interval / 2, maxPoll.toNanos());
+        }
+    }
+
+    private static TimeoutException timeout(By locator, Condition condition) {
+        return new TimeoutException("Timed out waiting for " + condition.name().toLowerCase() + " element " + locator);
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("Interrupted while waiting", e);
+        }
+    }
+
+    private static final class Stats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder fallbacks = new LongAdder();
+
+        private void record(long elapsed) {
+            count.increment();
+            nanos.add(elapsed);
+        }
+    }
+}
@@ -57,19 +57,38 @@ public class LoginPage extends BasePage {
 
     /**
      * Clicks the login button and navigates to the {@link ProductsPage}.
+     * The click starts the transition timed by {@link ProductsPage#measureLoad()}.
      *
-     * @return a new instance of {@link ProductsPage} representing the next page after successful login
+     * @return the session's {@link ProductsPage}, the next page after successful login
      */
     public ProductsPage clickLoginButton() {
         logger.debug("Clicking on the Login button.");
+        startTransition();
         click(LOGIN_BUTTON,"Login button");
         logger.info("Login button clicked successfully.");
-        return new ProductsPage(driver);
+        return pages().get(ProductsPage.class);
     }
 
-//    public ProductsPage loginAsValidUser(String username, String password){
-//        return enterUsername(username).enterPassword(password).clickLoginButton();
-//    }
+    /**
+     * Enters the credentials and submits the login form as one chain of actions.
+     * <p>
+     * In batched interaction mode the whole chain costs a single WebDriver round-trip. The timed
+     * transition to the {@link ProductsPage} starts with the chain, so it includes the typing.
+     *
+     * @param username the username to enter
+     * @param password the password to enter
+     * @return the session's {@link ProductsPage}, the next page after successful login
+     */
+    public ProductsPage loginAs(String username, String password) {
+        logger.debug("Logging in as: {}", username);
+        startTransition();
+        batch().type(USERNAME_FIELD, username, "Username field")
+                .type(PASSWORD_FIELD, password, "Password field")
+                .click(LOGIN_BUTTON, "Login button")
+                .execute();
+        logger.info("Login submitted successfully.");
+        return pages().get(ProductsPage.class);
+    }
 
     /**
      * Retrieves the error message displayed after an invalid login attempt.
@@ -0,0 +1,181 @@
+package pages;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import utils.ConfigReader;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures how fast pages load, as seen by the browser and by the user.
+ * <p>
+ * A {@link Snapshot} combines the browser's Navigation Timing, a Resource Timing summary, Largest
+ * Contentful Paint and Cumulative Layout Shift of the current document with the time of the
+ * page transition that led to it: from the action that left the previous page (started with
+ * {@link BasePage#startTransition()}, e.g. the login click) until the new page's ready element was
+ * visible.
+ * <p>
+ * Budgets are configured per page and metric as {@code budget.<Page>.<metric>}, e.g.
+ * {@code budget.ProductsPage.lcp=2500}; see {@link Snapshot#metrics()} for the metric names.
+ */
+public final class PagePerformance {
+
+    private static final String SCRIPT = Scripts.load("page-performance.js");
+
+    /** Transition in progress on the calling thread. */
+    private record Transition(WebDriver driver, long startNanos) {
+    }
+
+    private static final ThreadLocal<Transition> transition = new ThreadLocal<>();
+
+    /**
+     * Performance of one page load.
+     *
+     * @param page                   page object class name, e.g. {@code ProductsPage}
+     * @param url                    URL of the document
+     * @param transitionMillis       time from the action on the previous page until this page was ready, or {@code null}
+     * @param ttfbMillis             time to the first byte of the document
+     * @param domContentLoadedMillis time to the end of {@code DOMContentLoaded}
+     * @param loadEventMillis        time to the end of the load event, or {@code null} if it has not fired yet
+     * @param lcpMillis              Largest Contentful Paint, or {@code null} if not supported
+     * @param cls                    Cumulative Layout Shift score, or {@code null} if not supported
+     * @param resourceCount          number of subresources loaded
+     * @param transferBytes          bytes transferred for the document and its subresources
+     * @param slowestResource        URL of the slowest subresource, or {@code null}
+     * @param slowestResourceMillis  duration of the slowest subresource, or {@code null}
+     */
+    public record Snapshot(String page, String url, Double transitionMillis, Double ttfbMillis,
+                           Double domContentLoadedMillis, Double loadEventMillis, Double lcpMillis, Double cls,
+                           long resourceCount, long transferBytes, String slowestResource, Double slowestResourceMillis) {
+
+        /**
+         * Returns the time the user waited for the page: the transition time if the page was reached
+         * through a timed action, otherwise the time to the end of the load event.
+         */
+        public Double loadMillis() {
+            return transitionMillis != null ? transitionMillis : loadEventMillis;
+        }
+
+        /**
+         * Returns the available metrics by budget name: {@code load}, {@code transition}, {@code ttfb},
+         * {@code domContentLoaded}, {@code loadEvent}, {@code lcp}, {@code cls}, {@code resources} and
+         * {@code transferBytes}.
+         */
+        public Map<String, Double> metrics() {
+            Map<String, Double> metrics = new LinkedHashMap<>();
+            put(metrics, "load", loadMillis());
+            put(metrics, "transition", transitionMillis);
+            put(metrics, "ttfb", ttfbMillis);
+            put(metrics, "domContentLoaded", domContentLoadedMillis);
+            put(metrics, "loadEvent", loadEventMillis);
+            put(metrics, "lcp", lcpMillis);
+            put(metrics, "cls", cls);
+            metrics.put("resources", (double) resourceCount);
+            metrics.put("transferBytes", (double) transferBytes);
+            return metrics;
+        }
+
+        /**
+         * Returns a description of every metric over its {@code budget.<page>.<metric>} budget; empty
+         * if all configured budgets are met.
+         */
+        public List<String> exceededBudgets() {
+            List<String> exceeded = new ArrayList<>();
+            metrics().forEach((metric, value) -> {
+                String key = "budget." + page + "." + metric;
+                String budget = ConfigReader.getProperty(key);
+                if (budget == null || budget.isBlank()) {
+                    return;
+                }
+                double limit;
+                try {
+                    limit = Double.parseDouble(budget.trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Property '" + key + "' is not a number: " + budget, e);
+                }
+                if (value > limit) {
+                    exceeded.add(String.format("%s %s = %s over budget %s", page, metric, format(value), format(limit)));
+                }
+            });
+            return exceeded;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(page).append(':');
+            metrics().forEach((metric, value) -> text.append(' ').append(metric).append('=').append(format(value)));
+            if (slowestResource != null) {
+                text.append(", slowest resource ").append(slowestResource).append(" (").append(format(slowestResourceMillis)).append(" ms)");
+            }
+            return text.toString();
+        }
+
+        private static void put(Map<String, Double> metrics, String name, Double value) {
+            if (value != null) {
+                metrics.put(name, value);
+            }
+        }
+
+        private static String format(double value) {
+            return value == Math.rint(value) ? String.valueOf((long) value) : String.format("%.3f", value);
+        }
+    }
+
+    private PagePerformance() {
+    }
+
+    /**
+     * Starts timing a transition away from a page on the calling thread, replacing any earlier one.
+     */
+    static void startTransition(WebDriver driver) {
+        transition.set(new Transition(driver, System.nanoTime()));
+    }
+
+    /**
+     * Ends the calling thread's transition and returns its duration in milliseconds, or {@code null}
+     * if none was started on this driver within {@code maxAgeMillis}, e.g. one left over from an
+     * earlier page whose load was not measured.
+     */
+    static Double endTransition(WebDriver driver, long maxAgeMillis) {
+        Transition started = transition.get();
+        transition.remove();
+        if (started == null || started.driver() != driver) {
+            return null;
+        }
+        double millis = (System.nanoTime() - started.startNanos()) / 1e6;
+        return millis <= maxAgeMillis ? millis : null;
+    }
+
+    /**
+     * Collects the performance of the current document.
+     *
+     * @throws IllegalStateException if the driver cannot run scripts
+     */
+    static Snapshot collect(WebDriver driver, String page, Double transitionMillis) {
+        if (!(driver instanceof JavascriptExecutor executor)) {
+            throw new IllegalStateException("Page performance needs a driver that runs JavaScript");
+        }
+        Object raw;
+        try {
+            raw = executor.executeAsyncScript(SCRIPT);
+        } catch (WebDriverException e) {
+            throw new IllegalStateException("Failed to collect page performance on " + page, e);
+        }
+        if (!(raw instanceof Map<?, ?> result)) {
+            throw new IllegalStateException("Unexpected page performance result on " + page + ": " + raw);
+        }
+        return new Snapshot(page, (String) result.get("url"), transitionMillis,
+                number(result.get("ttfb")), number(result.get("domContentLoaded")), number(result.get("loadEvent")),
+                number(result.get("lcp")), number(result.get("cls")),
+                ((Number) result.get("resourceCount")).longValue(), ((Number) result.get("transferBytes")).longValue(),
+                (String) result.get("slowestResource"), number(result.get("slowestResourceMillis")));
+    }
+
+    private static Double number(Object value) {
+        return value instanceof Number number ? number.doubleValue() : null;
+    }
+}
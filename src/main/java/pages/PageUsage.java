@@ -0,0 +1,113 @@
+package pages;
+
+import org.openqa.selenium.By;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Records which page objects a scenario uses: the page classes it gets or acts through, the
+ * page-object methods that act on elements and the {@link By} locators they use.
+ * <p>
+ * A recording is bound to the thread that runs the scenario, between {@link #begin()} and
+ * {@link #end()}; {@link Pages#get(Class)}, {@link BasePage} and {@link ActionBatch} report to it,
+ * pages only once they are fully constructed. Outside a recording nothing is collected. Every
+ * page-object method on the call stack of an element action or of getting a page is recorded, e.g.
+ * {@code pages.LoginPage#clickLoginButton} and the {@code ProductsPage} constructor it calls, so
+ * private helpers and pages calling other pages are covered too; the helpers inherited from
+ * {@link BasePage} are not.
+ * <p>
+ * Recording walks the stack on every element action, so the test impact plugin only starts one
+ * for the run that collects the map ({@code impact.record=true}).
+ */
+public final class PageUsage {
+
+    private static final ThreadLocal<PageUsage> current = new ThreadLocal<>();
+    private static final StackWalker WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    private final Set<String> pages = new TreeSet<>();
+    private final Set<String> methods = new TreeSet<>();
+    private final Set<String> locators = new TreeSet<>();
+
+    private PageUsage() {
+    }
+
+    /**
+     * Starts a recording on the calling thread, replacing any unfinished one.
+     */
+    public static void begin() {
+        current.set(new PageUsage());
+    }
+
+    /**
+     * Ends the recording on the calling thread and returns it, or {@code null} if none was started.
+     */
+    public static PageUsage end() {
+        PageUsage usage = current.get();
+        current.remove();
+        return usage;
+    }
+
+    /**
+     * Page classes constructed, by fully qualified name.
+     */
+    public Set<String> pages() {
+        return pages;
+    }
+
+    /**
+     * Page-object methods that acted on elements, as {@code <class>#<method>}; constructors are {@code <init>}.
+     */
+    public Set<String> methods() {
+        return methods;
+    }
+
+    /**
+     * Locators used, as {@link By#toString()}, e.g. {@code By.id: login-button}.
+     */
+    public Set<String> locators() {
+        return locators;
+    }
+
+    /**
+     * Records that {@code page} was used, with {@code locator} unless it is {@code null}.
+     */
+    static void record(BasePage page, By locator) {
+        PageUsage usage = current.get();
+        if (usage == null) {
+            return;
+        }
+        usage.pages.add(page.getClass().getName());
+        WALKER.forEach(frame -> {
+            if (BasePage.class.isAssignableFrom(frame.getDeclaringClass()) && frame.getDeclaringClass() != BasePage.class) {
+                usage.methods.add(frame.getDeclaringClass().getName() + "#" + methodName(frame.getMethodName()));
+            }
+        });
+        if (locator != null) {
+            usage.locators.add(locator.toString());
+        }
+    }
+
+    /**
+     * Records that {@code page} was constructed, with its constructor, which is no longer on the call
+     * stack once the page is fully constructed and can be handed to {@link #record}.
+     */
+    static void constructed(BasePage page) {
+        record(page, null);
+        PageUsage usage = current.get();
+        if (usage != null) {
+            usage.methods.add(page.getClass().getName() + "#<init>");
+        }
+    }
+
+    /**
+     * Returns the method a lambda was written in, e.g. {@code loginAs} for {@code lambda$loginAs$0}.
+     */
+    private static String methodName(String frameMethod) {
+        if (frameMethod.startsWith("lambda$")) {
+            int end = frameMethod.indexOf('$', "lambda$".length());
+            return end > 0 ? frameMethod.substring("lambda$".length(), end) : frameMethod;
+        }
+        return frameMethod;
+    }
+}
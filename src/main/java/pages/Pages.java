@@ -0,0 +1,148 @@
+package pages;
+
+import org.openqa.selenium.HasCapabilities;
+import org.openqa.selenium.WebDriver;
+import utils.BrowserOptions;
+import utils.ConfigReader;
+
+import java.lang.reflect.InvocationTargetException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Page objects of one browser session, created on first use and reused afterwards.
+ * <p>
+ * A registry is bound to the thread that owns the session, like the driver in {@code DriverFactory}:
+ * {@link #of(WebDriver)} returns the calling thread's registry for {@code driver} and starts a new
+ * one when the thread has moved on to another driver. Pages of the same session share one
+ * {@link ElementWait} and read the {@code wait.*} properties once, so getting a page that was used
+ * before costs a map lookup instead of a construction.
+ * <p>
+ * With {@code pages.cacheElements=true}, pages also keep the elements they resolved and reuse them
+ * until the session navigates; see {@link #navigated()}.
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ *     Pages.of(driver).get(LoginPage.class).enterUsername(username);
+ * </pre>
+ */
+public final class Pages {
+
+    private static final ThreadLocal<Pages> current = new ThreadLocal<>();
+
+    private final WebDriver driver;
+    private final ElementWait wait;
+    private final boolean cacheElements;
+    private final Map<Class<? extends BasePage>, BasePage> pages = new HashMap<>();
+    private int navigations;
+
+    private Pages(WebDriver driver) {
+        this.driver = driver;
+        ElementWait.Strategy strategy = ElementWait.Strategy.named(ConfigReader.getProperty("wait.strategy", "observer"));
+        if (strategy == ElementWait.Strategy.OBSERVER && sharesBrowser(driver)) {
+            // an observer script blocks the shared browser for every other context until it resolves
+            strategy = ElementWait.Strategy.POLLING;
+        }
+        this.wait = new ElementWait(driver, strategy,
+                Duration.ofMillis(ConfigReader.getInt("wait.pollMillis", 25)),
+                Duration.ofMillis(ConfigReader.getInt("wait.maxPollMillis", 500)));
+        this.cacheElements = ConfigReader.getBoolean("pages.cacheElements", false);
+    }
+
+    /**
+     * Returns the calling thread's registry for {@code driver}, starting a new one if the thread
+     * has none yet or its registry belongs to another driver.
+     *
+     * @throws IllegalArgumentException if {@code driver} is {@code null}
+     */
+    public static Pages of(WebDriver driver) {
+        if (driver == null) {
+            throw new IllegalArgumentException("driver must not be null");
+        }
+        Pages pages = current.get();
+        if (pages == null || pages.driver != driver) {
+            pages = new Pages(driver);
+            current.set(pages);
+        }
+        return pages;
+    }
+
+    /**
+     * Forgets the calling thread's registry, e.g. when its browser is released, so that a pooled
+     * browser starts the next scenario with fresh pages.
+     */
+    public static void release() {
+        current.remove();
+    }
+
+    /**
+     * Returns the page of type {@code type}, constructing it with its {@code (WebDriver)}
+     * constructor on first use.
+     *
+     * @throws IllegalArgumentException if {@code type} has no public {@code (WebDriver)} constructor
+     */
+    public <T extends BasePage> T get(Class<T> type) {
+        BasePage page = pages.get(type);
+        if (page == null) {
+            // not computeIfAbsent: a page constructor may itself get other pages
+            page = create(type);
+            pages.put(type, page);
+            PageUsage.constructed(page);
+        } else {
+            PageUsage.record(page, null);
+        }
+        return type.cast(page);
+    }
+
+    /**
+     * Marks that the session may have left the current document, e.g. after a click or a direct
+     * {@code driver.get(...)}. Elements cached before are no longer reused.
+     */
+    public void navigated() {
+        navigations++;
+    }
+
+    /**
+     * Number of {@link #navigated()} calls so far; cached elements are valid for one value.
+     */
+    int navigations() {
+        return navigations;
+    }
+
+    /**
+     * The wait shared by all pages of this session.
+     */
+    ElementWait elementWait() {
+        return wait;
+    }
+
+    /**
+     * Whether pages keep resolved elements between actions ({@code pages.cacheElements}).
+     */
+    boolean cachesElements() {
+        return cacheElements;
+    }
+
+    /**
+     * Whether {@code driver} is a browser context sharing its browser process with other threads,
+     * as reported by its {@link BrowserOptions#SHARED_BROWSER} capability.
+     */
+    private static boolean sharesBrowser(WebDriver driver) {
+        return driver instanceof HasCapabilities hasCapabilities
+                && Boolean.TRUE.equals(hasCapabilities.getCapabilities().getCapability(BrowserOptions.SHARED_BROWSER));
+    }
+
+    private <T extends BasePage> T create(Class<T> type) {
+        try {
+            return type.getConstructor(WebDriver.class).newInstance(driver);
+        } catch (NoSuchMethodException | IllegalAccessException | InstantiationException e) {
+            throw new IllegalArgumentException(type.getName() + " has no public (WebDriver) constructor", e);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Failed to construct " + type.getName(), e.getCause());
+        }
+    }
+}
@@ -13,7 +13,7 @@ import org.openqa.selenium.WebDriver;
  *
  * <p><b>Usage:</b></p>
  * <pre>
- *     ProductsPage productsPage = new ProductsPage(driver);
+ *     ProductsPage productsPage = Pages.of(driver).get(ProductsPage.class);
  *     String title = productsPage.getTitleText();
  * </pre>
  */
@@ -44,4 +44,28 @@ public class ProductsPage extends BasePage {
         logger.debug("Retrieved title text: '{}'", title);
         return title;
     }
+
+    /**
+     * Checks whether the Products page is displayed, waiting up to the page's wait timeout for it
+     * to load, so it can follow a login click or a navigation directly, whatever the page-load
+     * strategy.
+     *
+     * @return {@code true} if the title element becomes visible within the wait timeout
+     */
+    public boolean isLoaded() {
+        boolean loaded = isVisible(TITLE_TEXT, "Title text", getTimeout());
+        logger.debug("Products page loaded: {}", loaded);
+        return loaded;
+    }
+
+    /**
+     * Waits for the title and collects the performance of the Products page, including the time
+     * since the login button was clicked.
+     *
+     * @return the performance of this page load
+     * @throws PageException if the title element is not found or not visible.
+     */
+    public PagePerformance.Snapshot measureLoad() {
+        return measureLoad(TITLE_TEXT, "Title text");
+    }
 }
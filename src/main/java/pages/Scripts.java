@@ -0,0 +1,46 @@
+package pages;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Loads the browser-side scripts under {@code /scripts} from the classpath.
+ * Scripts are read once, when the class that uses them is initialised.
+ */
+final class Scripts {
+
+    private Scripts() {
+    }
+
+    static String load(String name) {
+        String resource = "/scripts/" + name;
+        try (InputStream in = Scripts.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing script resource " + resource);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the CSS or XPath form of {@code locator} if it can be evaluated by a script on
+     * {@code driver}, or {@code null} if the driver cannot run scripts or the locator has no
+     * such form (link-text locators, for example).
+     */
+    static By.Remotable.Parameters scriptParameters(WebDriver driver, By locator) {
+        if (!(driver instanceof JavascriptExecutor) || !(locator instanceof By.Remotable remotable)) {
+            return null;
+        }
+        By.Remotable.Parameters parameters = remotable.getRemoteParameters();
+        String using = parameters.using();
+        return using.equals("css selector") || using.equals("xpath") ? parameters : null;
+    }
+}
@@ -0,0 +1,256 @@
+package utils;
+
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.MutableCapabilities;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chromium.ChromiumDriver;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.openqa.selenium.json.TypeToken;
+import org.openqa.selenium.support.decorators.Decorated;
+import org.openqa.selenium.support.decorators.WebDriverDecorator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One Chrome process hosting several isolated browser contexts, each handed out as its own {@link WebDriver}.
+ * <p>
+ * A context is created with the DevTools {@code Target.createBrowserContext} command, the same
+ * mechanism as an incognito window: it has its own cookies, storage and cache, and costs a renderer
+ * rather than a whole browser. Its first tab is opened with {@code Target.createTarget}; chromedriver
+ * exposes the tab as a window handle.
+ * <p>
+ * All contexts share one chromedriver session, which has a single current window. The driver of a
+ * context is therefore a {@link WebDriverDecorator} that, for every call on the driver or on any
+ * element, navigation or option object obtained from it, takes the host's lock, switches to the
+ * context's window if another context used the browser last, and then runs the call. Page objects
+ * see an ordinary driver. Commands of different contexts are serialised, so long-running calls
+ * (such as {@code executeAsyncScript} waits) should be avoided; {@code BasePage} polls instead.
+ * <p>
+ * The capabilities of a context driver carry {@link BrowserOptions#SHARED_BROWSER}, so page objects
+ * can tell from the driver alone that it shares its browser.
+ * <p>
+ * {@code quit()} on a context driver disposes of the context and its windows; the browser itself
+ * is quit with {@link #quit()}. A host is closed once quit, or once opening a context failed and
+ * the browser no longer answers; a closed host opens no more contexts.
+ */
+final class BrowserContextHost {
+    private static final Logger logger = LoggerFactory.getLogger(BrowserContextHost.class);
+
+    private static final Type MAP = new TypeToken<Map<String, Object>>() {
+    }.getType();
+
+    private final WebDriver browser;
+    private final DevTools devTools;
+    private final BrowserProfile profile;
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final AtomicInteger openContexts = new AtomicInteger();
+    /** Window chromedriver currently sends commands to; only read or written under {@link #lock}. */
+    private String currentWindow;
+    private volatile boolean closed;
+
+    BrowserContextHost(WebDriver browser, BrowserProfile profile) {
+        if (!(browser instanceof ChromiumDriver) || !(browser instanceof HasDevTools hasDevTools)) {
+            throw new IllegalArgumentException("Browser contexts need a Chromium browser, got " + browser.getClass().getSimpleName());
+        }
+        this.browser = browser;
+        this.profile = profile;
+        // no DevTools session is attached, so commands go to the browser target
+        this.devTools = hasDevTools.getDevTools();
+        this.currentWindow = browser.getWindowHandle();
+    }
+
+    /**
+     * Returns the number of contexts currently open in this browser, or reserved and being opened.
+     */
+    int openContexts() {
+        return openContexts.get();
+    }
+
+    /**
+     * Reserves a slot for a context that is about to be opened with {@link #openContext()}, so that
+     * it counts towards {@link #openContexts()} while the caller still holds the lock it chose this
+     * host under.
+     */
+    void reserve() {
+        openContexts.incrementAndGet();
+    }
+
+    /**
+     * Returns {@code true} once the browser was quit or found unresponsive.
+     */
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Opens a new isolated context with one blank tab, in a slot taken with {@link #reserve()}.
+     *
+     * @return a driver confined to the new context
+     * @throws WebDriverException if the context cannot be opened, which releases the slot; the host
+     *                            is closed as well if its browser no longer answers
+     */
+    WebDriver openContext() {
+        boolean opened = false;
+        lock.lock();
+        try {
+            if (closed) {
+                throw new WebDriverException("Browser hosting contexts has been quit");
+            }
+            String contextId = (String) send("Target.createBrowserContext", Map.of("disposeOnDetach", false)).get("browserContextId");
+            String window = (String) send("Target.createTarget", Map.of("url", "about:blank", "browserContextId", contextId)).get("targetId");
+            activate(window);
+            if (!profile.headless()) {
+                browser.manage().window().maximize();
+            }
+            if (!profile.blockedUrls().isEmpty()) {
+                // applies to the context's current tab; counting is only available in process isolation
+                ((ChromiumDriver) browser).executeCdpCommand("Network.enable", Map.of());
+                ((ChromiumDriver) browser).executeCdpCommand("Network.setBlockedURLs", Map.of("urls", profile.blockedUrls()));
+            }
+            WebDriver context = new ContextDecorator(contextId, window).decorate(browser);
+            opened = true;
+            logger.debug("Opened browser context {} ({} open)", contextId, openContexts.get());
+            return context;
+        } catch (WebDriverException e) {
+            if (!responds()) {
+                logger.warn("Browser hosting {} contexts no longer answers, closing it: {}", openContexts.get() - 1, e.getMessage());
+                quit();
+            }
+            throw e;
+        } finally {
+            if (!opened) {
+                openContexts.decrementAndGet();
+            }
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Quits the browser and every context in it.
+     */
+    void quit() {
+        lock.lock();
+        try {
+            closed = true;
+            browser.quit();
+        } catch (WebDriverException e) {
+            logger.debug("Failed to quit browser hosting contexts: {}", e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean responds() {
+        try {
+            send("Target.getTargets", Map.of());
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void disposeContext(String contextId) {
+        lock.lock();
+        try {
+            send("Target.disposeBrowserContext", Map.of("browserContextId", contextId));
+            // the current window may have been one of the context's tabs
+            currentWindow = null;
+            openContexts.decrementAndGet();
+            logger.debug("Disposed browser context {} ({} open)", contextId, openContexts.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<String> windowsOf(String contextId) {
+        Set<String> windows = new LinkedHashSet<>();
+        for (Map<String, Object> target : (List<Map<String, Object>>) send("Target.getTargets", Map.of()).get("targetInfos")) {
+            if ("page".equals(target.get("type")) && contextId.equals(target.get("browserContextId"))) {
+                windows.add((String) target.get("targetId"));
+            }
+        }
+        return windows;
+    }
+
+    private void activate(String window) {
+        if (!window.equals(currentWindow)) {
+            browser.switchTo().window(window);
+            currentWindow = window;
+        }
+    }
+
+    private Map<String, Object> send(String method, Map<String, Object> params) {
+        return devTools.send(new Command<>(method, params, MAP));
+    }
+
+    /**
+     * Confines every call made through the decorated driver to one context.
+     */
+    private final class ContextDecorator extends WebDriverDecorator<WebDriver> {
+        private final String contextId;
+        /** Window of this context the scenario is working in; guarded by the host's lock. */
+        private String window;
+        private boolean disposed;
+
+        private ContextDecorator(String contextId, String window) {
+            this.contextId = contextId;
+            this.window = window;
+        }
+
+        @Override
+        public Object call(Decorated<?> target, Method method, Object[] args) throws Throwable {
+            lock.lock();
+            try {
+                if (target.getOriginal() == browser) {
+                    switch (method.getName()) {
+                        case "quit" -> {
+                            if (!disposed) {
+                                disposed = true;
+                                disposeContext(contextId);
+                            }
+                            return null;
+                        }
+                        case "getWindowHandles" -> {
+                            return windowsOf(contextId);
+                        }
+                        case "getCapabilities" -> {
+                            MutableCapabilities capabilities = new MutableCapabilities((Capabilities) super.call(target, method, args));
+                            capabilities.setCapability(BrowserOptions.SHARED_BROWSER, true);
+                            return capabilities;
+                        }
+                        default -> {
+                        }
+                    }
+                }
+                if (disposed) {
+                    throw new WebDriverException("Browser context " + contextId + " has been quit");
+                }
+                activate(window);
+                Object result = super.call(target, method, args);
+                if (target.getOriginal() instanceof WebDriver.TargetLocator && "window".equals(method.getName())) {
+                    // the scenario switched between its own windows, e.g. to a popup
+                    window = (String) args[0];
+                    currentWindow = window;
+                } else if (target.getOriginal() == browser && "close".equals(method.getName())) {
+                    currentWindow = null;
+                }
+                return result;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
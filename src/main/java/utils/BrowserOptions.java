@@ -0,0 +1,142 @@
+package utils;
+
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.chromium.ChromiumOptions;
+import org.openqa.selenium.edge.EdgeOptions;
+import org.openqa.selenium.firefox.FirefoxOptions;
+import org.openqa.selenium.logging.LogType;
+import org.openqa.selenium.logging.LoggingPreferences;
+import org.openqa.selenium.remote.AbstractDriverOptions;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+
+/**
+ * Options for launching one of the supported browsers, {@code chrome}, {@code edge} and
+ * {@code firefox}, with a {@link BrowserProfile}.
+ * <p>
+ * The profile sets headless mode and the page-load strategy. On top of that, every browser takes its
+ * own settings from {@code config.properties}: {@code browser.<name>.arguments} adds command-line
+ * arguments (comma-separated) and {@code browser.<name>.capabilities} sets capabilities given as
+ * comma-separated {@code name=value} pairs, where {@code true}, {@code false} and integers are passed
+ * as such and anything else as text, e.g. {@code browser.firefox.capabilities=acceptInsecureCerts=true}.
+ */
+public final class BrowserOptions {
+
+    /** Browser names {@link #normalize(String)} accepts. */
+    public static final List<String> SUPPORTED = List.of("chrome", "edge", "firefox");
+
+    /**
+     * Capability reported as {@code true} by the driver of a browser context, whose browser process
+     * is shared with other threads; see {@link BrowserContextHost}.
+     */
+    public static final String SHARED_BROWSER = "framework:sharedBrowser";
+
+    private BrowserOptions() {
+    }
+
+    /**
+     * Returns the canonical name of a browser: lower case, with {@code msedge} and
+     * {@code MicrosoftEdge} as {@code edge}.
+     *
+     * @throws IllegalArgumentException if the browser is not supported
+     */
+    public static String normalize(String browserName) {
+        String name = browserName.trim().toLowerCase();
+        if (name.equals("msedge") || name.equals("microsoftedge")) {
+            name = "edge";
+        }
+        if (!SUPPORTED.contains(name)) {
+            throw new IllegalArgumentException("Browser not supported: " + browserName + "; use one of " + SUPPORTED);
+        }
+        return name;
+    }
+
+    /**
+     * Returns {@code true} if the browser is Chromium-based and so offers DevTools and browser contexts.
+     */
+    static boolean isChromium(String browserName) {
+        return !normalize(browserName).equals("firefox");
+    }
+
+    /**
+     * Builds the options of {@code browserName} for {@code profile}.
+     *
+     * @throws IllegalArgumentException if the browser is not supported or a capability is malformed
+     */
+    static AbstractDriverOptions<?> of(String browserName, BrowserProfile profile) {
+        String name = normalize(browserName);
+        AbstractDriverOptions<?> options = switch (name) {
+            case "chrome" -> chromium(new ChromeOptions(), name, ChromeOptions.LOGGING_PREFS, profile);
+            case "edge" -> chromium(new EdgeOptions(), name, EdgeOptions.LOGGING_PREFS, profile);
+            default -> firefox(profile);
+        };
+        options.setPageLoadStrategy(profile.pageLoadStrategy());
+        String prefix = "browser." + name + ".";
+        for (String pair : list(ConfigReader.getProperty(prefix + "capabilities", ""))) {
+            int separator = pair.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Property '" + prefix + "capabilities' entry is not name=value: " + pair);
+            }
+            options.setCapability(pair.substring(0, separator).trim(), value(pair.substring(separator + 1).trim()));
+        }
+        return options;
+    }
+
+    /**
+     * Makes {@code options} launch the browser executable at {@code path}.
+     */
+    static void pinBinary(AbstractDriverOptions<?> options, String path) {
+        if (options instanceof ChromiumOptions<?> chromium) {
+            chromium.setBinary(path);
+        } else if (options instanceof FirefoxOptions firefox) {
+            firefox.setBinary(path);
+        }
+        // the browser is pinned by its path; a version capability would make the driver look again
+        options.setCapability("browserVersion", (Object) null);
+    }
+
+    private static ChromiumOptions<?> chromium(ChromiumOptions<?> options, String name, String loggingPrefs,
+                                                BrowserProfile profile) {
+        if (profile.headless()) {
+            // a headless window cannot be maximised; give it a desktop-sized viewport instead
+            options.addArguments("--headless=new", "--window-size=1920,1080");
+        }
+        if (FailureArtifacts.isEnabled()) {
+            // keep console messages of every level for failure artifacts
+            LoggingPreferences logging = new LoggingPreferences();
+            logging.enable(LogType.BROWSER, Level.ALL);
+            options.setCapability(loggingPrefs, logging);
+        }
+        options.addArguments(list(ConfigReader.getProperty("browser." + name + ".arguments", "")));
+        return options;
+    }
+
+    private static FirefoxOptions firefox(BrowserProfile profile) {
+        FirefoxOptions options = new FirefoxOptions();
+        if (profile.headless()) {
+            options.addArguments("-headless", "--width=1920", "--height=1080");
+        }
+        options.addArguments(list(ConfigReader.getProperty("browser.firefox.arguments", "")));
+        return options;
+    }
+
+    private static List<String> list(String value) {
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(entry -> !entry.isEmpty())
+                .toList();
+    }
+
+    private static Object value(String text) {
+        if (text.equalsIgnoreCase("true") || text.equalsIgnoreCase("false")) {
+            return Boolean.parseBoolean(text);
+        }
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            return text;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package utils;
+
+import org.openqa.selenium.PageLoadStrategy;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Named browser performance profile: headless mode, page-load strategy and blocked resources.
+ * <p>
+ * Profiles are defined in {@code config.properties} as {@code profile.<name>.headless},
+ * {@code profile.<name>.pageLoadStrategy} ({@code normal}, {@code eager} or {@code none}) and
+ * {@code profile.<name>.blockedUrls} (comma-separated URL patterns with {@code *} wildcards, blocked
+ * in the browser through the DevTools network domain). Unset keys fall back to Chrome's defaults, so
+ * the built-in {@code standard} profile is a plain, fully rendering browser.
+ * <p>
+ * The profile for a run is chosen with {@code browser.profile}. A scenario or feature can override it
+ * with a {@code @profile:<name>} tag, or opt out of resource blocking with {@code @FullRender}, which
+ * uses {@code browser.fullRenderProfile} (default {@code standard}).
+ *
+ * @param name             profile name, also part of the browser pool key
+ * @param headless         whether the browser runs without a window
+ * @param pageLoadStrategy when navigation commands return
+ * @param blockedUrls      URL patterns the browser must not load
+ */
+public record BrowserProfile(String name, boolean headless, PageLoadStrategy pageLoadStrategy, List<String> blockedUrls) {
+
+    public static final String STANDARD = "standard";
+    public static final String FULL_RENDER_TAG = "@FullRender";
+    private static final String PROFILE_TAG = "@profile:";
+
+    private static final Map<String, BrowserProfile> profiles = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the profile selected with {@code browser.profile}.
+     */
+    public static BrowserProfile configured() {
+        return named(ConfigReader.getProperty("browser.profile", STANDARD));
+    }
+
+    /**
+     * Returns the profile for a scenario with the given tags: an explicit {@code @profile:<name>}
+     * wins, then {@code @FullRender}, then the configured profile.
+     */
+    public static BrowserProfile forTags(Collection<String> tags) {
+        for (String tag : tags) {
+            if (tag.startsWith(PROFILE_TAG)) {
+                return named(tag.substring(PROFILE_TAG.length()));
+            }
+        }
+        if (tags.contains(FULL_RENDER_TAG)) {
+            return named(ConfigReader.getProperty("browser.fullRenderProfile", STANDARD));
+        }
+        return configured();
+    }
+
+    /**
+     * Returns the profile with the given name, built from its {@code profile.<name>.*} properties.
+     *
+     * @throws IllegalArgumentException if {@code pageLoadStrategy} is not a known strategy
+     */
+    public static BrowserProfile named(String name) {
+        return profiles.computeIfAbsent(name.trim().toLowerCase(), key -> {
+            String prefix = "profile." + key + ".";
+            String strategy = ConfigReader.getProperty(prefix + "pageLoadStrategy", "normal");
+            PageLoadStrategy pageLoadStrategy = Arrays.stream(PageLoadStrategy.values())
+                    .filter(s -> s.toString().equalsIgnoreCase(strategy))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Property '" + prefix + "pageLoadStrategy' is not one of normal, eager, none: " + strategy));
+            List<String> blockedUrls = Arrays.stream(ConfigReader.getProperty(prefix + "blockedUrls", "").split(","))
+                    .map(String::trim)
+                    .filter(pattern -> !pattern.isEmpty())
+                    .toList();
+            return new BrowserProfile(key, ConfigReader.getBoolean(prefix + "headless", false), pageLoadStrategy, blockedUrls);
+        });
+    }
+}
@@ -0,0 +1,81 @@
+package utils;
+
+import java.lang.reflect.Method;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The last WebDriver commands issued by each thread, kept for failure reports.
+ * <p>
+ * {@link CommandMetricsListener} adds every call made through a decorated driver; only the most
+ * recent {@code artifacts.recentCommands} (default 50) per thread are kept. Entries hold what the
+ * call was and how it ended, and are only formatted when a {@link FailureArtifacts} capture is
+ * written. Typed text is never kept, so passwords do not end up in artifacts.
+ */
+final class CommandHistory {
+
+    private static final int CAPACITY = Math.max(1, ConfigReader.getInt("artifacts.recentCommands", 50));
+
+    /** Longest argument kept, e.g. of a script or a URL. */
+    private static final int MAX_DETAIL = 120;
+
+    private static final ThreadLocal<Deque<Entry>> entries = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * One finished command.
+     *
+     * @param epochMillis when the command finished
+     * @param call        {@code <Interface>.<method>}, e.g. {@code WebElement.click}
+     * @param detail      shortened first argument, or empty
+     * @param nanos       how long the command took
+     * @param ok          whether it succeeded
+     */
+    record Entry(long epochMillis, String call, String detail, long nanos, boolean ok) {
+
+        @Override
+        public String toString() {
+            return String.format("%s %-6s %7.1f ms %s%s", Instant.ofEpochMilli(epochMillis), ok ? "ok" : "FAILED",
+                    nanos / 1e6, call, detail.isEmpty() ? "" : "(" + detail + ")");
+        }
+    }
+
+    private CommandHistory() {
+    }
+
+    static void record(Method method, Object[] args, long nanos, boolean ok) {
+        Deque<Entry> deque = entries.get();
+        if (deque.size() == CAPACITY) {
+            deque.removeFirst();
+        }
+        deque.addLast(new Entry(System.currentTimeMillis(),
+                method.getDeclaringClass().getSimpleName() + "." + method.getName(), detail(method, args), nanos, ok));
+    }
+
+    /**
+     * Returns the calling thread's recent commands, oldest first.
+     */
+    static List<Entry> snapshot() {
+        return new ArrayList<>(entries.get());
+    }
+
+    /**
+     * Forgets the calling thread's commands, e.g. when it starts with a new browser.
+     */
+    static void clear() {
+        entries.get().clear();
+    }
+
+    private static String detail(Method method, Object[] args) {
+        if (args == null || args.length == 0 || args[0] == null) {
+            return "";
+        }
+        if ("sendKeys".equals(method.getName())) {
+            return "***";
+        }
+        String detail = String.valueOf(args[0]);
+        return detail.length() > MAX_DETAIL ? detail.substring(0, MAX_DETAIL) + "..." : detail;
+    }
+}
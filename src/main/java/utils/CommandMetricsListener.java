@@ -0,0 +1,46 @@
+package utils;
+
+import org.openqa.selenium.support.events.WebDriverListener;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * {@link WebDriverListener} that times every call made through a decorated driver, including
+ * calls on the elements, navigation, options and target locators it returns.
+ * <p>
+ * Calls are recorded in {@link Metrics} under {@link Metrics#COMMAND} as
+ * {@code <Interface>.<method>}, e.g. {@code WebDriver.get} or {@code WebElement.click}, and kept in
+ * the thread's {@link CommandHistory} for {@link FailureArtifacts}.
+ */
+public class CommandMetricsListener implements WebDriverListener {
+
+    /** Start times of the calls in progress on this thread; calls can nest (e.g. in waits). */
+    private final ThreadLocal<Deque<Long>> starts = ThreadLocal.withInitial(ArrayDeque::new);
+
+    @Override
+    public void beforeAnyCall(Object target, Method method, Object[] args) {
+        starts.get().push(System.nanoTime());
+    }
+
+    @Override
+    public void afterAnyCall(Object target, Method method, Object[] args, Object result) {
+        finish(method, args, true);
+    }
+
+    @Override
+    public void onError(Object target, Method method, Object[] args, InvocationTargetException e) {
+        finish(method, args, false);
+    }
+
+    private void finish(Method method, Object[] args, boolean ok) {
+        Long start = starts.get().poll();
+        if (start != null) {
+            long nanos = System.nanoTime() - start;
+            Metrics.record(Metrics.COMMAND, method.getDeclaringClass().getSimpleName() + "." + method.getName(), nanos, ok);
+            CommandHistory.record(method, args, nanos, ok);
+        }
+    }
+}
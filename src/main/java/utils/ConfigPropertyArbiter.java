@@ -0,0 +1,52 @@
+package utils;
+
+import org.apache.logging.log4j.core.config.Node;
+import org.apache.logging.log4j.core.config.arbiters.Arbiter;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginFactory;
+
+/**
+ * Log4j arbiter that selects its configuration when a {@link ConfigReader} property has a value,
+ * so that {@code log4j2.xml} can be switched from {@code config.properties} as well as with a JVM
+ * system property.
+ * <p>
+ * Configured in {@code log4j2.xml} as
+ * <pre>{@code
+ * <Select>
+ *     <ConfigPropertyArbiter propertyName="log.async" propertyValue="false">...</ConfigPropertyArbiter>
+ *     <DefaultArbiter>...</DefaultArbiter>
+ * </Select>
+ * }</pre>
+ * Without {@code propertyValue} the arbiter matches whenever the property is set. Values are
+ * compared ignoring case.
+ */
+@Plugin(name = "ConfigPropertyArbiter", category = Node.CATEGORY, elementType = Arbiter.ELEMENT_TYPE,
+        printObject = true, deferChildren = true)
+public final class ConfigPropertyArbiter implements Arbiter {
+
+    private final String propertyName;
+    private final String propertyValue;
+
+    private ConfigPropertyArbiter(String propertyName, String propertyValue) {
+        this.propertyName = propertyName;
+        this.propertyValue = propertyValue;
+    }
+
+    @PluginFactory
+    public static ConfigPropertyArbiter createArbiter(@PluginAttribute("propertyName") String propertyName,
+                                                      @PluginAttribute("propertyValue") String propertyValue) {
+        return new ConfigPropertyArbiter(propertyName, propertyValue);
+    }
+
+    @Override
+    public boolean isCondition() {
+        String value = ConfigReader.getProperty(propertyName, null);
+        return propertyValue == null ? value != null : propertyValue.equalsIgnoreCase(value);
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigPropertyArbiter[" + propertyName + (propertyValue == null ? "" : "=" + propertyValue) + "]";
+    }
+}
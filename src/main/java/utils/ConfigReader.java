@@ -17,7 +17,42 @@ public class ConfigReader {
 
     }
 
+    /**
+     * Returns the value for the given key. A JVM system property with the same name
+     * (e.g. {@code -Dpool.size=8}) takes precedence over {@code config.properties}.
+     * <p>
+     * With {@code hermetic=true}, {@code url} resolves to the embedded {@link StandInServer}.
+     */
     public static String getProperty(String key){
-       return properties.getProperty(key);
+       if("url".equals(key) && isHermetic()){
+           return StandInServer.shared().baseUrl();
+       }
+       return System.getProperty(key, properties.getProperty(key));
+    }
+
+    public static boolean isHermetic(){
+        return Boolean.parseBoolean(System.getProperty("hermetic", properties.getProperty("hermetic", "false")).trim());
+    }
+
+    public static String getProperty(String key, String defaultValue){
+        String value=getProperty(key);
+        return value==null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    public static int getInt(String key, int defaultValue){
+        String value=getProperty(key);
+        if(value==null || value.isBlank()){
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Property '" + key + "' is not an integer: " + value, e);
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue){
+        String value=getProperty(key);
+        return value==null || value.isBlank() ? defaultValue : Boolean.parseBoolean(value.trim());
     }
 }
@@ -0,0 +1,191 @@
+package utils;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.RecordComponent;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One row of an external data file driving a scenario, see {@link DataSource}.
+ * <p>
+ * The runner binds the row to the thread that runs the scenario for it, and step definitions read it
+ * with {@link #current()}, either typed:
+ * <pre>{@code
+ * record Credentials(String username, String password, String expectedError) {}
+ *
+ * Credentials row = DataRow.current().as(Credentials.class);
+ * }</pre>
+ * or by column with {@link #get(String)}. A value written as {@code ${key}} is replaced by the
+ * {@link ConfigReader} property {@code key}, so data files need not contain real credentials.
+ */
+public final class DataRow {
+
+    private static final ThreadLocal<DataRow> current = new ThreadLocal<>();
+    private static final Map<Class<?>, Constructor<?>> constructors = new ConcurrentHashMap<>();
+
+    private final String source;
+    private final long index;
+    private final Map<String, Object> values;
+
+    DataRow(String source, long index, Map<String, Object> values) {
+        this.source = source;
+        this.index = index;
+        this.values = Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Returns the row bound to the calling thread.
+     *
+     * @throws IllegalStateException if the scenario is not data-driven
+     */
+    public static DataRow current() {
+        DataRow row = current.get();
+        if (row == null) {
+            throw new IllegalStateException("No data row is bound to this scenario; tag it with @data:<file>"
+                    + " and run it through runners.TestRunner");
+        }
+        return row;
+    }
+
+    /**
+     * Returns {@code true} if a row is bound to the calling thread.
+     */
+    public static boolean isBound() {
+        return current.get() != null;
+    }
+
+    /**
+     * Binds a row to the calling thread; {@code null} unbinds.
+     */
+    public static void bind(DataRow row) {
+        if (row == null) {
+            current.remove();
+        } else {
+            current.set(row);
+        }
+    }
+
+    /** File name of the data file the row was read from. */
+    public String source() {
+        return source;
+    }
+
+    /** Position of the row in its file, starting at 1 and not counting a header. */
+    public long index() {
+        return index;
+    }
+
+    /**
+     * Returns a column as text, with {@code ${key}} placeholders resolved.
+     *
+     * @throws IllegalArgumentException if the file has no such column
+     */
+    public String get(String column) {
+        Object value = resolve(column);
+        return value == null ? null : String.valueOf(value);
+    }
+
+    /**
+     * Returns the row as a record whose component names match the columns. Components may be
+     * {@code String}, a primitive or its wrapper, or an enum; an empty cell is {@code null} for
+     * anything but {@code String} and primitives.
+     *
+     * @throws IllegalArgumentException if a component has no column or a value cannot be converted
+     */
+    public <T extends Record> T as(Class<T> type) {
+        Constructor<?> constructor = constructors.computeIfAbsent(type, DataRow::canonicalConstructor);
+        RecordComponent[] components = type.getRecordComponents();
+        Object[] args = new Object[components.length];
+        for (int i = 0; i < components.length; i++) {
+            String column = components[i].getName();
+            args[i] = convert(resolve(column), components[i].getType(), column);
+        }
+        try {
+            return type.cast(constructor.newInstance(args));
+        } catch (InvocationTargetException e) {
+            throw new IllegalArgumentException("Cannot create " + type.getSimpleName() + " from " + this, e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create " + type.getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Identifies the row without its values, which may be credentials.
+     */
+    @Override
+    public String toString() {
+        return source + "#" + index;
+    }
+
+    private Object resolve(String column) {
+        if (!values.containsKey(column)) {
+            throw new IllegalArgumentException(this + " has no column '" + column + "'; columns are " + values.keySet());
+        }
+        Object value = values.get(column);
+        if (value instanceof String text && text.startsWith("${") && text.endsWith("}")) {
+            String key = text.substring(2, text.length() - 1);
+            String resolved = ConfigReader.getProperty(key);
+            if (resolved == null) {
+                throw new IllegalArgumentException(this + ": column '" + column + "' refers to undefined property " + key);
+            }
+            return resolved;
+        }
+        return value;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object convert(Object value, Class<?> type, String column) {
+        boolean empty = value == null || (value instanceof String text && text.isEmpty());
+        if (type == String.class) {
+            return value == null ? null : String.valueOf(value);
+        }
+        if (empty) {
+            if (type.isPrimitive()) {
+                throw new IllegalArgumentException(this + ": column '" + column + "' is empty but " + type + " needs a value");
+            }
+            return null;
+        }
+        String text = String.valueOf(value).trim();
+        try {
+            if (type == int.class || type == Integer.class) {
+                return value instanceof Number number ? number.intValue() : Integer.parseInt(text);
+            }
+            if (type == long.class || type == Long.class) {
+                return value instanceof Number number ? number.longValue() : Long.parseLong(text);
+            }
+            if (type == double.class || type == Double.class) {
+                return value instanceof Number number ? number.doubleValue() : Double.parseDouble(text);
+            }
+            if (type == boolean.class || type == Boolean.class) {
+                if (!text.equalsIgnoreCase("true") && !text.equalsIgnoreCase("false")) {
+                    throw new IllegalArgumentException("not true or false");
+                }
+                return Boolean.parseBoolean(text);
+            }
+            if (type.isEnum()) {
+                return Enum.valueOf((Class<Enum>) type, text);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(this + ": column '" + column + "' value '" + text
+                    + "' is not a valid " + type.getSimpleName(), e);
+        }
+        throw new IllegalArgumentException("Unsupported type " + type.getName() + " for column '" + column + "'");
+    }
+
+    private static Constructor<?> canonicalConstructor(Class<?> type) {
+        RecordComponent[] components = type.getRecordComponents();
+        Class<?>[] parameterTypes = new Class<?>[components.length];
+        for (int i = 0; i < components.length; i++) {
+            parameterTypes[i] = components[i].getType();
+        }
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor(parameterTypes);
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Record " + type.getName() + " has no canonical constructor", e);
+        }
+    }
+}
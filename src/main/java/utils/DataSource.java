@@ -0,0 +1,225 @@
+package utils;
+
+import org.openqa.selenium.json.Json;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Streams the rows of a CSV or JSON Lines data file one at a time, so files of any size can drive
+ * a scenario without being loaded into memory.
+ * <ul>
+ *     <li>{@code .csv}: the first record is the header; fields may be quoted with {@code "}, with
+ *     {@code ""} for a quote, and quoted fields may span lines. Blank lines are skipped.</li>
+ *     <li>{@code .jsonl}: one JSON object per line; its keys are the columns and its values keep
+ *     their JSON types. Blank lines are skipped.</li>
+ * </ul>
+ * A source can be restricted to one partition of the rows: with {@code partitions} partitions,
+ * partition {@code p} (zero-based) gets rows {@code p+1}, {@code p+1+partitions}, and so on, so shards
+ * reading the same file split it without coordination.
+ * <p>
+ * Not thread-safe; callers sharing a source across threads must synchronise on it.
+ */
+public final class DataSource implements Iterator<DataRow>, Closeable {
+
+    private static final Json JSON = new Json();
+
+    private enum Format { CSV, JSONL }
+
+    private final String name;
+    private final Format format;
+    private final BufferedReader reader;
+    private final int partition;
+    private final int partitions;
+    private final List<String> header;
+    private long index;
+    private long lineNumber;
+    private DataRow next;
+
+    private DataSource(Path file, Format format, int partition, int partitions) throws IOException {
+        this.name = file.getFileName().toString();
+        this.format = format;
+        this.partition = partition;
+        this.partitions = partitions;
+        this.reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        try {
+            this.header = format == Format.CSV ? readCsvRecord() : null;
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+        if (format == Format.CSV && header == null) {
+            reader.close();
+            throw new IllegalArgumentException("Data file " + file + " is empty; a CSV file needs a header");
+        }
+    }
+
+    /**
+     * Opens every row of a data file.
+     */
+    public static DataSource open(Path file) throws IOException {
+        return open(file, 0, 1);
+    }
+
+    /**
+     * Opens one partition of the rows of a data file.
+     *
+     * @param partition  zero-based partition to read
+     * @param partitions number of partitions the rows are split into
+     * @throws IllegalArgumentException if the file is neither {@code .csv} nor {@code .jsonl}, or the
+     *                                  partition is out of range
+     */
+    public static DataSource open(Path file, int partition, int partitions) throws IOException {
+        if (partitions < 1 || partition < 0 || partition >= partitions) {
+            throw new IllegalArgumentException("Partition " + partition + " of " + partitions + " is out of range");
+        }
+        String fileName = file.getFileName().toString().toLowerCase();
+        Format format;
+        if (fileName.endsWith(".csv")) {
+            format = Format.CSV;
+        } else if (fileName.endsWith(".jsonl")) {
+            format = Format.JSONL;
+        } else {
+            throw new IllegalArgumentException("Unsupported data file " + file + "; expected .csv or .jsonl");
+        }
+        return new DataSource(file, format, partition, partitions);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = read();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read data file " + name, e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public DataRow next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException(name + " has no more rows");
+        }
+        DataRow row = next;
+        next = null;
+        return row;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private DataRow read() throws IOException {
+        while (true) {
+            Map<String, Object> values = format == Format.CSV ? nextCsvRow() : nextJsonRow();
+            if (values == null) {
+                return null;
+            }
+            index++;
+            if ((index - 1) % partitions == partition) {
+                return new DataRow(name, index, values);
+            }
+        }
+    }
+
+    private Map<String, Object> nextCsvRow() throws IOException {
+        List<String> fields;
+        do {
+            fields = readCsvRecord();
+            if (fields == null) {
+                return null;
+            }
+        } while (fields.size() == 1 && fields.get(0).isEmpty());
+        if (fields.size() != header.size()) {
+            throw new IllegalArgumentException(name + " line " + lineNumber + " has " + fields.size()
+                    + " fields, the header has " + header.size());
+        }
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            values.put(header.get(i), fields.get(i));
+        }
+        return values;
+    }
+
+    private Map<String, Object> nextJsonRow() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            lineNumber++;
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+        try {
+            Map<String, Object> values = JSON.toType(line, Json.MAP_TYPE);
+            return new LinkedHashMap<>(values);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException(name + " line " + lineNumber + " is not a JSON object", e);
+        }
+    }
+
+    /**
+     * Reads one CSV record, which may span lines inside quotes; {@code null} at the end of the file.
+     */
+    private List<String> readCsvRecord() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean read = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            read = true;
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int following = reader.read();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (following != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+        if (!read) {
+            return null;
+        }
+        lineNumber++;
+        if (quoted) {
+            throw new IllegalArgumentException(name + " has an unterminated quoted field at line " + lineNumber);
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,182 @@
+package utils;
+
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.TypeToken;
+import org.openqa.selenium.remote.service.DriverFinder;
+import org.openqa.selenium.remote.service.DriverService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Driver and browser binaries, resolved by Selenium Manager once per JVM and browser.
+ * <p>
+ * Without this, every {@code new ChromeDriver(...)} runs Selenium Manager again, which costs a
+ * process launch (and a network lookup when the cache of Selenium Manager is cold) per browser.
+ * Resolved paths are also kept in {@code driver.cacheFile} (default
+ * {@code ~/.cache/selenium/framework-drivers.json}), so later runs, including runs without network
+ * access, skip Selenium Manager altogether. A cached entry is used while both binaries still exist
+ * and it is younger than {@code driver.cacheMaxAgeHours} (default 24), so browser updates are
+ * picked up within a day; {@link #invalidate(String)} drops it earlier, e.g. when the browser no
+ * longer accepts the cached driver.
+ * <p>
+ * The time spent resolving is recorded in {@link Metrics} as {@code session:resolve:<browser>}.
+ */
+public final class DriverBinaries {
+    private static final Logger logger = LoggerFactory.getLogger(DriverBinaries.class);
+
+    private static final Json JSON = new Json();
+    private static final Type MAP = new TypeToken<Map<String, Map<String, String>>>() {
+    }.getType();
+
+    /**
+     * Resolved binaries of one browser.
+     *
+     * @param driverPath  driver executable, e.g. {@code chromedriver}
+     * @param browserPath browser executable, or {@code null} to let the driver find the browser
+     * @param resolvedAt  when Selenium Manager resolved the paths
+     * @param cached      whether the paths came from {@code driver.cacheFile} rather than Selenium Manager
+     */
+    public record Binaries(String driverPath, String browserPath, Instant resolvedAt, boolean cached) {
+    }
+
+    private static final Map<String, Binaries> resolved = new ConcurrentHashMap<>();
+
+    private DriverBinaries() {
+    }
+
+    /**
+     * Returns the binaries of {@code browserName}, resolving them with {@link DriverFinder} for a
+     * {@code service} of that browser and {@code capabilities} the first time in this JVM unless the
+     * disk cache has a usable entry.
+     */
+    public static Binaries resolve(String browserName, Supplier<DriverService> service, Capabilities capabilities) {
+        return resolved.computeIfAbsent(browserName.toLowerCase(), browser -> {
+            long start = System.nanoTime();
+            Binaries binaries = fromDisk(browser);
+            if (binaries == null) {
+                DriverFinder finder = new DriverFinder(service.get(), capabilities);
+                binaries = new Binaries(finder.getDriverPath(), finder.hasBrowserPath() ? finder.getBrowserPath() : null,
+                        Instant.now(), false);
+                toDisk(browser, binaries);
+            }
+            long elapsed = System.nanoTime() - start;
+            Metrics.record(Metrics.SESSION, "resolve:" + browser, elapsed, true);
+            logger.info("Resolved {} binaries in {} ms ({}): driver {}, browser {}", browser, elapsed / 1_000_000,
+                    binaries.cached() ? "disk cache" : "Selenium Manager", binaries.driverPath(),
+                    binaries.browserPath() == null ? "found by the driver" : binaries.browserPath());
+            return binaries;
+        });
+    }
+
+    /**
+     * Forgets the binaries of {@code browserName} in this JVM and on disk, so the next
+     * {@link #resolve} asks Selenium Manager again.
+     */
+    public static void invalidate(String browserName) {
+        String browser = browserName.toLowerCase();
+        resolved.remove(browser);
+        Path file = cacheFile();
+        synchronized (DriverBinaries.class) {
+            Map<String, Map<String, String>> entries = read(file);
+            if (entries.remove(browser) != null) {
+                write(file, entries);
+            }
+        }
+        logger.info("Dropped cached {} binaries", browser);
+    }
+
+    private static Binaries fromDisk(String browser) {
+        Map<String, String> entry;
+        synchronized (DriverBinaries.class) {
+            entry = read(cacheFile()).get(browser);
+        }
+        if (entry == null || entry.get("driverPath") == null || entry.get("resolvedAt") == null) {
+            return null;
+        }
+        Instant resolvedAt;
+        try {
+            resolvedAt = Instant.parse(entry.get("resolvedAt"));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+        Duration maxAge = Duration.ofHours(ConfigReader.getInt("driver.cacheMaxAgeHours", 24));
+        if (resolvedAt.plus(maxAge).isBefore(Instant.now())) {
+            logger.debug("Cached {} binaries are older than {}; resolving again", browser, maxAge);
+            return null;
+        }
+        String driverPath = entry.get("driverPath");
+        String browserPath = entry.get("browserPath");
+        if (!Files.isExecutable(Path.of(driverPath)) || (browserPath != null && !Files.exists(Path.of(browserPath)))) {
+            logger.debug("Cached {} binaries no longer exist; resolving again", browser);
+            return null;
+        }
+        return new Binaries(driverPath, browserPath, resolvedAt, true);
+    }
+
+    private static void toDisk(String browser, Binaries binaries) {
+        Map<String, String> entry = new LinkedHashMap<>();
+        entry.put("driverPath", binaries.driverPath());
+        entry.put("browserPath", binaries.browserPath());
+        entry.put("resolvedAt", binaries.resolvedAt().toString());
+        Path file = cacheFile();
+        synchronized (DriverBinaries.class) {
+            Map<String, Map<String, String>> entries = read(file);
+            entries.put(browser, entry);
+            write(file, entries);
+        }
+    }
+
+    private static Path cacheFile() {
+        String configured = ConfigReader.getProperty("driver.cacheFile", "");
+        return configured.isEmpty()
+                ? Path.of(System.getProperty("user.home"), ".cache", "selenium", "framework-drivers.json")
+                : Path.of(configured);
+    }
+
+    /**
+     * Reads the cache file; an unreadable file counts as empty, since it only saves time.
+     */
+    private static Map<String, Map<String, String>> read(Path file) {
+        if (!Files.exists(file)) {
+            return new TreeMap<>();
+        }
+        try {
+            Map<String, Map<String, String>> entries = JSON.toType(Files.readString(file, StandardCharsets.UTF_8), MAP);
+            return entries == null ? new TreeMap<>() : new TreeMap<>(entries);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable driver cache {}: {}", file, e.getMessage());
+            return new TreeMap<>();
+        }
+    }
+
+    /**
+     * Writes the cache file atomically, so parallel JVMs never read a partial file.
+     */
+    private static void write(Path file, Map<String, Map<String, String>> entries) {
+        try {
+            Path dir = file.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+            Files.writeString(tmp, JSON.toJson(entries) + "\n", StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to update driver cache {}: {}", file, e.getMessage());
+        }
+    }
+}
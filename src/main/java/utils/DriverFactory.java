@@ -1,54 +1,454 @@
 package utils;
 
+import org.openqa.selenium.SessionNotCreatedException;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeDriverService;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.edge.EdgeDriver;
+import org.openqa.selenium.edge.EdgeDriverService;
+import org.openqa.selenium.edge.EdgeOptions;
+import org.openqa.selenium.firefox.FirefoxDriver;
+import org.openqa.selenium.firefox.FirefoxOptions;
+import org.openqa.selenium.firefox.GeckoDriverService;
+import org.openqa.selenium.remote.AbstractDriverOptions;
+import org.openqa.selenium.remote.service.DriverService;
+import org.openqa.selenium.support.events.EventFiringDecorator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 
+/**
+ * Thread-confined registry of WebDriver instances.
+ * <p>
+ * Each thread (and therefore each Cucumber scenario running on it) owns at most one
+ * browser. {@link #getDriver()} lazily creates the browser for the calling thread and
+ * {@link #quitDriver()} only ever quits the caller's own browser, so scenarios running
+ * in parallel can no longer overwrite or close each other's sessions.
+ * <p>
+ * Every live driver is also tracked in a JVM-wide registry keyed by its owning thread.
+ * A shutdown hook uses that registry to quit browsers whose owner never reached
+ * teardown (for example after a crashed runner thread).
+ * <p>
+ * When {@code pool.enabled} is set (the default), browsers are not launched and quit per
+ * scenario but checked out of and back into a per-browser {@link DriverPool}; see
+ * {@code config.properties} for the pool settings.
+ * <p>
+ * When {@link Metrics} or {@link FailureArtifacts} are enabled, the driver handed to callers is
+ * wrapped in an {@link EventFiringDecorator} with a {@link CommandMetricsListener}, so every
+ * WebDriver command is timed and kept in the thread's recent commands. The registry and the pool
+ * always hold the undecorated driver.
+ * <p>
+ * Browsers are launched with the calling thread's {@link BrowserProfile} (headless mode, page-load
+ * strategy, blocked resources), set with {@link #setProfile} or taken from {@code browser.profile}.
+ * Pools are kept per browser and profile, so a scenario never receives a browser set up for another
+ * profile.
+ * <p>
+ * With {@code browser.isolation=context}, scenarios do not get a browser process each but an isolated
+ * context (own cookies, storage and cache) in a shared browser, {@code contexts.perBrowser} contexts
+ * per process; see {@link BrowserContextHost}. Contexts are created fresh per scenario and disposed
+ * on {@link #quitDriver()}, so the pool is not used in this mode.
+ * <p>
+ * {@code browser.maxLive} caps the number of browsers handed out at once across all threads, pools
+ * and profiles. A thread over the cap waits in {@link #getDriver()} until another thread quits its
+ * browser, so scenario concurrency can exceed browser concurrency. It is unlimited unless set, except
+ * under the virtual-thread scheduler ({@code scenario.scheduler=virtual}), where it defaults to 4
+ * since the scheduler runs far more scenarios at once than the machine has browsers for.
+ * <p>
+ * Chrome, Edge and Firefox are supported; the browser comes from {@link #setBrowser} or {@code browser}
+ * (default {@code chrome}) and its options from {@link BrowserOptions}. Driver and browser binaries are
+ * resolved once per JVM and cached on disk ({@link DriverBinaries}), and all Chrome sessions share one
+ * long-lived chromedriver, all Edge sessions one msedgedriver ({@link SharedDriverService}). Startup time
+ * is recorded under {@code session:} in {@link Metrics}, broken down into {@code resolve:<browser>},
+ * {@code service:<browser>} (driver spawn), {@code create:<browser>/<profile>} (session creation) and the
+ * whole {@code launch:<browser>/<profile>}.
+ * <p>
+ * With {@code grid.urls} set, browsers are created on Selenium Grid through {@link GridDispatcher},
+ * which queues requests while every slot is busy and falls back to local browsers when no Grid
+ * session can be had. Sessions are not pooled then, since an idle Grid session holds a slot other
+ * runners could use. Context hosts ({@code browser.isolation=context}) always run locally.
+ */
 public class DriverFactory {
-    private static WebDriver driver;
-    protected static String browser;
+    private static final Logger logger = LoggerFactory.getLogger(DriverFactory.class);
+
+    private static final ThreadLocal<WebDriver> driver = new ThreadLocal<>();
+    private static final ThreadLocal<String> browser = new ThreadLocal<>();
+    private static final ThreadLocal<BrowserProfile> profile = new ThreadLocal<>();
+    /** Pool the calling thread's driver was checked out of, if any. */
+    private static final ThreadLocal<DriverPool> ownerPool = new ThreadLocal<>();
+    /** Time the calling thread last waited for a browser permit. */
+    private static final ThreadLocal<Long> browserWaitNanos = new ThreadLocal<>();
+
+    /** Browsers handed out at once; fair, so threads get browsers in the order they asked. */
+    private static final Semaphore livePermits = new Semaphore(ConfigReader.getInt("browser.maxLive",
+            "virtual".equalsIgnoreCase(ConfigReader.getProperty("scenario.scheduler", "testng")) ? 4 : Integer.MAX_VALUE), true);
+
+    /** All live (undecorated) drivers, keyed by the thread that owns them. */
+    private static final Map<Thread, WebDriver> activeDrivers = new ConcurrentHashMap<>();
+
+    /** Warm session pools, one per browser name and profile. */
+    private static final Map<String, DriverPool> pools = new ConcurrentHashMap<>();
+
+    /** Browsers hosting isolated contexts in {@code browser.isolation=context} mode, per browser name and profile. */
+    private static final Map<String, List<BrowserContextHost>> contextHosts = new ConcurrentHashMap<>();
+
+    /** Resource blockers of live browsers; entries go away with their (undecorated) driver. */
+    private static final Map<WebDriver, NetworkBlocker> blockers = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static final CommandMetricsListener commandMetrics = new CommandMetricsListener();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            quitAll();
+            pools.values().forEach(DriverPool::close);
+            contextHosts.values().forEach(hosts -> hosts.forEach(BrowserContextHost::quit));
+            SharedDriverService.shutdownAll();
+        }, "driver-factory-shutdown"));
+    }
+
     public static WebDriver getDriver(){
-        if(driver==null){
-            if(browser==null)
-                browser="chrome";// default browser assignment
-            initDriver(browser);
+        if(driver.get()==null){
+            if(browser.get()==null)
+                browser.set(ConfigReader.getProperty("browser", "chrome"));// default browser assignment
+            initDriver(browser.get());
         }
-        return driver;
+        return driver.get();
     }
 
+    /**
+     * Gives the calling thread a browser of {@code browserName} ({@code chrome}, {@code edge} or
+     * {@code firefox}).
+     *
+     * @throws IllegalArgumentException if the browser is not supported
+     * @throws IllegalStateException    if the thread already owns a browser
+     */
     public static void initDriver(String browserName){
-        if(browserName.equalsIgnoreCase("chrome")){
-            driver=new ChromeDriver();
-        }
-        driver.manage().window().maximize();
-        //For later use-multiple browser testing
-//        switch (browserName.toLowerCase()){
-//            case "chrome":
-//                driver=new ChromeDriver();
-//                break;
-//             case "firefox":
-//                 driver = new FirefoxDriver();
-//                 break;
-//             case "edge":
-//                 driver = new EdgeDriver();
-//                 break;
-//            default:
-//                System.out.println("Browser not supported. Launching Chrome as default.");
-//                driver = new ChromeDriver();
-//                break;
-//        }
+        if(driver.get()!=null){
+            throw new IllegalStateException("Thread " + Thread.currentThread().getName()
+                    + " already owns a driver; call quitDriver() before initialising a new one");
+        }
+        browserName=BrowserOptions.normalize(browserName);
+        if(profile.get()==null){
+            profile.set(BrowserProfile.configured());
+        }
+        BrowserProfile browserProfile=profile.get();
+        long waitStart=System.nanoTime();
+        livePermits.acquireUninterruptibly();
+        browserWaitNanos.set(System.nanoTime() - waitStart);
+        WebDriver newDriver;
+        try {
+            if(isContextIsolation()){
+                newDriver=openContext(browserName, browserProfile);
+            }else if(isPoolEnabled() && GridDispatcher.configured()==null){
+                DriverPool pool=pool(browserName, browserProfile);
+                newDriver=pool.checkout();
+                ownerPool.set(pool);
+            }else{
+                newDriver=createDriver(browserName, browserProfile);
+            }
+        } catch (RuntimeException e) {
+            livePermits.release();
+            throw e;
+        }
+        NetworkBlocker blocker=blockers.get(newDriver);
+        if(blocker!=null){
+            blocker.reset();
+        }
+        activeDrivers.put(Thread.currentThread(), newDriver);
+        FailureArtifacts.startSession();
+        driver.set(Metrics.isEnabled() || FailureArtifacts.isEnabled()
+                ? new EventFiringDecorator<>(commandMetrics).decorate(newDriver) : newDriver);
+        logger.debug("Started {} ({} profile) for thread {} ({} active)", browserName, browserProfile.name(),
+                Thread.currentThread().getName(), activeDrivers.size());
+    }
+
+    private static WebDriver createDriver(String browserName, BrowserProfile browserProfile){
+        WebDriver newDriver=launchBrowser(browserName, browserProfile, true);
+        NetworkBlocker blocker=NetworkBlocker.attach(newDriver, browserProfile);
+        if(blocker!=null){
+            blockers.put(newDriver, blocker);
+        }
+        return newDriver;
+    }
+
+    /**
+     * Starts a browser with {@code browserProfile}, on the Grid if one is configured and
+     * {@code remote} allows it, locally otherwise.
+     */
+    private static WebDriver launchBrowser(String browserName, BrowserProfile browserProfile, boolean remote){
+        long start=System.nanoTime();
+        String browserKey=BrowserOptions.normalize(browserName);
+        AbstractDriverOptions<?> options=BrowserOptions.of(browserKey, browserProfile);
+        GridDispatcher grid=remote ? GridDispatcher.configured() : null;
+        WebDriver newDriver=grid==null ? null : grid.newSession(options);
+        if(newDriver==null){
+            newDriver=startLocal(browserKey, options, browserProfile);
+        }
+        if(!browserProfile.headless()){
+            newDriver.manage().window().maximize();
+        }
+        Metrics.record(Metrics.SESSION, "launch:" + browserKey + "/" + browserProfile.name(), System.nanoTime() - start, true);
+        return newDriver;
+    }
+
+    /**
+     * Starts a local session with binaries resolved once per JVM, see {@link DriverBinaries}. Chrome and
+     * Edge sessions run on their browser's shared driver ({@link SharedDriverService}) unless
+     * {@code driver.sharedService=false}; geckodriver serves one session, so every Firefox session gets its
+     * own. A session the browser refuses with cached binaries (typically after a browser update) is retried
+     * once with freshly resolved ones, and one that fails because the shared driver process exited is
+     * retried once on a new process. A shared driver that is still running is never restarted here,
+     * since other threads' sessions run on it.
+     */
+    private static WebDriver startLocal(String browserName, AbstractDriverOptions<?> options, BrowserProfile browserProfile){
+        SharedDriverService<?> sharedService=!browserName.equals("firefox") && ConfigReader.getBoolean("driver.sharedService", true)
+                ? (browserName.equals("edge") ? SharedDriverService.edge() : SharedDriverService.chrome())
+                : null;
+        DriverBinaries.Binaries binaries=DriverBinaries.resolve(browserName, () -> builder(browserName).build(), options);
+        String metric="create:" + browserName + "/" + browserProfile.name();
+        for(int attempt=1; ; attempt++){
+            if(binaries.browserPath()!=null){
+                BrowserOptions.pinBinary(options, binaries.browserPath());
+            }
+            DriverService service=sharedService!=null
+                    ? sharedService.running(binaries.driverPath())
+                    : ownService(browserName, binaries.driverPath());
+            long start=System.nanoTime();
+            try {
+                WebDriver newDriver=switch (browserName){
+                    case "chrome" -> new ChromeDriver((ChromeDriverService) service, (ChromeOptions) options);
+                    case "edge" -> new EdgeDriver((EdgeDriverService) service, (EdgeOptions) options);
+                    default -> new FirefoxDriver((GeckoDriverService) service, (FirefoxOptions) options);
+                };
+                Metrics.record(Metrics.SESSION, metric, System.nanoTime() - start, true);
+                return newDriver;
+            } catch (SessionNotCreatedException e) {
+                Metrics.record(Metrics.SESSION, metric, System.nanoTime() - start, false);
+                if(attempt>1 || !binaries.cached()){
+                    throw e;
+                }
+                logger.warn("{} refused the cached driver {}; resolving the binaries again", browserName, binaries.driverPath());
+                DriverBinaries.invalidate(browserName);
+                binaries=DriverBinaries.resolve(browserName, () -> builder(browserName).build(), options);
+            } catch (WebDriverException e) {
+                Metrics.record(Metrics.SESSION, metric, System.nanoTime() - start, false);
+                if(attempt>1 || sharedService==null || sharedService.isAlive()){
+                    throw e;
+                }
+                logger.warn("{} session failed because its shared driver exited; retrying on a new one", browserName);
+            }
+        }
+    }
+
+    /**
+     * Starts a driver process for one session; the session stops it again on {@code quit()}.
+     */
+    private static DriverService ownService(String browserName, String driverPath){
+        long start=System.nanoTime();
+        DriverService service=builder(browserName)
+                .usingDriverExecutable(new File(driverPath))
+                .usingAnyFreePort()
+                .build();
+        try {
+            service.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to start " + browserName + " driver " + driverPath, e);
+        }
+        Metrics.record(Metrics.SESSION, "service:" + browserName, System.nanoTime() - start, true);
+        return service;
+    }
 
+    private static DriverService.Builder<?, ?> builder(String browserName){
+        return switch (browserName){
+            case "chrome" -> new ChromeDriverService.Builder();
+            case "edge" -> new EdgeDriverService.Builder();
+            default -> new GeckoDriverService.Builder();
+        };
     }
 
+    private static boolean isContextIsolation(){
+        return "context".equalsIgnoreCase(ConfigReader.getProperty("browser.isolation", "process"));
+    }
+
+    /**
+     * Opens a context in the least busy browser that has room for one, launching a new browser
+     * when all of them host {@code contexts.perBrowser} contexts.
+     */
+    private static WebDriver openContext(String browserName, BrowserProfile browserProfile){
+        String browserKey=browserName.toLowerCase();
+        if(!BrowserOptions.isChromium(browserKey)){
+            throw new IllegalArgumentException("Browser contexts need a Chromium browser; run " + browserKey
+                    + " with browser.isolation=process");
+        }
+        List<BrowserContextHost> hosts=contextHosts.computeIfAbsent(browserKey + "/" + browserProfile.name(), k -> new ArrayList<>());
+        int perBrowser=ConfigReader.getInt("contexts.perBrowser", 4);
+        BrowserContextHost host;
+        synchronized (hosts){
+            hosts.removeIf(BrowserContextHost::isClosed);
+            host=hosts.stream()
+                    .filter(h -> h.openContexts() < perBrowser)
+                    .min(Comparator.comparingInt(BrowserContextHost::openContexts))
+                    .orElse(null);
+            if(host==null){
+                // contexts are opened through DevTools of a local Chromium driver
+                host=new BrowserContextHost(launchBrowser(browserKey, browserProfile, false), browserProfile);
+                hosts.add(host);
+                logger.info("Launched {} browser #{} to host up to {} contexts", browserKey, hosts.size(), perBrowser);
+            }
+            // counted before the lock is released, so concurrent callers see the slot as taken
+            host.reserve();
+        }
+        long start=System.nanoTime();
+        WebDriver context;
+        try {
+            context=host.openContext();
+        } catch (RuntimeException e) {
+            if(host.isClosed()){
+                synchronized (hosts){
+                    hosts.remove(host);
+                }
+            }
+            Metrics.record(Metrics.SESSION, "context:" + browserKey + "/" + browserProfile.name(), System.nanoTime() - start, false);
+            throw e;
+        }
+        Metrics.record(Metrics.SESSION, "context:" + browserKey + "/" + browserProfile.name(), System.nanoTime() - start, true);
+        return context;
+    }
+
+    private static boolean isPoolEnabled(){
+        return ConfigReader.getBoolean("pool.enabled", true);
+    }
+
+    private static DriverPool pool(String browserName, BrowserProfile browserProfile){
+        String browserKey=browserName.toLowerCase();
+        return pools.computeIfAbsent(browserKey + "/" + browserProfile.name(), name -> {
+            DriverPool pool=new DriverPool(name, () -> createDriver(browserKey, browserProfile),
+                    ConfigReader.getInt("pool.size", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+                    ConfigReader.getInt("pool.maxUses", 20),
+                    Duration.ofSeconds(ConfigReader.getInt("pool.checkoutTimeoutSeconds", 120)));
+            pool.prewarm(ConfigReader.getInt("pool.prewarm", 0));
+            return pool;
+        });
+    }
+
+    /**
+     * Releases the browser owned by the calling thread, if any: it is checked back into
+     * its pool when pooling is enabled and quit otherwise.
+     * Drivers owned by other threads are never touched.
+     */
     public static void quitDriver(){
-        if(driver!=null){
-            driver.quit();
-            driver=null;
+        WebDriver current=driver.get();
+        if(current!=null){
+            WebDriver raw=activeDrivers.getOrDefault(Thread.currentThread(), current);
+            try {
+                DriverPool pool=ownerPool.get();
+                if(pool!=null){
+                    pool.checkin(raw);
+                }else{
+                    raw.quit();
+                }
+            } finally {
+                activeDrivers.remove(Thread.currentThread(), raw);
+                livePermits.release();
+                driver.remove();
+                browser.remove();
+                profile.remove();
+                ownerPool.remove();
+            }
         }
     }
 
+    /**
+     * Returns {@code true} if the calling thread currently owns a browser.
+     */
+    public static boolean hasDriver(){
+        return driver.get()!=null;
+    }
+
+    /**
+     * Returns how long the calling thread waited for a browser under {@code browser.maxLive} the
+     * last time it got one, and clears the value, so a scenario that never asked for a browser
+     * reports zero.
+     */
+    public static long takeBrowserWaitNanos(){
+        Long nanos=browserWaitNanos.get();
+        browserWaitNanos.remove();
+        return nanos==null ? 0 : nanos;
+    }
+
+    /**
+     * Returns the calling thread's undecorated browser, or {@code null} if it has none, so commands
+     * sent through it are not timed or kept as recent commands.
+     */
+    static WebDriver rawDriver(){
+        return activeDrivers.get(Thread.currentThread());
+    }
+
+    /**
+     * Returns the number of browsers currently alive across all threads.
+     */
+    public static int activeDriverCount(){
+        return activeDrivers.size();
+    }
+
+    /**
+     * Quits every browser still registered, regardless of owner.
+     * <p>
+     * Intended for end-of-run cleanup only; use {@link #quitDriver()} from scenario teardown.
+     */
+    public static void quitAll(){
+        activeDrivers.forEach((owner, leaked) -> {
+            logger.warn("Quitting browser leaked by thread {}", owner.getName());
+            try {
+                leaked.quit();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to quit browser leaked by thread {}", owner.getName(), e);
+            }
+        });
+        activeDrivers.clear();
+    }
+
+    /**
+     * Returns pool statistics for every browser pool created so far.
+     */
+    public static String poolStats(){
+        StringBuilder sb=new StringBuilder();
+        pools.values().forEach(pool -> sb.append(pool.stats()).append(System.lineSeparator()));
+        return sb.toString().trim();
+    }
+
     public static void setBrowser(String browserName){
-        browser=browserName;
+        browser.set(browserName);
     }
-}
 
+    /**
+     * Sets the profile the calling thread's next browser is launched with; must be called before
+     * {@link #getDriver()}.
+     */
+    public static void setProfile(BrowserProfile browserProfile){
+        profile.set(browserProfile);
+    }
+
+    /**
+     * Returns the blocked and loaded requests of the calling thread's browser since it was handed
+     * out, or {@code null} if its profile blocks nothing.
+     */
+    public static NetworkBlocker.Report networkReport(){
+        WebDriver raw=activeDrivers.get(Thread.currentThread());
+        NetworkBlocker blocker=raw==null ? null : blockers.get(raw);
+        return blocker==null ? null : blocker.report();
+    }
+}
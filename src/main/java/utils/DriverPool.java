@@ -0,0 +1,308 @@
+package utils;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chromium.ChromiumDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool of warm browser sessions.
+ * <p>
+ * Launching a browser is the largest fixed cost of a scenario, so instead of quitting
+ * the browser after every scenario {@link DriverFactory} checks it back in here and
+ * hands it to the next scenario after a reset (cookies, storage and extra windows
+ * cleared, navigated to {@code about:blank}).
+ * <p>
+ * A session is recycled after {@code maxUses} checkouts, and evicted as soon as a
+ * health check or reset fails, so a crashed browser is never handed out twice.
+ * The total number of live sessions never exceeds {@code maxSize}; when every session
+ * is in use, {@link #checkout()} waits for one to be returned.
+ */
+public class DriverPool {
+    private static final Logger logger = LoggerFactory.getLogger(DriverPool.class);
+
+    private static final String CLEAR_STORAGE_SCRIPT =
+            "try { window.localStorage.clear(); } catch (e) {}"
+                    + "try { window.sessionStorage.clear(); } catch (e) {}";
+
+    private final String name;
+    private final Supplier<WebDriver> launcher;
+    private final int maxSize;
+    private final int maxUses;
+    private final Duration checkoutTimeout;
+
+    /** Idle sessions; its monitor also guards {@link #closed} against sessions added while closing. */
+    private final BlockingDeque<WebDriver> idle = new LinkedBlockingDeque<>();
+    private final Map<WebDriver, Integer> uses = Collections.synchronizedMap(new IdentityHashMap<>());
+    private final Semaphore capacity;
+    private volatile boolean closed;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong recycled = new AtomicLong();
+    private final AtomicLong resets = new AtomicLong();
+    private final AtomicLong resetNanos = new AtomicLong();
+    private final AtomicLong maxResetNanos = new AtomicLong();
+
+    /**
+     * @param name            pool name used in logs (typically the browser name)
+     * @param launcher        creates a new browser session
+     * @param maxSize         maximum number of live sessions, idle or checked out
+     * @param maxUses         number of checkouts after which a session is quit and replaced
+     * @param checkoutTimeout how long {@link #checkout()} waits when every session is busy
+     */
+    public DriverPool(String name, Supplier<WebDriver> launcher, int maxSize, int maxUses, Duration checkoutTimeout) {
+        if (maxSize < 1 || maxUses < 1) {
+            throw new IllegalArgumentException("maxSize and maxUses must be positive");
+        }
+        this.name = name;
+        this.launcher = launcher;
+        this.maxSize = maxSize;
+        this.maxUses = maxUses;
+        this.checkoutTimeout = checkoutTimeout;
+        this.capacity = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Launches up to {@code count} sessions in the background so the first scenarios
+     * already find warm browsers.
+     */
+    public void prewarm(int count) {
+        for (int i = 0; i < Math.min(count, maxSize); i++) {
+            if (!capacity.tryAcquire()) {
+                return;
+            }
+            Thread.ofPlatform().name(name + "-pool-prewarm-" + i).daemon().start(() -> {
+                try {
+                    addIdle(launch(), false);
+                } catch (RuntimeException e) {
+                    capacity.release();
+                    logger.warn("Failed to prewarm {} session", name, e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns a clean, healthy session, reusing an idle one when possible.
+     *
+     * @throws IllegalStateException if no session becomes available within the checkout timeout
+     */
+    public WebDriver checkout() {
+        if (closed) {
+            throw new IllegalStateException("Driver pool '" + name + "' is closed");
+        }
+        long deadline = System.nanoTime() + checkoutTimeout.toNanos();
+        while (true) {
+            WebDriver session = idle.pollFirst();
+            if (session == null && capacity.tryAcquire()) {
+                misses.incrementAndGet();
+                return launchOrRelease();
+            }
+            if (session == null) {
+                session = awaitIdle(deadline);
+                if (session == null) {
+                    continue; // a slot was freed by an eviction; try launching
+                }
+            }
+            if (reset(session)) {
+                hits.incrementAndGet();
+                uses.merge(session, 1, Integer::sum);
+                return session;
+            }
+            evict(session);
+        }
+    }
+
+    /**
+     * Returns a session to the pool. Sessions that reached {@code maxUses} or fail the
+     * health check are quit instead.
+     */
+    public void checkin(WebDriver session) {
+        if (session == null) {
+            return;
+        }
+        if (closed) {
+            discard(session);
+            return;
+        }
+        if (uses.getOrDefault(session, 0) >= maxUses) {
+            recycled.incrementAndGet();
+            logger.debug("Recycling {} session after {} uses", name, maxUses);
+            discard(session);
+        } else if (!isHealthy(session)) {
+            evict(session);
+        } else {
+            addIdle(session, true); // LIFO keeps the most recently used browsers hot
+        }
+    }
+
+    /**
+     * Quits a session that must not be reused (crashed browser, failed reset).
+     */
+    public void evict(WebDriver session) {
+        evictions.incrementAndGet();
+        logger.warn("Evicting unhealthy {} session", name);
+        discard(session);
+    }
+
+    /**
+     * Quits all idle sessions and rejects further checkouts. Sessions still checked out
+     * are quit when they are checked in.
+     */
+    public void close() {
+        synchronized (idle) {
+            closed = true;
+        }
+        WebDriver session;
+        while ((session = idle.pollFirst()) != null) {
+            discard(session);
+        }
+        logger.info(stats());
+    }
+
+    /**
+     * Returns a one-line summary of hit/miss, eviction and reset-time statistics.
+     */
+    public String stats() {
+        long resetCount = resets.get();
+        long lookups = hits.get() + misses.get();
+        return String.format("Driver pool '%s': %d checkouts, %d hits, %d misses (%.0f%% hit rate), %d recycled, %d evicted, "
+                        + "reset avg %.1f ms / max %.1f ms",
+                name, lookups, hits.get(), misses.get(), lookups == 0 ? 0.0 : 100.0 * hits.get() / lookups,
+                recycled.get(), evictions.get(),
+                resetCount == 0 ? 0.0 : resetNanos.get() / 1e6 / resetCount, maxResetNanos.get() / 1e6);
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * Adds a session to the idle ones, or quits it if the pool is closed. Checked under the same
+     * lock {@link #close()} sets the flag with, so no session is left idle in a closed pool.
+     */
+    private void addIdle(WebDriver session, boolean first) {
+        synchronized (idle) {
+            if (!closed) {
+                if (first) {
+                    idle.offerFirst(session);
+                } else {
+                    idle.offerLast(session);
+                }
+                return;
+            }
+        }
+        discard(session);
+    }
+
+    private WebDriver awaitIdle(long deadline) {
+        try {
+            while (true) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new IllegalStateException("No " + name + " session available within " + checkoutTimeout
+                            + " (pool size " + maxSize + ")");
+                }
+                WebDriver session = idle.pollFirst(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(200)), TimeUnit.NANOSECONDS);
+                if (session != null) {
+                    return session;
+                }
+                if (capacity.availablePermits() > 0) {
+                    return null;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a " + name + " session", e);
+        }
+    }
+
+    private WebDriver launchOrRelease() {
+        try {
+            WebDriver session = launch();
+            uses.put(session, 1);
+            return session;
+        } catch (RuntimeException e) {
+            capacity.release();
+            throw e;
+        }
+    }
+
+    private WebDriver launch() {
+        long start = System.nanoTime();
+        WebDriver session = launcher.get();
+        logger.debug("Launched {} session in {} ms", name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return session;
+    }
+
+    private boolean reset(WebDriver session) {
+        long start = System.nanoTime();
+        try {
+            List<String> handles = List.copyOf(session.getWindowHandles());
+            for (int i = 1; i < handles.size(); i++) {
+                session.switchTo().window(handles.get(i)).close();
+            }
+            session.switchTo().window(handles.get(0));
+            if (session instanceof JavascriptExecutor js) {
+                js.executeScript(CLEAR_STORAGE_SCRIPT);
+            }
+            session.manage().deleteAllCookies();
+            if (session instanceof ChromiumDriver chromium) {
+                // deleteAllCookies() only covers the current domain
+                chromium.executeCdpCommand("Network.clearBrowserCookies", Map.of());
+            }
+            session.get("about:blank");
+            return true;
+        } catch (WebDriverException | IndexOutOfBoundsException e) {
+            logger.warn("Reset of {} session failed: {}", name, e.getMessage());
+            return false;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            resets.incrementAndGet();
+            resetNanos.addAndGet(elapsed);
+            maxResetNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+
+    private boolean isHealthy(WebDriver session) {
+        try {
+            return !session.getWindowHandles().isEmpty();
+        } catch (WebDriverException e) {
+            return false;
+        }
+    }
+
+    private void discard(WebDriver session) {
+        uses.remove(session);
+        quitQuietly(session);
+        capacity.release();
+    }
+
+    private void quitQuietly(WebDriver session) {
+        try {
+            session.quit();
+        } catch (WebDriverException e) {
+            logger.debug("Ignoring failure while quitting {} session: {}", name, e.getMessage());
+        }
+    }
+}
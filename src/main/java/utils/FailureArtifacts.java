@@ -0,0 +1,333 @@
+package utils;
+
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.logging.LogEntry;
+import org.openqa.selenium.logging.LogType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Screenshots, DOM snapshots, browser console logs and recent WebDriver commands captured when a
+ * page action or a scenario fails, written to disk in the background.
+ * <p>
+ * {@link #capture(String)} runs on the test thread: the scenario teardown calls it once when a scenario
+ * failed, and code that wants the browser's state at a particular point may call it before throwing,
+ * up to {@code artifacts.maxPerScenario} times per scenario. It only asks the browser for
+ * its state (the screenshot stays base64, as received) and hands the result to a single writer thread
+ * through a queue of {@code artifacts.queueCapacity} captures. When the queue is full the test thread
+ * waits up to {@code artifacts.enqueueTimeoutMillis} for room and then drops the capture, so a slow
+ * disk slows failing scenarios down rather than filling the heap.
+ * <p>
+ * The writer decodes the screenshot, gzips the DOM and writes one directory per capture under
+ * {@code artifacts.dir/run-<timestamp>/}. Once {@code artifacts.maxTotalMB} have been written in a
+ * run, only the small {@code capture.txt} summary of further captures is; it lists what was skipped.
+ * Captures still queued at exit are written by a shutdown hook.
+ * <p>
+ * File paths are fixed at capture time, so the teardown can link them from the Cucumber report with
+ * {@link Capture#uriList()} before they exist.
+ */
+public final class FailureArtifacts {
+    private static final Logger logger = LoggerFactory.getLogger(FailureArtifacts.class);
+
+    private static final boolean ENABLED = ConfigReader.getBoolean("artifacts.enabled", true);
+    private static final int MAX_PER_SCENARIO = ConfigReader.getInt("artifacts.maxPerScenario", 3);
+    private static final long ENQUEUE_TIMEOUT_MILLIS = ConfigReader.getInt("artifacts.enqueueTimeoutMillis", 5000);
+    private static final long BUDGET_BYTES = ConfigReader.getInt("artifacts.maxTotalMB", 200) * 1024L * 1024L;
+    private static final Path RUN_DIR = Path.of(ConfigReader.getProperty("artifacts.dir", "target/failure-artifacts"),
+            "run-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+    /** Directory of the HTML report; links are relative to it. */
+    private static final Path REPORT_DIR = Path.of(ConfigReader.getProperty("artifacts.reportDir", "target"));
+
+    /** MDC key under which the running scenario is logged, see {@code plugins.LogContextPlugin}. */
+    private static final String SCENARIO_KEY = "scenario";
+
+    private static final BlockingQueue<Pending> queue =
+            new ArrayBlockingQueue<>(Math.max(1, ConfigReader.getInt("artifacts.queueCapacity", 8)));
+    /** Tells the writer to stop; compared by identity. */
+    private static final Pending STOP = new Pending(null, null, null, null, null, null, null, null, null, 0);
+
+    private static final AtomicInteger sequence = new AtomicInteger();
+    private static final AtomicInteger dropped = new AtomicInteger();
+    private static final ThreadLocal<List<Capture>> captures = ThreadLocal.withInitial(ArrayList::new);
+
+    // written by the writer thread only, read after it has stopped
+    private static int written;
+    private static int skippedFiles;
+    private static long writtenBytes;
+
+    private static final Thread writer;
+
+    static {
+        if (ENABLED) {
+            writer = Thread.ofPlatform().name("artifact-writer").daemon().start(FailureArtifacts::writeLoop);
+            Runtime.getRuntime().addShutdownHook(new Thread(FailureArtifacts::close, "artifact-writer-shutdown"));
+        } else {
+            writer = null;
+        }
+    }
+
+    /**
+     * The files of one capture. They are written asynchronously, so they may not exist yet, and files
+     * over the size budget are never written.
+     *
+     * @param id        name of the capture's directory, e.g. {@code 0003-Invalid-login-Login.feature-12}
+     * @param directory directory the files are written to
+     * @param files     the files, {@code capture.txt} first
+     */
+    public record Capture(String id, Path directory, List<Path> files) {
+
+        /**
+         * Returns the files as a {@code text/uri-list} of paths relative to {@code artifacts.reportDir},
+         * which the Cucumber HTML report renders as links.
+         */
+        public String uriList() {
+            Path base = REPORT_DIR.toAbsolutePath().normalize();
+            return files.stream()
+                    .map(file -> base.relativize(file.toAbsolutePath().normalize()).toString().replace('\\', '/'))
+                    .collect(Collectors.joining("\n"));
+        }
+    }
+
+    /** What the test thread took from the browser, waiting to be written. */
+    private record Pending(Capture capture, String reason, String scenario, String url, String title,
+                           String screenshotBase64, String dom, List<LogEntry> console,
+                           List<CommandHistory.Entry> commands, long capturedAt) {
+    }
+
+    private FailureArtifacts() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Captures the state of the calling thread's browser and queues it to be written.
+     * <p>
+     * Never throws: parts the browser cannot provide (for example after it crashed) are listed in the
+     * capture's summary instead.
+     *
+     * @param reason why the capture was taken, usually the failure message
+     * @return the capture, or {@code null} if capturing is disabled, the thread has no browser, the
+     * scenario already has {@code artifacts.maxPerScenario} captures or the writer queue stayed full
+     */
+    public static Capture capture(String reason) {
+        if (!ENABLED) {
+            return null;
+        }
+        WebDriver browser = DriverFactory.rawDriver();
+        List<Capture> taken = captures.get();
+        if (browser == null || taken.size() >= MAX_PER_SCENARIO) {
+            return null;
+        }
+        long start = System.nanoTime();
+        String scenario = MDC.get(SCENARIO_KEY);
+        String id = String.format("%04d-%s", sequence.incrementAndGet(),
+                slug(scenario != null ? scenario : Thread.currentThread().getName()));
+        Path directory = RUN_DIR.resolve(id);
+
+        List<String> problems = new ArrayList<>();
+        String url = query(browser::getCurrentUrl, "URL", problems);
+        String title = query(browser::getTitle, "title", problems);
+        String screenshot = browser instanceof TakesScreenshot camera
+                ? query(() -> camera.getScreenshotAs(OutputType.BASE64), "screenshot", problems)
+                : null;
+        String dom = query(browser::getPageSource, "DOM", problems);
+        List<LogEntry> console = query(() -> browser.manage().logs().get(LogType.BROWSER).getAll(), "console log", problems);
+        List<CommandHistory.Entry> commands = CommandHistory.snapshot();
+
+        List<Path> files = new ArrayList<>();
+        files.add(directory.resolve("capture.txt"));
+        if (screenshot != null) {
+            files.add(directory.resolve("screenshot.png"));
+        }
+        if (dom != null) {
+            files.add(directory.resolve("dom.html.gz"));
+        }
+        if (console != null) {
+            files.add(directory.resolve("console.log"));
+        }
+        files.add(directory.resolve("commands.txt"));
+        Capture capture = new Capture(id, directory, List.copyOf(files));
+
+        String summaryReason = problems.isEmpty() ? reason : reason + "\nNot captured: " + String.join("; ", problems);
+        Pending pending = new Pending(capture, summaryReason, scenario, url, title, screenshot, dom, console, commands,
+                System.currentTimeMillis());
+        boolean queued;
+        try {
+            queued = queue.offer(pending, ENQUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            dropped.incrementAndGet();
+            logger.warn("Dropped failure artifacts {}: the writer queue stayed full for {} ms", id, ENQUEUE_TIMEOUT_MILLIS);
+            return null;
+        }
+        taken.add(capture);
+        logger.info("Captured failure artifacts {} in {} ms", id, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return capture;
+    }
+
+    /**
+     * Returns {@code true} if anything was captured on the calling thread since its browser was handed out.
+     */
+    public static boolean hasCaptures() {
+        return !captures.get().isEmpty();
+    }
+
+    /**
+     * Returns the captures taken on the calling thread since its browser was handed out, and forgets them.
+     */
+    public static List<Capture> takeCaptures() {
+        List<Capture> taken = List.copyOf(captures.get());
+        captures.get().clear();
+        return taken;
+    }
+
+    /**
+     * Starts a new scenario on the calling thread: forgets its captures and recent commands.
+     */
+    static void startSession() {
+        captures.get().clear();
+        CommandHistory.clear();
+    }
+
+    private static <T> T query(Supplier<T> query, String what, List<String> problems) {
+        try {
+            return query.get();
+        } catch (RuntimeException e) {
+            String message = String.valueOf(e.getMessage());
+            int newline = message.indexOf('\n');
+            problems.add(what + " (" + e.getClass().getSimpleName() + ": "
+                    + (newline < 0 ? message : message.substring(0, newline)) + ")");
+            return null;
+        }
+    }
+
+    private static String slug(String text) {
+        String slug = text.replaceAll("[^A-Za-z0-9._-]+", "-").replaceAll("^-|-$", "");
+        return slug.length() > 60 ? slug.substring(0, 60) : slug;
+    }
+
+    private static void writeLoop() {
+        while (true) {
+            Pending pending;
+            try {
+                pending = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (pending == STOP) {
+                return;
+            }
+            try {
+                write(pending);
+                written++;
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Failed to write failure artifacts {}", pending.capture().id(), e);
+            }
+        }
+    }
+
+    private static void write(Pending pending) throws IOException {
+        Path directory = pending.capture().directory();
+        Files.createDirectories(directory);
+        List<String> skipped = new ArrayList<>();
+        if (pending.screenshotBase64() != null) {
+            write(directory.resolve("screenshot.png"), Base64.getMimeDecoder().decode(pending.screenshotBase64()), skipped, false);
+        }
+        if (pending.dom() != null) {
+            write(directory.resolve("dom.html.gz"), gzip(pending.dom()), skipped, false);
+        }
+        if (pending.console() != null) {
+            String console = pending.console().stream()
+                    .map(entry -> Instant.ofEpochMilli(entry.getTimestamp()) + " " + entry.getLevel() + " " + entry.getMessage())
+                    .collect(Collectors.joining("\n", "", "\n"));
+            write(directory.resolve("console.log"), console.getBytes(StandardCharsets.UTF_8), skipped, false);
+        }
+        String commands = pending.commands().stream()
+                .map(CommandHistory.Entry::toString)
+                .collect(Collectors.joining("\n", "", "\n"));
+        write(directory.resolve("commands.txt"), commands.getBytes(StandardCharsets.UTF_8), skipped, false);
+
+        StringBuilder summary = new StringBuilder()
+                .append("Reason:   ").append(pending.reason()).append('\n')
+                .append("Scenario: ").append(pending.scenario()).append('\n')
+                .append("URL:      ").append(pending.url()).append('\n')
+                .append("Title:    ").append(pending.title()).append('\n')
+                .append("Captured: ").append(Instant.ofEpochMilli(pending.capturedAt())).append('\n');
+        if (!skipped.isEmpty()) {
+            summary.append("Skipped:  ").append(String.join(", ", skipped))
+                    .append(" (artifacts.maxTotalMB reached)\n");
+        }
+        write(directory.resolve("capture.txt"), summary.toString().getBytes(StandardCharsets.UTF_8), skipped, true);
+    }
+
+    private static void write(Path file, byte[] content, List<String> skipped, boolean always) throws IOException {
+        if (!always && writtenBytes + content.length > BUDGET_BYTES) {
+            skipped.add(file.getFileName().toString());
+            skippedFiles++;
+            return;
+        }
+        Files.write(file, content);
+        writtenBytes += content.length;
+    }
+
+    private static byte[] gzip(String text) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(text.length() / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Lets the writer finish what is queued, waiting at most {@code artifacts.drainTimeoutSeconds}.
+     */
+    private static void close() {
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(ConfigReader.getInt("artifacts.drainTimeoutSeconds", 30));
+        try {
+            if (!queue.offer(STOP, timeoutMillis, TimeUnit.MILLISECONDS)) {
+                logger.warn("Failure artifact writer did not drain within {} ms", timeoutMillis);
+                return;
+            }
+            writer.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (writer.isAlive()) {
+            logger.warn("Failure artifact writer did not finish within {} ms; {} captures left", timeoutMillis, queue.size());
+        } else if (written + dropped.get() > 0) {
+            logger.info("Failure artifacts: {} captures ({} KB) in {}, {} dropped, {} files over the size budget",
+                    written, writtenBytes / 1024, RUN_DIR, dropped.get(), skippedFiles);
+        }
+    }
+}
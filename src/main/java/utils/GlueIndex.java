@@ -0,0 +1,158 @@
+package utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Precomputed index of the Cucumber glue: step definitions and hooks, written at compile time by
+ * {@link GlueIndexProcessor} and loaded at runtime by {@link GlueIndexBackend} instead of scanning
+ * the glue packages. It saves the scan only; step matching is unchanged.
+ * <p>
+ * The index is a text resource, {@value #RESOURCE}, with one tab-separated line per step definition
+ * or hook. Its directory doubles as the glue path that selects it: running Cucumber with
+ * {@code cucumber.glue=}{@value #GLUE_PACKAGE} makes the Java backend scan a package without classes
+ * while {@link GlueIndexBackend} registers everything in the index.
+ */
+public final class GlueIndex {
+
+    /** Glue package that selects the index instead of classpath scanning. */
+    public static final String GLUE_PACKAGE = "glueindex";
+    /** Classpath location of the index. */
+    public static final String RESOURCE = GLUE_PACKAGE + "/glue.index";
+
+    private static final String HEADER = "# Cucumber glue index, generated by utils.GlueIndexProcessor";
+
+    /** What a glue method is. */
+    public enum Kind {
+        STEP, BEFORE, AFTER, BEFORE_STEP, AFTER_STEP, BEFORE_ALL, AFTER_ALL,
+        /** A glue annotation the index cannot represent, such as {@code @ParameterType}. */
+        UNSUPPORTED
+    }
+
+    /**
+     * One glue method.
+     *
+     * @param kind           step definition or hook type
+     * @param className      binary name of the declaring class
+     * @param methodName     method name
+     * @param parameterTypes canonical names of the erased parameter types
+     * @param transposed     for each parameter, whether it is annotated with {@code @Transpose}
+     * @param value          step pattern, hook tag expression (may be empty), or the unsupported annotation
+     * @param order          hook order; 0 for step definitions
+     * @param sourceFile     source file name, e.g. {@code LoginSteps.java}
+     * @param line           line of the method declaration, or -1 if unknown
+     */
+    public record Entry(Kind kind, String className, String methodName, List<String> parameterTypes,
+                        List<Boolean> transposed, String value, int order, String sourceFile, int line) {
+
+        /**
+         * Returns the method in the format Cucumber uses for glue locations,
+         * e.g. {@code stepDefinitions.LoginSteps.iAmLoggedInAs(java.lang.String)}.
+         */
+        public String location() {
+            return className.replace('$', '.') + "." + methodName + "(" + String.join(",", parameterTypes) + ")";
+        }
+    }
+
+    private GlueIndex() {
+    }
+
+    /**
+     * Writes the index.
+     */
+    static void write(Writer out, List<Entry> entries) throws IOException {
+        out.write(HEADER);
+        out.write('\n');
+        for (Entry entry : entries) {
+            List<String> transposed = new ArrayList<>();
+            for (int i = 0; i < entry.transposed().size(); i++) {
+                if (entry.transposed().get(i)) {
+                    transposed.add(String.valueOf(i));
+                }
+            }
+            out.write(String.join("\t", entry.kind().name(), entry.className(), entry.methodName(),
+                    String.join(",", entry.parameterTypes()), String.join(",", transposed), escape(entry.value()),
+                    String.valueOf(entry.order()), entry.sourceFile(), String.valueOf(entry.line())));
+            out.write('\n');
+        }
+    }
+
+    /**
+     * Reads the index from the class loader, or returns {@code null} if it is not on the classpath.
+     *
+     * @throws IllegalStateException if the index is malformed
+     */
+    public static List<Entry> read(ClassLoader classLoader) {
+        InputStream in = classLoader.getResourceAsStream(RESOURCE);
+        if (in == null) {
+            return null;
+        }
+        List<Entry> entries = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 9) {
+                    throw new IllegalStateException(RESOURCE + " line " + number + " has " + fields.length + " fields, expected 9");
+                }
+                List<String> parameterTypes = fields[3].isEmpty() ? List.of() : Arrays.asList(fields[3].split(","));
+                List<Boolean> transposed = new ArrayList<>(parameterTypes.size());
+                for (int i = 0; i < parameterTypes.size(); i++) {
+                    transposed.add(false);
+                }
+                if (!fields[4].isEmpty()) {
+                    for (String index : fields[4].split(",")) {
+                        transposed.set(Integer.parseInt(index), true);
+                    }
+                }
+                entries.add(new Entry(Kind.valueOf(fields[0]), fields[1], fields[2], List.copyOf(parameterTypes),
+                        List.copyOf(transposed), unescape(fields[5]), Integer.parseInt(fields[6]), fields[7],
+                        Integer.parseInt(fields[8])));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + RESOURCE, e);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalStateException("Malformed " + RESOURCE + "; rebuild the test classes", e);
+        }
+        return entries;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                sb.append(switch (next) {
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> next;
+                });
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,396 @@
+package utils;
+
+import io.cucumber.core.backend.Backend;
+import io.cucumber.core.backend.BackendProviderService;
+import io.cucumber.core.backend.Container;
+import io.cucumber.core.backend.CucumberBackendException;
+import io.cucumber.core.backend.CucumberInvocationTargetException;
+import io.cucumber.core.backend.Glue;
+import io.cucumber.core.backend.HookDefinition;
+import io.cucumber.core.backend.Located;
+import io.cucumber.core.backend.Lookup;
+import io.cucumber.core.backend.ParameterInfo;
+import io.cucumber.core.backend.Snippet;
+import io.cucumber.core.backend.SourceReference;
+import io.cucumber.core.backend.StaticHookDefinition;
+import io.cucumber.core.backend.StepDefinition;
+import io.cucumber.core.backend.TestCaseState;
+import io.cucumber.core.backend.TypeResolver;
+import io.cucumber.java.Scenario;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cucumber backend that registers the step definitions and hooks of the {@link GlueIndex} instead
+ * of scanning glue packages.
+ * <p>
+ * It only acts on the glue path {@value GlueIndex#GLUE_PACKAGE}; for any other glue the regular
+ * Java backend scans as usual, and it scans nothing for {@value GlueIndex#GLUE_PACKAGE} because the
+ * package holds no classes. Glue classes are loaded without being initialised and their methods are
+ * looked up by name and parameter types from the index when Cucumber first asks for them, so no
+ * class or method is examined for annotations at runtime. The index only replaces that scan: step
+ * matching is left to Cucumber and is no faster than with scanned glue.
+ * <p>
+ * Hooks that take a {@link Scenario} need one created from Cucumber's {@link TestCaseState}, for which
+ * cucumber-java has no public factory; its constructor is used on the cucumber-java
+ * {@value #SUPPORTED_CUCUMBER}x line only, and on any other version the index is not usable for glue
+ * with such hooks.
+ * <p>
+ * Registered through {@code META-INF/services/io.cucumber.core.backend.BackendProviderService}.
+ */
+public final class GlueIndexBackend implements Backend {
+
+    /** cucumber-java versions whose {@link Scenario} the backend knows how to create. */
+    static final String SUPPORTED_CUCUMBER = "7.";
+
+    private static final String CUCUMBER_VERSION = Optional.ofNullable(Scenario.class.getPackage().getImplementationVersion())
+            .orElse("of unknown version");
+    /** The {@link Scenario} constructor, or {@code null} if this cucumber-java is not supported. */
+    private static final Constructor<Scenario> SCENARIO = scenarioConstructor();
+
+    /** Creates the backend for Cucumber. */
+    public static final class Provider implements BackendProviderService {
+        @Override
+        public Backend create(Lookup lookup, Container container, Supplier<ClassLoader> classLoader) {
+            return new GlueIndexBackend(lookup, container, classLoader);
+        }
+    }
+
+    private final Lookup lookup;
+    private final Container container;
+    private final Supplier<ClassLoader> classLoader;
+    /** Declared methods by glue class, so a class with many step definitions is reflected on once. */
+    private final Map<Class<?>, Method[]> declaredMethods = new ConcurrentHashMap<>();
+
+    GlueIndexBackend(Lookup lookup, Container container, Supplier<ClassLoader> classLoader) {
+        this.lookup = lookup;
+        this.container = container;
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Returns {@code true} if the glue index is on the classpath and covers all of the glue,
+     * i.e. running with glue {@value GlueIndex#GLUE_PACKAGE} finds the same step definitions and
+     * hooks as scanning.
+     */
+    public static boolean isUsable(ClassLoader classLoader) {
+        return unusableReason(classLoader) == null;
+    }
+
+    /**
+     * Returns why the glue index cannot be used, or {@code null} if {@link #isUsable} holds.
+     */
+    public static String unusableReason(ClassLoader classLoader) {
+        List<GlueIndex.Entry> entries = GlueIndex.read(classLoader);
+        if (entries == null) {
+            return GlueIndex.RESOURCE + " is not on the classpath";
+        }
+        for (GlueIndex.Entry entry : entries) {
+            if (entry.kind() == GlueIndex.Kind.UNSUPPORTED) {
+                return entry.location() + " uses " + entry.value() + ", which the glue index does not support";
+            }
+        }
+        return scenarioUnsupported(entries);
+    }
+
+    @Override
+    public void loadGlue(Glue glue, List<URI> gluePaths) {
+        if (gluePaths.stream().noneMatch(GlueIndexBackend::isIndexPath)) {
+            return;
+        }
+        ClassLoader loader = classLoader.get();
+        List<GlueIndex.Entry> entries = GlueIndex.read(loader);
+        if (entries == null) {
+            throw new CucumberBackendException("Glue " + GlueIndex.GLUE_PACKAGE + " selected but " + GlueIndex.RESOURCE
+                    + " is not on the classpath; compile the test sources with annotation processing");
+        }
+        String unsupported = scenarioUnsupported(entries);
+        if (unsupported != null) {
+            throw new CucumberBackendException(unsupported + "; use the glue packages instead");
+        }
+        Map<String, Class<?>> classes = new HashMap<>();
+        for (GlueIndex.Entry entry : entries) {
+            if (entry.kind() == GlueIndex.Kind.UNSUPPORTED) {
+                throw new CucumberBackendException(entry.location() + " uses " + entry.value()
+                        + ", which the glue index does not support; use the glue packages instead");
+            }
+            Class<?> glueClass = classes.get(entry.className());
+            if (glueClass == null) {
+                try {
+                    glueClass = Class.forName(entry.className(), false, loader);
+                } catch (ClassNotFoundException e) {
+                    throw new CucumberBackendException(GlueIndex.RESOURCE + " is stale: " + entry.className()
+                            + " not found; rebuild the test classes", e);
+                }
+                classes.put(entry.className(), glueClass);
+                container.addClass(glueClass);
+            }
+            IndexedMethod method = new IndexedMethod(entry, glueClass);
+            switch (entry.kind()) {
+                case STEP -> glue.addStepDefinition(new IndexedStepDefinition(method));
+                case BEFORE -> glue.addBeforeHook(new IndexedHookDefinition(method));
+                case AFTER -> glue.addAfterHook(new IndexedHookDefinition(method));
+                case BEFORE_STEP -> glue.addBeforeStepHook(new IndexedHookDefinition(method));
+                case AFTER_STEP -> glue.addAfterStepHook(new IndexedHookDefinition(method));
+                case BEFORE_ALL -> glue.addBeforeAllHook(new IndexedStaticHookDefinition(method));
+                case AFTER_ALL -> glue.addAfterAllHook(new IndexedStaticHookDefinition(method));
+                default -> throw new IllegalStateException("Unexpected glue kind " + entry.kind());
+            }
+        }
+    }
+
+    @Override
+    public void buildWorld() {
+    }
+
+    @Override
+    public void disposeWorld() {
+    }
+
+    /**
+     * Returns no snippet generator; the Java backend suggests snippets for undefined steps.
+     */
+    @Override
+    public Snippet getSnippet() {
+        return null;
+    }
+
+    private static Constructor<Scenario> scenarioConstructor() {
+        if (!CUCUMBER_VERSION.startsWith(SUPPORTED_CUCUMBER)) {
+            return null;
+        }
+        try {
+            Constructor<Scenario> constructor = Scenario.class.getDeclaredConstructor(TestCaseState.class);
+            return constructor.trySetAccessible() ? constructor : null;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns why hooks in {@code entries} that take a {@link Scenario} cannot be run, or {@code null}
+     * if there are none or this cucumber-java is supported.
+     */
+    private static String scenarioUnsupported(List<GlueIndex.Entry> entries) {
+        if (SCENARIO != null) {
+            return null;
+        }
+        return entries.stream()
+                .filter(entry -> entry.parameterTypes().contains(Scenario.class.getCanonicalName()))
+                .findFirst()
+                .map(entry -> entry.location() + " takes a Scenario, which the glue index can only create with cucumber-java "
+                        + SUPPORTED_CUCUMBER + "x, not cucumber-java " + CUCUMBER_VERSION)
+                .orElse(null);
+    }
+
+    private static boolean isIndexPath(URI gluePath) {
+        return "classpath".equals(gluePath.getScheme())
+                && GlueIndex.GLUE_PACKAGE.equals(gluePath.getSchemeSpecificPart().replaceAll("^/+|/+$", ""));
+    }
+
+    /**
+     * A glue method from the index, resolved by name and parameter types on first use.
+     */
+    private final class IndexedMethod implements Located {
+        private final GlueIndex.Entry entry;
+        private final Class<?> glueClass;
+        private volatile Method method;
+
+        IndexedMethod(GlueIndex.Entry entry, Class<?> glueClass) {
+            this.entry = entry;
+            this.glueClass = glueClass;
+        }
+
+        Method method() {
+            Method resolved = method;
+            if (resolved == null) {
+                for (Method candidate : declaredMethods.computeIfAbsent(glueClass, Class::getDeclaredMethods)) {
+                    if (candidate.getName().equals(entry.methodName()) && hasParameterTypes(candidate)) {
+                        candidate.trySetAccessible();
+                        resolved = candidate;
+                        break;
+                    }
+                }
+                if (resolved == null) {
+                    throw new CucumberBackendException(GlueIndex.RESOURCE + " is stale: " + entry.location()
+                            + " not found; rebuild the test classes");
+                }
+                method = resolved;
+            }
+            return resolved;
+        }
+
+        private boolean hasParameterTypes(Method candidate) {
+            Class<?>[] types = candidate.getParameterTypes();
+            if (types.length != entry.parameterTypes().size()) {
+                return false;
+            }
+            for (int i = 0; i < types.length; i++) {
+                if (!entry.parameterTypes().get(i).equals(types[i].getCanonicalName())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void invoke(Object... args) {
+            Method target = method();
+            Object instance = Modifier.isStatic(target.getModifiers()) ? null : lookup.getInstance(glueClass);
+            try {
+                target.invoke(instance, args);
+            } catch (InvocationTargetException e) {
+                throw new CucumberInvocationTargetException(this, e);
+            } catch (IllegalAccessException | IllegalArgumentException e) {
+                throw new CucumberBackendException("Failed to invoke " + entry.location(), e);
+            }
+        }
+
+        @Override
+        public boolean isDefinedAt(StackTraceElement element) {
+            return element.getClassName().equals(entry.className()) && element.getMethodName().equals(entry.methodName());
+        }
+
+        @Override
+        public String getLocation() {
+            return entry.location();
+        }
+
+        @Override
+        public Optional<SourceReference> getSourceReference() {
+            return Optional.of(SourceReference.fromStackTraceElement(
+                    new StackTraceElement(entry.className(), entry.methodName(), entry.sourceFile(), entry.line())));
+        }
+    }
+
+    /** Delegates {@link Located} to the indexed method. */
+    private abstract static class IndexedLocated implements Located {
+        final IndexedMethod method;
+
+        IndexedLocated(IndexedMethod method) {
+            this.method = method;
+        }
+
+        @Override
+        public boolean isDefinedAt(StackTraceElement element) {
+            return method.isDefinedAt(element);
+        }
+
+        @Override
+        public String getLocation() {
+            return method.getLocation();
+        }
+
+        @Override
+        public Optional<SourceReference> getSourceReference() {
+            return method.getSourceReference();
+        }
+    }
+
+    private static final class IndexedStepDefinition extends IndexedLocated implements StepDefinition {
+        private volatile List<ParameterInfo> parameterInfos;
+
+        IndexedStepDefinition(IndexedMethod method) {
+            super(method);
+        }
+
+        @Override
+        public void execute(Object[] args) {
+            method.invoke(args);
+        }
+
+        @Override
+        public List<ParameterInfo> parameterInfos() {
+            List<ParameterInfo> infos = parameterInfos;
+            if (infos == null) {
+                Type[] types = method.method().getGenericParameterTypes();
+                infos = new ArrayList<>(types.length);
+                for (int i = 0; i < types.length; i++) {
+                    infos.add(new IndexedParameterInfo(types[i], method.entry.transposed().get(i)));
+                }
+                parameterInfos = infos = List.copyOf(infos);
+            }
+            return infos;
+        }
+
+        @Override
+        public String getPattern() {
+            return method.entry.value();
+        }
+    }
+
+    private record IndexedParameterInfo(Type type, boolean transposed) implements ParameterInfo {
+        @Override
+        public Type getType() {
+            return type;
+        }
+
+        @Override
+        public boolean isTransposed() {
+            return transposed;
+        }
+
+        @Override
+        public TypeResolver getTypeResolver() {
+            return () -> type;
+        }
+    }
+
+    private static final class IndexedHookDefinition extends IndexedLocated implements HookDefinition {
+        IndexedHookDefinition(IndexedMethod method) {
+            super(method);
+        }
+
+        @Override
+        public void execute(TestCaseState state) {
+            if (method.method().getParameterCount() == 0) {
+                method.invoke();
+                return;
+            }
+            Scenario scenario;
+            try {
+                scenario = SCENARIO.newInstance(state);
+            } catch (ReflectiveOperationException e) {
+                throw new CucumberBackendException("Failed to create the Scenario for " + getLocation(), e);
+            }
+            method.invoke(scenario);
+        }
+
+        @Override
+        public String getTagExpression() {
+            return method.entry.value();
+        }
+
+        @Override
+        public int getOrder() {
+            return method.entry.order();
+        }
+    }
+
+    private static final class IndexedStaticHookDefinition extends IndexedLocated implements StaticHookDefinition {
+        IndexedStaticHookDefinition(IndexedMethod method) {
+            super(method);
+        }
+
+        @Override
+        public void execute() {
+            method.invoke();
+        }
+
+        @Override
+        public int getOrder() {
+            return method.entry.order();
+        }
+    }
+}
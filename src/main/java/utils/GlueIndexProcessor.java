@@ -0,0 +1,197 @@
+package utils;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.Trees;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Annotation processor that writes the {@link GlueIndex} of the classes being compiled.
+ * <p>
+ * It picks up every Cucumber step annotation, i.e. any annotation meta-annotated with
+ * {@code @StepDefinitionAnnotation} such as {@code @Given} or {@code @Dado}, repeated ones included,
+ * and the hooks {@code @Before}, {@code @After}, {@code @BeforeStep}, {@code @AfterStep},
+ * {@code @BeforeAll} and {@code @AfterAll}. Two step definitions with the same expression fail the
+ * build, as they would fail every run. Parameter, data table and doc string types and default
+ * transformers are not indexed; classes using them are listed as unsupported and the runtime falls
+ * back to scanning. The processor only reads annotations by name, so it needs no Cucumber classes
+ * on the processor path.
+ * <p>
+ * It is discovered through {@code META-INF/services} when the test sources are compiled; the main
+ * compile, which contains the processor itself, names its processors explicitly in the pom.
+ */
+@SupportedAnnotationTypes("io.cucumber.java.*")
+public class GlueIndexProcessor extends AbstractProcessor {
+
+    private static final String STEP_ANNOTATION = "io.cucumber.java.StepDefinitionAnnotation";
+    private static final String REPEATED_STEP_ANNOTATIONS = "io.cucumber.java.StepDefinitionAnnotations";
+    private static final String TRANSPOSE = "io.cucumber.java.Transpose";
+    private static final Map<String, GlueIndex.Kind> HOOKS = Map.of(
+            "io.cucumber.java.Before", GlueIndex.Kind.BEFORE,
+            "io.cucumber.java.After", GlueIndex.Kind.AFTER,
+            "io.cucumber.java.BeforeStep", GlueIndex.Kind.BEFORE_STEP,
+            "io.cucumber.java.AfterStep", GlueIndex.Kind.AFTER_STEP,
+            "io.cucumber.java.BeforeAll", GlueIndex.Kind.BEFORE_ALL,
+            "io.cucumber.java.AfterAll", GlueIndex.Kind.AFTER_ALL);
+    private static final Set<String> UNSUPPORTED = Set.of(
+            "io.cucumber.java.ParameterType", "io.cucumber.java.DataTableType", "io.cucumber.java.DocStringType",
+            "io.cucumber.java.DefaultParameterTransformer", "io.cucumber.java.DefaultDataTableEntryTransformer",
+            "io.cucumber.java.DefaultDataTableCellTransformer");
+
+    /** Entries by method, so a method seen in several rounds is indexed once. */
+    private final Map<ExecutableElement, List<GlueIndex.Entry>> entries = new LinkedHashMap<>();
+    private Trees trees;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (trees == null) {
+            try {
+                trees = Trees.instance(processingEnv);
+            } catch (IllegalArgumentException e) {
+                // not javac; entries are written without line numbers
+            }
+        }
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.METHOD) {
+                    entries.computeIfAbsent((ExecutableElement) element, this::index);
+                }
+            }
+        }
+        if (roundEnv.processingOver() && !entries.isEmpty()) {
+            write();
+        }
+        return false;
+    }
+
+    private List<GlueIndex.Entry> index(ExecutableElement method) {
+        List<GlueIndex.Entry> result = new ArrayList<>();
+        for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement) mirror.getAnnotationType().asElement();
+            String name = type.getQualifiedName().toString();
+            if (isAnnotatedWith(type, STEP_ANNOTATION)) {
+                result.add(entry(method, GlueIndex.Kind.STEP, (String) value(mirror, "value"), 0));
+            } else if (isAnnotatedWith(type, REPEATED_STEP_ANNOTATIONS)) {
+                @SuppressWarnings("unchecked")
+                List<? extends AnnotationValue> repeated = (List<? extends AnnotationValue>) value(mirror, "value");
+                for (AnnotationValue step : repeated) {
+                    result.add(entry(method, GlueIndex.Kind.STEP, (String) value((AnnotationMirror) step.getValue(), "value"), 0));
+                }
+            } else if (HOOKS.containsKey(name)) {
+                GlueIndex.Kind kind = HOOKS.get(name);
+                boolean staticHook = kind == GlueIndex.Kind.BEFORE_ALL || kind == GlueIndex.Kind.AFTER_ALL;
+                if (staticHook != method.getModifiers().contains(Modifier.STATIC)) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                            "@" + type.getSimpleName() + " methods must " + (staticHook ? "" : "not ") + "be static", method);
+                }
+                String tags = staticHook ? "" : (String) value(mirror, "value");
+                result.add(entry(method, kind, tags, (Integer) value(mirror, "order")));
+            } else if (UNSUPPORTED.contains(name)) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        "@" + type.getSimpleName() + " is not supported by the glue index; "
+                                + "runs fall back to scanning the glue packages", method);
+                result.add(entry(method, GlueIndex.Kind.UNSUPPORTED, "@" + type.getSimpleName(), 0));
+            }
+        }
+        return result;
+    }
+
+    private GlueIndex.Entry entry(ExecutableElement method, GlueIndex.Kind kind, String value, int order) {
+        TypeElement declaringClass = (TypeElement) method.getEnclosingElement();
+        List<String> parameterTypes = new ArrayList<>();
+        List<Boolean> transposed = new ArrayList<>();
+        for (VariableElement parameter : method.getParameters()) {
+            parameterTypes.add(processingEnv.getTypeUtils().erasure(parameter.asType()).toString());
+            transposed.add(parameter.getAnnotationMirrors().stream()
+                    .anyMatch(a -> ((TypeElement) a.getAnnotationType().asElement()).getQualifiedName().contentEquals(TRANSPOSE)));
+        }
+        String sourceFile = declaringClass.getSimpleName() + ".java";
+        int line = -1;
+        if (trees != null) {
+            TreePath path = trees.getPath(method);
+            if (path != null) {
+                CompilationUnitTree unit = path.getCompilationUnit();
+                Tree tree = path.getLeaf();
+                String fileName = unit.getSourceFile().getName();
+                sourceFile = fileName.substring(Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\')) + 1);
+                long position = trees.getSourcePositions().getStartPosition(unit, tree);
+                line = position < 0 ? -1 : (int) unit.getLineMap().getLineNumber(position);
+            }
+        }
+        return new GlueIndex.Entry(kind, processingEnv.getElementUtils().getBinaryName(declaringClass).toString(),
+                method.getSimpleName().toString(), List.copyOf(parameterTypes), List.copyOf(transposed), value, order,
+                sourceFile, line);
+    }
+
+    private void write() {
+        List<GlueIndex.Entry> all = entries.values().stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(GlueIndex.Entry::className)
+                        .thenComparingInt(GlueIndex.Entry::line)
+                        .thenComparing(GlueIndex.Entry::methodName))
+                .toList();
+        Map<String, GlueIndex.Entry> patterns = new HashMap<>();
+        for (GlueIndex.Entry entry : all) {
+            if (entry.kind() == GlueIndex.Kind.STEP) {
+                GlueIndex.Entry other = patterns.putIfAbsent(entry.value(), entry);
+                if (other != null) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Duplicate step definition '"
+                            + entry.value() + "' in " + entry.location() + " and " + other.location());
+                }
+            }
+        }
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", GlueIndex.RESOURCE);
+            try (Writer out = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+                GlueIndex.write(out, all);
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write " + GlueIndex.RESOURCE + ": " + e);
+        }
+    }
+
+    private static boolean isAnnotatedWith(TypeElement annotationType, String metaAnnotation) {
+        return annotationType.getAnnotationMirrors().stream()
+                .anyMatch(a -> ((TypeElement) a.getAnnotationType().asElement()).getQualifiedName().contentEquals(metaAnnotation));
+    }
+
+    private Object value(AnnotationMirror mirror, String name) {
+        return processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet().stream()
+                .filter(e -> e.getKey().getSimpleName().contentEquals(name))
+                .map(e -> e.getValue().getValue())
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("@" + mirror.getAnnotationType() + " has no " + name + "()"));
+    }
+}
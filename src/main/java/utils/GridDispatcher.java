@@ -0,0 +1,460 @@
+package utils;
+
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.TypeToken;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Creates browser sessions on one or more Selenium Grid endpoints ({@code grid.urls}), so scenarios
+ * are no longer limited by the CPU and memory of the machine running them.
+ * <p>
+ * Before each new session the dispatcher reads {@code /status} of every endpoint (at most every
+ * {@code grid.statusCacheMillis}, default 1000, per browser, and again after a session of this JVM
+ * quits) and counts, per node that is {@code UP}, the slots for the requested browser that are free,
+ * capped by the node's {@code maxSessions}. The session
+ * goes to the endpoint whose least-loaded node has the largest share of free slots; within a Grid
+ * with several nodes, the Grid's distributor then places it. Sessions this JVM started since the
+ * last status read are counted as busy, so a burst of requests is spread before the status shows it.
+ * <p>
+ * When every slot for a browser is busy, requests for it wait in arrival order, for up to
+ * {@code grid.queueTimeoutSeconds} (default 300), and are dispatched as soon as a session of this JVM quits or the status shows a free
+ * slot. {@link #newSession(Capabilities)} returns {@code null} when no endpoint answers, every
+ * endpoint refused the session, or the queue timed out, and {@link DriverFactory} then starts a local
+ * browser; with {@code grid.fallbackLocal=false} it fails instead. An endpoint that does not answer
+ * or refuses a session is skipped for {@code grid.retrySeconds} (default 30).
+ * <p>
+ * Each browser has its own queue, so a request waiting for a busy firefox slot does not hold up
+ * chrome requests while chrome slots are free.
+ * <p>
+ * Status is read over HTTP without holding the dispatcher's lock, so a slow or dead endpoint
+ * delays only the requests at the head of the queues, never the bookkeeping of sessions being created
+ * or quit. Grid sessions are not pooled by {@link DriverFactory}: an idle session would hold a slot
+ * other runners could use.
+ * <p>
+ * Time spent queued is recorded in {@link Metrics} as {@code session:grid-queue} and session
+ * creation as {@code session:create:grid/<host:port>}.
+ */
+public final class GridDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(GridDispatcher.class);
+
+    private static final Json JSON = new Json();
+    private static final Type MAP = new TypeToken<Map<String, Object>>() {
+    }.getType();
+    private static final Duration STATUS_TIMEOUT = Duration.ofSeconds(5);
+    /** How often the head of the queue reads the status again while it waits. */
+    private static final long QUEUE_POLL_MILLIS = 500;
+
+    private static volatile GridDispatcher configured;
+
+    private final List<Endpoint> endpoints;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(STATUS_TIMEOUT).build();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    /** Requests waiting for a slot per browser name, oldest first; only the first one may take a slot. */
+    private final Map<String, Deque<Object>> queues = new HashMap<>();
+    private final long statusCacheNanos;
+    private final long retryNanos;
+
+    /**
+     * Free slots of one node for the requested browser.
+     */
+    record Node(String uri, int free, int capacity) {
+        double freeShare() {
+            return capacity == 0 ? 0 : (double) free / capacity;
+        }
+    }
+
+    /**
+     * What this JVM knows about the slots of one browser on one endpoint; guarded by {@link #lock}.
+     */
+    private static final class Slots {
+        private List<Node> nodes = List.of();
+        private boolean read;
+        private long statusAt;
+        /** Sessions this JVM dispatched here since the status was read, which it may not show yet. */
+        private int startedSinceStatus;
+        /** Sessions being created here, which no status can show yet. */
+        private int creating;
+        /** Sessions created here so far. */
+        private long created;
+
+        /**
+         * Free slots now: the status, minus sessions this JVM started since it was read.
+         */
+        private int free() {
+            return nodes.stream().mapToInt(Node::free).sum() - startedSinceStatus;
+        }
+
+        private Node leastLoaded() {
+            return nodes.stream().filter(node -> node.free() > 0)
+                    .max((a, b) -> Double.compare(a.freeShare(), b.freeShare()))
+                    .orElse(null);
+        }
+    }
+
+    /**
+     * A Grid endpoint and what this JVM knows about its load; guarded by {@link #lock}.
+     */
+    private static final class Endpoint {
+        private final URL url;
+        private final String name;
+        /** Slots per browser name, each read and cached on its own. */
+        private final Map<String, Slots> slots = new HashMap<>();
+        private long downUntil;
+
+        private Endpoint(URL url) {
+            this.url = url;
+            this.name = url.getHost() + ":" + url.getPort();
+        }
+
+        private Slots slots(String browserName) {
+            return slots.computeIfAbsent(key(browserName), k -> new Slots());
+        }
+    }
+
+    GridDispatcher(List<URL> urls) {
+        this.endpoints = urls.stream().map(Endpoint::new).toList();
+        this.statusCacheNanos = TimeUnit.MILLISECONDS.toNanos(ConfigReader.getInt("grid.statusCacheMillis", 1000));
+        this.retryNanos = TimeUnit.SECONDS.toNanos(ConfigReader.getInt("grid.retrySeconds", 30));
+    }
+
+    /**
+     * Returns the dispatcher for {@code grid.urls}, or {@code null} if no Grid is configured.
+     *
+     * @throws IllegalArgumentException if one of the URLs is malformed
+     */
+    public static GridDispatcher configured() {
+        GridDispatcher dispatcher = configured;
+        if (dispatcher == null) {
+            String urls = ConfigReader.getProperty("grid.urls", "");
+            if (urls.isEmpty()) {
+                return null;
+            }
+            synchronized (GridDispatcher.class) {
+                if (configured == null) {
+                    configured = new GridDispatcher(parse(urls));
+                    logger.info("Dispatching browser sessions to Selenium Grid at {}", urls);
+                }
+                dispatcher = configured;
+            }
+        }
+        return dispatcher;
+    }
+
+    /**
+     * Creates a session for {@code capabilities} on the least-loaded endpoint, waiting in line while
+     * every slot is busy.
+     *
+     * @return the remote session, or {@code null} if the caller should start a local browser instead
+     * @throws SessionNotCreatedException if no Grid session could be created and
+     *                                    {@code grid.fallbackLocal} is {@code false}
+     */
+    public WebDriver newSession(Capabilities capabilities) {
+        String browserName = capabilities.getBrowserName();
+        long queuedAt = System.nanoTime();
+        long deadline = queuedAt + TimeUnit.SECONDS.toNanos(ConfigReader.getInt("grid.queueTimeoutSeconds", 300));
+        String failure;
+        while (true) {
+            Endpoint endpoint;
+            Object ticket = new Object();
+            lock.lock();
+            try {
+                Deque<Object> queue = queues.computeIfAbsent(key(browserName), k -> new ArrayDeque<>());
+                queue.addLast(ticket);
+                try {
+                    endpoint = awaitSlot(queue, ticket, browserName, deadline);
+                } finally {
+                    queue.remove(ticket);
+                    changed.signalAll();
+                }
+                if (endpoint == null) {
+                    failure = endpoints.stream().allMatch(e -> e.downUntil > System.nanoTime())
+                            ? "no Grid endpoint is reachable"
+                            : "no Grid slot for " + browserName + " became free within the queue timeout";
+                    break;
+                }
+                Slots slots = endpoint.slots(browserName);
+                slots.startedSinceStatus++;
+                slots.creating++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new WebDriverException("Interrupted while waiting for a Grid slot", e);
+            } finally {
+                lock.unlock();
+            }
+            Metrics.record(Metrics.SESSION, "grid-queue", System.nanoTime() - queuedAt, true);
+            WebDriver session = create(endpoint, capabilities);
+            if (session != null) {
+                return session;
+            }
+        }
+        Metrics.record(Metrics.SESSION, "grid-queue", System.nanoTime() - queuedAt, false);
+        if (!ConfigReader.getBoolean("grid.fallbackLocal", true)) {
+            throw new SessionNotCreatedException("No Grid session for " + browserName + ": " + failure);
+        }
+        logger.warn("Starting a local {} browser: {}", browserName, failure);
+        return null;
+    }
+
+    /**
+     * Waits until {@code ticket} is first in its browser's {@code queue} and an endpoint has a free
+     * slot for the browser.
+     *
+     * @return the endpoint to use, or {@code null} if the deadline passed or no endpoint is reachable
+     */
+    private Endpoint awaitSlot(Deque<Object> queue, Object ticket, String browserName, long deadline)
+            throws InterruptedException {
+        while (true) {
+            if (queue.peekFirst() == ticket) {
+                refresh(browserName);
+                Endpoint best = null;
+                Node bestNode = null;
+                for (Endpoint endpoint : endpoints) {
+                    Slots slots = endpoint.slots(browserName);
+                    Node node = slots.leastLoaded();
+                    if (endpoint.downUntil > System.nanoTime() || slots.free() <= 0 || node == null) {
+                        continue;
+                    }
+                    if (bestNode == null || node.freeShare() > bestNode.freeShare()) {
+                        best = endpoint;
+                        bestNode = node;
+                    }
+                }
+                if (best != null) {
+                    logger.debug("Dispatching {} to {} (node {}: {} of {} slots free)", browserName, best.name,
+                            bestNode.uri(), bestNode.free(), bestNode.capacity());
+                    return best;
+                }
+                if (endpoints.stream().allMatch(endpoint -> endpoint.downUntil > System.nanoTime())) {
+                    return null;
+                }
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            changed.await(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(QUEUE_POLL_MILLIS)), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Reads the status of every endpoint whose status for {@code browserName} is older than
+     * {@code grid.statusCacheMillis}. Called by the head of the browser's queue under {@link #lock};
+     * the lock is released while the endpoints are read and taken again to swap in what they
+     * returned. Only the head reads, so no two reads for one browser overlap, and the head stays
+     * first in line while it reads.
+     */
+    private void refresh(String browserName) {
+        long now = System.nanoTime();
+        List<Endpoint> stale = new ArrayList<>();
+        Map<Endpoint, Long> createdBefore = new HashMap<>();
+        for (Endpoint endpoint : endpoints) {
+            Slots slots = endpoint.slots(browserName);
+            if (endpoint.downUntil > now || (slots.read && now - slots.statusAt < statusCacheNanos)) {
+                continue;
+            }
+            stale.add(endpoint);
+            createdBefore.put(endpoint, slots.created);
+        }
+        if (stale.isEmpty()) {
+            return;
+        }
+        Map<Endpoint, Object> read = new HashMap<>();
+        lock.unlock();
+        try {
+            for (Endpoint endpoint : stale) {
+                try {
+                    read.put(endpoint, readStatus(endpoint, browserName));
+                } catch (IOException | RuntimeException e) {
+                    read.put(endpoint, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("Interrupted while reading the Grid status", e);
+        } finally {
+            lock.lock();
+        }
+        for (Map.Entry<Endpoint, Object> entry : read.entrySet()) {
+            Endpoint endpoint = entry.getKey();
+            if (entry.getValue() instanceof Exception e) {
+                logger.warn("Grid {} did not answer /status ({}); skipping it for {} s", endpoint.name,
+                        e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage(),
+                        TimeUnit.NANOSECONDS.toSeconds(retryNanos));
+                endpoint.downUntil = System.nanoTime() + retryNanos;
+                continue;
+            }
+            @SuppressWarnings("unchecked")
+            List<Node> nodes = (List<Node>) entry.getValue();
+            Slots slots = endpoint.slots(browserName);
+            slots.nodes = nodes;
+            slots.read = true;
+            slots.statusAt = now;
+            // sessions still being created, and those created while the status was read, may not show in it
+            slots.startedSinceStatus = slots.creating + (int) (slots.created - createdBefore.get(endpoint));
+        }
+    }
+
+    private List<Node> readStatus(Endpoint endpoint, String browserName) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(endpoint.url + "/status"))
+                .timeout(STATUS_TIMEOUT)
+                .GET()
+                .build();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("HTTP " + response.statusCode());
+        }
+        return parseStatus(response.body(), browserName);
+    }
+
+    /**
+     * Returns the nodes of a Grid {@code /status} response that are {@code UP} and have slots for
+     * {@code browserName}, with the slots that are free, capped by the node's {@code maxSessions}.
+     */
+    @SuppressWarnings("unchecked")
+    static List<Node> parseStatus(String body, String browserName) {
+        Map<String, Object> value = (Map<String, Object>) ((Map<String, Object>) JSON.toType(body, MAP)).get("value");
+        List<Node> nodes = new ArrayList<>();
+        for (Map<String, Object> node : (List<Map<String, Object>>) value.getOrDefault("nodes", List.of())) {
+            if (!"UP".equals(node.get("availability"))) {
+                continue;
+            }
+            int matching = 0;
+            int matchingFree = 0;
+            int busy = 0;
+            for (Map<String, Object> slot : (List<Map<String, Object>>) node.getOrDefault("slots", List.of())) {
+                Map<String, Object> stereotype = (Map<String, Object>) slot.getOrDefault("stereotype", Map.of());
+                boolean free = slot.get("session") == null;
+                busy += free ? 0 : 1;
+                if (browserName.equalsIgnoreCase(String.valueOf(stereotype.get("browserName")))) {
+                    matching++;
+                    matchingFree += free ? 1 : 0;
+                }
+            }
+            int maxSessions = ((Number) node.getOrDefault("maxSessions", matching)).intValue();
+            if (matching > 0) {
+                nodes.add(new Node(String.valueOf(node.get("uri")),
+                        Math.max(0, Math.min(matchingFree, maxSessions - busy)), Math.min(matching, maxSessions)));
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Creates the session on {@code endpoint}, whose slot is already counted as started.
+     *
+     * @return the session, or {@code null} if the endpoint refused it
+     */
+    private WebDriver create(Endpoint endpoint, Capabilities capabilities) {
+        long start = System.nanoTime();
+        try {
+            WebDriver session = new GridSession(endpoint, capabilities);
+            lock.lock();
+            try {
+                Slots slots = endpoint.slots(capabilities.getBrowserName());
+                slots.creating--;
+                slots.created++;
+            } finally {
+                lock.unlock();
+            }
+            Metrics.record(Metrics.SESSION, "create:grid/" + endpoint.name, System.nanoTime() - start, true);
+            return session;
+        } catch (WebDriverException e) {
+            Metrics.record(Metrics.SESSION, "create:grid/" + endpoint.name, System.nanoTime() - start, false);
+            logger.warn("Grid {} refused a {} session ({}); skipping it for {} s", endpoint.name,
+                    capabilities.getBrowserName(), e.getMessage().lines().findFirst().orElse(""),
+                    TimeUnit.NANOSECONDS.toSeconds(retryNanos));
+            lock.lock();
+            try {
+                Slots slots = endpoint.slots(capabilities.getBrowserName());
+                slots.creating--;
+                slots.startedSinceStatus = Math.max(0, slots.startedSinceStatus - 1);
+                endpoint.downUntil = System.nanoTime() + retryNanos;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            return null;
+        }
+    }
+
+    private void release(Endpoint endpoint) {
+        lock.lock();
+        try {
+            // the statuses read before still show the session as busy, and it counted against maxSessions
+            // for every browser
+            endpoint.slots.values().forEach(slots -> slots.read = false);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String key(String browserName) {
+        return browserName.toLowerCase(Locale.ROOT);
+    }
+
+    private static List<URL> parse(String urls) {
+        List<URL> parsed = new ArrayList<>();
+        for (String url : Arrays.stream(urls.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList()) {
+            try {
+                parsed.add(URI.create(url.endsWith("/") ? url.substring(0, url.length() - 1) : url).toURL());
+            } catch (MalformedURLException | IllegalArgumentException e) {
+                throw new IllegalArgumentException("Malformed grid.urls entry: " + url, e);
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * A Grid session that gives its slot back to the dispatcher when it quits.
+     */
+    private final class GridSession extends RemoteWebDriver {
+        private final Endpoint endpoint;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private GridSession(Endpoint endpoint, Capabilities capabilities) {
+            super(endpoint.url, capabilities);
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        public void quit() {
+            try {
+                super.quit();
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    release(endpoint);
+                }
+            }
+        }
+    }
+}
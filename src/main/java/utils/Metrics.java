@@ -0,0 +1,237 @@
+package utils;
+
+import org.openqa.selenium.json.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run-wide latency metrics for WebDriver commands, page actions, Cucumber steps and scenarios.
+ * <p>
+ * Every observation is aggregated into a {@link LatencyHistogram} per {@code category} and
+ * {@code name} and, unless disabled, appended as one JSON line to {@code metrics.file}
+ * (default {@code target/metrics.jsonl}). When the JVM exits, a summary with count, mean,
+ * percentiles and histogram buckets per key is written to {@code metrics.summaryFile}
+ * (default {@code target/metrics-summary.json}).
+ * <p>
+ * Recording is designed to be cheap enough to run on every command: a histogram update and
+ * one queued line. The lines are written by a single {@code metrics-writer} thread, so a
+ * recording thread never blocks on the file, and virtual threads are not pinned by a monitor
+ * held during I/O. Set {@code metrics.enabled=false} to turn it off entirely.
+ */
+public final class Metrics {
+    private static final Logger logger = LoggerFactory.getLogger(Metrics.class);
+
+    /** Category of raw WebDriver commands, recorded by {@link CommandMetricsListener}. */
+    public static final String COMMAND = "command";
+    /** Category of {@code BasePage} actions, keyed by page, action and element name. */
+    public static final String ACTION = "action";
+    /** Category of element waits, keyed by wait strategy and condition, e.g. {@code observer:clickable}. */
+    public static final String WAIT = "wait";
+    /** Category of Cucumber steps. */
+    public static final String STEP = "step";
+    /** Category of Cucumber scenarios. */
+    public static final String SCENARIO = "scenario";
+    /** Category of browser startup: launching a browser process or opening a browser context. */
+    public static final String SESSION = "session";
+    /** Category of scenario scheduling: time queued, waiting for a browser and executing. */
+    public static final String SCHEDULER = "scheduler";
+
+    private static final boolean ENABLED = ConfigReader.getBoolean("metrics.enabled", true);
+
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    /** Marks the end of the event lines for the writer thread; event lines are never empty. */
+    private static final String END = "";
+
+    private static final BufferedWriter events = openEventFile();
+    private static final BlockingQueue<String> pending = new LinkedBlockingQueue<>();
+    private static final Thread writer = events == null ? null
+            : Thread.ofPlatform().name("metrics-writer").daemon().start(Metrics::writeEvents);
+
+    static {
+        if (ENABLED) {
+            Runtime.getRuntime().addShutdownHook(new Thread(Metrics::close, "metrics-summary"));
+        }
+    }
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Records one observation.
+     *
+     * @param category one of {@link #COMMAND}, {@link #ACTION}, {@link #WAIT}, {@link #STEP}, {@link #SCENARIO}, {@link #SESSION}, {@link #SCHEDULER}
+     * @param name     what was measured, e.g. {@code WebDriver.get} or {@code LoginPage.click:Login button}
+     * @param nanos    elapsed time in nanoseconds
+     * @param ok       whether the operation succeeded
+     */
+    public static void record(String category, String name, long nanos, boolean ok) {
+        if (!ENABLED) {
+            return;
+        }
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        histograms.computeIfAbsent(category + ':' + name, key -> new LatencyHistogram()).record(micros);
+        if (writer != null && writer.isAlive()) {
+            String line = "{\"ts\":" + System.currentTimeMillis()
+                    + ",\"thread\":" + quote(Thread.currentThread().getName())
+                    + ",\"category\":" + quote(category)
+                    + ",\"name\":" + quote(name)
+                    + ",\"micros\":" + micros
+                    + ",\"ok\":" + ok + "}";
+            pending.offer(line);
+        }
+    }
+
+    /**
+     * Returns the histogram for a category and name, or {@code null} if nothing was recorded.
+     */
+    public static LatencyHistogram histogram(String category, String name) {
+        return histograms.get(category + ':' + name);
+    }
+
+    /**
+     * Returns the histograms recorded so far in a category, keyed by name and sorted by name.
+     */
+    public static Map<String, LatencyHistogram> histograms(String category) {
+        String prefix = category + ':';
+        Map<String, LatencyHistogram> found = new TreeMap<>();
+        histograms.forEach((key, histogram) -> {
+            if (key.startsWith(prefix)) {
+                found.put(key.substring(prefix.length()), histogram);
+            }
+        });
+        return found;
+    }
+
+    /**
+     * Builds the per-key summary written at shutdown, sorted by key.
+     */
+    public static Map<String, Object> summary() {
+        Map<String, Object> summary = new TreeMap<>();
+        histograms.forEach((key, histogram) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("count", histogram.count());
+            entry.put("meanMicros", Math.round(histogram.mean()));
+            entry.put("p50Micros", histogram.percentile(50));
+            entry.put("p90Micros", histogram.percentile(90));
+            entry.put("p95Micros", histogram.percentile(95));
+            entry.put("p99Micros", histogram.percentile(99));
+            entry.put("maxMicros", histogram.max());
+            entry.put("buckets", histogram.buckets().stream().map(b -> List.of(b[0], b[1])).toList());
+            summary.put(key, entry);
+        });
+        return summary;
+    }
+
+    /**
+     * Writes queued event lines until {@link #END}, flushing whenever the queue runs empty.
+     */
+    private static void writeEvents() {
+        List<String> lines = new ArrayList<>();
+        try {
+            while (true) {
+                lines.add(pending.take());
+                pending.drainTo(lines);
+                for (String line : lines) {
+                    if (line.isEmpty()) {
+                        return;
+                    }
+                    events.write(line);
+                    events.newLine();
+                }
+                lines.clear();
+                if (pending.isEmpty()) {
+                    events.flush();
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Metrics events stopped, failed to write: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                events.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close metrics events: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static void close() {
+        if (writer != null) {
+            pending.offer(END);
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (histograms.isEmpty()) {
+            return;
+        }
+        Path summaryFile = Path.of(ConfigReader.getProperty("metrics.summaryFile", "target/metrics-summary.json"));
+        try {
+            Files.createDirectories(summaryFile.toAbsolutePath().getParent());
+            Files.writeString(summaryFile, new Json().toJson(summary()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            logger.warn("Failed to write metrics summary {}: {}", summaryFile, e.getMessage());
+        }
+    }
+
+    private static BufferedWriter openEventFile() {
+        if (!ENABLED || !ConfigReader.getBoolean("metrics.events", true)) {
+            return null;
+        }
+        Path file = Path.of(ConfigReader.getProperty("metrics.file", "target/metrics.jsonl"));
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            return Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            logger.warn("Metrics events disabled, cannot open {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,231 @@
+package utils;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.ChromiumDriver;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.Event;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.openqa.selenium.json.TypeToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Blocks resources in a Chromium browser and counts what was blocked and loaded.
+ * <p>
+ * The URL patterns of a {@link BrowserProfile} are installed with the DevTools
+ * {@code Network.setBlockedURLs} command, so matching requests are cancelled inside the browser
+ * before they reach the network and navigation never waits for them. The {@code Network} events
+ * of the same DevTools session count blocked requests and the bytes of loaded responses per
+ * scenario; call {@link #reset()} when the browser is handed to a new scenario.
+ * <p>
+ * The browser never downloads a blocked resource, so its size is unknown, and by default only the
+ * blocked requests are counted. With {@code network.estimateBlockedBytes=true}, each distinct
+ * blocked URL is probed once per JVM with an HTTP {@code HEAD} request in the background and the
+ * reported saving is the sum of the known {@code Content-Length}s. The probes contact the third
+ * parties the profile blocks and can delay teardown by up to a second where they are unreachable,
+ * so they are off unless asked for.
+ */
+public final class NetworkBlocker {
+    private static final Logger logger = LoggerFactory.getLogger(NetworkBlocker.class);
+
+    private static final Type MAP = new TypeToken<Map<String, Object>>() {
+    }.getType();
+
+    private static final boolean ESTIMATE_BYTES = ConfigReader.getBoolean("network.estimateBlockedBytes", false);
+    private static final Duration PROBE_WAIT = Duration.ofSeconds(1);
+
+    /** Content-Length of blocked URLs, {@code -1} when the server did not say. */
+    private static final Map<String, CompletableFuture<Long>> sizes = new ConcurrentHashMap<>();
+    private static final LongAdder totalBlocked = new LongAdder();
+    private static final LongAdder totalSaved = new LongAdder();
+
+    private static volatile HttpClient probeClient;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (totalBlocked.sum() > 0 && ESTIMATE_BYTES) {
+                logger.info("Resource blocking: {} requests blocked, ~{} KB saved", totalBlocked.sum(), totalSaved.sum() / 1024);
+            } else if (totalBlocked.sum() > 0) {
+                logger.info("Resource blocking: {} requests blocked", totalBlocked.sum());
+            }
+        }, "network-blocker-stats"));
+    }
+
+    /**
+     * Requests blocked and bytes loaded since the last {@link #reset()}.
+     *
+     * @param blocked      number of requests the browser cancelled
+     * @param savedBytes   known size of the blocked resources
+     * @param unknownSizes blocked resources whose size could not be determined, all of them when
+     *                     sizes are not estimated
+     * @param loaded       number of requests that completed
+     * @param loadedBytes  bytes received for completed requests, as reported by the browser
+     */
+    public record Report(int blocked, long savedBytes, int unknownSizes, long loaded, long loadedBytes) {
+        @Override
+        public String toString() {
+            if (unknownSizes == blocked) {
+                return String.format("Blocked %d requests; loaded %d requests (%d KB)", blocked, loaded, loadedBytes / 1024);
+            }
+            return String.format("Blocked %d requests (~%d KB saved%s); loaded %d requests (%d KB)",
+                    blocked, savedBytes / 1024, unknownSizes > 0 ? ", " + unknownSizes + " of unknown size" : "",
+                    loaded, loadedBytes / 1024);
+        }
+    }
+
+    private final Map<String, String> requestUrls = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> blockedUrls = new ConcurrentLinkedQueue<>();
+    private final AtomicLong loaded = new AtomicLong();
+    private final AtomicLong loadedBytes = new AtomicLong();
+
+    private NetworkBlocker() {
+    }
+
+    /**
+     * Installs the profile's blocked URL patterns in {@code driver}.
+     *
+     * @return the blocker counting for this browser, or {@code null} if the profile blocks nothing
+     * or the browser is not a local Chromium browser with DevTools support
+     */
+    public static NetworkBlocker attach(WebDriver driver, BrowserProfile profile) {
+        if (profile.blockedUrls().isEmpty()) {
+            return null;
+        }
+        // Firefox implements HasDevTools, but no longer speaks the Network domain used here
+        if (!(driver instanceof ChromiumDriver) || !(driver instanceof HasDevTools hasDevTools)
+                || hasDevTools.maybeGetDevTools().isEmpty()) {
+            logger.warn("Profile '{}' blocks resources but {} has no DevTools support; nothing will be blocked",
+                    profile.name(), driver.getClass().getSimpleName());
+            return null;
+        }
+        DevTools devTools = hasDevTools.getDevTools();
+        devTools.createSessionIfThereIsNotOne();
+        NetworkBlocker blocker = new NetworkBlocker();
+        devTools.addListener(event("Network.requestWillBeSent"), blocker::onRequest);
+        devTools.addListener(event("Network.loadingFinished"), blocker::onFinished);
+        devTools.addListener(event("Network.loadingFailed"), blocker::onFailed);
+        devTools.send(new Command<>("Network.enable", Map.of()));
+        devTools.send(new Command<>("Network.setBlockedURLs", Map.of("urls", profile.blockedUrls())));
+        logger.debug("Blocking {} URL patterns for profile '{}'", profile.blockedUrls().size(), profile.name());
+        return blocker;
+    }
+
+    /**
+     * Clears the counters, e.g. when the browser is checked out for a new scenario.
+     */
+    public void reset() {
+        requestUrls.clear();
+        blockedUrls.clear();
+        loaded.set(0);
+        loadedBytes.set(0);
+    }
+
+    /**
+     * Returns the counts since the last {@link #reset()}, waiting briefly for pending size probes.
+     */
+    public Report report() {
+        List<String> blocked = List.copyOf(blockedUrls);
+        long deadline = System.nanoTime() + PROBE_WAIT.toNanos();
+        long saved = 0;
+        int unknown = 0;
+        for (String url : blocked) {
+            long size = sizeOf(url, deadline);
+            if (size >= 0) {
+                saved += size;
+            } else {
+                unknown++;
+            }
+        }
+        totalSaved.add(saved);
+        return new Report(blocked.size(), saved, unknown, loaded.get(), loadedBytes.get());
+    }
+
+    private void onRequest(Map<String, Object> event) {
+        if (event.get("request") instanceof Map<?, ?> request && request.get("url") instanceof String url) {
+            requestUrls.put((String) event.get("requestId"), url);
+        }
+    }
+
+    private void onFinished(Map<String, Object> event) {
+        requestUrls.remove((String) event.get("requestId"));
+        loaded.incrementAndGet();
+        if (event.get("encodedDataLength") instanceof Number bytes) {
+            loadedBytes.addAndGet(bytes.longValue());
+        }
+    }
+
+    private void onFailed(Map<String, Object> event) {
+        String url = requestUrls.remove((String) event.get("requestId"));
+        // "inspector" is the reason Chrome gives for requests matched by Network.setBlockedURLs
+        if ("inspector".equals(event.get("blockedReason")) && url != null) {
+            blockedUrls.add(url);
+            totalBlocked.increment();
+            if (ESTIMATE_BYTES) {
+                sizes.computeIfAbsent(url, NetworkBlocker::probe);
+            }
+        }
+    }
+
+    private static long sizeOf(String url, long deadline) {
+        CompletableFuture<Long> size = sizes.get(url);
+        if (size == null) {
+            return -1;
+        }
+        try {
+            return size.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private static CompletableFuture<Long> probe(String url) {
+        if (!url.startsWith("http://") && !url.startsWith("https://")) {
+            return CompletableFuture.completedFuture(-1L);
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .timeout(Duration.ofSeconds(5))
+                .build();
+        return client().sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .thenApply(response -> response.statusCode() < 400
+                        ? response.headers().firstValueAsLong("Content-Length").orElse(-1) : -1L)
+                .exceptionally(e -> -1L);
+    }
+
+    private static HttpClient client() {
+        HttpClient client = probeClient;
+        if (client == null) {
+            synchronized (NetworkBlocker.class) {
+                client = probeClient;
+                if (client == null) {
+                    client = HttpClient.newBuilder()
+                            .followRedirects(HttpClient.Redirect.NORMAL)
+                            .connectTimeout(Duration.ofSeconds(5))
+                            .build();
+                    probeClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    private static Event<Map<String, Object>> event(String method) {
+        return new Event<>(method, input -> input.read(MAP));
+    }
+}
@@ -0,0 +1,190 @@
+package utils;
+
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonOutput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Page performance across runs, for trends and regression detection by percentile.
+ * <p>
+ * The performance steps {@link #record} every measured page load. When the run finishes,
+ * {@link #finishRun()} summarises each page and metric (count, p50, p75, p95, max) and appends the
+ * summary as one JSON line to {@code perf.historyFile} (default
+ * {@code test-history/page-performance.jsonl}, next to the other run histories, so {@code mvn clean}
+ * keeps the baseline); commit the file, or keep it in a CI cache, to build the trend.
+ * <p>
+ * A metric regresses when its {@code perf.percentile} (default p75) in this run exceeds the median
+ * of that percentile over the previous {@code perf.baselineRuns} runs (default 5) by more than
+ * {@code perf.regressionPercent} (default 20), given at least {@code perf.minSamples} samples
+ * (default 3). Comparing percentiles of whole runs keeps a single slow sample from being flagged.
+ * Regressions are logged and listed in the run's history line.
+ */
+public final class PerformanceHistory {
+    private static final Logger logger = LoggerFactory.getLogger(PerformanceHistory.class);
+
+    private static final Json JSON = new Json();
+    private static final int[] PERCENTILES = {50, 75, 95};
+
+    /** Samples of this run, keyed by {@code <page>.<metric>}. */
+    private static final Map<String, List<Double>> samples = new ConcurrentHashMap<>();
+    private static final AtomicBoolean finished = new AtomicBoolean();
+
+    private PerformanceHistory() {
+    }
+
+    /**
+     * Records one measured page load.
+     *
+     * @param page    page object class name
+     * @param metrics metric values by name
+     */
+    public static void record(String page, Map<String, Double> metrics) {
+        metrics.forEach((metric, value) -> samples
+                .computeIfAbsent(page + "." + metric, key -> Collections.synchronizedList(new ArrayList<>()))
+                .add(value));
+    }
+
+    /**
+     * Appends this run's summary to the history file and logs regressions; does nothing if no page
+     * was measured or the run was already finished.
+     *
+     * @return descriptions of the regressed metrics
+     */
+    public static List<String> finishRun() {
+        if (samples.isEmpty() || !finished.compareAndSet(false, true)) {
+            return List.of();
+        }
+        return finishRun(samples,
+                Path.of(ConfigReader.getProperty("perf.historyFile", "test-history/page-performance.jsonl")));
+    }
+
+    /**
+     * Summarises {@code samples}, keyed by {@code <page>.<metric>}, against the runs in
+     * {@code historyFile} and appends the summary to it.
+     *
+     * @return descriptions of the regressed metrics
+     */
+    static List<String> finishRun(Map<String, List<Double>> samples, Path historyFile) {
+        int percentile = ConfigReader.getInt("perf.percentile", 75);
+        List<Map<String, Object>> previous = readHistory(historyFile, ConfigReader.getInt("perf.baselineRuns", 5));
+
+        Map<String, Object> summary = new TreeMap<>();
+        List<String> regressions = new ArrayList<>();
+        samples.forEach((key, values) -> {
+            List<Double> sorted;
+            synchronized (values) {
+                sorted = new ArrayList<>(values);
+            }
+            Collections.sort(sorted);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("count", sorted.size());
+            for (int p : PERCENTILES) {
+                entry.put("p" + p, round(percentile(sorted, p)));
+            }
+            entry.put("max", round(sorted.get(sorted.size() - 1)));
+            summary.put(key, entry);
+
+            double current = percentile(sorted, percentile);
+            Double baseline = baseline(previous, key, "p" + percentile);
+            double allowed = baseline == null ? Double.NaN : baseline * (1 + ConfigReader.getInt("perf.regressionPercent", 20) / 100.0);
+            if (baseline != null && sorted.size() >= ConfigReader.getInt("perf.minSamples", 3) && current > allowed) {
+                regressions.add(String.format("%s p%d %.1f vs baseline %.1f (+%.0f%%)", key, percentile, current, baseline,
+                        (current / baseline - 1) * 100));
+            }
+        });
+
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("run", Instant.now().toString());
+        int shardCount = ConfigReader.getInt("shardCount", 1);
+        if (shardCount > 1) {
+            run.put("shard", ConfigReader.getInt("shardIndex", 0) + "/" + shardCount);
+        }
+        run.put("metrics", summary);
+        run.put("regressions", regressions);
+        try {
+            StringBuilder line = new StringBuilder();
+            try (JsonOutput output = JSON.newOutput(line).setPrettyPrint(false)) {
+                output.write(run);
+            }
+            Files.createDirectories(historyFile.toAbsolutePath().getParent());
+            Files.writeString(historyFile, line + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            logger.warn("Failed to append page performance to {}: {}", historyFile, e.getMessage());
+        }
+        if (regressions.isEmpty()) {
+            logger.info("Page performance: {} metrics recorded in {}, no regressions", summary.size(), historyFile);
+        } else {
+            regressions.forEach(regression -> logger.warn("Page performance regression: {}", regression));
+        }
+        return regressions;
+    }
+
+    /**
+     * Returns the last {@code runs} entries of the history file, oldest first.
+     */
+    static List<Map<String, Object>> readHistory(Path historyFile, int runs) {
+        if (!Files.exists(historyFile)) {
+            return List.of();
+        }
+        try {
+            List<String> lines = Files.readAllLines(historyFile, StandardCharsets.UTF_8).stream()
+                    .filter(line -> !line.isBlank())
+                    .toList();
+            List<Map<String, Object>> history = new ArrayList<>();
+            for (String line : lines.subList(Math.max(0, lines.size() - runs), lines.size())) {
+                history.add(JSON.toType(line, Json.MAP_TYPE));
+            }
+            return history;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable page performance history {}: {}", historyFile, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Returns the median of a percentile of one metric over earlier runs, or {@code null} if none has it.
+     */
+    @SuppressWarnings("unchecked")
+    static Double baseline(List<Map<String, Object>> history, String key, String percentile) {
+        List<Double> values = new ArrayList<>();
+        for (Map<String, Object> run : history) {
+            Object metrics = run.get("metrics");
+            if (metrics instanceof Map<?, ?> map && map.get(key) instanceof Map<?, ?> entry
+                    && ((Map<String, Object>) entry).get(percentile) instanceof Number value) {
+                values.add(value.doubleValue());
+            }
+        }
+        if (values.isEmpty()) {
+            return null;
+        }
+        Collections.sort(values);
+        return percentile(values, 50);
+    }
+
+    /** Nearest-rank percentile of sorted values. */
+    static double percentile(List<Double> sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100 * sorted.size());
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, rank - 1)));
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,132 @@
+package utils;
+
+import org.apache.logging.log4j.core.LogEvent;
+import org.slf4j.MDC;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scenario-scoped log capture: a scenario's log events are held in memory and only written out if
+ * it fails.
+ * <p>
+ * With {@code log.capture=scenario}, {@link #begin()} gives the calling thread a buffer and puts its
+ * id into the {@link MDC} under {@link #KEY}. The {@link ScenarioLogAppender} in {@code log4j2.xml}
+ * then keeps every event logged with that id in the buffer instead of passing it to the console and
+ * log file; only events at its {@code passThroughLevel} (default WARN) and above are also written
+ * immediately. {@link #end(boolean)} drops the buffer of a passed scenario and writes out the buffer
+ * of a failed one, returning it as text for the report.
+ * <p>
+ * A buffer holds the last {@code log.scenarioBufferSize} events (default 2000); older ones are
+ * dropped and counted. With the default {@code log.capture=global} nothing is buffered.
+ */
+public final class ScenarioLog {
+
+    /** MDC key holding the id of the calling thread's buffer. */
+    public static final String KEY = "scenarioLog";
+
+    private static final boolean ENABLED = "scenario".equalsIgnoreCase(ConfigReader.getProperty("log.capture", "global"));
+    private static final int CAPACITY = Math.max(1, ConfigReader.getInt("log.scenarioBufferSize", 2000));
+
+    private static final Map<String, Buffer> buffers = new ConcurrentHashMap<>();
+    private static final AtomicLong ids = new AtomicLong();
+
+    /**
+     * An event held for a scenario.
+     *
+     * @param event     an immutable copy of the event
+     * @param forwarded whether it was already written because of its level
+     */
+    record Entry(LogEvent event, boolean forwarded) {
+    }
+
+    /** Ring buffer of one scenario's events. */
+    static final class Buffer {
+        private final Deque<Entry> entries = new ArrayDeque<>();
+        private final int capacity;
+        private long dropped;
+
+        Buffer(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized void add(LogEvent event, boolean forwarded) {
+            if (entries.size() == capacity) {
+                entries.removeFirst();
+                dropped++;
+            }
+            entries.addLast(new Entry(event, forwarded));
+        }
+
+        synchronized List<Entry> entries() {
+            return new ArrayList<>(entries);
+        }
+
+        synchronized long dropped() {
+            return dropped;
+        }
+    }
+
+    private ScenarioLog() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Starts buffering the calling thread's events, discarding any buffer it did not end.
+     */
+    public static void begin() {
+        if (ENABLED) {
+            begin(new Buffer(CAPACITY));
+        }
+    }
+
+    /**
+     * Starts buffering the calling thread's events in {@code buffer}, whatever {@code log.capture} says.
+     */
+    static void begin(Buffer buffer) {
+        String previous = MDC.get(KEY);
+        if (previous != null) {
+            buffers.remove(previous);
+        }
+        String id = Long.toString(ids.incrementAndGet());
+        buffers.put(id, buffer);
+        MDC.put(KEY, id);
+    }
+
+    /**
+     * Stops buffering the calling thread's events. The buffer of a failed scenario is written to the
+     * appenders behind the {@link ScenarioLogAppender}; a passed scenario's buffer is dropped.
+     *
+     * @param failed whether the scenario failed
+     * @return the failed scenario's events formatted with the appender's layout, or {@code null} if
+     * it passed or nothing was buffered
+     */
+    public static String end(boolean failed) {
+        String id = MDC.get(KEY);
+        if (id == null) {
+            return null;
+        }
+        MDC.remove(KEY);
+        Buffer buffer = buffers.remove(id);
+        ScenarioLogAppender appender = ScenarioLogAppender.active();
+        if (buffer == null || !failed || appender == null) {
+            return null;
+        }
+        return appender.flush(buffer);
+    }
+
+    /**
+     * Returns the buffer with the given id, or {@code null} if it has ended.
+     */
+    static Buffer buffer(String id) {
+        return buffers.get(id);
+    }
+}
@@ -0,0 +1,148 @@
+package utils;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.Core;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.Layout;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.AppenderControl;
+import org.apache.logging.log4j.core.config.AppenderRef;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.Property;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginConfiguration;
+import org.apache.logging.log4j.core.config.plugins.PluginElement;
+import org.apache.logging.log4j.core.config.plugins.PluginFactory;
+import org.apache.logging.log4j.core.layout.PatternLayout;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Log4j appender that holds the events of scenarios with a {@link ScenarioLog} buffer and passes
+ * everything else on to its referenced appenders.
+ * <p>
+ * Configured in {@code log4j2.xml} as
+ * <pre>{@code
+ * <ScenarioBuffer name="ScenarioBuffer" passThroughLevel="WARN">
+ *     <PatternLayout pattern="..."/>      <!-- used for the text attached to the report -->
+ *     <AppenderRef ref="Global"/>
+ * </ScenarioBuffer>
+ * }</pre>
+ * Events without a {@link ScenarioLog#KEY} in their context, or whose buffer has ended, go to the
+ * referenced appenders straight away. Buffered events at {@code passThroughLevel} or above are
+ * written straight away as well, so warnings and errors are never held back.
+ */
+@Plugin(name = "ScenarioBuffer", category = Core.CATEGORY_NAME, elementType = Appender.ELEMENT_TYPE, printObject = true)
+public final class ScenarioLogAppender extends AbstractAppender {
+
+    private static volatile ScenarioLogAppender active;
+
+    private final Configuration configuration;
+    private final AppenderRef[] refs;
+    private final Level passThroughLevel;
+    private final List<AppenderControl> targets = new ArrayList<>();
+
+    private ScenarioLogAppender(String name, Filter filter, Layout<? extends Serializable> layout,
+                                Configuration configuration, AppenderRef[] refs, Level passThroughLevel) {
+        super(name, filter, layout, true, Property.EMPTY_ARRAY);
+        this.configuration = configuration;
+        this.refs = refs;
+        this.passThroughLevel = passThroughLevel;
+    }
+
+    @PluginFactory
+    public static ScenarioLogAppender createAppender(@PluginAttribute("name") String name,
+                                                     @PluginAttribute(value = "passThroughLevel", defaultString = "WARN") String passThroughLevel,
+                                                     @PluginElement("AppenderRef") AppenderRef[] refs,
+                                                     @PluginElement("Layout") Layout<? extends Serializable> layout,
+                                                     @PluginElement("Filter") Filter filter,
+                                                     @PluginConfiguration Configuration configuration) {
+        if (name == null) {
+            throw new IllegalArgumentException("ScenarioBuffer appender needs a name");
+        }
+        if (refs == null || refs.length == 0) {
+            throw new IllegalArgumentException("ScenarioBuffer appender " + name + " needs at least one AppenderRef");
+        }
+        Layout<? extends Serializable> textLayout = layout != null ? layout : PatternLayout.newBuilder()
+                .withConfiguration(configuration)
+                .withPattern("%d{HH:mm:ss.SSS} %-5level %c{1} - %msg%n")
+                .build();
+        return new ScenarioLogAppender(name, filter, textLayout, configuration, refs, Level.toLevel(passThroughLevel, Level.WARN));
+    }
+
+    /**
+     * Returns the appender of the current configuration, or {@code null} if {@code log4j2.xml} has none.
+     */
+    static ScenarioLogAppender active() {
+        return active;
+    }
+
+    @Override
+    public void start() {
+        for (AppenderRef ref : refs) {
+            Appender appender = configuration.getAppender(ref.getRef());
+            if (appender == null) {
+                error("No appender named " + ref.getRef() + " for " + getName());
+                continue;
+            }
+            targets.add(new AppenderControl(appender, ref.getLevel(), ref.getFilter()));
+        }
+        super.start();
+        active = this;
+    }
+
+    @Override
+    public void stop() {
+        if (active == this) {
+            active = null;
+        }
+        super.stop();
+    }
+
+    @Override
+    public void append(LogEvent event) {
+        String id = event.getContextData().getValue(ScenarioLog.KEY);
+        ScenarioLog.Buffer buffer = id == null ? null : ScenarioLog.buffer(id);
+        if (buffer == null) {
+            forward(event);
+            return;
+        }
+        boolean forwarded = event.getLevel().isMoreSpecificThan(passThroughLevel);
+        // events may be reused by the logger once append returns, so keep an immutable copy
+        buffer.add(event.toImmutable(), forwarded);
+        if (forwarded) {
+            forward(event);
+        }
+    }
+
+    /**
+     * Writes the buffered events that were held back to the referenced appenders and returns all
+     * buffered events formatted with this appender's layout.
+     */
+    String flush(ScenarioLog.Buffer buffer) {
+        StringBuilder text = new StringBuilder();
+        long dropped = buffer.dropped();
+        if (dropped > 0) {
+            text.append("... ").append(dropped).append(" earlier events dropped (log.scenarioBufferSize)")
+                    .append(System.lineSeparator());
+        }
+        for (ScenarioLog.Entry entry : buffer.entries()) {
+            if (!entry.forwarded()) {
+                forward(entry.event());
+            }
+            text.append(getLayout().toSerializable(entry.event()));
+        }
+        return text.toString();
+    }
+
+    private void forward(LogEvent event) {
+        for (AppenderControl target : targets) {
+            target.callAppender(event);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package utils;
+
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * JVM-wide cache of authenticated browser sessions, one per user.
+ * <p>
+ * The first scenario that needs a logged-in user performs the real UI login; the resulting
+ * cookies, {@code localStorage} and {@code sessionStorage} are captured as a snapshot. Later
+ * scenarios restore that snapshot into their own browser and go straight to the landing page,
+ * skipping the login UI entirely.
+ * <p>
+ * A restored session is always verified. If the application rejects it (expired or revoked
+ * server-side), the snapshot is invalidated, the cookies and storage it restored are cleared and
+ * the UI login is performed again, so a stale cache can cost time but never a false failure.
+ * <p>
+ * Snapshots are immutable and logins for the same user are serialised, so scenarios running
+ * in parallel share a single login per user.
+ */
+public final class SessionCache {
+    private static final Logger logger = LoggerFactory.getLogger(SessionCache.class);
+
+    private static final String CAPTURE_STORAGE_SCRIPT =
+            "function dump(s) { var o = {}; for (var i = 0; i < s.length; i++) { var k = s.key(i); o[k] = s.getItem(k); } return o; }"
+                    + "return {local: dump(window.localStorage), session: dump(window.sessionStorage)};";
+
+    private static final String RESTORE_STORAGE_SCRIPT =
+            "var local = arguments[0], session = arguments[1];"
+                    + "Object.keys(local).forEach(function (k) { window.localStorage.setItem(k, local[k]); });"
+                    + "Object.keys(session).forEach(function (k) { window.sessionStorage.setItem(k, session[k]); });";
+
+    private static final String CLEAR_STORAGE_SCRIPT = "window.localStorage.clear(); window.sessionStorage.clear();";
+
+    private static final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private static final Map<String, ReentrantLock> loginLocks = new ConcurrentHashMap<>();
+
+    /**
+     * Captured state of an authenticated session.
+     *
+     * @param origin         scheme, host and port the cookies and storage belong to
+     * @param landingUrl     page the user landed on after logging in
+     * @param cookies        session cookies
+     * @param localStorage   {@code localStorage} entries for {@code origin}
+     * @param sessionStorage {@code sessionStorage} entries for {@code origin}
+     * @param capturedAt     when the snapshot was taken
+     */
+    public record Snapshot(String origin, String landingUrl, Set<Cookie> cookies,
+                           Map<String, String> localStorage, Map<String, String> sessionStorage, Instant capturedAt) {
+    }
+
+    private SessionCache() {
+    }
+
+    /**
+     * Makes {@code driver} logged in as {@code user}, restoring a cached session when possible.
+     *
+     * @param driver     the calling scenario's browser
+     * @param user       cache key, normally the username
+     * @param uiLogin    performs the real login through the UI on the given driver
+     * @param isLoggedIn checks that the driver shows an authenticated page
+     * @throws IllegalStateException if the UI login itself does not result in a logged-in page
+     */
+    public static void loginAs(WebDriver driver, String user, Consumer<WebDriver> uiLogin, Predicate<WebDriver> isLoggedIn) {
+        if (!ConfigReader.getBoolean("session.cache.enabled", true)) {
+            uiLogin.accept(driver);
+            return;
+        }
+        Snapshot snapshot = snapshots.get(user);
+        if (snapshot != null && !isExpired(snapshot)) {
+            long start = System.nanoTime();
+            restore(driver, snapshot);
+            if (isLoggedIn.test(driver)) {
+                logger.info("Restored cached session for '{}' in {} ms", user, Duration.ofNanos(System.nanoTime() - start).toMillis());
+                return;
+            }
+            logger.warn("Cached session for '{}' was rejected; logging in through the UI", user);
+            invalidate(user, snapshot);
+            clearSession(driver);
+        }
+
+        ReentrantLock lock = loginLocks.computeIfAbsent(user, u -> new ReentrantLock());
+        lock.lock();
+        try {
+            Snapshot fresh = snapshots.get(user);
+            if (fresh != null && fresh != snapshot && !isExpired(fresh)) {
+                // another scenario logged in while we waited for the lock
+                restore(driver, fresh);
+                if (isLoggedIn.test(driver)) {
+                    return;
+                }
+                invalidate(user, fresh);
+                clearSession(driver);
+            }
+            uiLogin.accept(driver);
+            if (!isLoggedIn.test(driver)) {
+                throw new IllegalStateException("UI login for '" + user + "' did not reach an authenticated page");
+            }
+            snapshots.put(user, capture(driver));
+            logger.info("Captured session for '{}'", user);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the cached session for {@code user}, forcing the next {@link #loginAs} to use the UI.
+     */
+    public static void invalidate(String user) {
+        snapshots.remove(user);
+    }
+
+    /**
+     * Drops every cached session.
+     */
+    public static void clear() {
+        snapshots.clear();
+    }
+
+    private static void invalidate(String user, Snapshot snapshot) {
+        // only remove the snapshot we saw; a newer one may already have replaced it
+        snapshots.remove(user, snapshot);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Snapshot capture(WebDriver driver) {
+        String landingUrl = driver.getCurrentUrl();
+        Map<String, Map<String, String>> storage = Map.of("local", Map.of(), "session", Map.of());
+        if (driver instanceof JavascriptExecutor js) {
+            storage = (Map<String, Map<String, String>>) js.executeScript(CAPTURE_STORAGE_SCRIPT);
+        }
+        return new Snapshot(originOf(landingUrl), landingUrl, Set.copyOf(driver.manage().getCookies()),
+                Map.copyOf(storage.get("local")), Map.copyOf(storage.get("session")), Instant.now());
+    }
+
+    private static void restore(WebDriver driver, Snapshot snapshot) {
+        // cookies and storage can only be set for the origin the browser is currently on
+        driver.get(snapshot.origin());
+        snapshot.cookies().forEach(cookie -> driver.manage().addCookie(cookie));
+        if (driver instanceof JavascriptExecutor js
+                && !(snapshot.localStorage().isEmpty() && snapshot.sessionStorage().isEmpty())) {
+            js.executeScript(RESTORE_STORAGE_SCRIPT, new HashMap<>(snapshot.localStorage()), new HashMap<>(snapshot.sessionStorage()));
+        }
+        driver.get(snapshot.landingUrl());
+    }
+
+    /**
+     * Removes what a rejected snapshot left in the browser, so the UI login starts from a clean session.
+     */
+    private static void clearSession(WebDriver driver) {
+        driver.manage().deleteAllCookies();
+        if (driver instanceof JavascriptExecutor js) {
+            try {
+                js.executeScript(CLEAR_STORAGE_SCRIPT);
+            } catch (WebDriverException e) {
+                // storage is not accessible on every page, e.g. about:blank or an error page
+                logger.debug("Could not clear storage after a rejected session: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static boolean isExpired(Snapshot snapshot) {
+        Date now = new Date();
+        boolean cookieExpired = snapshot.cookies().stream()
+                .anyMatch(cookie -> cookie.getExpiry() != null && cookie.getExpiry().before(now));
+        Duration ttl = Duration.ofMinutes(ConfigReader.getInt("session.cache.ttlMinutes", 30));
+        return cookieExpired || snapshot.capturedAt().plus(ttl).isBefore(Instant.now());
+    }
+
+    private static String originOf(String url) {
+        URI uri = URI.create(url);
+        return uri.getScheme() + "://" + uri.getAuthority() + "/";
+    }
+}
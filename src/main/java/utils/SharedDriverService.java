@@ -0,0 +1,305 @@
+package utils;
+
+import org.openqa.selenium.chrome.ChromeDriverService;
+import org.openqa.selenium.edge.EdgeDriverService;
+import org.openqa.selenium.net.PortProber;
+import org.openqa.selenium.remote.service.DriverService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One long-lived driver process that all sessions of a Chromium browser in the JVM connect to, one
+ * for Chrome ({@link #chrome()}, chromedriver) and one for Edge ({@link #edge()}, msedgedriver).
+ * <p>
+ * {@code new ChromeDriver(options)} spawns a chromedriver on a new port for every session and stops
+ * it again on {@code quit()}. chromedriver serves any number of sessions, so {@link DriverFactory}
+ * starts it once and creates every session against it; quitting a session leaves the process
+ * running until {@link #shutdown()} at the end of the run. geckodriver serves a single session, so
+ * Firefox sessions keep a process each.
+ * <p>
+ * The process is only ever replaced once it has exited: every session of the JVM runs on it, so
+ * stopping a live process would end all of them. A monitor checks every
+ * {@code driver.healthCheckSeconds} (default 15, 0 disables it) whether the process is still alive and
+ * starts a new one on a new port if not; {@link #running(String)} does the same for a process that
+ * exited between checks. A process that is alive but answers {@code /status} slowly or with an error
+ * is usually only busy and is left running; two such checks in a row are logged as a warning. When
+ * sessions need another driver executable, the current process is retired rather than stopped: it
+ * gets no new sessions and keeps serving the ones it has until {@link #shutdownAll()}.
+ * <p>
+ * Spawn times are recorded in {@link Metrics} as {@code session:service:<browser>} and restarts as
+ * {@code session:service-restart:<browser>}.
+ *
+ * @param <S> the browser's driver service type
+ */
+final class SharedDriverService<S extends DriverService> {
+    private static final Logger logger = LoggerFactory.getLogger(SharedDriverService.class);
+
+    private static final Duration CHECK_TIMEOUT = Duration.ofSeconds(5);
+    private static SharedDriverService<ChromeDriverService> chrome;
+    private static SharedDriverService<EdgeDriverService> edge;
+
+    private final String browserName;
+    private final Factory<S> factory;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(CHECK_TIMEOUT).build();
+    private ScheduledExecutorService monitor;
+    private S service;
+    private final List<S> retired = new ArrayList<>();
+    private String driverPath;
+    private int failedChecks;
+    private int sessions;
+    private int restarts;
+
+    /**
+     * Creates the driver service of one browser on a given port.
+     */
+    @FunctionalInterface
+    private interface Factory<S extends DriverService> {
+        S create(File executable, int port) throws IOException;
+    }
+
+    /**
+     * A driver service that ignores the {@code stop()} a session's {@code quit()} sends it.
+     */
+    private interface Shared {
+        void shutdown();
+    }
+
+    private static final class ChromeService extends ChromeDriverService implements Shared {
+        private volatile boolean shuttingDown;
+
+        private ChromeService(File executable, int port) throws IOException {
+            super(executable, port, DEFAULT_TIMEOUT, List.of("--port=" + port), Map.of());
+        }
+
+        @Override
+        public void stop() {
+            if (shuttingDown) {
+                super.stop();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            shuttingDown = true;
+            super.stop();
+        }
+    }
+
+    private static final class EdgeService extends EdgeDriverService implements Shared {
+        private volatile boolean shuttingDown;
+
+        private EdgeService(File executable, int port) throws IOException {
+            super(executable, port, DEFAULT_TIMEOUT, List.of("--port=" + port), Map.of());
+        }
+
+        @Override
+        public void stop() {
+            if (shuttingDown) {
+                super.stop();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            shuttingDown = true;
+            super.stop();
+        }
+    }
+
+    private SharedDriverService(String browserName, Factory<S> factory) {
+        this.browserName = browserName;
+        this.factory = factory;
+    }
+
+    /**
+     * Returns the shared chromedriver of this JVM; it is not started until {@link #running(String)}.
+     */
+    static synchronized SharedDriverService<ChromeDriverService> chrome() {
+        if (chrome == null) {
+            chrome = new SharedDriverService<>("chrome", ChromeService::new);
+        }
+        return chrome;
+    }
+
+    /**
+     * Returns the shared msedgedriver of this JVM; it is not started until {@link #running(String)}.
+     */
+    static synchronized SharedDriverService<EdgeDriverService> edge() {
+        if (edge == null) {
+            edge = new SharedDriverService<>("edge", EdgeService::new);
+        }
+        return edge;
+    }
+
+    /**
+     * Stops the shared driver processes that were started; call after all sessions have quit.
+     */
+    static synchronized void shutdownAll() {
+        if (chrome != null) {
+            chrome.shutdown();
+        }
+        if (edge != null) {
+            edge.shutdown();
+        }
+    }
+
+    /**
+     * Returns the running driver service for one more session, starting it with {@code driverPath}
+     * first if it is not running or was started with another executable.
+     *
+     * @throws UncheckedIOException if the driver cannot be started
+     */
+    synchronized S running(String driverPath) {
+        if (service != null && !service.isRunning()) {
+            restart("process exited");
+        } else if (service != null && !driverPath.equals(this.driverPath)) {
+            logger.info("Retiring shared {} driver for {}; it keeps serving its sessions", browserName, driverPath);
+            retired.add(service);
+            service = null;
+        }
+        this.driverPath = driverPath;
+        if (service == null) {
+            spawn();
+        }
+        sessions++;
+        return service;
+    }
+
+    /**
+     * Returns {@code true} if the driver process is running; a process that exited is replaced by the
+     * next {@link #running(String)}.
+     */
+    synchronized boolean isAlive() {
+        return service != null && service.isRunning();
+    }
+
+    /**
+     * Replaces the current driver process, which has exited, with a new one.
+     */
+    private void restart(String reason) {
+        logger.warn("Restarting shared {} driver: {}", browserName, reason);
+        long start = System.nanoTime();
+        stopQuietly(service);
+        service = null;
+        restarts++;
+        if (driverPath != null) {
+            spawn();
+        }
+        Metrics.record(Metrics.SESSION, "service-restart:" + browserName, System.nanoTime() - start, true);
+    }
+
+    private synchronized void shutdown() {
+        if (monitor != null) {
+            monitor.shutdownNow();
+        }
+        if (service != null) {
+            logger.info("Stopping shared {} driver: {} sessions, {} restarts", browserName, sessions, restarts);
+            stopQuietly(service);
+            service = null;
+        }
+        retired.forEach(this::stopQuietly);
+        retired.clear();
+    }
+
+    private void spawn() {
+        long start = System.nanoTime();
+        int port = PortProber.findFreePort();
+        try {
+            service = factory.create(new File(driverPath), port);
+            service.start();
+        } catch (IOException e) {
+            service = null;
+            Metrics.record(Metrics.SESSION, "service:" + browserName, System.nanoTime() - start, false);
+            throw new UncheckedIOException("Failed to start " + browserName + " driver " + driverPath, e);
+        }
+        failedChecks = 0;
+        long elapsed = System.nanoTime() - start;
+        Metrics.record(Metrics.SESSION, "service:" + browserName, elapsed, true);
+        logger.info("Started shared {} driver {} on port {} in {} ms", browserName, new File(driverPath).getName(),
+                port, elapsed / 1_000_000);
+        startMonitor();
+    }
+
+    private void stopQuietly(S stopped) {
+        if (stopped == null) {
+            return;
+        }
+        try {
+            ((Shared) stopped).shutdown();
+        } catch (RuntimeException e) {
+            logger.debug("Failed to stop {} driver cleanly: {}", browserName, e.getMessage());
+        }
+    }
+
+    private void startMonitor() {
+        int interval = ConfigReader.getInt("driver.healthCheckSeconds", 15);
+        if (monitor != null || interval <= 0) {
+            return;
+        }
+        monitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "driver-service-monitor-" + browserName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        monitor.scheduleWithFixedDelay(this::check, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Checks the current process once. Runs off the lock, so a slow {@code /status} never holds up
+     * session creation.
+     */
+    void check() {
+        S current;
+        synchronized (this) {
+            current = service;
+        }
+        if (current == null) {
+            return;
+        }
+        boolean alive = current.isRunning();
+        boolean answered = alive && answers(current);
+        synchronized (this) {
+            if (current != service) {
+                return;
+            }
+            if (!alive) {
+                restart("process exited");
+            } else if (answered) {
+                failedChecks = 0;
+            } else if (++failedChecks == 2) {
+                logger.warn("Shared {} driver is running but did not answer /status twice in a row; leaving it running",
+                        browserName);
+            }
+        }
+    }
+
+    private boolean answers(S current) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(current.getUrl() + "/status"))
+                    .timeout(CHECK_TIMEOUT)
+                    .GET()
+                    .build();
+            return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
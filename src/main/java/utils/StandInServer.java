@@ -0,0 +1,184 @@
+package utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Embedded stand-in for the application under test, used when {@code hermetic=true}.
+ * <p>
+ * Serves a faithful copy of the Sauce Demo login and products pages on the loopback interface:
+ * the same element ids and classes, the same {@code error-message-container} markup and the same
+ * error strings, so the page objects and features run unchanged against it. Login is validated
+ * client-side with the real site's users and sets the same {@code session-username} cookie.
+ * <p>
+ * Every page and asset is loaded from {@code /standin} on the classpath once at startup and served
+ * from memory, so a request costs no disk or network I/O. {@link ConfigReader} returns
+ * {@link #baseUrl()} for {@code url} in hermetic mode, which starts the server on first use.
+ */
+public final class StandInServer {
+    private static final Logger logger = LoggerFactory.getLogger(StandInServer.class);
+
+    private static final Map<String, String> ROUTES = Map.of(
+            "/", "index.html",
+            "/index.html", "index.html",
+            "/inventory.html", "inventory.html",
+            "/static/login.js", "login.js",
+            "/static/session.js", "session.js",
+            "/static/standin.css", "standin.css");
+
+    private static final String NODELAY = "sun.net.httpserver.nodelay";
+
+    private static volatile StandInServer shared;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, Resource> resources = new HashMap<>();
+
+    private record Resource(byte[] body, String contentType) {
+    }
+
+    private StandInServer(int port) throws IOException {
+        ROUTES.forEach((path, name) -> resources.put(path, load(name)));
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        // the JDK server writes headers and body separately; without TCP_NODELAY every response
+        // waits for the client's delayed ACK (~40 ms on Linux). The JDK reads the property when the
+        // first server is created, so it is set only while this one starts.
+        boolean setNodelay = System.getProperty(NODELAY) == null;
+        if (setNodelay) {
+            System.setProperty(NODELAY, "true");
+        }
+        try {
+            server = startOnDaemonThread(() -> {
+                HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+                http.createContext("/", this::handle);
+                http.setExecutor(executor);
+                http.start();
+                return http;
+            });
+        } finally {
+            if (setNodelay) {
+                System.clearProperty(NODELAY);
+            }
+        }
+    }
+
+    /**
+     * Returns the JVM-wide server, starting it on first use on {@code hermetic.port}
+     * (default {@code 0}, any free port). It is stopped when the JVM exits.
+     */
+    public static StandInServer shared() {
+        StandInServer server = shared;
+        if (server == null) {
+            synchronized (StandInServer.class) {
+                server = shared;
+                if (server == null) {
+                    try {
+                        server = new StandInServer(ConfigReader.getInt("hermetic.port", 0));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to start the stand-in server", e);
+                    }
+                    Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "stand-in-server"));
+                    logger.info("Hermetic mode: stand-in application listening on {}", server.baseUrl());
+                    shared = server;
+                }
+            }
+        }
+        return server;
+    }
+
+    /**
+     * Returns the URL of the login page, e.g. {@code http://127.0.0.1:54321/}.
+     */
+    public String baseUrl() {
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getAddress().getHostAddress() + ":" + address.getPort() + "/";
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            Resource resource = resources.get(exchange.getRequestURI().getPath());
+            if (resource == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", resource.contentType());
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            if ("HEAD".equals(method)) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, resource.body().length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(resource.body());
+            }
+        }
+    }
+
+    private static HttpServer startOnDaemonThread(Callable<HttpServer> startup) throws IOException {
+        // the dispatcher thread inherits daemon status from the thread that starts the server;
+        // start it from a daemon thread so the server never keeps the JVM alive
+        FutureTask<HttpServer> task = new FutureTask<>(startup);
+        Thread starter = new Thread(task, "stand-in-server-start");
+        starter.setDaemon(true);
+        starter.start();
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while starting the stand-in server", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+    }
+
+    private static Resource load(String name) {
+        try (InputStream in = StandInServer.class.getResourceAsStream("/standin/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("Stand-in resource not found on classpath: /standin/" + name);
+            }
+            return new Resource(in.readAllBytes(), contentType(name));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load stand-in resource " + name, e);
+        }
+    }
+
+    private static String contentType(String name) {
+        if (name.endsWith(".html")) {
+            return "text/html; charset=utf-8";
+        }
+        if (name.endsWith(".js")) {
+            return "text/javascript; charset=utf-8";
+        }
+        if (name.endsWith(".css")) {
+            return "text/css; charset=utf-8";
+        }
+        return "application/octet-stream";
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Runs a list of page actions inside the browser in a single WebDriver round-trip.
+ * Invoked through executeAsyncScript(ops, timeoutMillis, budgetMillis, firstTimeoutMillis, callback),
+ * where firstTimeoutMillis is what is left of the first op's wait when a call continues a batch.
+ *
+ * Each op is {op: 'type' | 'click' | 'text', using: 'css selector' | 'xpath', value, text}.
+ * Ops run in order; each one first waits (in-browser, no round-trips) for its element to be
+ * visible, and for clicks also enabled. The callback receives
+ *   {ok: true, results: [...]}                      when every op succeeded, or
+ *   {ok: false, index, error, detail, results: [...]} for the first op that failed.
+ * Waiting stops after budgetMillis in total, well inside the session's script timeout, with
+ *   {ok: false, index, error: 'budget', remaining, results: [...]} for the op still waiting, so the
+ * caller can continue from it in another call with the remaining milliseconds of its wait.
+ */
+var ops = arguments[0];
+var timeout = arguments[1];
+var budgetEnd = Date.now() + arguments[2];
+var firstTimeout = arguments[3];
+var done = arguments[arguments.length - 1];
+var results = [];
+
+function locate(op) {
+    if (op.using === 'xpath') {
+        return document.evaluate(op.value, document, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;
+    }
+    return document.querySelector(op.value);
+}
+
+function isVisible(el) {
+    if (!el || !el.isConnected) return false;
+    var style = window.getComputedStyle(el);
+    if (style.visibility === 'hidden' || style.display === 'none' || style.opacity === '0') return false;
+    return el.getClientRects().length > 0;
+}
+
+function isReady(op, el) {
+    if (!isVisible(el)) return false;
+    return op.op !== 'click' || !el.disabled;
+}
+
+function setValue(el, text) {
+    // Use the prototype setter so frameworks that track the value (e.g. React) see the change.
+    var proto = el instanceof HTMLTextAreaElement ? HTMLTextAreaElement.prototype : HTMLInputElement.prototype;
+    var setter = Object.getOwnPropertyDescriptor(proto, 'value').set;
+    el.focus();
+    setter.call(el, '');
+    el.dispatchEvent(new Event('input', {bubbles: true}));
+    setter.call(el, text);
+    el.dispatchEvent(new Event('input', {bubbles: true}));
+    el.dispatchEvent(new Event('change', {bubbles: true}));
+}
+
+function perform(op, el) {
+    switch (op.op) {
+        case 'type':
+            if (el.disabled || el.readOnly || !('value' in el)) {
+                return {error: 'not-interactable', detail: 'element is disabled, read-only or not an input'};
+            }
+            setValue(el, op.text);
+            return {value: null};
+        case 'click':
+            el.scrollIntoView({block: 'center'});
+            el.click();
+            return {value: null};
+        case 'text':
+            return {value: el.innerText};
+        default:
+            return {error: 'error', detail: 'unknown op ' + op.op};
+    }
+}
+
+function run(index, deadline) {
+    if (index >= ops.length) {
+        done({ok: true, results: results});
+        return;
+    }
+    var op = ops[index];
+    var el;
+    try {
+        el = locate(op);
+    } catch (e) {
+        done({ok: false, index: index, error: 'error', detail: String(e), results: results});
+        return;
+    }
+    if (!isReady(op, el)) {
+        if (Date.now() >= deadline) {
+            done({ok: false, index: index, error: isVisible(el) ? 'timeout-clickable' : 'timeout-visible',
+                detail: el ? 'element present but not ready' : 'element not found', results: results});
+            return;
+        }
+        if (Date.now() >= budgetEnd) {
+            done({ok: false, index: index, error: 'budget', remaining: deadline - Date.now(), results: results});
+            return;
+        }
+        setTimeout(function () { run(index, deadline); }, 50);
+        return;
+    }
+    try {
+        var outcome = perform(op, el);
+        if (outcome.error) {
+            done({ok: false, index: index, error: outcome.error, detail: outcome.detail, results: results});
+            return;
+        }
+        results.push(outcome.value);
+    } catch (e) {
+        done({ok: false, index: index, error: 'error', detail: String(e), results: results});
+        return;
+    }
+    run(index + 1, Date.now() + timeout);
+}
+
+run(0, Date.now() + firstTimeout);
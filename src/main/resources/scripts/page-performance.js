@@ -0,0 +1,61 @@
+/*
+ * Collects the performance of the current document: Navigation Timing, a Resource Timing
+ * summary, Largest Contentful Paint and Cumulative Layout Shift. Times are in milliseconds
+ * from the start of the navigation.
+ * LCP and layout shifts are only reported to a PerformanceObserver, which delivers the
+ * buffered entries asynchronously, so this runs through executeAsyncScript(callback).
+ * Metrics the browser does not support are null.
+ */
+var done = arguments[arguments.length - 1];
+var result = {
+    url: location.href,
+    ttfb: null,
+    domContentLoaded: null,
+    loadEvent: null,
+    lcp: null,
+    cls: null,
+    resourceCount: 0,
+    transferBytes: 0,
+    slowestResource: null,
+    slowestResourceMillis: null
+};
+
+var navigation = performance.getEntriesByType('navigation')[0];
+if (navigation) {
+    result.ttfb = navigation.responseStart - navigation.startTime;
+    result.domContentLoaded = navigation.domContentLoadedEventEnd > 0 ? navigation.domContentLoadedEventEnd - navigation.startTime : null;
+    result.loadEvent = navigation.loadEventEnd > 0 ? navigation.loadEventEnd - navigation.startTime : null;
+    result.transferBytes = navigation.transferSize || 0;
+}
+
+performance.getEntriesByType('resource').forEach(function (resource) {
+    result.resourceCount++;
+    result.transferBytes += resource.transferSize || 0;
+    if (result.slowestResourceMillis === null || resource.duration > result.slowestResourceMillis) {
+        result.slowestResourceMillis = resource.duration;
+        result.slowestResource = resource.name;
+    }
+});
+
+function observe(type, onEntry) {
+    var supported = window.PerformanceObserver && PerformanceObserver.supportedEntryTypes || [];
+    if (supported.indexOf(type) < 0) return false;
+    new PerformanceObserver(function (list) {
+        list.getEntries().forEach(onEntry);
+    }).observe({type: type, buffered: true});
+    return true;
+}
+
+observe('largest-contentful-paint', function (entry) {
+    result.lcp = entry.renderTime || entry.loadTime || entry.startTime;
+});
+if (observe('layout-shift', function (entry) {
+    if (!entry.hadRecentInput) result.cls += entry.value;
+})) {
+    result.cls = 0;
+}
+
+// buffered entries arrive in a task queued by observe(); let it run first
+setTimeout(function () {
+    done(result);
+}, 20);
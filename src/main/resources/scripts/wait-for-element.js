@@ -0,0 +1,54 @@
+/*
+ * Resolves as soon as an element matching the locator is visible (and, for 'clickable',
+ * enabled). Uses a MutationObserver so the wait ends on the DOM change itself instead of
+ * on the next poll. A low-frequency timer covers changes that do not mutate the DOM
+ * (stylesheet loads, CSS transitions).
+ * Invoked through executeAsyncScript(using, value, condition, timeoutMillis, callback);
+ * the callback receives the element, or null on timeout.
+ */
+var using = arguments[0];
+var value = arguments[1];
+var condition = arguments[2];
+var timeout = arguments[3];
+var done = arguments[arguments.length - 1];
+
+function locate() {
+    if (using === 'xpath') {
+        return document.evaluate(value, document, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;
+    }
+    return document.querySelector(value);
+}
+
+function ready(el) {
+    if (!el || !el.isConnected) return false;
+    var style = window.getComputedStyle(el);
+    if (style.visibility === 'hidden' || style.display === 'none' || style.opacity === '0') return false;
+    if (el.getClientRects().length === 0) return false;
+    return condition !== 'clickable' || !el.disabled;
+}
+
+var initial = locate();
+if (ready(initial)) {
+    done(initial);
+} else {
+    var finished = false;
+    var observer = new MutationObserver(check);
+    var interval = setInterval(check, 100);
+    var timer = setTimeout(function () { finish(null); }, timeout);
+
+    function check() {
+        var el = locate();
+        if (ready(el)) finish(el);
+    }
+
+    function finish(result) {
+        if (finished) return;
+        finished = true;
+        observer.disconnect();
+        clearInterval(interval);
+        clearTimeout(timer);
+        done(result);
+    }
+
+    observer.observe(document, {subtree: true, childList: true, attributes: true});
+}
@@ -0,0 +1,50 @@
+/* Client-side login of the stand-in, mirroring the error strings of https://www.saucedemo.com/ */
+(function () {
+    var VALID_USERS = ['standard_user', 'problem_user', 'performance_glitch_user', 'error_user', 'visual_user'];
+    var LOCKED_OUT_USERS = ['locked_out_user'];
+    var PASSWORD = 'secret_sauce';
+
+    var form = document.getElementById('login-form');
+    var container = document.getElementById('error-container');
+
+    function showError(message) {
+        container.className = 'error-message-container error';
+        container.innerHTML = '';
+        var h3 = document.createElement('h3');
+        h3.setAttribute('data-test', 'error');
+        var button = document.createElement('button');
+        button.className = 'error-button';
+        button.setAttribute('data-test', 'error-button');
+        button.type = 'button';
+        button.onclick = function () {
+            container.className = 'error-message-container';
+            container.innerHTML = '';
+        };
+        h3.appendChild(button);
+        h3.appendChild(document.createTextNode(message));
+        container.appendChild(h3);
+    }
+
+    var redirectError = new URLSearchParams(window.location.search).get('error');
+    if (redirectError) {
+        showError(redirectError);
+    }
+
+    form.addEventListener('submit', function (event) {
+        event.preventDefault();
+        var username = document.getElementById('user-name').value;
+        var password = document.getElementById('password').value;
+        if (!username) {
+            showError('Epic sadface: Username is required');
+        } else if (!password) {
+            showError('Epic sadface: Password is required');
+        } else if (LOCKED_OUT_USERS.indexOf(username) >= 0 && password === PASSWORD) {
+            showError('Epic sadface: Sorry, this user has been locked out.');
+        } else if (VALID_USERS.indexOf(username) < 0 || password !== PASSWORD) {
+            showError('Epic sadface: Username and password do not match any user in this service');
+        } else {
+            document.cookie = 'session-username=' + encodeURIComponent(username) + '; path=/';
+            window.location.href = '/inventory.html';
+        }
+    });
+})();
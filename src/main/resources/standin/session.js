@@ -0,0 +1,8 @@
+/* Pages behind the login redirect back to it when there is no session cookie, like the real site. */
+(function () {
+    if (!/(^|;\s*)session-username=/.test(document.cookie)) {
+        var path = window.location.pathname;
+        window.location.replace('/?error=' + encodeURIComponent(
+            "Epic sadface: You can only access '" + path + "' when you are logged in."));
+    }
+})();
@@ -2,21 +2,84 @@ package hooks;
 
 import io.cucumber.java.After;
 import io.cucumber.java.Before;
+import io.cucumber.java.Scenario;
 import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pages.Pages;
+import runners.BrowserMatrix;
+import runners.ScenarioRetry;
+import utils.BrowserProfile;
+import utils.DataRow;
 import utils.DriverFactory;
+import utils.FailureArtifacts;
+import utils.NetworkBlocker;
+import utils.ScenarioLog;
 
 
 public class Hooks {
+    private static final Logger logger = LoggerFactory.getLogger(Hooks.class);
+
     protected WebDriver driver;
     @Before
-    public void setUp(){
-        DriverFactory.setBrowser("chrome");
+    public void setUp(Scenario scenario){
+        ScenarioLog.begin();
+        if(DataRow.isBound()){
+            scenario.log("Data row " + DataRow.current());
+        }
+        if(ScenarioRetry.currentAttempt()>1){
+            scenario.log("Rerun: attempt " + ScenarioRetry.currentAttempt() + " of " + ScenarioRetry.maxAttempts()
+                    + (ScenarioRetry.isKnownFlaky() ? " (known flaky)" : ""));
+        }
+        if(BrowserMatrix.isBound()){
+            scenario.log("Browser " + BrowserMatrix.current());
+        }
+        DriverFactory.setBrowser(BrowserMatrix.current());
+        DriverFactory.setProfile(BrowserProfile.forTags(scenario.getSourceTagNames()));
         driver=DriverFactory.getDriver();
-        System.out.println("🚀 Browser launched successfully!");
+        logger.info("Browser launched: {}", BrowserMatrix.current());
     }
+    /**
+     * Captures failure artifacts and reports on the scenario, then releases its pages, browser and log
+     * buffer even if reporting failed, so that a reused thread starts clean and the browser's
+     * {@code browser.maxLive} permit is returned.
+     */
     @After
-    public void tearDown(){
-        DriverFactory.quitDriver();
-        System.out.println("🧹 Browser closed successfully!");
+    public void tearDown(Scenario scenario){
+        try{
+            if(scenario.isFailed() && !FailureArtifacts.hasCaptures() && DriverFactory.hasDriver()){
+                FailureArtifacts.capture("Scenario failed: " + scenario.getName());
+            }
+            for(FailureArtifacts.Capture capture : FailureArtifacts.takeCaptures()){
+                scenario.attach(capture.uriList(), "text/uri-list", "Failure artifacts " + capture.id());
+            }
+            if(ScenarioRetry.currentAttempt()>1 && !scenario.isFailed()){
+                scenario.log("Passed on rerun, attempt " + ScenarioRetry.currentAttempt() + " of " + ScenarioRetry.maxAttempts() + " (flaky)");
+            }else if(scenario.isFailed() && ScenarioRetry.hasAttemptsLeft()){
+                scenario.log("Failed on attempt " + ScenarioRetry.currentAttempt() + " of " + ScenarioRetry.maxAttempts() + "; will be rerun");
+            }
+            NetworkBlocker.Report network=DriverFactory.networkReport();
+            if(network!=null){
+                scenario.log(network.toString());
+            }
+        }finally{
+            release(scenario);
+        }
+    }
+
+    private void release(Scenario scenario){
+        try{
+            Pages.release();
+        }finally{
+            try{
+                DriverFactory.quitDriver();
+                logger.info("Browser released");
+            }finally{
+                String log=ScenarioLog.end(scenario.isFailed());
+                if(log!=null){
+                    scenario.attach(log, "text/plain", "Scenario log");
+                }
+            }
+        }
     }
 }
@@ -0,0 +1,136 @@
+package pages;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.HasCapabilities;
+import org.openqa.selenium.ImmutableCapabilities;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import utils.BrowserOptions;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PagesTest {
+
+    private static final By TITLE=By.cssSelector(".title");
+
+    /** Element that is always displayed and enabled. */
+    private static final WebElement ELEMENT=(WebElement) Proxy.newProxyInstance(WebElement.class.getClassLoader(), new Class<?>[]{WebElement.class},
+            (proxy, method, args) -> switch(method.getName()){
+                case "isDisplayed", "isEnabled" -> true;
+                case "getText" -> "Products";
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy==args[0];
+                case "toString" -> "stub element";
+                default -> null;
+            });
+
+    /** Lookups by kind: {@code findElements} for polling waits, {@code executeAsyncScript} for observer waits. */
+    private final AtomicInteger polls=new AtomicInteger();
+    private final AtomicInteger observes=new AtomicInteger();
+
+    @AfterMethod(alwaysRun = true)
+    public void release(){
+        Pages.release();
+        System.clearProperty("pages.cacheElements");
+        polls.set(0);
+        observes.set(0);
+    }
+
+    /** Driver whose every element lookup and observer script finds {@link #ELEMENT}. */
+    private WebDriver driver(Capabilities capabilities){
+        return (WebDriver) Proxy.newProxyInstance(WebDriver.class.getClassLoader(),
+                new Class<?>[]{WebDriver.class, JavascriptExecutor.class, HasCapabilities.class},
+                (proxy, method, args) -> switch(method.getName()){
+                    case "findElements" -> {
+                        polls.incrementAndGet();
+                        yield List.of(ELEMENT);
+                    }
+                    case "executeAsyncScript" -> {
+                        observes.incrementAndGet();
+                        yield ELEMENT;
+                    }
+                    case "getCapabilities" -> capabilities;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy==args[0];
+                    case "toString" -> "stub driver";
+                    default -> null;
+                });
+    }
+
+    private WebDriver driver(){
+        return driver(new ImmutableCapabilities());
+    }
+
+    @Test
+    public void onePagePerClassPerDriver(){
+        WebDriver driver=driver();
+        Pages pages=Pages.of(driver);
+
+        LoginPage login=pages.get(LoginPage.class);
+
+        Assert.assertSame(pages.get(LoginPage.class), login);
+        Assert.assertSame(Pages.of(driver), pages);
+        Assert.assertSame(Pages.of(driver).get(LoginPage.class), login);
+        Assert.assertNotSame(pages.get(ProductsPage.class), login);
+        Assert.assertNotSame(Pages.of(driver()).get(LoginPage.class), login, "another driver gets pages of its own");
+    }
+
+    @Test
+    public void releaseStartsAFreshRegistry(){
+        WebDriver driver=driver();
+        Pages pages=Pages.of(driver);
+        LoginPage login=pages.get(LoginPage.class);
+
+        Pages.release();
+
+        Assert.assertNotSame(Pages.of(driver), pages);
+        Assert.assertNotSame(Pages.of(driver).get(LoginPage.class), login);
+    }
+
+    @Test
+    public void navigationClearsTheElementCache(){
+        System.setProperty("pages.cacheElements", "true");
+        Pages pages=Pages.of(driver());
+        LoginPage page=pages.get(LoginPage.class);
+
+        page.getText(TITLE, "title");
+        page.getText(TITLE, "title");
+        Assert.assertEquals(polls.get() + observes.get(), 1, "the second read reuses the element");
+
+        pages.navigated();
+        page.getText(TITLE, "title");
+        Assert.assertEquals(polls.get() + observes.get(), 2, "the element is looked up again after navigating");
+    }
+
+    @Test
+    public void elementsAreLookedUpEveryTimeWithoutTheCache(){
+        LoginPage page=Pages.of(driver()).get(LoginPage.class);
+
+        page.getText(TITLE, "title");
+        page.getText(TITLE, "title");
+
+        Assert.assertEquals(polls.get() + observes.get(), 2);
+    }
+
+    @Test
+    public void sharedBrowserDriversGetPollingWaits(){
+        WebDriver shared=driver(new ImmutableCapabilities(BrowserOptions.SHARED_BROWSER, true));
+
+        Pages.of(shared).elementWait().until(TITLE, ElementWait.Condition.VISIBLE, Duration.ofSeconds(1));
+
+        Assert.assertEquals(observes.get(), 0, "no observer script blocks the shared browser");
+        Assert.assertEquals(polls.get(), 1);
+
+        Pages.release();
+        Pages.of(driver()).elementWait().until(TITLE, ElementWait.Condition.VISIBLE, Duration.ofSeconds(1));
+        Assert.assertEquals(observes.get(), 1, "a browser of its own keeps the configured observer wait");
+    }
+}
@@ -0,0 +1,289 @@
+package plugins;
+
+import io.cucumber.plugin.ConcurrentEventListener;
+import io.cucumber.plugin.event.EmbedEvent;
+import io.cucumber.plugin.event.EventPublisher;
+import io.cucumber.plugin.event.HookTestStep;
+import io.cucumber.plugin.event.PickleStepTestStep;
+import io.cucumber.plugin.event.Result;
+import io.cucumber.plugin.event.Status;
+import io.cucumber.plugin.event.TestCase;
+import io.cucumber.plugin.event.TestCaseFinished;
+import io.cucumber.plugin.event.TestCaseStarted;
+import io.cucumber.plugin.event.TestRunFinished;
+import io.cucumber.plugin.event.TestRunStarted;
+import io.cucumber.plugin.event.TestStepFinished;
+import io.cucumber.plugin.event.WriteEvent;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonOutput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import runners.BrowserMatrix;
+import runners.ScenarioRetry;
+import utils.ConfigReader;
+import utils.DataRow;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cucumber plugin that streams the results of the run to a JSON-lines file as they happen, one compact
+ * record per line, and logs live progress with an estimate of the time left.
+ * <p>
+ * The stream goes to {@code report.streamDir} (default {@code target/event-stream}) as
+ * {@code events-<worker>.jsonl}, where the worker is {@code report.worker}, by default
+ * {@code shard-<index>} in a sharded run and {@code local} otherwise. Records have a {@code type} and
+ * the time {@code at} in epoch milliseconds:
+ * <ul>
+ *     <li>{@code run} and {@code end} when the run starts and finishes, and {@code plan} with the number
+ *     of scenarios the runner provides, see {@link #plan(int, int)};</li>
+ *     <li>{@code start} when a scenario starts, then {@code step}, {@code log} and {@code attachment}
+ *     records of that scenario, keyed by its {@code case} id;</li>
+ *     <li>{@code scenario} when it finishes, with its status and duration, its attempt and whether
+ *     that attempt is {@code final} (see {@link ScenarioRetry}), and its data row and browser, if any.</li>
+ * </ul>
+ * Nothing of a finished scenario stays in memory: records are written through a small buffer that is
+ * flushed after every scenario, so the file can be read while the run is going on. Error messages,
+ * logs and text attachments are cut to {@code report.maxTextChars} (default 2000) characters; binary
+ * attachments are recorded by name, type and size only.
+ * <p>
+ * Every {@code report.progressSeconds} (default 10, 0 disables it) the progress of the run, computed
+ * from the same records by a {@link StreamProgress}, is logged. {@link runners.EventStreamReport} renders
+ * the streams of one or more workers as an HTML report and shows their progress from outside the run.
+ */
+public class EventStreamPlugin implements ConcurrentEventListener {
+    private static final Logger logger = LoggerFactory.getLogger(EventStreamPlugin.class);
+
+    private static final Json JSON = new Json();
+
+    private static volatile EventStreamPlugin active;
+    private static int[] pendingPlan;
+
+    private final String worker;
+    private final Path file;
+    private final int maxTextChars;
+    private final StreamProgress progress = new StreamProgress();
+    private BufferedWriter writer;
+    private ScheduledExecutorService progressLogger;
+
+    public EventStreamPlugin() {
+        int shardCount = ConfigReader.getInt("shardCount", 1);
+        this.worker = ConfigReader.getProperty("report.worker",
+                shardCount > 1 ? "shard-" + ConfigReader.getInt("shardIndex", 0) : "local");
+        this.file = Path.of(ConfigReader.getProperty("report.streamDir", "target/event-stream"))
+                .resolve("events-" + worker + ".jsonl");
+        this.maxTextChars = ConfigReader.getInt("report.maxTextChars", 2000);
+    }
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        publisher.registerHandlerFor(TestRunStarted.class, this::onRunStarted);
+        publisher.registerHandlerFor(TestCaseStarted.class, this::onTestCaseStarted);
+        publisher.registerHandlerFor(TestStepFinished.class, this::onStepFinished);
+        publisher.registerHandlerFor(WriteEvent.class, this::onWrite);
+        publisher.registerHandlerFor(EmbedEvent.class, this::onEmbed);
+        publisher.registerHandlerFor(TestCaseFinished.class, this::onTestCaseFinished);
+        publisher.registerHandlerFor(TestRunFinished.class, this::onRunFinished);
+    }
+
+    /**
+     * Records how many scenarios the runner provides, {@code dataDriven} of them data-driven, so that
+     * progress can be given as a share of the run and an estimate of the time left.
+     */
+    public static void plan(int scenarios, int dataDriven) {
+        EventStreamPlugin plugin;
+        synchronized (EventStreamPlugin.class) {
+            plugin = active;
+            if (plugin == null) {
+                pendingPlan = new int[]{scenarios, dataDriven};
+                return;
+            }
+        }
+        plugin.writePlan(scenarios, dataDriven);
+    }
+
+    private void onRunStarted(TestRunStarted event) {
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            synchronized (this) {
+                writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the event stream " + file, e);
+        }
+        Map<String, Object> record = record("run", event.getInstant().toEpochMilli());
+        record.put("worker", worker);
+        write(record, true);
+        int[] plan;
+        synchronized (EventStreamPlugin.class) {
+            active = this;
+            plan = pendingPlan;
+            pendingPlan = null;
+        }
+        if (plan != null) {
+            writePlan(plan[0], plan[1]);
+        }
+        int interval = ConfigReader.getInt("report.progressSeconds", 10);
+        if (interval > 0) {
+            progressLogger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "event-stream-progress");
+                thread.setDaemon(true);
+                return thread;
+            });
+            progressLogger.scheduleAtFixedRate(
+                    () -> logger.info("Progress: {}", progress.describe(System.currentTimeMillis())),
+                    interval, interval, TimeUnit.SECONDS);
+        }
+        logger.info("Streaming results to {}", file);
+    }
+
+    private void writePlan(int scenarios, int dataDriven) {
+        Map<String, Object> record = record("plan", System.currentTimeMillis());
+        record.put("worker", worker);
+        record.put("scenarios", scenarios);
+        record.put("dataDriven", dataDriven);
+        write(record, true);
+    }
+
+    private void onTestCaseStarted(TestCaseStarted event) {
+        TestCase testCase = event.getTestCase();
+        Map<String, Object> record = record("start", event.getInstant().toEpochMilli());
+        record.put("case", testCase.getId().toString());
+        record.put("name", testCase.getName());
+        write(record, false);
+    }
+
+    private void onStepFinished(TestStepFinished event) {
+        String name;
+        if (event.getTestStep() instanceof PickleStepTestStep step) {
+            name = step.getStep().getKeyword() + step.getStep().getText();
+        } else if (event.getTestStep() instanceof HookTestStep hook) {
+            name = "hook:" + hook.getHookType().name().toLowerCase();
+        } else {
+            return;
+        }
+        Result result = event.getResult();
+        Map<String, Object> record = record("step", event.getInstant().toEpochMilli());
+        record.put("case", event.getTestCase().getId().toString());
+        record.put("step", name);
+        record.put("status", result.getStatus().name());
+        record.put("ms", result.getDuration().toMillis());
+        if (result.getError() != null) {
+            record.put("error", cut(String.valueOf(result.getError().getMessage())));
+        }
+        write(record, false);
+    }
+
+    private void onWrite(WriteEvent event) {
+        Map<String, Object> record = record("log", event.getInstant().toEpochMilli());
+        record.put("case", event.getTestCase().getId().toString());
+        record.put("text", cut(event.getText()));
+        write(record, false);
+    }
+
+    private void onEmbed(EmbedEvent event) {
+        Map<String, Object> record = record("attachment", event.getInstant().toEpochMilli());
+        record.put("case", event.getTestCase().getId().toString());
+        record.put("name", event.getName());
+        record.put("mediaType", event.getMediaType());
+        record.put("bytes", event.getData().length);
+        if (event.getMediaType().startsWith("text/")) {
+            record.put("text", cut(new String(event.getData(), StandardCharsets.UTF_8)));
+        }
+        write(record, false);
+    }
+
+    private void onTestCaseFinished(TestCaseFinished event) {
+        TestCase testCase = event.getTestCase();
+        Status status = event.getResult().getStatus();
+        Map<String, Object> record = record("scenario", event.getInstant().toEpochMilli());
+        record.put("case", testCase.getId().toString());
+        record.put("worker", worker);
+        record.put("name", testCase.getName());
+        record.put("uri", testCase.getUri().toString());
+        record.put("line", testCase.getLocation().getLine());
+        record.put("status", status.name());
+        record.put("ms", event.getResult().getDuration().toMillis());
+        record.put("attempt", ScenarioRetry.currentAttempt());
+        record.put("final", status == Status.PASSED || status == Status.SKIPPED || !ScenarioRetry.hasAttemptsLeft());
+        if (DataRow.isBound()) {
+            record.put("row", DataRow.current().toString());
+        }
+        if (BrowserMatrix.isBound()) {
+            record.put("browser", BrowserMatrix.current());
+        }
+        record.put("thread", Thread.currentThread().getName());
+        write(record, true);
+    }
+
+    private void onRunFinished(TestRunFinished event) {
+        if (progressLogger != null) {
+            progressLogger.shutdownNow();
+        }
+        Map<String, Object> record = record("end", event.getInstant().toEpochMilli());
+        record.put("worker", worker);
+        write(record, true);
+        synchronized (EventStreamPlugin.class) {
+            if (active == this) {
+                active = null;
+            }
+        }
+        synchronized (this) {
+            try {
+                if (writer != null) {
+                    writer.close();
+                    writer = null;
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to close the event stream {}: {}", file, e.getMessage());
+            }
+        }
+        logger.info("Run: {}; results streamed to {}", progress.describe(event.getInstant().toEpochMilli()), file);
+    }
+
+    private static Map<String, Object> record(String type, long at) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("type", type);
+        record.put("at", at);
+        return record;
+    }
+
+    /**
+     * Appends one record and counts it in the progress; {@code flush} makes it and everything before
+     * visible to readers of the file.
+     */
+    private void write(Map<String, Object> record, boolean flush) {
+        StringBuilder line = new StringBuilder();
+        try (JsonOutput output = JSON.newOutput(line).setPrettyPrint(false)) {
+            output.write(record);
+        }
+        progress.accept(record);
+        synchronized (this) {
+            if (writer == null) {
+                return;
+            }
+            try {
+                writer.write(line.toString());
+                writer.newLine();
+                if (flush) {
+                    writer.flush();
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to write the event stream {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    private String cut(String text) {
+        return text.length() <= maxTextChars ? text : text.substring(0, maxTextChars) + "...";
+    }
+}
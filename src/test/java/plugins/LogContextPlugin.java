@@ -0,0 +1,37 @@
+package plugins;
+
+import io.cucumber.plugin.ConcurrentEventListener;
+import io.cucumber.plugin.event.EventPublisher;
+import io.cucumber.plugin.event.TestCase;
+import io.cucumber.plugin.event.TestCaseFinished;
+import io.cucumber.plugin.event.TestCaseStarted;
+import org.slf4j.MDC;
+
+/**
+ * Cucumber plugin that puts the running scenario into the SLF4J {@link MDC} as {@code scenario}.
+ * <p>
+ * Cucumber publishes a scenario's events on the thread that runs it, so the context is set on that
+ * thread for the whole scenario, hooks included, and cleared when it finishes. That keeps log lines
+ * attributed correctly when scenarios run in parallel or a virtual worker thread runs one scenario
+ * after another. {@code log4j2.xml} prints it with {@code %X{scenario}}.
+ */
+public class LogContextPlugin implements ConcurrentEventListener {
+
+    public static final String SCENARIO_KEY = "scenario";
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        publisher.registerHandlerFor(TestCaseStarted.class, this::onTestCaseStarted);
+        publisher.registerHandlerFor(TestCaseFinished.class, event -> MDC.remove(SCENARIO_KEY));
+    }
+
+    private void onTestCaseStarted(TestCaseStarted event) {
+        TestCase testCase = event.getTestCase();
+        MDC.put(SCENARIO_KEY, testCase.getName() + " (" + fileName(testCase) + ":" + testCase.getLocation().getLine() + ")");
+    }
+
+    private static String fileName(TestCase testCase) {
+        String path = testCase.getUri().getSchemeSpecificPart();
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+}
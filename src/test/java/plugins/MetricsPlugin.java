@@ -0,0 +1,47 @@
+package plugins;
+
+import io.cucumber.plugin.ConcurrentEventListener;
+import io.cucumber.plugin.event.EventPublisher;
+import io.cucumber.plugin.event.HookTestStep;
+import io.cucumber.plugin.event.PickleStepTestStep;
+import io.cucumber.plugin.event.Status;
+import io.cucumber.plugin.event.TestCaseFinished;
+import io.cucumber.plugin.event.TestRunFinished;
+import io.cucumber.plugin.event.TestStepFinished;
+import utils.Metrics;
+import utils.PerformanceHistory;
+
+/**
+ * Cucumber plugin that records step and scenario durations in {@link Metrics}.
+ * <p>
+ * Steps are keyed by their step definition pattern (so all rows of a Scenario Outline
+ * aggregate together), hooks by their type, and scenarios by name. When the run finishes, the
+ * page loads measured during the run are summarised in {@link PerformanceHistory}.
+ */
+public class MetricsPlugin implements ConcurrentEventListener {
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        publisher.registerHandlerFor(TestStepFinished.class, this::onStepFinished);
+        publisher.registerHandlerFor(TestCaseFinished.class, this::onTestCaseFinished);
+        publisher.registerHandlerFor(TestRunFinished.class, event -> PerformanceHistory.finishRun());
+    }
+
+    private void onStepFinished(TestStepFinished event) {
+        String name;
+        if (event.getTestStep() instanceof PickleStepTestStep step) {
+            name = step.getPattern() != null ? step.getPattern() : step.getStep().getText();
+        } else if (event.getTestStep() instanceof HookTestStep hook) {
+            name = "hook:" + hook.getHookType().name().toLowerCase();
+        } else {
+            return;
+        }
+        Metrics.record(Metrics.STEP, name, event.getResult().getDuration().toNanos(),
+                event.getResult().getStatus() == Status.PASSED);
+    }
+
+    private void onTestCaseFinished(TestCaseFinished event) {
+        Metrics.record(Metrics.SCENARIO, event.getTestCase().getName(), event.getResult().getDuration().toNanos(),
+                event.getResult().getStatus() == Status.PASSED);
+    }
+}
@@ -0,0 +1,114 @@
+package plugins;
+
+import io.cucumber.plugin.ConcurrentEventListener;
+import io.cucumber.plugin.event.EventPublisher;
+import io.cucumber.plugin.event.Status;
+import io.cucumber.plugin.event.TestCase;
+import io.cucumber.plugin.event.TestCaseFinished;
+import io.cucumber.plugin.event.TestRunFinished;
+import io.cucumber.plugin.event.TestRunStarted;
+import org.openqa.selenium.json.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import runners.BrowserMatrix;
+import runners.ScenarioRetry;
+import runners.ScenarioTimings;
+import utils.ConfigReader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Cucumber plugin that writes the results of this shard to {@code shard.resultsDir}
+ * (default {@code target/shard-results}) as {@code shard-<index>.json}.
+ * <p>
+ * The per-shard files are combined by {@link runners.ShardMerger}, which also updates the timing
+ * database. A run that is not sharded updates {@link ScenarioTimings} directly when it finishes, if
+ * asked to with {@code shard.recordTimings=true}; by default local runs leave the file alone.
+ * An attempt that failed and is rerun (see {@link ScenarioRetry}) is recorded with status {@code RERUN},
+ * so only the last attempt of a scenario decides whether the shard passed.
+ * Runs of a {@link BrowserMatrix} carry their {@code browser}.
+ */
+public class ShardResultsPlugin implements ConcurrentEventListener {
+    private static final Logger logger = LoggerFactory.getLogger(ShardResultsPlugin.class);
+
+    /** Status of a failed attempt that is followed by a rerun. */
+    public static final String RERUN = "RERUN";
+
+    private final ConcurrentLinkedQueue<Map<String, Object>> scenarios = new ConcurrentLinkedQueue<>();
+    private volatile Instant startedAt = Instant.now();
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        publisher.registerHandlerFor(TestRunStarted.class, event -> startedAt = event.getInstant());
+        publisher.registerHandlerFor(TestCaseFinished.class, this::onTestCaseFinished);
+        publisher.registerHandlerFor(TestRunFinished.class, this::onTestRunFinished);
+    }
+
+    private void onTestCaseFinished(TestCaseFinished event) {
+        TestCase testCase = event.getTestCase();
+        Map<String, Object> scenario = new LinkedHashMap<>();
+        scenario.put("key", ScenarioTimings.key(testCase.getUri(), testCase.getLocation().getLine()));
+        scenario.put("name", testCase.getName());
+        if (BrowserMatrix.isBound()) {
+            scenario.put("browser", BrowserMatrix.current());
+        }
+        Status status = event.getResult().getStatus();
+        boolean rerun = status != Status.PASSED && status != Status.SKIPPED && ScenarioRetry.hasAttemptsLeft();
+        scenario.put("status", rerun ? RERUN : status.name());
+        scenario.put("attempt", ScenarioRetry.currentAttempt());
+        scenario.put("durationMillis", event.getResult().getDuration().toMillis());
+        scenarios.add(scenario);
+    }
+
+    private void onTestRunFinished(TestRunFinished event) {
+        int shardCount = ConfigReader.getInt("shardCount", 1);
+        int shardIndex = shardCount > 1 ? ConfigReader.getInt("shardIndex", 0) : 0;
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("shardIndex", shardIndex);
+        report.put("shardCount", shardCount);
+        report.put("startedAt", startedAt.toString());
+        report.put("wallMillis", Duration.between(startedAt, event.getInstant()).toMillis());
+        report.put("scenarios", List.copyOf(scenarios));
+
+        Path dir = Path.of(ConfigReader.getProperty("shard.resultsDir", "target/shard-results"));
+        Path file = dir.resolve("shard-" + shardIndex + ".json");
+        try {
+            Files.createDirectories(dir);
+            Files.writeString(file, new Json().toJson(report), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            logger.warn("Failed to write shard results {}: {}", file, e.getMessage());
+        }
+
+        if (shardCount <= 1 && ConfigReader.getBoolean("shard.recordTimings", false)) {
+            // sharded runs may execute on different machines; their timings are merged by ShardMerger
+            Path timingsFile = Path.of(ConfigReader.getProperty("shard.timingsFile", "test-history/scenario-timings.json"));
+            try {
+                ScenarioTimings timings = ScenarioTimings.load(timingsFile);
+                scenarios.forEach(scenario -> record(timings, scenario));
+                timings.save(timingsFile);
+            } catch (IOException e) {
+                logger.warn("Failed to update scenario timings {}: {}", timingsFile, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Records a passed scenario's duration; failures are skipped because they usually stop early
+     * or hang until a timeout, neither of which predicts the next run.
+     */
+    public static void record(ScenarioTimings timings, Map<String, Object> scenario) {
+        if (Status.PASSED.name().equals(scenario.get("status"))) {
+            timings.record((String) scenario.get("key"), ((Number) scenario.get("durationMillis")).doubleValue());
+        }
+    }
+}
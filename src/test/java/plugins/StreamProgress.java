@@ -0,0 +1,115 @@
+package plugins;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Progress of one or more runs, computed from the records of their {@link EventStreamPlugin} streams.
+ * <p>
+ * Only counters are kept, so a progress view costs the same for ten scenarios as for ten thousand.
+ * Each stream contributes its {@code plan}: the number of scenarios its runner provides, of which
+ * data-driven ones are counted apart because their number of rows is only known once they ran. The
+ * estimate is the remaining planned scenarios at the rate scenarios have finished so far; a rerun
+ * attempt is not counted as finished.
+ */
+public final class StreamProgress {
+
+    /** Planned scenarios and data-driven scenarios per worker; a worker's latest plan wins. */
+    private final Map<String, int[]> plans = new HashMap<>();
+    private long firstAt = Long.MAX_VALUE;
+    private long lastAt;
+    private int running;
+    private int finished;
+    private int failed;
+    private int dataRows;
+    private int ended;
+
+    /**
+     * Counts one record of an event stream.
+     */
+    public synchronized void accept(Map<String, Object> record) {
+        long at = record.get("at") instanceof Number number ? number.longValue() : 0;
+        if (at > 0) {
+            firstAt = Math.min(firstAt, at);
+            lastAt = Math.max(lastAt, at);
+        }
+        switch (String.valueOf(record.get("type"))) {
+            case "plan" -> plans.put(String.valueOf(record.get("worker")),
+                    new int[]{number(record.get("scenarios")), number(record.get("dataDriven"))});
+            case "start" -> running++;
+            case "scenario" -> {
+                running = Math.max(0, running - 1);
+                if (Boolean.FALSE.equals(record.get("final"))) {
+                    return;
+                }
+                if (record.get("row") != null) {
+                    dataRows++;
+                } else {
+                    finished++;
+                }
+                Object status = record.get("status");
+                if (!"PASSED".equals(status) && !"SKIPPED".equals(status)) {
+                    failed++;
+                }
+            }
+            case "end" -> ended++;
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Describes the progress at {@code nowMillis}, e.g.
+     * {@code 37/50 scenarios (74%), 2 failed, 3 running, 120 data rows; 0.8/s, ETA 16 s}.
+     */
+    public synchronized String describe(long nowMillis) {
+        int planned = plans.values().stream().mapToInt(plan -> plan[0] - plan[1]).sum();
+        int dataDriven = plans.values().stream().mapToInt(plan -> plan[1]).sum();
+        StringBuilder text = new StringBuilder()
+                .append(finished).append('/').append(planned).append(" scenarios");
+        if (planned > 0) {
+            text.append(" (").append(Math.min(100, finished * 100 / planned)).append("%)");
+        }
+        text.append(", ").append(failed).append(" failed, ").append(running).append(" running");
+        if (dataDriven > 0 || dataRows > 0) {
+            text.append(", ").append(dataRows).append(" data rows of ").append(dataDriven).append(" data-driven scenarios");
+        }
+        long elapsedMillis = firstAt == Long.MAX_VALUE ? 0 : Math.max(0, (isFinished() ? lastAt : nowMillis) - firstAt);
+        text.append("; ").append(format(Duration.ofMillis(elapsedMillis))).append(" elapsed");
+        if (isFinished()) {
+            return text.append(", finished").toString();
+        }
+        int remaining = Math.max(0, planned - finished);
+        if (finished > 0 && elapsedMillis > 0) {
+            double perSecond = finished * 1000.0 / elapsedMillis;
+            text.append(String.format(", %.1f/s", perSecond));
+            if (remaining > 0) {
+                text.append(", ETA ").append(format(Duration.ofMillis((long) (remaining / perSecond * 1000))));
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Returns {@code true} if every stream that announced a plan has also ended.
+     */
+    public synchronized boolean isFinished() {
+        return !plans.isEmpty() && ended >= plans.size();
+    }
+
+    private static int number(Object value) {
+        return value instanceof Number number ? number.intValue() : 0;
+    }
+
+    private static String format(Duration duration) {
+        long seconds = duration.toSeconds();
+        if (seconds < 60) {
+            return seconds + " s";
+        }
+        if (seconds < 3600) {
+            return seconds / 60 + " min " + seconds % 60 + " s";
+        }
+        return seconds / 3600 + " h " + seconds / 60 % 60 + " min";
+    }
+}
@@ -0,0 +1,104 @@
+package plugins;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class StreamProgressTest {
+
+    private static Map<String, Object> record(String type, long at, Object... keysAndValues){
+        Map<String, Object> record=new HashMap<>();
+        record.put("type", type);
+        record.put("at", at);
+        for(int i=0; i<keysAndValues.length; i+=2){
+            record.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return record;
+    }
+
+    private static Map<String, Object> plan(String worker, long at, int scenarios, int dataDriven){
+        return record("plan", at, "worker", worker, "scenarios", scenarios, "dataDriven", dataDriven);
+    }
+
+    private static Map<String, Object> scenario(long at, String status){
+        return record("scenario", at, "status", status);
+    }
+
+    @Test
+    public void progressShowsFinishedFailedRunningAndTheEstimate(){
+        StreamProgress progress=new StreamProgress();
+        progress.accept(plan("w0", 1_000, 4, 0));
+        for(int i=0; i<3; i++){
+            progress.accept(record("start", 1_000));
+        }
+        progress.accept(scenario(2_000, "PASSED"));
+        progress.accept(scenario(3_000, "FAILED"));
+
+        Assert.assertEquals(progress.describe(5_000), "2/4 scenarios (50%), 1 failed, 1 running; 4 s elapsed, 0.5/s, ETA 4 s");
+    }
+
+    @Test
+    public void rerunAttemptsAreNotCountedAsFinished(){
+        StreamProgress progress=new StreamProgress();
+        progress.accept(plan("w0", 1_000, 1, 0));
+        progress.accept(record("start", 1_000));
+        progress.accept(record("scenario", 2_000, "status", "FAILED", "final", false));
+        progress.accept(record("start", 2_000));
+
+        Assert.assertTrue(progress.describe(3_000).startsWith("0/1 scenarios (0%), 0 failed, 1 running"));
+
+        progress.accept(scenario(3_000, "PASSED"));
+        Assert.assertTrue(progress.describe(3_000).startsWith("1/1 scenarios (100%), 0 failed, 0 running"));
+    }
+
+    @Test
+    public void skippedScenariosAreNotFailures(){
+        StreamProgress progress=new StreamProgress();
+        progress.accept(plan("w0", 1_000, 2, 0));
+        progress.accept(scenario(2_000, "SKIPPED"));
+        progress.accept(scenario(2_000, "UNDEFINED"));
+
+        Assert.assertTrue(progress.describe(2_000).contains(", 1 failed,"));
+    }
+
+    @Test
+    public void dataRowsAreCountedApartFromScenarios(){
+        StreamProgress progress=new StreamProgress();
+        progress.accept(plan("w0", 1_000, 3, 1));
+        progress.accept(record("scenario", 2_000, "status", "PASSED", "row", 1));
+        progress.accept(record("scenario", 2_000, "status", "FAILED", "row", 2));
+        progress.accept(scenario(2_000, "PASSED"));
+
+        Assert.assertTrue(progress.describe(2_000).startsWith("1/2 scenarios (50%), 1 failed, 0 running, 2 data rows of 1 data-driven scenarios"),
+                progress.describe(2_000));
+    }
+
+    @Test
+    public void plansOfAllWorkersAreAddedAndTheLatestPlanOfAWorkerWins(){
+        StreamProgress progress=new StreamProgress();
+        progress.accept(plan("w0", 1_000, 10, 0));
+        progress.accept(plan("w1", 1_000, 5, 0));
+        progress.accept(plan("w0", 1_000, 3, 0));
+
+        Assert.assertTrue(progress.describe(1_000).startsWith("0/8 scenarios"));
+    }
+
+    @Test
+    public void runIsFinishedOnceEveryPlannedStreamEnded(){
+        StreamProgress progress=new StreamProgress();
+        Assert.assertFalse(progress.isFinished(), "no plan yet");
+
+        progress.accept(plan("w0", 1_000, 1, 0));
+        progress.accept(plan("w1", 1_000, 1, 0));
+        progress.accept(scenario(2_000, "PASSED"));
+        progress.accept(scenario(3_000, "PASSED"));
+        progress.accept(record("end", 4_000));
+        Assert.assertFalse(progress.isFinished());
+
+        progress.accept(record("end", 65_000));
+        Assert.assertTrue(progress.isFinished());
+        Assert.assertEquals(progress.describe(999_999), "2/2 scenarios (100%), 0 failed, 0 running; 1 min 4 s elapsed, finished");
+    }
+}
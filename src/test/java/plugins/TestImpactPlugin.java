@@ -0,0 +1,110 @@
+package plugins;
+
+import io.cucumber.plugin.ConcurrentEventListener;
+import io.cucumber.plugin.event.EventPublisher;
+import io.cucumber.plugin.event.HookTestStep;
+import io.cucumber.plugin.event.PickleStepTestStep;
+import io.cucumber.plugin.event.Status;
+import io.cucumber.plugin.event.TestCase;
+import io.cucumber.plugin.event.TestCaseFinished;
+import io.cucumber.plugin.event.TestCaseStarted;
+import io.cucumber.plugin.event.TestRunFinished;
+import io.cucumber.plugin.event.TestStepFinished;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pages.PageUsage;
+import runners.ImpactMap;
+import runners.ScenarioTimings;
+import runners.TestImpact;
+import utils.ConfigReader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cucumber plugin that records what each scenario exercises into the {@link ImpactMap}
+ * ({@code impact.mapFile}, default {@code test-history/test-impact.json}), for
+ * {@link TestImpact} to select scenarios by change.
+ * <p>
+ * Page usage is recorded by {@link PageUsage} on the thread running the scenario, and the step
+ * definition and hook methods come from the code locations of the steps and hooks that ran. Attempts
+ * and data rows of the same scenario are combined, and the map is merged into the existing file when
+ * the run finishes.
+ * <p>
+ * Recording walks the stack on every page action, so it is off by default ({@code impact.record=false});
+ * turn it on for the run that collects the map, e.g. {@code mvn test -P impact-map}.
+ */
+public class TestImpactPlugin implements ConcurrentEventListener {
+    private static final Logger logger = LoggerFactory.getLogger(TestImpactPlugin.class);
+
+    private final boolean enabled = ConfigReader.getBoolean("impact.record", false);
+    private final String commit = enabled ? TestImpact.headCommit() : null;
+    private final ThreadLocal<Set<String>> glue = new ThreadLocal<>();
+    private final Map<String, ImpactMap.Entry> recorded = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> passed = new ConcurrentHashMap<>();
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        if (!enabled) {
+            return;
+        }
+        publisher.registerHandlerFor(TestCaseStarted.class, event -> {
+            PageUsage.begin();
+            glue.set(new TreeSet<>());
+        });
+        publisher.registerHandlerFor(TestStepFinished.class, this::onTestStepFinished);
+        publisher.registerHandlerFor(TestCaseFinished.class, this::onTestCaseFinished);
+        publisher.registerHandlerFor(TestRunFinished.class, event -> save());
+    }
+
+    private void onTestStepFinished(TestStepFinished event) {
+        Set<String> steps = glue.get();
+        if (steps != null && (event.getTestStep() instanceof PickleStepTestStep || event.getTestStep() instanceof HookTestStep)
+                && event.getTestStep().getCodeLocation() != null) {
+            // e.g. stepDefinitions.LoginSteps.iAmLoggedInAs(java.lang.String) or hooks.Hooks.setUp(io.cucumber.java.Scenario)
+            String location = event.getTestStep().getCodeLocation();
+            int parameters = location.indexOf('(');
+            String method = parameters < 0 ? location : location.substring(0, parameters);
+            int dot = method.lastIndexOf('.');
+            if (dot > 0) {
+                steps.add(method.substring(0, dot) + "#" + method.substring(dot + 1));
+            }
+        }
+    }
+
+    private void onTestCaseFinished(TestCaseFinished event) {
+        PageUsage usage = PageUsage.end();
+        Set<String> steps = glue.get();
+        glue.remove();
+        if (usage == null || steps == null) {
+            return;
+        }
+        TestCase testCase = event.getTestCase();
+        String key = ScenarioTimings.key(testCase.getUri(), testCase.getLocation().getLine());
+        ImpactMap.Entry entry = new ImpactMap.Entry(testCase.getName(), commit, Instant.now(),
+                usage.pages(), usage.methods(), usage.locators(), steps);
+        recorded.merge(key, entry, ImpactMap.Entry::union);
+        boolean ok = event.getResult().getStatus() == Status.PASSED;
+        passed.merge(key, ok, Boolean::logicalOr);
+    }
+
+    private void save() {
+        if (recorded.isEmpty()) {
+            return;
+        }
+        Path mapFile = Path.of(ConfigReader.getProperty("impact.mapFile", "test-history/test-impact.json"));
+        try {
+            ImpactMap map = ImpactMap.load(mapFile);
+            recorded.forEach((key, entry) -> map.record(key, entry, passed.getOrDefault(key, false)));
+            map.save(mapFile);
+            logger.info("Test impact map {} updated with {} scenarios", mapFile, recorded.size());
+        } catch (IOException e) {
+            logger.warn("Failed to update test impact map {}: {}", mapFile, e.getMessage());
+        }
+    }
+}
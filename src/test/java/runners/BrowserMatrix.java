@@ -0,0 +1,151 @@
+package runners;
+
+import io.cucumber.testng.Pickle;
+import io.cucumber.testng.PickleWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+import utils.BrowserOptions;
+import utils.ConfigReader;
+import utils.DriverFactory;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs every scenario once per browser of {@code browser.matrix}, e.g.
+ * {@code -Dbrowser.matrix=chrome,firefox,edge}, in a single run.
+ * <p>
+ * {@link #expand(Object[][])} turns each scenario row into one row per browser, a {@link BrowserPickle},
+ * interleaved so that the browsers run side by side rather than one after the other. Every row is a TestNG
+ * test of its own, named {@code <scenario> [<browser>]} by {@link #nameResult}, and all rows share the
+ * scheduler of the run and the {@code browser.maxLive} cap of {@link DriverFactory}. The runner binds a
+ * row's browser to the thread that runs it, where the hooks read it with {@link #current()}; threads the
+ * scenario starts, such as the workers of a data-driven scenario, bind it themselves with {@link #bind}.
+ * Reruns, the flaky history and shard results are kept per browser.
+ * <p>
+ * Without {@code browser.matrix} the rows are left as they are and every scenario runs on
+ * {@code browser} (default {@code chrome}).
+ */
+public final class BrowserMatrix {
+    private static final Logger logger = LoggerFactory.getLogger(BrowserMatrix.class);
+
+    private static final ThreadLocal<String> current = new ThreadLocal<>();
+
+    /**
+     * A scenario row bound to one browser of the matrix.
+     */
+    record BrowserPickle(PickleWrapper scenario, String browser) implements PickleWrapper {
+        @Override
+        public Pickle getPickle() {
+            return scenario.getPickle();
+        }
+
+        @Override
+        public String toString() {
+            return scenario + " [" + browser + "]";
+        }
+    }
+
+    private BrowserMatrix() {
+    }
+
+    /**
+     * Returns the browsers of {@code browser.matrix}, without duplicates; empty if no matrix is configured.
+     *
+     * @throws IllegalArgumentException if one of the browsers is not supported
+     */
+    static List<String> browsers() {
+        return Arrays.stream(ConfigReader.getProperty("browser.matrix", "").split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .map(BrowserOptions::normalize)
+                .distinct()
+                .toList();
+    }
+
+    /**
+     * Returns one row per scenario and browser of the matrix, or {@code scenarios} itself if there is
+     * no matrix.
+     */
+    static Object[][] expand(Object[][] scenarios) {
+        List<String> browsers = browsers();
+        if (browsers.isEmpty()) {
+            return scenarios;
+        }
+        Object[][] expanded = new Object[scenarios.length * browsers.size()][];
+        int i = 0;
+        for (Object[] row : scenarios) {
+            for (String browser : browsers) {
+                Object[] copy = row.clone();
+                copy[0] = new BrowserPickle((PickleWrapper) row[0], browser);
+                expanded[i++] = copy;
+            }
+        }
+        logger.info("Browser matrix {}: {} scenarios, {} runs", browsers, scenarios.length, expanded.length);
+        return expanded;
+    }
+
+    /**
+     * Names the TestNG result of the calling thread after the scenario of {@code row} and its
+     * browser, if the row is one browser's run of a matrix.
+     */
+    static void nameResult(PickleWrapper row) {
+        ITestResult result = Reporter.getCurrentTestResult();
+        if (row instanceof BrowserPickle browserPickle && result != null) {
+            result.setTestName(browserPickle.getPickle().getName() + " [" + browserPickle.browser() + "]");
+        }
+    }
+
+    /**
+     * Runs the scenario of {@code row} with its browser bound to the calling thread.
+     */
+    static void run(PickleWrapper row, ScenarioScheduler.ScenarioRun runScenario) throws Throwable {
+        if (!(row instanceof BrowserPickle browserPickle)) {
+            runScenario.run(row.getPickle());
+            return;
+        }
+        current.set(browserPickle.browser());
+        try {
+            runScenario.run(browserPickle.getPickle());
+        } finally {
+            current.remove();
+        }
+    }
+
+    /**
+     * Binds a browser of the matrix to the calling thread, or unbinds it with {@code null}; for
+     * threads a scenario starts, with the value of {@link #bound()} on the scenario's thread.
+     */
+    static void bind(String browser) {
+        if (browser == null) {
+            current.remove();
+        } else {
+            current.set(browser);
+        }
+    }
+
+    /**
+     * Returns the browser of the matrix bound to the calling thread, or {@code null} outside of one.
+     */
+    static String bound() {
+        return current.get();
+    }
+
+    /**
+     * Returns the browser the scenario on the calling thread runs on: its browser in the matrix, or
+     * {@code browser} (default {@code chrome}) outside of one.
+     */
+    public static String current() {
+        String browser = current.get();
+        return browser != null ? browser : ConfigReader.getProperty("browser", "chrome");
+    }
+
+    /**
+     * Returns {@code true} if the scenario on the calling thread is one browser's run of a matrix.
+     */
+    public static boolean isBound() {
+        return current.get() != null;
+    }
+}
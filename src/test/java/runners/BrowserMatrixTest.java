@@ -0,0 +1,87 @@
+package runners;
+
+import io.cucumber.testng.Pickle;
+import io.cucumber.testng.PickleWrapper;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BrowserMatrixTest {
+
+    @AfterMethod(alwaysRun = true)
+    public void clearMatrix(){
+        System.clearProperty("browser.matrix");
+    }
+
+    private static PickleWrapper scenario(String name){
+        return new PickleWrapper(){
+            @Override
+            public Pickle getPickle(){
+                return null;
+            }
+
+            @Override
+            public String toString(){
+                return name;
+            }
+        };
+    }
+
+    private static List<String> rows(Object[][] expanded){
+        List<String> rows=new ArrayList<>();
+        for(Object[] row : expanded){
+            rows.add(row[0] + " / " + row[1]);
+        }
+        return rows;
+    }
+
+    @Test
+    public void withoutAMatrixTheRowsAreLeftAsTheyAre(){
+        Object[][] scenarios={{scenario("Login"), "Login feature"}};
+
+        Assert.assertSame(BrowserMatrix.expand(scenarios), scenarios);
+        Assert.assertTrue(BrowserMatrix.browsers().isEmpty());
+    }
+
+    @Test
+    public void everyScenarioRunsOncePerBrowserWithTheBrowsersInterleaved(){
+        System.setProperty("browser.matrix", "chrome,firefox");
+        PickleWrapper login=scenario("Login");
+        Object[][] scenarios={{login, "Login feature"}, {scenario("Cart"), "Cart feature"}};
+
+        Object[][] expanded=BrowserMatrix.expand(scenarios);
+
+        Assert.assertEquals(rows(expanded), List.of(
+                "Login [chrome] / Login feature", "Login [firefox] / Login feature",
+                "Cart [chrome] / Cart feature", "Cart [firefox] / Cart feature"));
+        Assert.assertSame(((BrowserMatrix.BrowserPickle) expanded[1][0]).scenario(), login);
+        Assert.assertSame(scenarios[0][0], login, "the original rows are not changed");
+    }
+
+    @Test
+    public void matrixBrowsersAreNormalizedAndDeduplicated(){
+        System.setProperty("browser.matrix", " MicrosoftEdge, chrome,msedge,,Chrome ");
+
+        Assert.assertEquals(BrowserMatrix.browsers(), List.of("edge", "chrome"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Browser not supported: safari.*")
+    public void unsupportedMatrixBrowserFails(){
+        System.setProperty("browser.matrix", "chrome,safari");
+
+        BrowserMatrix.browsers();
+    }
+
+    @Test
+    public void runBindsTheRowsBrowserToTheThreadWhileItRuns() throws Throwable {
+        List<String> seen=new ArrayList<>();
+
+        BrowserMatrix.run(new BrowserMatrix.BrowserPickle(scenario("Login"), "firefox"), pickle -> seen.add(BrowserMatrix.current()));
+
+        Assert.assertEquals(seen, List.of("firefox"));
+        Assert.assertFalse(BrowserMatrix.isBound());
+    }
+}
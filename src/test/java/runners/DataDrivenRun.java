@@ -0,0 +1,146 @@
+package runners;
+
+import io.cucumber.testng.Pickle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.SkipException;
+import utils.ConfigReader;
+import utils.DataRow;
+import utils.DataSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a data-driven scenario once for every row of its data file.
+ * <p>
+ * A scenario tagged {@code @data:<file>} (resolved against {@code data.dir}, default
+ * {@code src/test/resources/data}) is one TestNG test. Its rows are streamed from the file by a
+ * {@link DataSource}: {@code data.workers} virtual threads each take the next row, bind it with
+ * {@link DataRow#bind} and run the pickle, so only the rows in progress are in memory however
+ * large the file is. Every row is a scenario of its own in the Cucumber report; the TestNG test fails
+ * if any row failed, listing the first ones.
+ * <p>
+ * With {@code -DshardCount=N -DshardIndex=i} every shard runs the scenario over its own partition of
+ * the rows instead of the scenario being assigned to one shard, see {@link DataSource#open(Path, int, int)}.
+ * Browsers are still capped by {@code browser.maxLive}, and the workers run the rows on the
+ * {@link BrowserMatrix} browser of the calling thread, if any.
+ */
+final class DataDrivenRun {
+    private static final Logger logger = LoggerFactory.getLogger(DataDrivenRun.class);
+
+    private static final String TAG_PREFIX = "@data:";
+
+    /** Failed rows listed in the test failure. */
+    private static final int REPORTED_FAILURES = 10;
+
+    private record Failure(DataRow row, Throwable cause) {
+    }
+
+    private DataDrivenRun() {
+    }
+
+    /**
+     * Returns {@code true} if the pickle is tagged with a data file.
+     */
+    static boolean isDataDriven(Pickle pickle) {
+        return dataFile(pickle) != null;
+    }
+
+    /**
+     * Runs the pickle for every row of its data file in this shard's partition.
+     */
+    static void run(Pickle pickle, ScenarioScheduler.ScenarioRun runScenario) throws Throwable {
+        Path file = Path.of(ConfigReader.getProperty("data.dir", "src/test/resources/data")).resolve(dataFile(pickle));
+        int shardCount = ConfigReader.getInt("shardCount", 1);
+        int shardIndex = shardCount > 1 ? ConfigReader.getInt("shardIndex", 0) : 0;
+        int workerCount = Math.max(1, ConfigReader.getInt("data.workers", 1));
+
+        AtomicInteger passed = new AtomicInteger();
+        AtomicInteger skipped = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        ConcurrentLinkedQueue<Failure> failures = new ConcurrentLinkedQueue<>();
+        AtomicReference<RuntimeException> readError = new AtomicReference<>();
+        long start = System.nanoTime();
+        String browser = BrowserMatrix.bound();
+        try (DataSource rows = DataSource.open(file, shardIndex, shardCount)) {
+            Runnable worker = () -> {
+                BrowserMatrix.bind(browser);
+                try {
+                    DataRow row;
+                    while (readError.get() == null && (row = next(rows)) != null) {
+                        DataRow.bind(row);
+                        try {
+                            runScenario.run(pickle);
+                            passed.incrementAndGet();
+                        } catch (SkipException e) {
+                            skipped.incrementAndGet();
+                        } catch (Throwable t) {
+                            if (failed.incrementAndGet() <= REPORTED_FAILURES) {
+                                failures.add(new Failure(row, t));
+                            }
+                        } finally {
+                            DataRow.bind(null);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    // a malformed row; the file cannot be read any further
+                    readError.compareAndSet(null, e);
+                } finally {
+                    BrowserMatrix.bind(null);
+                }
+            };
+            List<Thread> workers = new ArrayList<>(workerCount);
+            for (int i = 0; i < workerCount; i++) {
+                workers.add(Thread.ofVirtual().name("data-" + i).start(worker));
+            }
+            for (Thread thread : workers) {
+                thread.join();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read data file " + file, e);
+        }
+        if (readError.get() != null) {
+            throw readError.get();
+        }
+
+        int total = passed.get() + skipped.get() + failed.get();
+        logger.info("{} over {}{}: {} rows, {} passed, {} failed, {} skipped in {} ms", pickle.getName(), file.getFileName(),
+                shardCount > 1 ? " (partition " + shardIndex + " of " + shardCount + ")" : "",
+                total, passed.get(), failed.get(), skipped.get(), (System.nanoTime() - start) / 1_000_000);
+        if (failed.get() > 0) {
+            StringBuilder message = new StringBuilder()
+                    .append(failed.get()).append(" of ").append(total).append(" rows of ").append(file.getFileName()).append(" failed:");
+            failures.forEach(failure -> message.append(System.lineSeparator()).append("  ")
+                    .append(failure.row()).append(": ").append(failure.cause().getMessage()));
+            if (failed.get() > REPORTED_FAILURES) {
+                message.append(System.lineSeparator()).append("  ...");
+            }
+            throw new AssertionError(message.toString(), failures.peek().cause());
+        }
+        if (total > 0 && skipped.get() == total) {
+            throw new SkipException("All " + total + " rows of " + file.getFileName() + " were skipped");
+        }
+    }
+
+    private static DataRow next(DataSource rows) {
+        synchronized (rows) {
+            return rows.hasNext() ? rows.next() : null;
+        }
+    }
+
+    private static String dataFile(Pickle pickle) {
+        for (String tag : pickle.getTags()) {
+            if (tag.startsWith(TAG_PREFIX) && tag.length() > TAG_PREFIX.length()) {
+                return tag.substring(TAG_PREFIX.length());
+            }
+        }
+        return null;
+    }
+}
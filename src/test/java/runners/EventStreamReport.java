@@ -0,0 +1,381 @@
+package runners;
+
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonException;
+import plugins.EventStreamPlugin;
+import plugins.StreamProgress;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Renders the event streams written by {@link EventStreamPlugin} as one HTML report, or shows the
+ * progress of the runs writing them.
+ * <p>
+ * Collect the {@code events-<worker>.jsonl} files of all workers or shards into one directory, or
+ * point it at the stream directory of a run in progress. The streams are merged in time order, one
+ * record per stream in memory at a time, and every scenario is written to the report as soon as its
+ * {@code scenario} record is read; only the steps of scenarios still in progress are held, so memory
+ * does not grow with the size of the run. Failed scenarios are listed first, then every scenario in
+ * the order they finished; scenarios a stream started but never finished are listed as
+ * {@code INCOMPLETE}. A record cut off by a run that is still writing is skipped.
+ * <p>
+ * Usage: {@code EventStreamReport [--progress] [streamDir] [reportFile]}, by default
+ * {@code target/event-stream} and {@code report.html} in it. With {@code --progress} only the progress
+ * of the streams is printed, see {@link StreamProgress}.
+ */
+public final class EventStreamReport {
+
+    private static final Json JSON = new Json();
+
+    /** Steps, logs and attachments of a scenario whose {@code scenario} record has not been read yet. */
+    private record Pending(String name, List<Map<String, Object>> records) {
+    }
+
+    /** Finished scenarios of one worker. */
+    private static final class Worker {
+        private long firstAt = Long.MAX_VALUE;
+        private long lastAt;
+        private int scenarios;
+    }
+
+    private final Map<String, Pending> pending = new HashMap<>();
+    private final Map<String, Integer> totals = new TreeMap<>();
+    private final Map<String, Map<String, Integer>> browsers = new TreeMap<>();
+    private final Map<String, Worker> workers = new TreeMap<>();
+    private int reruns;
+
+    private EventStreamReport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean progressOnly = false;
+        List<String> positional = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--progress")) {
+                progressOnly = true;
+            } else {
+                positional.add(arg);
+            }
+        }
+        Path dir = Path.of(positional.size() > 0 ? positional.get(0) : "target/event-stream");
+        Path reportFile = positional.size() > 1 ? Path.of(positional.get(1)) : dir.resolve("report.html");
+
+        List<Path> streams = new ArrayList<>();
+        if (Files.isDirectory(dir)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "events-*.jsonl")) {
+                files.forEach(streams::add);
+            }
+        }
+        if (streams.isEmpty()) {
+            System.err.println("No event streams found in " + dir);
+            System.exit(2);
+        }
+        streams.sort(Comparator.naturalOrder());
+
+        try (MergedStream records = new MergedStream(streams)) {
+            if (progressOnly) {
+                StreamProgress progress = new StreamProgress();
+                records.forEachRemaining(progress::accept);
+                System.out.println(progress.describe(System.currentTimeMillis()));
+            } else {
+                EventStreamReport report = new EventStreamReport();
+                report.render(records, reportFile);
+                System.out.printf("Rendered %d streams to %s: %s, %d reruns%n", streams.size(), reportFile,
+                        report.totals, report.reruns);
+            }
+            if (records.skipped > 0) {
+                System.out.printf("Skipped %d unreadable records%n", records.skipped);
+            }
+        }
+    }
+
+    /**
+     * Writes the report: scenarios go to two temporary files as they finish, which are copied into the
+     * report after the summary that needs all of them.
+     */
+    private void render(Iterator<Map<String, Object>> records, Path reportFile) throws IOException {
+        Path dir = reportFile.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path failuresFile = Files.createTempFile(dir, "failures", ".html.tmp");
+        Path allFile = Files.createTempFile(dir, "scenarios", ".html.tmp");
+        Path reportTmp = dir.resolve(reportFile.getFileName() + ".tmp");
+        try {
+            try (Writer failures = Files.newBufferedWriter(failuresFile, StandardCharsets.UTF_8);
+                 Writer all = Files.newBufferedWriter(allFile, StandardCharsets.UTF_8)) {
+                while (records.hasNext()) {
+                    accept(records.next(), failures, all);
+                }
+                for (Map.Entry<String, Pending> open : pending.entrySet()) {
+                    Map<String, Object> incomplete = new LinkedHashMap<>();
+                    incomplete.put("name", open.getValue().name());
+                    incomplete.put("status", "INCOMPLETE");
+                    String html = scenario(incomplete, open.getValue().records(), true);
+                    failures.write(html);
+                    all.write(html);
+                    totals.merge("INCOMPLETE", 1, Integer::sum);
+                }
+            }
+            try (Writer out = Files.newBufferedWriter(reportTmp, StandardCharsets.UTF_8)) {
+                out.write(header());
+                out.write("<h2>Failures</h2>\n");
+                copy(failuresFile, out);
+                out.write("<h2>All scenarios</h2>\n");
+                copy(allFile, out);
+                out.write("</body></html>\n");
+            }
+            Files.move(reportTmp, reportFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(failuresFile);
+            Files.deleteIfExists(allFile);
+            Files.deleteIfExists(reportTmp);
+        }
+    }
+
+    private void accept(Map<String, Object> record, Writer failures, Writer all) throws IOException {
+        String type = String.valueOf(record.get("type"));
+        String id = String.valueOf(record.get("case"));
+        switch (type) {
+            case "start" -> pending.put(id, new Pending(String.valueOf(record.get("name")), new ArrayList<>()));
+            case "step", "log", "attachment" -> {
+                Pending scenario = pending.get(id);
+                if (scenario != null) {
+                    scenario.records().add(record);
+                }
+            }
+            case "scenario" -> {
+                Pending scenario = pending.remove(id);
+                List<Map<String, Object>> steps = scenario == null ? List.of() : scenario.records();
+                String status = String.valueOf(record.get("status"));
+                boolean last = !Boolean.FALSE.equals(record.get("final"));
+                if (!last) {
+                    reruns++;
+                } else {
+                    totals.merge(status, 1, Integer::sum);
+                    if (record.get("browser") != null) {
+                        browsers.computeIfAbsent(String.valueOf(record.get("browser")), browser -> new TreeMap<>())
+                                .merge(status, 1, Integer::sum);
+                    }
+                }
+                Worker worker = workers.computeIfAbsent(String.valueOf(record.get("worker")), name -> new Worker());
+                long at = ((Number) record.get("at")).longValue();
+                worker.firstAt = Math.min(worker.firstAt, at - number(record.get("ms")));
+                worker.lastAt = Math.max(worker.lastAt, at);
+                worker.scenarios++;
+                boolean failed = !status.equals("PASSED") && !status.equals("SKIPPED");
+                all.write(scenario(record, steps, false));
+                if (failed && last) {
+                    failures.write(scenario(record, steps, true));
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private String header() {
+        StringBuilder html = new StringBuilder("""
+                <!DOCTYPE html>
+                <html><head><meta charset="utf-8"><title>Test report</title>
+                <style>
+                body { font-family: sans-serif; margin: 2em; }
+                table { border-collapse: collapse; margin-bottom: 1em; }
+                td, th { border: 1px solid #ccc; padding: 0.2em 0.6em; text-align: left; }
+                details { margin: 0.2em 0; }
+                summary { cursor: pointer; }
+                .status { display: inline-block; min-width: 7em; font-weight: bold; }
+                .PASSED { color: #2e7d32; } .SKIPPED { color: #757575; } .RERUN { color: #ef6c00; }
+                .FAILED, .UNDEFINED, .AMBIGUOUS, .PENDING, .INCOMPLETE { color: #c62828; }
+                .meta, .ms { color: #757575; font-size: 0.9em; }
+                pre { background: #f5f5f5; padding: 0.5em; white-space: pre-wrap; }
+                </style></head><body>
+                <h1>Test report</h1>
+                """);
+        html.append("<table><tr><th>Status</th><th>Scenarios</th></tr>\n");
+        totals.forEach((status, count) -> html.append("<tr><td class=\"").append(escape(status)).append("\">")
+                .append(escape(status)).append("</td><td>").append(count).append("</td></tr>\n"));
+        html.append("<tr><td class=\"RERUN\">reruns</td><td>").append(reruns).append("</td></tr></table>\n");
+        if (!browsers.isEmpty()) {
+            html.append("<table><tr><th>Browser</th><th>Results</th></tr>\n");
+            browsers.forEach((browser, counts) -> html.append("<tr><td>").append(escape(browser)).append("</td><td>")
+                    .append(escape(counts.toString())).append("</td></tr>\n"));
+            html.append("</table>\n");
+        }
+        html.append("<table><tr><th>Worker</th><th>Scenarios</th><th>Started</th><th>Wall clock</th></tr>\n");
+        workers.forEach((name, worker) -> html.append("<tr><td>").append(escape(name)).append("</td><td>")
+                .append(worker.scenarios).append("</td><td>").append(Instant.ofEpochMilli(worker.firstAt))
+                .append("</td><td>").append(Duration.ofMillis(worker.lastAt - worker.firstAt).toSeconds())
+                .append(" s</td></tr>\n"));
+        html.append("</table>\n");
+        return html.toString();
+    }
+
+    private static String scenario(Map<String, Object> record, List<Map<String, Object>> steps, boolean open) {
+        String status = Boolean.FALSE.equals(record.get("final")) ? "RERUN" : String.valueOf(record.get("status"));
+        StringBuilder html = new StringBuilder("<details").append(open ? " open" : "").append("><summary>")
+                .append("<span class=\"status ").append(escape(status)).append("\">").append(escape(status)).append("</span> ")
+                .append(escape(String.valueOf(record.get("name"))));
+        StringBuilder meta = new StringBuilder();
+        for (String key : List.of("browser", "row", "worker")) {
+            if (record.get(key) != null) {
+                meta.append(" · ").append(record.get(key));
+            }
+        }
+        if (record.get("ms") != null) {
+            meta.append(" · ").append(record.get("ms")).append(" ms");
+        }
+        if (number(record.get("attempt")) > 1) {
+            meta.append(" · attempt ").append(record.get("attempt"));
+        }
+        html.append(" <span class=\"meta\">").append(escape(meta.length() > 0 ? meta.substring(3) : "")).append("</span></summary>\n");
+        if (record.get("uri") != null) {
+            html.append("<div class=\"meta\">").append(escape(record.get("uri") + ":" + record.get("line"))).append("</div>\n");
+        }
+        html.append("<ol>\n");
+        for (Map<String, Object> step : steps) {
+            switch (String.valueOf(step.get("type"))) {
+                case "step" -> {
+                    String stepStatus = String.valueOf(step.get("status"));
+                    html.append("<li><span class=\"").append(escape(stepStatus)).append("\">").append(escape(stepStatus))
+                            .append("</span> ").append(escape(String.valueOf(step.get("step"))))
+                            .append(" <span class=\"ms\">").append(step.get("ms")).append(" ms</span>");
+                    if (step.get("error") != null) {
+                        html.append("<pre>").append(escape(String.valueOf(step.get("error")))).append("</pre>");
+                    }
+                    html.append("</li>\n");
+                }
+                case "log" -> html.append("<li><pre>").append(escape(String.valueOf(step.get("text")))).append("</pre></li>\n");
+                case "attachment" -> html.append("<li>").append(attachment(step)).append("</li>\n");
+                default -> {
+                }
+            }
+        }
+        return html.append("</ol></details>\n").toString();
+    }
+
+    private static String attachment(Map<String, Object> record) {
+        String name = escape(String.valueOf(record.get("name")));
+        Object text = record.get("text");
+        if ("text/uri-list".equals(record.get("mediaType")) && text != null) {
+            StringBuilder links = new StringBuilder(name).append(":");
+            text.toString().lines().filter(line -> !line.isBlank() && !line.startsWith("#"))
+                    .forEach(uri -> links.append(" <a href=\"").append(escape(uri.trim())).append("\">")
+                            .append(escape(uri.trim())).append("</a>"));
+            return links.toString();
+        }
+        if (text != null) {
+            return name + "<pre>" + escape(text.toString()) + "</pre>";
+        }
+        return name + " <span class=\"meta\">(" + escape(String.valueOf(record.get("mediaType"))) + ", "
+                + record.get("bytes") + " bytes, not kept in the stream)</span>";
+    }
+
+    private static long number(Object value) {
+        return value instanceof Number number ? number.longValue() : 0;
+    }
+
+    private static String escape(String text) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (char c : text.toCharArray()) {
+            switch (c) {
+                case '<' -> escaped.append("&lt;");
+                case '>' -> escaped.append("&gt;");
+                case '&' -> escaped.append("&amp;");
+                case '"' -> escaped.append("&quot;");
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static void copy(Path file, Writer out) throws IOException {
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            in.transferTo(out);
+        }
+    }
+
+    /**
+     * Records of several streams, merged by their {@code at} time; each stream is read one line ahead.
+     */
+    private static final class MergedStream implements Iterator<Map<String, Object>>, Closeable {
+
+        private record Head(Map<String, Object> record, long at, int stream) {
+        }
+
+        private final List<BufferedReader> readers = new ArrayList<>();
+        private final PriorityQueue<Head> heads = new PriorityQueue<>(Comparator
+                .comparingLong(Head::at)
+                .thenComparingInt(Head::stream));
+        private int skipped;
+
+        private MergedStream(List<Path> streams) throws IOException {
+            for (Path stream : streams) {
+                readers.add(Files.newBufferedReader(stream, StandardCharsets.UTF_8));
+                advance(readers.size() - 1);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public Map<String, Object> next() {
+            Head head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            advance(head.stream());
+            return head.record();
+        }
+
+        private void advance(int stream) {
+            try {
+                String line;
+                while ((line = readers.get(stream).readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        Map<String, Object> record = JSON.toType(line, Json.MAP_TYPE);
+                        heads.add(new Head(record, number(record.get("at")), stream));
+                        return;
+                    } catch (JsonException e) {
+                        skipped++;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (BufferedReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+}
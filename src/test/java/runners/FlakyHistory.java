@@ -0,0 +1,141 @@
+package runners;
+
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.TypeToken;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Small local database of recent scenario outcomes, used to tell flaky scenarios from broken ones.
+ * <p>
+ * Scenarios are keyed like {@link ScenarioTimings}. Each entry keeps the outcomes of the last
+ * {@code window} runs, oldest first, as one letter per run: {@code P} passed on the first attempt,
+ * {@code R} passed only on a rerun, {@code F} failed every attempt. A scenario is known to be flaky
+ * when it needed a rerun at least {@code threshold} times within the window.
+ * <p>
+ * Runs are numbered from the entries themselves: each entry stores the run that last recorded it,
+ * and a loaded history is one run later than its newest entry. Entries not recorded within the last
+ * {@code window} runs, such as deleted or renamed scenarios, are dropped when the history is saved.
+ * <p>
+ * The file is plain JSON, sorted by key, so it diffs cleanly when committed.
+ */
+public final class FlakyHistory {
+
+    private static final Json JSON = new Json();
+    private static final Type MAP = new TypeToken<Map<String, Map<String, Object>>>() {
+    }.getType();
+
+    /** Outcome of one scenario in one run. */
+    public enum Outcome {
+        PASSED('P'), PASSED_ON_RERUN('R'), FAILED('F');
+
+        private final char code;
+
+        Outcome(char code) {
+            this.code = code;
+        }
+    }
+
+    /**
+     * Recent outcomes of one scenario.
+     *
+     * @param name   scenario name, for reading the file
+     * @param recent one letter per run, oldest first
+     * @param seen   the run that last recorded it
+     */
+    public record Entry(String name, String recent, int seen) {
+
+        /**
+         * Returns how many of the recent runs passed only on a rerun.
+         */
+        public long reruns() {
+            return recent.chars().filter(c -> c == Outcome.PASSED_ON_RERUN.code).count();
+        }
+    }
+
+    private final Map<String, Entry> entries = new TreeMap<>();
+    private final int window;
+    private final int threshold;
+    /** Number of this run. */
+    private int run = 1;
+
+    private FlakyHistory(int window, int threshold) {
+        this.window = window;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Loads the database, or returns an empty one if {@code file} does not exist yet.
+     *
+     * @param window    runs kept per scenario
+     * @param threshold reruns within the window that make a scenario known to be flaky
+     */
+    public static FlakyHistory load(Path file, int window, int threshold) throws IOException {
+        FlakyHistory history = new FlakyHistory(Math.max(1, window), Math.max(1, threshold));
+        if (Files.exists(file)) {
+            Map<String, Map<String, Object>> raw = JSON.toType(Files.readString(file, StandardCharsets.UTF_8), MAP);
+            if (raw != null) {
+                int newest = raw.values().stream()
+                        .mapToInt(value -> value.get("seen") instanceof Number seen ? seen.intValue() : 0)
+                        .max().orElse(0);
+                // entries written before runs were numbered count as seen in the newest run
+                raw.forEach((key, value) -> history.entries.put(key, new Entry((String) value.get("name"),
+                        (String) value.get("recent"), value.get("seen") instanceof Number seen ? seen.intValue() : newest)));
+                history.run = newest + 1;
+            }
+        }
+        return history;
+    }
+
+    /**
+     * Drops the entries not recorded within the window and writes the database atomically, so a
+     * concurrent reader never sees a partial file.
+     */
+    public synchronized void save(Path file) throws IOException {
+        entries.values().removeIf(entry -> run - entry.seen() >= window);
+        // one entry per line, written by hand so keys stay readable in diffs
+        StringBuilder json = new StringBuilder("{\n");
+        entries.forEach((key, entry) -> json.append(json.length() > 2 ? ",\n" : "")
+                .append("  ").append(quote(key)).append(": {\"name\": ").append(quote(entry.name()))
+                .append(", \"recent\": \"").append(entry.recent()).append("\", \"seen\": ").append(entry.seen())
+                .append("}"));
+        json.append("\n}\n");
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        Files.writeString(tmp, json, StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Appends this run's outcome of {@code key}, dropping the oldest beyond the window.
+     */
+    public synchronized void record(String key, String name, Outcome outcome) {
+        Entry old = entries.get(key);
+        String recent = (old == null ? "" : old.recent()) + outcome.code;
+        entries.put(key, new Entry(name, recent.substring(Math.max(0, recent.length() - window)), run));
+    }
+
+    /**
+     * Returns {@code true} if {@code key} needed a rerun at least {@code threshold} times recently.
+     */
+    public synchronized boolean isKnownFlaky(String key) {
+        Entry entry = entries.get(key);
+        return entry != null && entry.reruns() >= threshold;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
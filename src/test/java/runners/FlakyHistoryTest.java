@@ -0,0 +1,100 @@
+package runners;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class FlakyHistoryTest {
+
+    private static Path historyFile() throws IOException {
+        return Files.createTempDirectory("flaky").resolve("flaky-scenarios.json");
+    }
+
+    @Test
+    public void missingFileGivesAnEmptyHistory() throws IOException {
+        FlakyHistory history=FlakyHistory.load(historyFile(), 20, 1);
+
+        Assert.assertEquals(history.size(), 0);
+        Assert.assertFalse(history.isKnownFlaky("features/login.feature:3"));
+    }
+
+    @Test
+    public void scenarioIsKnownFlakyOnceItNeededEnoughReruns() throws IOException {
+        FlakyHistory history=FlakyHistory.load(historyFile(), 20, 2);
+        history.record("features/login.feature:3", "Login", FlakyHistory.Outcome.PASSED_ON_RERUN);
+        history.record("features/login.feature:3", "Login", FlakyHistory.Outcome.FAILED);
+
+        Assert.assertFalse(history.isKnownFlaky("features/login.feature:3"), "failures do not count as reruns");
+
+        history.record("features/login.feature:3", "Login", FlakyHistory.Outcome.PASSED_ON_RERUN);
+
+        Assert.assertTrue(history.isKnownFlaky("features/login.feature:3"));
+    }
+
+    @Test
+    public void rerunsOlderThanTheWindowAreForgotten() throws IOException {
+        FlakyHistory history=FlakyHistory.load(historyFile(), 3, 1);
+        history.record("features/login.feature:3", "Login", FlakyHistory.Outcome.PASSED_ON_RERUN);
+        for(int i=0; i<3; i++){
+            history.record("features/login.feature:3", "Login", FlakyHistory.Outcome.PASSED);
+        }
+
+        Assert.assertFalse(history.isKnownFlaky("features/login.feature:3"));
+    }
+
+    @Test
+    public void savedHistoryLoadsBackWithKeysAndNamesIntact() throws IOException {
+        Path file=historyFile();
+        FlakyHistory history=FlakyHistory.load(file, 20, 1);
+        history.record("features/login.feature:3#2@firefox", "Login \"quoted\"", FlakyHistory.Outcome.PASSED_ON_RERUN);
+        history.record("features/cart.feature:7", "Cart", FlakyHistory.Outcome.PASSED);
+        history.save(file);
+
+        FlakyHistory loaded=FlakyHistory.load(file, 20, 1);
+
+        Assert.assertEquals(loaded.size(), 2);
+        Assert.assertTrue(loaded.isKnownFlaky("features/login.feature:3#2@firefox"));
+        Assert.assertFalse(loaded.isKnownFlaky("features/cart.feature:7"));
+        Assert.assertTrue(Files.readString(file).contains("\"recent\": \"R\""));
+    }
+
+    @Test
+    public void scenariosNotRunWithinTheWindowAreDropped() throws IOException {
+        Path file=historyFile();
+        FlakyHistory first=FlakyHistory.load(file, 2, 1);
+        first.record("features/removed.feature:3", "Removed", FlakyHistory.Outcome.PASSED_ON_RERUN);
+        first.record("features/login.feature:3", "Login", FlakyHistory.Outcome.PASSED);
+        first.save(file);
+        for(int i=0; i<2; i++){
+            FlakyHistory next=FlakyHistory.load(file, 2, 1);
+            next.record("features/login.feature:3", "Login", FlakyHistory.Outcome.PASSED);
+            next.save(file);
+        }
+
+        FlakyHistory loaded=FlakyHistory.load(file, 2, 1);
+
+        Assert.assertEquals(loaded.size(), 1);
+        Assert.assertFalse(Files.readString(file).contains("removed.feature"));
+    }
+
+    @Test
+    public void entriesWithoutARunNumberCountAsSeenInTheNewestRun() throws IOException {
+        Path file=historyFile();
+        Files.writeString(file, "{\n  \"features/login.feature:3\": {\"name\": \"Login\", \"recent\": \"R\"}\n}\n");
+        for(int run=1; run<=2; run++){
+            FlakyHistory history=FlakyHistory.load(file, 2, 1);
+            Assert.assertEquals(history.size(), run, "run " + run);
+            Assert.assertTrue(history.isKnownFlaky("features/login.feature:3"));
+            history.record("features/cart.feature:7", "Cart", FlakyHistory.Outcome.PASSED);
+            history.save(file);
+        }
+
+        FlakyHistory loaded=FlakyHistory.load(file, 2, 1);
+
+        Assert.assertEquals(loaded.size(), 1);
+        Assert.assertFalse(loaded.isKnownFlaky("features/login.feature:3"));
+    }
+}
@@ -0,0 +1,143 @@
+package runners;
+
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.TypeToken;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Small local database of what each scenario exercises, used to select the scenarios a change affects.
+ * <p>
+ * Scenarios are keyed like {@link ScenarioTimings}. Each entry lists the page classes, page-object
+ * methods ({@code <class>#<method>}) and locators ({@code By.id: login-button}) the scenario used,
+ * as recorded by {@link pages.PageUsage}, and the step definition and hook methods it ran. The map is updated
+ * incrementally: a run replaces the entries of the scenarios that passed and adds to the entries of
+ * the ones that failed, which may have stopped before reaching some pages, and leaves the rest alone.
+ * Every entry remembers the commit it was recorded on, which is what {@link TestImpact} diffs against
+ * for that scenario, so scenarios left out of a run by tags or sharding keep their older commit.
+ * <p>
+ * The file is plain JSON, sorted by key.
+ */
+public final class ImpactMap {
+
+    private static final Json JSON = new Json();
+    private static final Type MAP = new TypeToken<Map<String, Map<String, Object>>>() {
+    }.getType();
+
+    /**
+     * What one scenario exercises.
+     *
+     * @param name       scenario name, for reading the file
+     * @param commit     commit the scenario was recorded on, or {@code null} outside a git work tree
+     * @param recordedAt when the scenario was recorded
+     * @param pages      page classes constructed
+     * @param methods    page-object methods that acted on elements
+     * @param locators   locators used, as {@code By.toString()}
+     * @param glue       step definition and hook methods run, as {@code <class>#<method>}
+     */
+    public record Entry(String name, String commit, Instant recordedAt, Set<String> pages, Set<String> methods,
+                        Set<String> locators, Set<String> glue) {
+
+        /**
+         * Returns everything either entry exercised, as of the commit and time of {@code other}.
+         */
+        public Entry union(Entry other) {
+            return new Entry(name, other.commit, other.recordedAt, union(pages, other.pages), union(methods, other.methods),
+                    union(locators, other.locators), union(glue, other.glue));
+        }
+
+        private static Set<String> union(Set<String> a, Set<String> b) {
+            Set<String> union = new TreeSet<>(a);
+            union.addAll(b);
+            return union;
+        }
+    }
+
+    private final Map<String, Entry> entries = new TreeMap<>();
+
+    private ImpactMap() {
+    }
+
+    /**
+     * Loads the map, or returns an empty one if {@code file} does not exist yet.
+     */
+    @SuppressWarnings("unchecked")
+    public static ImpactMap load(Path file) throws IOException {
+        ImpactMap map = new ImpactMap();
+        if (Files.exists(file)) {
+            Map<String, Map<String, Object>> raw = JSON.toType(Files.readString(file, StandardCharsets.UTF_8), MAP);
+            if (raw != null) {
+                raw.forEach((key, value) -> map.entries.put(key, new Entry((String) value.get("name"),
+                        (String) value.get("commit"), Instant.parse((String) value.get("recordedAt")),
+                        set(value.get("pages")), set(value.get("methods")), set(value.get("locators")),
+                        set(value.get("glue")))));
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Writes the map atomically, so a concurrent reader never sees a partial file.
+     */
+    public synchronized void save(Path file) throws IOException {
+        Map<String, Object> scenarios = new LinkedHashMap<>();
+        entries.forEach((key, entry) -> {
+            Map<String, Object> value = new LinkedHashMap<>();
+            value.put("name", entry.name());
+            value.put("commit", entry.commit());
+            value.put("recordedAt", entry.recordedAt().toString());
+            value.put("pages", entry.pages());
+            value.put("methods", entry.methods());
+            value.put("locators", entry.locators());
+            value.put("glue", entry.glue());
+            scenarios.put(key, value);
+        });
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        Files.writeString(tmp, JSON.toJson(scenarios) + "\n", StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Records what {@code key} exercised in this run; a failed run adds to the previous entry instead
+     * of replacing it.
+     */
+    public synchronized void record(String key, Entry entry, boolean passed) {
+        Entry old = entries.get(key);
+        entries.put(key, passed || old == null ? entry : old.union(entry));
+    }
+
+    /**
+     * Returns the entry of {@code key}, or {@code null} if the scenario has never been recorded.
+     */
+    public synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    public synchronized Collection<Entry> entries() {
+        return List.copyOf(entries.values());
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String> set(Object value) {
+        return value == null ? new TreeSet<>() : new TreeSet<>((Collection<String>) value);
+    }
+}
@@ -0,0 +1,214 @@
+package runners;
+
+import utils.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency, throughput and errors of a load run, see {@link LoadRunner}.
+ * <p>
+ * Every step of every iteration is recorded in a {@link LatencyHistogram} per step name, so a run
+ * of any length keeps constant memory. Throughput is reported both over the whole run and over the
+ * steady state after ramp-up, when all virtual users are active.
+ */
+final class LoadReport {
+
+    /** Distinct error messages kept for the report. */
+    private static final int REPORTED_ERRORS = 20;
+
+    /** A step of an iteration. */
+    @FunctionalInterface
+    interface Step {
+        void run() throws Exception;
+    }
+
+    private static final class StepStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+    }
+
+    private final Map<String, StepStats> steps = new ConcurrentHashMap<>();
+    private final List<String> stepOrder = new ArrayList<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LatencyHistogram iterationLatency = new LatencyHistogram();
+    private final LongAdder iterations = new LongAdder();
+    private final LongAdder failedIterations = new LongAdder();
+    private final LongAdder steadyIterations = new LongAdder();
+    private final long startNanos;
+    private final long steadyStartNanos;
+    private volatile long endNanos;
+
+    /**
+     * @param startNanos       when the first virtual user started
+     * @param steadyStartNanos when the last virtual user started, i.e. the end of ramp-up
+     */
+    LoadReport(long startNanos, long steadyStartNanos) {
+        this.startNanos = startNanos;
+        this.steadyStartNanos = steadyStartNanos;
+    }
+
+    /**
+     * Runs and times one step of the calling virtual user's iteration; a failure is recorded
+     * against the step and rethrown, which ends the iteration.
+     */
+    void step(String name, Step step) throws Exception {
+        StepStats stats = steps.get(name);
+        if (stats == null) {
+            synchronized (stepOrder) {
+                stats = steps.computeIfAbsent(name, key -> {
+                    stepOrder.add(key);
+                    return new StepStats();
+                });
+            }
+        }
+        long start = System.nanoTime();
+        try {
+            step.run();
+        } catch (Exception | AssertionError e) {
+            stats.errors.increment();
+            throw e;
+        } finally {
+            stats.latency.record((System.nanoTime() - start) / 1_000);
+        }
+    }
+
+    /**
+     * Records a completed iteration.
+     *
+     * @param startNanos when the iteration started
+     * @param error      why it failed, or {@code null} if it passed
+     */
+    void iteration(long startNanos, Throwable error) {
+        long now = System.nanoTime();
+        iterationLatency.record((now - startNanos) / 1_000);
+        iterations.increment();
+        if (startNanos >= steadyStartNanos) {
+            steadyIterations.increment();
+        }
+        if (error != null) {
+            failedIterations.increment();
+            String message = error.getClass().getSimpleName() + ": " + firstLine(error.getMessage());
+            LongAdder count = errors.get(message);
+            if (count == null && errors.size() < REPORTED_ERRORS) {
+                count = errors.computeIfAbsent(message, key -> new LongAdder());
+            }
+            if (count != null) {
+                count.increment();
+            }
+        }
+    }
+
+    /**
+     * Marks the end of the run; throughput is measured up to here.
+     */
+    void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    long iterations() {
+        return iterations.sum();
+    }
+
+    /**
+     * Returns the percentage of iterations that failed.
+     */
+    double errorPercent() {
+        long total = iterations.sum();
+        return total == 0 ? 0 : 100.0 * failedIterations.sum() / total;
+    }
+
+    /**
+     * Returns the report as a JSON-ready map: totals, throughput, error rate, the iteration and
+     * per-step latency percentiles in milliseconds, and the most frequent errors.
+     *
+     * @param extraSteps further step histograms to include, e.g. Cucumber steps recorded in {@code utils.Metrics}
+     */
+    Map<String, Object> toMap(Map<String, LatencyHistogram> extraSteps) {
+        double seconds = Math.max(1, endNanos - startNanos) / 1e9;
+        double steadySeconds = Math.max(0, endNanos - steadyStartNanos) / 1e9;
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("durationSeconds", round(seconds));
+        report.put("iterations", iterations.sum());
+        report.put("failedIterations", failedIterations.sum());
+        report.put("errorPercent", round(errorPercent()));
+        report.put("throughputPerSecond", round(iterations.sum() / seconds));
+        report.put("steadyThroughputPerSecond", steadySeconds > 0 ? round(steadyIterations.sum() / steadySeconds) : null);
+        report.put("iteration", latency(iterationLatency, failedIterations.sum()));
+        Map<String, Object> stepReports = new LinkedHashMap<>();
+        synchronized (stepOrder) {
+            for (String name : stepOrder) {
+                StepStats stats = steps.get(name);
+                stepReports.put(name, latency(stats.latency, stats.errors.sum()));
+            }
+        }
+        extraSteps.forEach((name, histogram) -> stepReports.putIfAbsent(name, latency(histogram, null)));
+        report.put("steps", stepReports);
+        Map<String, Long> errorCounts = new LinkedHashMap<>();
+        errors.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .forEach(entry -> errorCounts.put(entry.getKey(), entry.getValue().sum()));
+        report.put("errors", errorCounts);
+        return report;
+    }
+
+    /**
+     * Formats the report as a table for the log.
+     */
+    @SuppressWarnings("unchecked")
+    static String format(Map<String, Object> report) {
+        String nl = System.lineSeparator();
+        StringBuilder text = new StringBuilder()
+                .append(String.format("%d iterations in %.1f s, %.2f/s (steady state %s/s), %.2f%% failed",
+                        (Long) report.get("iterations"), (Double) report.get("durationSeconds"),
+                        (Double) report.get("throughputPerSecond"), report.get("steadyThroughputPerSecond"),
+                        (Double) report.get("errorPercent")))
+                .append(nl)
+                .append(String.format("%-50s %8s %7s %9s %9s %9s %9s", "step", "count", "errors", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        Map<String, Object> rows = new LinkedHashMap<>((Map<String, Object>) report.get("steps"));
+        rows.put("(iteration)", report.get("iteration"));
+        rows.forEach((name, value) -> {
+            Map<String, Object> row = (Map<String, Object>) value;
+            text.append(nl).append(String.format("%-50s %8d %7s %9.1f %9.1f %9.1f %9.1f", abbreviate(name, 50),
+                    (Long) row.get("count"), row.get("errors") == null ? "-" : row.get("errors"),
+                    (Double) row.get("p50Millis"), (Double) row.get("p90Millis"), (Double) row.get("p99Millis"),
+                    (Double) row.get("maxMillis")));
+        });
+        ((Map<String, Long>) report.get("errors")).forEach((message, count) ->
+                text.append(nl).append(String.format("%6d x %s", count, message)));
+        return text.toString();
+    }
+
+    private static Map<String, Object> latency(LatencyHistogram histogram, Long errors) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("count", histogram.count());
+        entry.put("errors", errors);
+        entry.put("meanMillis", round(histogram.mean() / 1_000));
+        entry.put("p50Millis", round(histogram.percentile(50) / 1_000.0));
+        entry.put("p90Millis", round(histogram.percentile(90) / 1_000.0));
+        entry.put("p95Millis", round(histogram.percentile(95) / 1_000.0));
+        entry.put("p99Millis", round(histogram.percentile(99) / 1_000.0));
+        entry.put("maxMillis", round(histogram.max() / 1_000.0));
+        return entry;
+    }
+
+    private static String firstLine(String message) {
+        if (message == null) {
+            return "";
+        }
+        int end = message.indexOf('\n');
+        return abbreviate(end < 0 ? message : message.substring(0, end).trim(), 200);
+    }
+
+    private static String abbreviate(String text, int max) {
+        return text.length() <= max ? text : text.substring(0, max - 3) + "...";
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
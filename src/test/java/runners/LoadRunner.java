@@ -0,0 +1,285 @@
+package runners;
+
+import io.cucumber.testng.CucumberOptions;
+import io.cucumber.testng.Pickle;
+import io.cucumber.testng.PickleWrapper;
+import io.cucumber.testng.TestNGCucumberRunner;
+import org.openqa.selenium.json.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.ConfigReader;
+import utils.DriverFactory;
+import utils.LatencyHistogram;
+import utils.Metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Load-generation mode: runs the framework's own flows as concurrent virtual users.
+ * <p>
+ * {@code load.mode} chooses what a virtual user does in every iteration:
+ * <ul>
+ *     <li>{@code flow} (default): the login flow, with {@code load.driver} choosing how:
+ *     {@code browser} runs the {@link pages.LoginPage} to {@link pages.ProductsPage} page objects in a
+ *     headless browser ({@link PageFlowUser}), {@code protocol} replays the same flow's HTTP requests
+ *     without a browser ({@link ProtocolUser}).</li>
+ *     <li>{@code scenario}: the Cucumber scenarios matching {@code load.tags}, in turn, with their
+ *     hooks and step definitions ({@link ScenarioUser}).</li>
+ * </ul>
+ * {@code load.users} virtual users are started evenly over {@code load.rampUpSeconds} and then run
+ * for {@code load.durationSeconds}, or until {@code load.maxIterations} iterations in total. With
+ * {@code load.targetRate} iterations per second the users are paced to that rate across the run
+ * (an open workload, as long as there are enough users to sustain it); with {@code 0} every user
+ * starts its next iteration as soon as the previous one ends.
+ * <p>
+ * Each step's latency goes into a {@link LatencyHistogram}. At the end the throughput, error rate
+ * and per-step percentiles are logged and written to {@code load.reportFile}, and the process exits
+ * with status 1 if more than {@code load.maxErrorPercent} of the iterations failed. Browsers are
+ * still capped by {@code browser.maxLive}: a browser flow keeps its browser for the whole run, so it
+ * refuses more users than the cap, and scenarios queue for browsers above it, which is logged. Run with {@code -Dhermetic=true} to load the embedded
+ * stand-in instead of the real site.
+ * <p>
+ * Usage: {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=runners.LoadRunner -Dload.users=50}
+ */
+@CucumberOptions(
+        features = "src/test/resources/features",
+        glue = {"stepDefinitions", "hooks"},
+        plugin = {"plugins.MetricsPlugin", "plugins.LogContextPlugin"}
+)
+public final class LoadRunner {
+    private static final Logger logger = LoggerFactory.getLogger(LoadRunner.class);
+
+    private LoadRunner() {
+    }
+
+    /**
+     * Releases iteration start times at a fixed rate across all virtual users.
+     */
+    static final class Pacer {
+        private final long intervalNanos;
+        private long next;
+
+        Pacer(double perSecond) {
+            this(perSecond, System.nanoTime());
+        }
+
+        Pacer(double perSecond, long startNanos) {
+            this.intervalNanos = (long) (1e9 / perSecond);
+            this.next = startNanos;
+        }
+
+        /**
+         * Claims the next start time. A pacer that fell behind, because every user was busy,
+         * restarts from now rather than releasing the missed iterations in a burst.
+         */
+        long claim() {
+            return claim(System.nanoTime());
+        }
+
+        synchronized long claim(long now) {
+            if (next < now - intervalNanos) {
+                next = now;
+            }
+            long slot = next;
+            next += intervalNanos;
+            return slot;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.exit(run());
+    }
+
+    /**
+     * Runs the configured load and returns the exit status.
+     */
+    static int run() throws Exception {
+        String mode = ConfigReader.getProperty("load.mode", "flow").toLowerCase();
+        String driver = ConfigReader.getProperty("load.driver", "browser").toLowerCase();
+        int users = ConfigReader.getInt("load.users", 10);
+        int rampUpSeconds = ConfigReader.getInt("load.rampUpSeconds", 10);
+        int durationSeconds = ConfigReader.getInt("load.durationSeconds", 60);
+        int targetRate = ConfigReader.getInt("load.targetRate", 0);
+        long maxIterations = ConfigReader.getInt("load.maxIterations", 0);
+        if (users < 1 || rampUpSeconds < 0 || durationSeconds < 0 || targetRate < 0 || maxIterations < 0) {
+            throw new IllegalArgumentException("load.users must be positive and the other load.* settings not negative");
+        }
+
+        checkBrowserCap("scenario".equals(mode) || "browser".equals(driver), "flow".equals(mode), users);
+
+        TestNGCucumberRunner cucumber = null;
+        Supplier<VirtualUser> newUser;
+        String description;
+        switch (mode) {
+            case "flow" -> {
+                newUser = switch (driver) {
+                    case "browser" -> PageFlowUser::new;
+                    case "protocol" -> ProtocolUser::new;
+                    default -> throw new IllegalArgumentException("Unknown load.driver '" + driver + "'; expected browser or protocol");
+                };
+                description = "protocol".equals(driver)
+                        ? "login flow (protocol, login replaced by its session cookie)"
+                        : "login flow (" + driver + ")";
+            }
+            case "scenario" -> {
+                String tags = ConfigReader.getProperty("load.tags", "@Smoke");
+                cucumber = new TestNGCucumberRunner(LoadRunner.class,
+                        TestRunner.withGlueIndex(key -> "cucumber.filter.tags".equals(key) ? tags : null));
+                List<Pickle> pickles = Arrays.stream(cucumber.provideScenarios())
+                        .map(row -> ((PickleWrapper) row[0]).getPickle())
+                        .toList();
+                if (pickles.isEmpty()) {
+                    throw new IllegalArgumentException("No scenarios match load.tags " + tags);
+                }
+                AtomicLong turn = new AtomicLong();
+                TestNGCucumberRunner runner = cucumber;
+                ScenarioScheduler.ScenarioRun runScenario = pickle -> {
+                    if (DataDrivenRun.isDataDriven(pickle)) {
+                        DataDrivenRun.run(pickle, runner::runScenario);
+                    } else {
+                        runner.runScenario(pickle);
+                    }
+                };
+                newUser = () -> new ScenarioUser(pickles, turn, runScenario);
+                description = pickles.size() + " scenarios matching " + tags;
+            }
+            default -> throw new IllegalArgumentException("Unknown load.mode '" + mode + "'; expected flow or scenario");
+        }
+
+        logger.info("Load: {} virtual users running the {} against {}, ramp-up {} s, then {} s{}{}", users, description,
+                ConfigReader.getProperty("url"), rampUpSeconds, durationSeconds,
+                targetRate > 0 ? " at " + targetRate + " iterations/s" : "",
+                maxIterations > 0 ? " or " + maxIterations + " iterations" : "");
+
+        long start = System.nanoTime();
+        long rampUpNanos = TimeUnit.SECONDS.toNanos(rampUpSeconds);
+        long deadline = start + rampUpNanos + TimeUnit.SECONDS.toNanos(durationSeconds);
+        LoadReport report = new LoadReport(start, start + rampUpNanos);
+        Pacer pacer = targetRate > 0 ? new Pacer(targetRate) : null;
+        AtomicLong remaining = new AtomicLong(maxIterations > 0 ? maxIterations : Long.MAX_VALUE);
+        AtomicInteger active = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(users);
+        Supplier<VirtualUser> userFactory = newUser;
+
+        for (int i = 0; i < users; i++) {
+            long startAt = start + (users > 1 ? rampUpNanos * i / (users - 1) : 0);
+            Thread.ofVirtual().name("vu-" + i).start(() -> {
+                try {
+                    LockSupport.parkNanos(startAt - System.nanoTime());
+                    if (System.nanoTime() < deadline) {
+                        active.incrementAndGet();
+                        try (VirtualUser user = userFactory.get()) {
+                            iterate(user, report, pacer, remaining, deadline);
+                        } finally {
+                            active.decrementAndGet();
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    logger.error("Virtual user {} stopped: {}", Thread.currentThread().getName(), e.getMessage(), e);
+                } finally {
+                    finished.countDown();
+                }
+            });
+        }
+        long progressSeconds = Math.max(1, ConfigReader.getInt("load.progressSeconds", 10));
+        while (!finished.await(progressSeconds, TimeUnit.SECONDS)) {
+            logger.info("Load: {} users active, {} iterations, {}% failed", active.get(), report.iterations(),
+                    String.format("%.2f", report.errorPercent()));
+        }
+        report.finish();
+        if (cucumber != null) {
+            cucumber.finish();
+        }
+        DriverFactory.quitAll();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("mode", mode);
+        result.put("driver", "flow".equals(mode) ? driver : "browser");
+        result.put("description", description);
+        result.put("url", ConfigReader.getProperty("url"));
+        result.put("users", users);
+        result.put("rampUpSeconds", rampUpSeconds);
+        result.put("targetRate", targetRate);
+        result.putAll(report.toMap("scenario".equals(mode) ? Metrics.histograms(Metrics.STEP) : Map.of()));
+        logger.info("Load results:{}{}", System.lineSeparator(), LoadReport.format(result));
+
+        Path reportFile = Path.of(ConfigReader.getProperty("load.reportFile", "target/load-report.json"));
+        try {
+            Files.createDirectories(reportFile.toAbsolutePath().getParent());
+            Files.writeString(reportFile, new Json().toJson(result), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            logger.warn("Failed to write load report {}: {}", reportFile, e.getMessage());
+        }
+
+        double maxErrorPercent = Double.parseDouble(ConfigReader.getProperty("load.maxErrorPercent", "1"));
+        if (report.iterations() == 0) {
+            logger.error("Load: no iteration completed");
+            return 1;
+        }
+        if (report.errorPercent() > maxErrorPercent) {
+            logger.error("Load: {}% of iterations failed, more than load.maxErrorPercent={}",
+                    String.format("%.2f", report.errorPercent()), maxErrorPercent);
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Checks {@code load.users} against {@code browser.maxLive} when the users drive browsers.
+     *
+     * @param browsers     whether the users drive browsers
+     * @param keepsBrowser whether a user keeps its browser for the whole run, so that users above
+     *                     the cap would never get one
+     */
+    private static void checkBrowserCap(boolean browsers, boolean keepsBrowser, int users) {
+        if (!browsers) {
+            return;
+        }
+        int maxLive = ConfigReader.getInt("browser.maxLive", 0);
+        if (maxLive <= 0) {
+            logger.warn("Load: browser.maxLive is not set, so each of the {} virtual users starts its own browser", users);
+        } else if (users > maxLive && keepsBrowser) {
+            throw new IllegalArgumentException("load.users=" + users + " exceeds browser.maxLive=" + maxLive
+                    + "; every user of a browser flow keeps its browser, so the others would never start."
+                    + " Raise browser.maxLive or use -Dload.driver=protocol");
+        } else if (users > maxLive) {
+            logger.warn("Load: {} virtual users share browser.maxLive={} browsers; scenario times include the wait for one",
+                    users, maxLive);
+        }
+    }
+
+    /**
+     * Runs iterations of one virtual user until the deadline or the iteration budget is reached.
+     */
+    private static void iterate(VirtualUser user, LoadReport report, Pacer pacer, AtomicLong remaining, long deadline) {
+        while (true) {
+            long slot = pacer != null ? pacer.claim() : System.nanoTime();
+            if (slot >= deadline || remaining.getAndDecrement() <= 0) {
+                return;
+            }
+            LockSupport.parkNanos(slot - System.nanoTime());
+            long iterationStart = System.nanoTime();
+            Throwable error = null;
+            try {
+                user.iterate(report);
+            } catch (Exception | AssertionError e) {
+                error = e;
+                logger.debug("Iteration of {} failed", Thread.currentThread().getName(), e);
+            }
+            report.iteration(iterationStart, error);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package runners;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class LoadRunnerTest {
+
+    private static final long MILLIS=1_000_000L;
+
+    @Test
+    public void pacerSpacesStartsByTheRate(){
+        LoadRunner.Pacer pacer=new LoadRunner.Pacer(100, 0);
+
+        Assert.assertEquals(pacer.claim(0), 0);
+        Assert.assertEquals(pacer.claim(0), 10*MILLIS);
+        Assert.assertEquals(pacer.claim(1*MILLIS), 20*MILLIS);
+    }
+
+    @Test
+    public void pacerHandsOutSlotsItIsLateForWithinOneInterval(){
+        LoadRunner.Pacer pacer=new LoadRunner.Pacer(100, 0);
+        pacer.claim(0);
+
+        Assert.assertEquals(pacer.claim(15*MILLIS), 10*MILLIS, "a slot one interval late is still released");
+    }
+
+    @Test
+    public void pacerThatFellBehindRestartsFromNowWithoutABurst(){
+        LoadRunner.Pacer pacer=new LoadRunner.Pacer(100, 0);
+        pacer.claim(0);
+
+        long now=500*MILLIS;
+        Assert.assertEquals(pacer.claim(now), now);
+        Assert.assertEquals(pacer.claim(now), now + 10*MILLIS);
+    }
+
+    @Test
+    public void pacerSharesSlotsAcrossThreadsWithoutDuplicates() throws InterruptedException {
+        LoadRunner.Pacer pacer=new LoadRunner.Pacer(1000, 0);
+        Set<Long> slots=ConcurrentHashMap.newKeySet();
+        Thread[] threads=new Thread[8];
+        for(int i=0; i<threads.length; i++){
+            threads[i]=Thread.ofVirtual().start(() -> {
+                for(int j=0; j<100; j++){
+                    slots.add(pacer.claim(0));
+                }
+            });
+        }
+        for(Thread thread : threads){
+            thread.join();
+        }
+
+        Assert.assertEquals(slots.size(), 800);
+    }
+}
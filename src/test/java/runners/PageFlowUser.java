@@ -0,0 +1,58 @@
+package runners;
+
+import org.openqa.selenium.WebDriver;
+import pages.LoginPage;
+import pages.Pages;
+import pages.ProductsPage;
+import utils.BrowserProfile;
+import utils.ConfigReader;
+import utils.DriverFactory;
+
+/**
+ * Virtual user that logs in through the page objects in a real browser, the same
+ * {@link LoginPage} to {@link ProductsPage} flow the scenarios use.
+ * <p>
+ * The user keeps one browser from {@link DriverFactory} for the whole run, with the
+ * {@code load.browserProfile} profile (default {@code headless}), and clears its cookies between
+ * iterations so every iteration logs in from scratch. The page objects come from the session's
+ * {@link Pages} registry, so iterations after the first construct none.
+ */
+final class PageFlowUser implements VirtualUser {
+
+    private final String url = ConfigReader.getProperty("url");
+    private final String username = ConfigReader.getProperty("username");
+    private final String password = ConfigReader.getProperty("password");
+    private WebDriver driver;
+
+    @Override
+    public void iterate(LoadReport report) throws Exception {
+        if (driver == null) {
+            report.step("start browser", () -> {
+                DriverFactory.setBrowser(ConfigReader.getProperty("browser", "chrome"));
+                DriverFactory.setProfile(BrowserProfile.named(ConfigReader.getProperty("load.browserProfile", "headless")));
+                driver = DriverFactory.getDriver();
+            });
+        }
+        Pages pages = Pages.of(driver);
+        LoginPage loginPage = pages.get(LoginPage.class);
+        report.step("open login page", () -> {
+            driver.get(url);
+            pages.navigated();
+        });
+        report.step("enter credentials", () -> loginPage.enterUsername(username).enterPassword(password));
+        report.step("submit login", () -> {
+            ProductsPage productsPage = loginPage.clickLoginButton();
+            String title = productsPage.getTitleText();
+            if (!"Products".equals(title)) {
+                throw new AssertionError("Expected the Products page after login, got title '" + title + "'");
+            }
+        });
+        driver.manage().deleteAllCookies();
+    }
+
+    @Override
+    public void close() {
+        Pages.release();
+        DriverFactory.quitDriver();
+    }
+}
@@ -0,0 +1,88 @@
+package runners;
+
+import utils.ConfigReader;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.HttpCookie;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Virtual user that replays the login flow at the HTTP level, without a browser.
+ * <p>
+ * It requests what a browser requests: the login page and its scripts and stylesheets, then
+ * {@code inventory.html} and its assets. The application validates the login in the browser and
+ * submits no form, so there is no login request to replay: the user sets the {@code session-username}
+ * cookie the login script would set, and its steps are named for that. Credentials are therefore
+ * not checked; the user only checks the responses for the elements the page objects wait for.
+ * A user costs one {@link HttpClient} and its cookie store, so thousands fit in one JVM, but
+ * client-side rendering and script time are not measured. Meant for the stand-in
+ * ({@code -Dhermetic=true}) or deployments serving the same pages.
+ */
+final class ProtocolUser implements VirtualUser {
+
+    /** Same-origin scripts and stylesheets referenced by a page. */
+    private static final Pattern ASSET = Pattern.compile("<(?:script|link)\\b[^>]*?\\b(?:src|href)=\"(/[^\"]*)\"");
+
+    private final URI baseUri = URI.create(ConfigReader.getProperty("url"));
+    private final String username = ConfigReader.getProperty("username");
+    private final Duration timeout = Duration.ofSeconds(ConfigReader.getInt("wait.timeoutSeconds", 10));
+    private final CookieManager cookies = new CookieManager();
+    private final HttpClient client = HttpClient.newBuilder()
+            .cookieHandler(cookies)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(timeout)
+            .build();
+
+    @Override
+    public void iterate(LoadReport report) throws Exception {
+        report.step("open login page", () -> loadPage(baseUri, "id=\"login-button\""));
+        HttpCookie session = new HttpCookie("session-username", username);
+        session.setPath("/");
+        session.setVersion(0);
+        cookies.getCookieStore().add(baseUri, session);
+        report.step("open inventory with session cookie", () -> loadPage(baseUri.resolve("/inventory.html"), "class=\"title\""));
+        cookies.getCookieStore().removeAll();
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+
+    /**
+     * Requests a page and its assets, and fails unless the page contains {@code marker}.
+     */
+    private void loadPage(URI uri, String marker) throws IOException, InterruptedException {
+        String html = get(uri);
+        if (!html.contains(marker)) {
+            throw new AssertionError(uri + " does not contain " + marker);
+        }
+        Set<String> assets = new LinkedHashSet<>();
+        Matcher matcher = ASSET.matcher(html);
+        while (matcher.find()) {
+            assets.add(matcher.group(1));
+        }
+        for (String asset : assets) {
+            get(uri.resolve(asset));
+        }
+    }
+
+    private String get(URI uri) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(timeout).GET().build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        if (response.statusCode() != 200) {
+            throw new IOException("GET " + uri + " returned HTTP " + response.statusCode());
+        }
+        return response.body();
+    }
+}
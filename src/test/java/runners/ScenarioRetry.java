@@ -0,0 +1,240 @@
+package runners;
+
+import io.cucumber.testng.Pickle;
+import io.cucumber.testng.PickleWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+import org.testng.SkipException;
+import utils.ConfigReader;
+import utils.DataRow;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Reruns failed scenarios in the same JVM and tracks which ones are flaky.
+ * <p>
+ * A scenario that fails is run again right away, up to {@code rerun.attempts} more times (default
+ * 0, reruns off), on the same thread, so with the session pool it gets a warm browser and none of
+ * the JVM startup, glue scanning or browser launches of a second Maven run. Skipped scenarios are not
+ * rerun. The TestNG test passes if any attempt passes; the Cucumber report keeps every attempt, and
+ * the attempts that were rerun are logged as such by the hooks. {@link #report(PickleWrapper)} marks
+ * the TestNG result of a scenario that needed a rerun: its test name ends in {@code (flaky)} and its
+ * {@value #RERUN_ATTRIBUTE} attribute says which attempt passed, or that all failed.
+ * <p>
+ * With reruns on, every outcome is recorded in a {@link FlakyHistory} ({@code rerun.historyFile},
+ * default {@code test-history/flaky-scenarios.json}) and scenarios that recently needed a rerun are
+ * reported as known to be flaky. A data-driven scenario is recorded once per run, not per row: as
+ * passed on a rerun if any row was, else as failed if any row failed.
+ */
+public final class ScenarioRetry {
+    private static final Logger logger = LoggerFactory.getLogger(ScenarioRetry.class);
+
+    /** Attempt in progress on a thread. */
+    private record Attempt(int number, int maxAttempts, boolean knownFlaky) {
+    }
+
+    /** Outcome of a scenario in this run, over all of its data rows. */
+    private record Recorded(String name, FlakyHistory.Outcome outcome) {
+    }
+
+    /** TestNG result attribute describing the reruns of a scenario. */
+    public static final String RERUN_ATTRIBUTE = "rerun";
+
+    private static final ThreadLocal<Attempt> current = new ThreadLocal<>();
+
+    private final ScenarioScheduler.ScenarioRun runScenario;
+    private final int maxAttempts;
+    private final Path historyFile;
+    private final FlakyHistory history;
+    private final ConcurrentLinkedQueue<String> passedOnRerun = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<String> failedKnownFlaky = new ConcurrentLinkedQueue<>();
+    /** Rerun outcomes by attempt key, until {@link #report} moves them to the TestNG result. */
+    private final Map<String, String> reruns = new ConcurrentHashMap<>();
+    /** Keys of the scenarios that passed only on a rerun. */
+    private final Map<String, Boolean> flaky = new ConcurrentHashMap<>();
+    /** Outcomes of this run by history key, recorded in the history by {@link #finish()}. */
+    private final Map<String, Recorded> outcomes = new ConcurrentHashMap<>();
+
+    /**
+     * @param runScenario runs one attempt and throws if it did not pass
+     */
+    ScenarioRetry(ScenarioScheduler.ScenarioRun runScenario) {
+        this.runScenario = runScenario;
+        this.maxAttempts = 1 + Math.max(0, ConfigReader.getInt("rerun.attempts", 0));
+        this.historyFile = Path.of(ConfigReader.getProperty("rerun.historyFile", "test-history/flaky-scenarios.json"));
+        try {
+            this.history = FlakyHistory.load(historyFile, ConfigReader.getInt("rerun.historyWindow", 20),
+                    ConfigReader.getInt("rerun.flakyThreshold", 1));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read flaky scenario history " + historyFile, e);
+        }
+    }
+
+    /**
+     * Returns the attempt of the scenario running on the calling thread, starting at 1.
+     */
+    public static int currentAttempt() {
+        Attempt attempt = current.get();
+        return attempt == null ? 1 : attempt.number();
+    }
+
+    /**
+     * Returns the number of attempts the scenario running on the calling thread gets.
+     */
+    public static int maxAttempts() {
+        Attempt attempt = current.get();
+        return attempt == null ? 1 : attempt.maxAttempts();
+    }
+
+    /**
+     * Returns {@code true} if the scenario running on the calling thread is rerun when it fails.
+     */
+    public static boolean hasAttemptsLeft() {
+        return currentAttempt() < maxAttempts();
+    }
+
+    /**
+     * Returns {@code true} if the scenario running on the calling thread is known to be flaky.
+     */
+    public static boolean isKnownFlaky() {
+        Attempt attempt = current.get();
+        return attempt != null && attempt.knownFlaky();
+    }
+
+    /**
+     * Runs the pickle until an attempt passes or the attempts are used up.
+     *
+     * @throws Throwable the failure of the last attempt, or the {@link SkipException} of a skipped one
+     */
+    void run(Pickle pickle) throws Throwable {
+        String base = ScenarioTimings.key(pickle.getUri(), pickle.getLine());
+        String browser = BrowserMatrix.isBound() ? "@" + BrowserMatrix.current() : "";
+        String key = base + (DataRow.isBound() ? "#" + DataRow.current().index() : "") + browser;
+        String historyKey = base + browser;
+        String row = DataRow.isBound() ? "row " + DataRow.current().index() + ": " : "";
+        boolean knownFlaky = history.isKnownFlaky(historyKey);
+        for (int number = 1; ; number++) {
+            current.set(new Attempt(number, maxAttempts, knownFlaky));
+            try {
+                runScenario.run(pickle);
+            } catch (SkipException e) {
+                throw e;
+            } catch (Throwable t) {
+                if (number < maxAttempts) {
+                    logger.warn("{} failed on attempt {} of {}{}, rerunning: {}", describe(pickle), number, maxAttempts,
+                            knownFlaky ? " (known flaky)" : "", t.getMessage());
+                    continue;
+                }
+                record(historyKey, pickle.getName(), FlakyHistory.Outcome.FAILED);
+                if (knownFlaky) {
+                    failedKnownFlaky.add(describe(pickle));
+                }
+                if (maxAttempts > 1) {
+                    reruns.put(key, row + "failed all " + maxAttempts + " attempts" + (knownFlaky ? " (known flaky)" : ""));
+                }
+                throw t;
+            } finally {
+                current.remove();
+            }
+            if (number == 1) {
+                record(historyKey, pickle.getName(), FlakyHistory.Outcome.PASSED);
+            } else {
+                record(historyKey, pickle.getName(), FlakyHistory.Outcome.PASSED_ON_RERUN);
+                passedOnRerun.add(describe(pickle));
+                logger.warn("{} passed on rerun, attempt {} of {}; marked flaky", describe(pickle), number, maxAttempts);
+                reruns.put(key, row + "passed on rerun, attempt " + number + " of " + maxAttempts);
+                flaky.put(key, true);
+            }
+            return;
+        }
+    }
+
+    /**
+     * Merges the outcome of one data row into the outcome of its scenario in this run: a rerun
+     * outranks a failure, so a flaky row is not hidden by a broken one.
+     */
+    private void record(String historyKey, String name, FlakyHistory.Outcome outcome) {
+        outcomes.merge(historyKey, new Recorded(name, outcome), (a, b) -> rank(b.outcome()) > rank(a.outcome()) ? b : a);
+    }
+
+    private static int rank(FlakyHistory.Outcome outcome) {
+        return switch (outcome) {
+            case PASSED -> 0;
+            case FAILED -> 1;
+            case PASSED_ON_RERUN -> 2;
+        };
+    }
+
+    /**
+     * Marks the TestNG result of the calling thread with the reruns of the scenario of {@code row},
+     * including all of its data rows, once the row has run. Must be called on the TestNG test's thread.
+     */
+    void report(PickleWrapper row) {
+        Pickle pickle = row.getPickle();
+        String base = ScenarioTimings.key(pickle.getUri(), pickle.getLine());
+        String browser = row instanceof BrowserMatrix.BrowserPickle browserPickle ? "@" + browserPickle.browser() : "";
+        List<String> keys = reruns.keySet().stream()
+                .filter(key -> isAttemptOf(key, base, browser))
+                .sorted()
+                .toList();
+        ITestResult result = Reporter.getCurrentTestResult();
+        if (keys.isEmpty() || result == null) {
+            return;
+        }
+        List<String> outcomes = keys.stream().map(reruns::remove).toList();
+        result.setAttribute(RERUN_ATTRIBUTE, String.join("; ", outcomes));
+        if (keys.stream().anyMatch(key -> flaky.remove(key) != null)) {
+            String name = result.getTestName() != null ? result.getTestName() : pickle.getName();
+            result.setTestName(name + " (flaky)");
+        }
+        outcomes.forEach(outcome -> Reporter.log("Rerun: " + outcome));
+    }
+
+    /**
+     * Returns {@code true} if {@code key} is the attempt key of the scenario {@code base} on
+     * {@code browser}, or of one of its data rows ({@code base#<row>}).
+     */
+    private static boolean isAttemptOf(String key, String base, String browser) {
+        if (!key.startsWith(base) || !key.endsWith(browser)) {
+            return false;
+        }
+        String rest = key.substring(base.length(), key.length() - browser.length());
+        return rest.isEmpty() || rest.length() > 1 && rest.charAt(0) == '#' && rest.substring(1).chars().allMatch(Character::isDigit);
+    }
+
+    /**
+     * Logs the scenarios that needed a rerun and, with reruns on, records this run's outcomes in the
+     * flaky scenario history and saves it.
+     */
+    void finish() {
+        List<String> reruns = List.copyOf(passedOnRerun);
+        if (!reruns.isEmpty()) {
+            logger.warn("{} scenario(s) passed only on a rerun: {}", reruns.size(), reruns);
+        }
+        if (!failedKnownFlaky.isEmpty()) {
+            logger.warn("Failed scenarios known to be flaky: {}", List.copyOf(failedKnownFlaky));
+        }
+        if (maxAttempts == 1) {
+            return;
+        }
+        outcomes.forEach((key, recorded) -> history.record(key, recorded.name(), recorded.outcome()));
+        try {
+            history.save(historyFile);
+        } catch (IOException e) {
+            logger.warn("Failed to update flaky scenario history {}: {}", historyFile, e.getMessage());
+        }
+    }
+
+    private static String describe(Pickle pickle) {
+        return "'" + pickle.getName() + "'" + (DataRow.isBound() ? " [" + DataRow.current() + "]" : "")
+                + (BrowserMatrix.isBound() ? " [" + BrowserMatrix.current() + "]" : "");
+    }
+}
@@ -0,0 +1,224 @@
+package runners;
+
+import io.cucumber.testng.Pickle;
+import io.cucumber.testng.PickleWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.DriverFactory;
+import utils.LatencyHistogram;
+import utils.Metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs Cucumber scenarios on virtual threads.
+ * <p>
+ * Scenarios spend nearly all of their time blocked on chromedriver HTTP calls, so a virtual thread
+ * per in-flight scenario costs almost nothing while a blocked platform thread holds a full stack.
+ * A fixed set of virtual workers ({@code scheduler.maxInFlight}) takes scenarios from a shared
+ * queue; each worker keeps its Cucumber runner and glue for all the scenarios it runs. The number
+ * of browsers in use is capped separately by {@link DriverFactory} ({@code browser.maxLive}), so
+ * many scenarios can be in flight while only a few hold a browser.
+ * <p>
+ * Queueing is by tag, weighted rather than strict: each scenario belongs to the class of the
+ * earliest {@code scheduler.priorityTags} tag it carries, or to the untagged class. With {@code n}
+ * listed tags, the {@code i}-th (from 0) has weight {@code n - i + 1} and the untagged class weight 1,
+ * and the queue interleaves the classes in proportion to their weights (smooth weighted round-robin).
+ * With {@code @Smoke} alone, two smoke scenarios start for every other one, so prioritised scenarios
+ * start early without starving the rest.
+ * Within a class, the longest scenarios by {@link ScenarioTimings} start first, then feature order.
+ * <p>
+ * For each scenario the time spent waiting for a worker and for a browser is recorded separately
+ * from the time spent executing, in the {@link Metrics#SCHEDULER} category and in a summary logged
+ * when the run finishes.
+ */
+final class ScenarioScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(ScenarioScheduler.class);
+
+    /**
+     * Runs one pickle on the calling thread, throwing its failure.
+     */
+    @FunctionalInterface
+    interface ScenarioRun {
+        void run(Pickle pickle) throws Throwable;
+    }
+
+    record Job(PickleWrapper scenario, int priority, double expectedMillis, int sequence, long enqueuedAt,
+                       CompletableFuture<Void> result) {
+    }
+
+    private final ScenarioRun runScenario;
+    private final int maxInFlight;
+    private final List<String> priorityTags;
+    private final ScenarioTimings timings;
+    /** Order within a tag class: longest first, then feature order. */
+    private static final Comparator<Job> WITHIN_CLASS = Comparator.comparing(Job::expectedMillis, Comparator.reverseOrder())
+            .thenComparingInt(Job::sequence);
+
+    /** Jobs in the order they start; filled once by {@link #submitAll}. */
+    private final Queue<Job> queue = new ConcurrentLinkedQueue<>();
+    /** Jobs by row; with a {@link BrowserMatrix}, several rows share one pickle. */
+    private final Map<PickleWrapper, Job> jobs = new IdentityHashMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram browserWait = new LatencyHistogram();
+    private final LatencyHistogram execution = new LatencyHistogram();
+
+    /**
+     * @param runScenario  runs one scenario
+     * @param maxInFlight  number of virtual workers, i.e. scenarios running at once
+     * @param priorityTags tags by descending weight
+     * @param timings      historical durations used to start long scenarios first
+     */
+    ScenarioScheduler(ScenarioRun runScenario, int maxInFlight, List<String> priorityTags, ScenarioTimings timings) {
+        this.runScenario = runScenario;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.priorityTags = priorityTags;
+        this.timings = timings;
+    }
+
+    /**
+     * Queues every scenario row and starts the workers.
+     *
+     * @return the rows in the order they are scheduled, so results are awaited roughly as they finish
+     */
+    synchronized Object[][] submitAll(Object[][] scenarios) {
+        long now = System.nanoTime();
+        List<Job> submitted = new ArrayList<>(scenarios.length);
+        for (int i = 0; i < scenarios.length; i++) {
+            PickleWrapper scenario = (PickleWrapper) scenarios[i][0];
+            Pickle pickle = scenario.getPickle();
+            Double expected = timings.millis(ScenarioTimings.key(pickle.getUri(), pickle.getLine()));
+            Job job = new Job(scenario, priority(pickle.getTags()), expected != null ? expected : 0, i, now, new CompletableFuture<>());
+            jobs.put(scenario, job);
+            submitted.add(job);
+        }
+        List<Job> schedule = interleave(submitted, priorityTags.size() + 1);
+        queue.addAll(schedule);
+        int workerCount = Math.min(maxInFlight, scenarios.length);
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(Thread.ofVirtual().name("scenario-" + i).start(this::work));
+        }
+        logger.info("Scheduling {} scenarios on {} virtual threads", scenarios.length, workerCount);
+
+        Object[][] ordered = new Object[schedule.size()][];
+        for (int i = 0; i < ordered.length; i++) {
+            ordered[i] = scenarios[schedule.get(i).sequence()];
+        }
+        return ordered;
+    }
+
+    /**
+     * Orders jobs by smooth weighted round-robin over their tag classes, class {@code c} of
+     * {@code classes} having weight {@code classes - c}: each turn, every class with jobs left gains
+     * its weight in credit, the class with the most credit (the earlier class on a tie) starts its
+     * next job and pays the total weight of the classes still in the turn.
+     */
+    static List<Job> interleave(List<Job> jobs, int classes) {
+        List<PriorityQueue<Job>> byClass = new ArrayList<>(classes);
+        for (int c = 0; c < classes; c++) {
+            byClass.add(new PriorityQueue<>(WITHIN_CLASS));
+        }
+        jobs.forEach(job -> byClass.get(job.priority()).add(job));
+        int[] credit = new int[classes];
+        List<Job> schedule = new ArrayList<>(jobs.size());
+        while (schedule.size() < jobs.size()) {
+            int total = 0;
+            int next = -1;
+            for (int c = 0; c < classes; c++) {
+                if (byClass.get(c).isEmpty()) {
+                    continue;
+                }
+                credit[c] += classes - c;
+                total += classes - c;
+                if (next < 0 || credit[c] > credit[next]) {
+                    next = c;
+                }
+            }
+            credit[next] -= total;
+            schedule.add(byClass.get(next).poll());
+        }
+        return schedule;
+    }
+
+    /**
+     * Blocks until the scenario of a submitted row has run and rethrows its failure, if any.
+     */
+    void await(PickleWrapper scenario) throws Throwable {
+        Job job;
+        synchronized (this) {
+            job = jobs.get(scenario);
+        }
+        if (job == null) {
+            throw new IllegalStateException("Scenario was not submitted: " + scenario.getPickle().getName());
+        }
+        try {
+            job.result().get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Waits for the workers to drain the queue and logs the wait/execution summary.
+     */
+    void close() throws InterruptedException {
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (execution.count() > 0) {
+            logger.info("Scheduler: {} scenarios; queue wait p50 {} ms / p95 {} ms, browser wait p50 {} ms / p95 {} ms, "
+                            + "execution p50 {} ms / p95 {} ms",
+                    execution.count(), millis(queueWait, 50), millis(queueWait, 95), millis(browserWait, 50),
+                    millis(browserWait, 95), millis(execution, 50), millis(execution, 95));
+        }
+    }
+
+    private void work() {
+        Job job;
+        while ((job = queue.poll()) != null) {
+            long started = System.nanoTime();
+            long queued = started - job.enqueuedAt();
+            try {
+                BrowserMatrix.run(job.scenario(), runScenario);
+                job.result().complete(null);
+            } catch (Throwable t) {
+                job.result().completeExceptionally(t);
+            } finally {
+                long waitedForBrowser = DriverFactory.takeBrowserWaitNanos();
+                long executed = System.nanoTime() - started - waitedForBrowser;
+                record("queue-wait", queueWait, queued);
+                record("browser-wait", browserWait, waitedForBrowser);
+                record("execution", execution, executed);
+            }
+        }
+    }
+
+    private int priority(List<String> tags) {
+        for (int i = 0; i < priorityTags.size(); i++) {
+            if (tags.contains(priorityTags.get(i))) {
+                return i;
+            }
+        }
+        return priorityTags.size();
+    }
+
+    private static void record(String name, LatencyHistogram histogram, long nanos) {
+        histogram.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+        Metrics.record(Metrics.SCHEDULER, name, nanos, true);
+    }
+
+    private static long millis(LatencyHistogram histogram, double percentile) {
+        return histogram.percentile(percentile) / 1000;
+    }
+}
@@ -0,0 +1,62 @@
+package runners;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ScenarioSchedulerTest {
+
+    private static List<ScenarioScheduler.Job> jobs(int... priorities){
+        List<ScenarioScheduler.Job> jobs=new ArrayList<>();
+        for(int i=0; i<priorities.length; i++){
+            jobs.add(new ScenarioScheduler.Job(null, priorities[i], 0, i, 0, null));
+        }
+        return jobs;
+    }
+
+    private static List<Integer> priorities(List<ScenarioScheduler.Job> schedule){
+        return schedule.stream().map(ScenarioScheduler.Job::priority).toList();
+    }
+
+    @Test
+    public void untaggedScenariosAreInterleavedWithPrioritisedOnes(){
+        List<ScenarioScheduler.Job> schedule=ScenarioScheduler.interleave(jobs(1, 1, 1, 0, 0, 0, 0, 0, 0), 2);
+
+        Assert.assertEquals(priorities(schedule), List.of(0, 1, 0, 0, 1, 0, 0, 1, 0));
+    }
+
+    @Test
+    public void everyClassGetsTurnsInProportionToItsWeight(){
+        int[] priorities=new int[60];
+        for(int i=0; i<priorities.length; i++){
+            priorities[i]=i % 3;
+        }
+        List<Integer> firstTwelve=priorities(ScenarioScheduler.interleave(jobs(priorities), 3)).subList(0, 12);
+
+        Assert.assertEquals(firstTwelve.stream().filter(p -> p==0).count(), 6);
+        Assert.assertEquals(firstTwelve.stream().filter(p -> p==1).count(), 4);
+        Assert.assertEquals(firstTwelve.stream().filter(p -> p==2).count(), 2);
+    }
+
+    @Test
+    public void longestScenariosStartFirstWithinAClass(){
+        List<ScenarioScheduler.Job> jobs=List.of(
+                new ScenarioScheduler.Job(null, 0, 100, 0, 0, null),
+                new ScenarioScheduler.Job(null, 0, 900, 1, 0, null),
+                new ScenarioScheduler.Job(null, 0, 0, 2, 0, null),
+                new ScenarioScheduler.Job(null, 0, 0, 3, 0, null));
+
+        List<Integer> order=ScenarioScheduler.interleave(jobs, 1).stream().map(ScenarioScheduler.Job::sequence).toList();
+
+        Assert.assertEquals(order, List.of(1, 0, 2, 3));
+    }
+
+    @Test
+    public void remainingClassRunsOnceTheOthersAreEmpty(){
+        List<ScenarioScheduler.Job> schedule=ScenarioScheduler.interleave(jobs(0, 1, 1, 1, 1), 2);
+
+        Assert.assertEquals(priorities(schedule), List.of(0, 1, 1, 1, 1));
+    }
+}
@@ -0,0 +1,132 @@
+package runners;
+
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.TypeToken;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Small local database of historical scenario durations, used to balance shards.
+ * <p>
+ * Scenarios are keyed by feature path and pickle line ({@code src/test/resources/features/Login.feature:8}),
+ * so every row of a Scenario Outline has its own entry and the key is the same on every machine.
+ * Each entry holds an exponentially weighted mean of the passed runs, which follows real changes in
+ * duration within a few runs without being thrown off by a single slow one.
+ * <p>
+ * The file is plain JSON, sorted by key, so it diffs cleanly when committed alongside the features.
+ */
+public final class ScenarioTimings {
+
+    private static final Json JSON = new Json();
+    private static final Type MAP = new TypeToken<Map<String, Map<String, Object>>>() {
+    }.getType();
+
+    /** Weight of the newest run in the moving average. */
+    private static final double ALPHA = 0.3;
+
+    /**
+     * Historical duration of one scenario.
+     *
+     * @param meanMillis weighted mean duration of the recorded runs
+     * @param runs       number of runs recorded
+     */
+    public record Entry(double meanMillis, long runs) {
+    }
+
+    private final Map<String, Entry> entries = new TreeMap<>();
+
+    private ScenarioTimings() {
+    }
+
+    /**
+     * Loads the database, or returns an empty one if {@code file} does not exist yet.
+     */
+    public static ScenarioTimings load(Path file) throws IOException {
+        ScenarioTimings timings = new ScenarioTimings();
+        if (Files.exists(file)) {
+            Map<String, Map<String, Object>> raw = JSON.toType(Files.readString(file, StandardCharsets.UTF_8), MAP);
+            if (raw != null) {
+                raw.forEach((key, value) -> timings.entries.put(key, new Entry(
+                        ((Number) value.get("meanMillis")).doubleValue(), ((Number) value.get("runs")).longValue())));
+            }
+        }
+        return timings;
+    }
+
+    /**
+     * Writes the database atomically, so a concurrent reader never sees a partial file.
+     */
+    public void save(Path file) throws IOException {
+        // one entry per line, written by hand so keys stay readable in diffs
+        StringBuilder json = new StringBuilder("{\n");
+        entries.forEach((key, entry) -> json.append(json.length() > 2 ? ",\n" : "")
+                .append("  \"").append(key.replace("\\", "\\\\").replace("\"", "\\\""))
+                .append("\": {\"meanMillis\": ").append(Math.round(entry.meanMillis() * 10) / 10.0)
+                .append(", \"runs\": ").append(entry.runs()).append('}'));
+        json.append("\n}\n");
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        Files.writeString(tmp, json, StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Adds one observed duration for {@code key}.
+     */
+    public void record(String key, double millis) {
+        entries.merge(key, new Entry(millis, 1), (old, added) ->
+                new Entry(old.meanMillis() + ALPHA * (millis - old.meanMillis()), old.runs() + 1));
+    }
+
+    /**
+     * Returns the historical duration of {@code key}, or {@code null} if it has never been recorded.
+     */
+    public Double millis(String key) {
+        Entry entry = entries.get(key);
+        return entry == null ? null : entry.meanMillis();
+    }
+
+    /**
+     * Returns the median of all known durations, or {@code 0} if the database is empty.
+     */
+    public double median() {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        List<Double> values = new ArrayList<>(entries.size());
+        entries.values().forEach(entry -> values.add(entry.meanMillis()));
+        Collections.sort(values);
+        int middle = values.size() / 2;
+        return values.size() % 2 == 1 ? values.get(middle) : (values.get(middle - 1) + values.get(middle)) / 2;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Builds the key for a scenario. Feature URIs under the working directory are made relative,
+     * so the key does not depend on where the project is checked out.
+     */
+    public static String key(URI uri, int line) {
+        String path = uri.getSchemeSpecificPart();
+        if ("file".equals(uri.getScheme())) {
+            Path file = uri.isOpaque() ? Path.of(uri.getSchemeSpecificPart()) : Path.of(uri);
+            Path workingDir = Path.of("").toAbsolutePath();
+            path = file.isAbsolute() && file.startsWith(workingDir) ? workingDir.relativize(file).toString() : file.toString();
+        }
+        return path.replace('\\', '/') + ":" + line;
+    }
+}
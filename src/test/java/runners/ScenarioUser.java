@@ -0,0 +1,48 @@
+package runners;
+
+import io.cucumber.testng.Pickle;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Virtual user that runs whole Cucumber scenarios, each iteration the next of the selected
+ * scenarios in turn across all users. Hooks, browsers and step definitions behave exactly as in a
+ * normal run; the per-step latencies come from {@code plugins.MetricsPlugin}.
+ */
+final class ScenarioUser implements VirtualUser {
+
+    private final List<Pickle> pickles;
+    private final AtomicLong next;
+    private final ScenarioScheduler.ScenarioRun runScenario;
+
+    /**
+     * @param pickles     the scenarios to run
+     * @param next        turn counter shared by all users of the run
+     * @param runScenario runs one scenario and throws if it did not pass
+     */
+    ScenarioUser(List<Pickle> pickles, AtomicLong next, ScenarioScheduler.ScenarioRun runScenario) {
+        this.pickles = pickles;
+        this.next = next;
+        this.runScenario = runScenario;
+    }
+
+    @Override
+    public void iterate(LoadReport report) throws Exception {
+        Pickle pickle = pickles.get((int) (next.getAndIncrement() % pickles.size()));
+        report.step("scenario: " + pickle.getName(), () -> {
+            try {
+                runScenario.run(pickle);
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new Exception(t);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        // every scenario releases its browser in its own hooks
+    }
+}
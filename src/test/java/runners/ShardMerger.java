@@ -0,0 +1,143 @@
+package runners;
+
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.TypeToken;
+import plugins.ShardResultsPlugin;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Combines the per-shard results written by {@link ShardResultsPlugin} into one result.
+ * <p>
+ * Collect the {@code shard-<index>.json} files of all shards into one directory and run this
+ * class on it. It writes {@code merged.json} next to them with every scenario, the totals per
+ * status, the wall-clock time of each shard and the ideal makespan, records the passed durations
+ * in the timing database for the next plan, and exits with status 1 if any scenario did not pass
+ * or a shard is missing. Skipped scenarios and failed attempts that were rerun (status {@code RERUN})
+ * do not fail the merge.
+ * <p>
+ * Usage: {@code ShardMerger [resultsDir] [timingsFile]}
+ */
+public final class ShardMerger {
+
+    private static final Json JSON = new Json();
+    private static final Type MAP = new TypeToken<Map<String, Object>>() {
+    }.getType();
+
+    /** Scenario statuses that do not fail the merge. */
+    private static final Set<String> NOT_FAILING = Set.of("PASSED", "SKIPPED", ShardResultsPlugin.RERUN);
+
+    private ShardMerger() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static void main(String[] args) throws IOException {
+        Path dir = Path.of(args.length > 0 ? args[0] : "target/shard-results");
+        Path timingsFile = Path.of(args.length > 1 ? args[1] : "test-history/scenario-timings.json");
+
+        List<Map<String, Object>> shards = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "shard-*.json")) {
+            for (Path file : files) {
+                shards.add(JSON.toType(Files.readString(file, StandardCharsets.UTF_8), MAP));
+            }
+        }
+        if (shards.isEmpty()) {
+            System.err.println("No shard results found in " + dir);
+            System.exit(2);
+        }
+        Map<String, Object> result = merge(shards);
+        int shardCount = (Integer) result.get("shardCount");
+        List<Integer> missing = (List<Integer>) result.get("missingShards");
+        Map<String, Integer> totals = (Map<String, Integer>) result.get("totals");
+        Map<String, Long> wallMillis = (Map<String, Long>) result.get("wallMillisPerShard");
+        List<Map<String, Object>> scenarios = (List<Map<String, Object>>) result.get("scenarios");
+        Files.writeString(dir.resolve("merged.json"), JSON.toJson(result), StandardCharsets.UTF_8);
+
+        ScenarioTimings timings = ScenarioTimings.load(timingsFile);
+        scenarios.forEach(scenario -> ShardResultsPlugin.record(timings, scenario));
+        timings.save(timingsFile);
+
+        System.out.printf("Merged %d of %d shards: %d scenarios %s%n", shards.size(), shardCount, scenarios.size(), totals);
+        System.out.printf("Wall clock per shard (ms): %s; makespan %d ms, ideal %d ms%n", wallMillis,
+                result.get("makespanMillis"), result.get("idealMakespanMillis"));
+        System.out.printf("Updated %s (%d scenarios)%n", timingsFile, timings.size());
+        if (!missing.isEmpty()) {
+            System.err.println("Missing results for shard(s) " + missing);
+        }
+        if (failed(totals) || !missing.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Merges the shard results, ordered by shard index, into the content of {@code merged.json}.
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> merge(List<Map<String, Object>> shards) {
+        shards.sort(Comparator.comparingInt(shard -> ((Number) shard.get("shardIndex")).intValue()));
+
+        int shardCount = ((Number) shards.get(0).get("shardCount")).intValue();
+        TreeSet<Integer> missing = new TreeSet<>();
+        for (int i = 0; i < shardCount; i++) {
+            missing.add(i);
+        }
+        List<Map<String, Object>> scenarios = new ArrayList<>();
+        Map<String, Long> wallMillis = new LinkedHashMap<>();
+        for (Map<String, Object> shard : shards) {
+            int index = ((Number) shard.get("shardIndex")).intValue();
+            missing.remove(index);
+            wallMillis.put(String.valueOf(index), ((Number) shard.get("wallMillis")).longValue());
+            for (Map<String, Object> scenario : (List<Map<String, Object>>) shard.get("scenarios")) {
+                Map<String, Object> merged = new LinkedHashMap<>(scenario);
+                merged.put("shard", index);
+                scenarios.add(merged);
+            }
+        }
+        scenarios.sort(Comparator.comparing(scenario -> (String) scenario.get("key")));
+
+        Map<String, Integer> totals = new TreeMap<>();
+        long totalMillis = 0;
+        long longestMillis = 0;
+        for (Map<String, Object> scenario : scenarios) {
+            totals.merge((String) scenario.get("status"), 1, Integer::sum);
+            long millis = ((Number) scenario.get("durationMillis")).longValue();
+            totalMillis += millis;
+            longestMillis = Math.max(longestMillis, millis);
+        }
+        long makespan = wallMillis.values().stream().mapToLong(Long::longValue).max().orElse(0);
+        // no split can finish before the longest scenario or before an even share of the total
+        long idealMakespan = Math.max(longestMillis, totalMillis / shardCount);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("shardCount", shardCount);
+        result.put("missingShards", List.copyOf(missing));
+        result.put("totals", totals);
+        result.put("wallMillisPerShard", wallMillis);
+        result.put("makespanMillis", makespan);
+        result.put("idealMakespanMillis", idealMakespan);
+        result.put("scenarios", scenarios);
+        return result;
+    }
+
+    /**
+     * Returns {@code true} if any scenario ended in a status that fails the run: anything but
+     * {@code PASSED}, {@code SKIPPED} and {@link ShardResultsPlugin#RERUN}. Skipped scenarios do not
+     * fail a Cucumber run either, while undefined, pending and ambiguous ones do.
+     */
+    static boolean failed(Map<String, Integer> totals) {
+        return totals.keySet().stream().anyMatch(status -> !NOT_FAILING.contains(status));
+    }
+}
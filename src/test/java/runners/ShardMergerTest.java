@@ -0,0 +1,67 @@
+package runners;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import plugins.ShardResultsPlugin;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ShardMergerTest {
+
+    private static Map<String, Object> scenario(String key, String status, long millis){
+        Map<String, Object> scenario=new LinkedHashMap<>();
+        scenario.put("key", key);
+        scenario.put("status", status);
+        scenario.put("durationMillis", millis);
+        return scenario;
+    }
+
+    private static Map<String, Object> shard(int index, int count, long wallMillis, List<Map<String, Object>> scenarios){
+        Map<String, Object> shard=new LinkedHashMap<>();
+        shard.put("shardIndex", index);
+        shard.put("shardCount", count);
+        shard.put("wallMillis", wallMillis);
+        shard.put("scenarios", scenarios);
+        return shard;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shardsAreMergedWithTotalsAndMakespan(){
+        List<Map<String, Object>> shards=new ArrayList<>(List.of(
+                shard(1, 2, 900, List.of(scenario("b:1", "PASSED", 500), scenario("c:1", "FAILED", 300))),
+                shard(0, 2, 700, List.of(scenario("a:1", "PASSED", 600)))));
+
+        Map<String, Object> merged=ShardMerger.merge(shards);
+
+        Assert.assertEquals(merged.get("missingShards"), List.of());
+        Assert.assertEquals(merged.get("totals"), Map.of("PASSED", 2, "FAILED", 1));
+        Assert.assertEquals(merged.get("makespanMillis"), 900L);
+        Assert.assertEquals(merged.get("idealMakespanMillis"), 700L);
+        List<Map<String, Object>> scenarios=(List<Map<String, Object>>) merged.get("scenarios");
+        Assert.assertEquals(scenarios.stream().map(s -> s.get("key")).toList(), List.of("a:1", "b:1", "c:1"));
+        Assert.assertEquals(scenarios.get(0).get("shard"), 0);
+    }
+
+    @Test
+    public void missingShardsAreReported(){
+        List<Map<String, Object>> shards=new ArrayList<>(List.of(shard(2, 3, 100, List.of())));
+
+        Assert.assertEquals(ShardMerger.merge(shards).get("missingShards"), List.of(0, 1));
+    }
+
+    @Test
+    public void skippedScenariosAndRerunAttemptsDoNotFailTheMerge(){
+        Assert.assertFalse(ShardMerger.failed(Map.of("PASSED", 3, "SKIPPED", 1, ShardResultsPlugin.RERUN, 2)));
+    }
+
+    @Test
+    public void failedUndefinedOrPendingScenariosFailTheMerge(){
+        Assert.assertTrue(ShardMerger.failed(Map.of("PASSED", 3, "FAILED", 1)));
+        Assert.assertTrue(ShardMerger.failed(Map.of("UNDEFINED", 1)));
+        Assert.assertTrue(ShardMerger.failed(Map.of("PENDING", 1)));
+    }
+}
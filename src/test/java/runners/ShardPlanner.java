@@ -0,0 +1,118 @@
+package runners;
+
+import io.cucumber.testng.Pickle;
+import io.cucumber.testng.PickleWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Splits the scenarios of a run into duration-balanced shards.
+ * <p>
+ * Uses longest-processing-time-first bin packing: scenarios are sorted by expected duration,
+ * longest first, and each is assigned to the shard with the smallest total so far. The result is
+ * never worse than 4/3 of the optimal makespan, and in practice within a few percent of it.
+ * <p>
+ * Expected durations come from {@link ScenarioTimings}. A scenario without history is estimated
+ * at the median of the known durations, or {@code 1} when there is no history at all, which
+ * degrades to an even split by count.
+ * <p>
+ * The plan depends only on the scenario keys and the timing file, so every shard computes the
+ * same plan independently and each scenario runs on exactly one shard.
+ */
+public final class ShardPlanner {
+    private static final Logger logger = LoggerFactory.getLogger(ShardPlanner.class);
+
+    /**
+     * The shards of a run.
+     *
+     * @param shards    scenario rows assigned to each shard
+     * @param loads     expected duration of each shard, in milliseconds
+     * @param estimated number of scenarios placed by estimate because they have no history
+     */
+    public record Plan(List<List<Object[]>> shards, double[] loads, int estimated) {
+
+        /**
+         * Expected wall-clock time of the run, set by the most loaded shard.
+         */
+        public double makespan() {
+            return Arrays.stream(loads).max().orElse(0);
+        }
+    }
+
+    private record Task(Object[] row, String key, double millis) {
+    }
+
+    private ShardPlanner() {
+    }
+
+    /**
+     * Plans {@code shardCount} shards over the rows returned by {@code AbstractTestNGCucumberTests.scenarios()}.
+     */
+    public static Plan plan(Object[][] scenarios, ScenarioTimings timings, int shardCount) {
+        return plan(scenarios, ShardPlanner::key, timings, shardCount);
+    }
+
+    /**
+     * Plans {@code shardCount} shards over rows whose timing keys are given by {@code key}.
+     */
+    static Plan plan(Object[][] scenarios, Function<Object[], String> key, ScenarioTimings timings, int shardCount) {
+        double estimate = timings.size() > 0 ? timings.median() : 1;
+        int estimated = 0;
+        List<Task> tasks = new ArrayList<>(scenarios.length);
+        for (Object[] row : scenarios) {
+            String rowKey = key.apply(row);
+            Double millis = timings.millis(rowKey);
+            if (millis == null) {
+                estimated++;
+            }
+            tasks.add(new Task(row, rowKey, millis != null ? millis : estimate));
+        }
+        // the key breaks ties so that every machine sorts identically
+        tasks.sort(Comparator.comparingDouble(Task::millis).reversed().thenComparing(Task::key));
+
+        List<List<Object[]>> shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new ArrayList<>());
+        }
+        double[] loads = new double[shardCount];
+        for (Task task : tasks) {
+            int target = 0;
+            for (int i = 1; i < shardCount; i++) {
+                if (loads[i] < loads[target]) {
+                    target = i;
+                }
+            }
+            shards.get(target).add(task.row());
+            loads[target] += task.millis();
+        }
+        return new Plan(shards, loads, estimated);
+    }
+
+    /**
+     * Returns the rows of shard {@code shardIndex} (zero-based) out of {@code shardCount}.
+     *
+     * @throws IllegalArgumentException if the index is outside {@code [0, shardCount)}
+     */
+    public static Object[][] select(Object[][] scenarios, ScenarioTimings timings, int shardIndex, int shardCount) {
+        if (shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IllegalArgumentException("shardIndex must be between 0 and " + (shardCount - 1) + " but was " + shardIndex);
+        }
+        Plan plan = plan(scenarios, timings, shardCount);
+        List<Object[]> shard = plan.shards().get(shardIndex);
+        logger.info("Shard {}/{}: {} of {} scenarios, expected {} ms (makespan {} ms, {} scenarios without history)",
+                shardIndex, shardCount, shard.size(), scenarios.length,
+                Math.round(plan.loads()[shardIndex]), Math.round(plan.makespan()), plan.estimated());
+        return shard.toArray(new Object[0][]);
+    }
+
+    static String key(Object[] row) {
+        Pickle pickle = ((PickleWrapper) row[0]).getPickle();
+        return ScenarioTimings.key(pickle.getUri(), pickle.getLine());
+    }
+}
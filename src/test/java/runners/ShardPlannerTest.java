@@ -0,0 +1,99 @@
+package runners;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class ShardPlannerTest {
+
+    private static ScenarioTimings timings(Object... keysAndMillis) throws IOException {
+        ScenarioTimings timings=ScenarioTimings.load(Files.createTempDirectory("shards").resolve("timings.json"));
+        for(int i=0; i<keysAndMillis.length; i+=2){
+            timings.record((String) keysAndMillis[i], ((Number) keysAndMillis[i + 1]).doubleValue());
+        }
+        return timings;
+    }
+
+    private static Object[][] rows(String... keys){
+        return Arrays.stream(keys).map(key -> new Object[]{key}).toArray(Object[][]::new);
+    }
+
+    private static ShardPlanner.Plan plan(Object[][] rows, ScenarioTimings timings, int shardCount){
+        return ShardPlanner.plan(rows, row -> (String) row[0], timings, shardCount);
+    }
+
+    private static List<String> keys(List<Object[]> shard){
+        return shard.stream().map(row -> (String) row[0]).toList();
+    }
+
+    @Test
+    public void longestScenariosAreSpreadAcrossShards() throws IOException {
+        ScenarioTimings timings=timings("a:1", 80, "b:1", 70, "c:1", 30, "d:1", 20, "e:1", 10, "f:1", 10);
+
+        ShardPlanner.Plan plan=plan(rows("a:1", "b:1", "c:1", "d:1", "e:1", "f:1"), timings, 2);
+
+        Assert.assertEquals(keys(plan.shards().get(0)), List.of("a:1", "d:1", "e:1"));
+        Assert.assertEquals(keys(plan.shards().get(1)), List.of("b:1", "c:1", "f:1"));
+        Assert.assertEquals(plan.loads(), new double[]{110, 110});
+        Assert.assertEquals(plan.makespan(), 110.0);
+    }
+
+    @Test
+    public void everyScenarioRunsOnExactlyOneShard() throws IOException {
+        ScenarioTimings timings=timings("s:0", 5, "s:3", 40, "s:7", 12);
+        String[] keys=new String[20];
+        for(int i=0; i<keys.length; i++){
+            keys[i]="s:" + i;
+        }
+
+        ShardPlanner.Plan plan=plan(rows(keys), timings, 3);
+
+        List<String> planned=new ArrayList<>();
+        plan.shards().forEach(shard -> planned.addAll(keys(shard)));
+        Assert.assertEquals(planned.size(), keys.length);
+        Assert.assertEquals(new HashSet<>(planned), Set.of(keys));
+        Assert.assertEquals(plan.estimated(), 17);
+    }
+
+    @Test
+    public void scenariosWithoutHistoryAreEstimatedAtTheMedian() throws IOException {
+        ScenarioTimings timings=timings("a:1", 10, "b:1", 30, "c:1", 50);
+
+        ShardPlanner.Plan plan=plan(rows("a:1", "b:1", "c:1", "new:1"), timings, 2);
+
+        Assert.assertEquals(plan.estimated(), 1);
+        Assert.assertEquals(Arrays.stream(plan.loads()).sum(), 10 + 30 + 50 + 30.0);
+    }
+
+    @Test
+    public void withoutHistoryShardsAreSplitEvenlyByCount() throws IOException {
+        ShardPlanner.Plan plan=plan(rows("a:1", "b:1", "c:1", "d:1", "e:1"), timings(), 2);
+
+        Assert.assertEquals(plan.shards().get(0).size(), 3);
+        Assert.assertEquals(plan.shards().get(1).size(), 2);
+    }
+
+    @Test
+    public void planDoesNotDependOnTheOrderOfTheScenarios() throws IOException {
+        ScenarioTimings timings=timings("a:1", 20, "b:1", 20, "c:1", 20, "d:1", 5);
+
+        ShardPlanner.Plan forward=plan(rows("a:1", "b:1", "c:1", "d:1"), timings, 2);
+        ShardPlanner.Plan backward=plan(rows("d:1", "c:1", "b:1", "a:1"), timings, 2);
+
+        for(int i=0; i<2; i++){
+            Assert.assertEquals(keys(backward.shards().get(i)), keys(forward.shards().get(i)));
+        }
+    }
+
+    @Test(expectedExceptions=IllegalArgumentException.class)
+    public void shardIndexOutsideTheShardCountIsRejected() throws IOException {
+        ShardPlanner.select(new Object[0][], timings(), 2, 2);
+    }
+}
@@ -0,0 +1,513 @@
+package runners;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.LineMap;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreeScanner;
+import com.sun.source.util.Trees;
+import io.cucumber.tagexpressions.TagExpressionParser;
+import io.cucumber.testng.Pickle;
+import io.cucumber.testng.PickleWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pages.BasePage;
+import utils.ConfigReader;
+import utils.GlueIndex;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Change-based test selection: runs only the scenarios that a change can affect.
+ * <p>
+ * With {@code impact.select=true} the files changed since each scenario was recorded in the
+ * {@link ImpactMap} ({@code git diff} against the commit of its entry, uncommitted and untracked files
+ * included) are mapped to what they define:
+ * <ul>
+ *     <li>a page object: the methods whose lines changed, the methods reading a changed field (such
+ *     as a {@code By} constant), and any locator literal on a changed line, old or new value;</li>
+ *     <li>a glue class: the step definition and hook methods whose lines changed; a change to any
+ *     other method of the class counts for the whole class;</li>
+ *     <li>a feature file: all of its scenarios.</li>
+ * </ul>
+ * A scenario runs if it used any of these according to the map, if the map has no entry for it
+ * (it is new), or if it has one of the {@code impact.alwaysRunTags}. A changed hook also runs every
+ * scenario its tag expression matches, since a new or retagged hook was not recorded for them; an
+ * untagged hook matches every scenario. Hooks are classified from the glue index. Changes to files matching
+ * {@code impact.ignore} (documentation, benchmarks, history files by default) are ignored; comment-only
+ * lines are ignored too.
+ * <p>
+ * Anything else (the page and runner infrastructure, {@code @BeforeAll}/{@code @AfterAll} hooks,
+ * utilities, configuration, data files, the build) can affect any scenario, so a change to it runs every scenario, falling back to the
+ * full suite. So do entries recorded more than {@code impact.maxAgeDays} ago or on a commit that is
+ * not in the current history, a missing map, and git being unavailable.
+ */
+public final class TestImpact {
+    private static final Logger logger = LoggerFactory.getLogger(TestImpact.class);
+
+    private static final Pattern HUNK = Pattern.compile("^@@ -\\d+(?:,\\d+)? \\+(\\d+)(?:,(\\d+))? @@");
+    private static final Pattern LOCATOR = Pattern.compile(
+            "By\\.(id|name|className|cssSelector|xpath|tagName|linkText|partialLinkText)\\(\\s*\"((?:[^\"\\\\]|\\\\.)*)\"\\s*\\)");
+    private static final List<String> SOURCE_ROOTS = List.of("src/main/java/", "src/test/java/");
+
+    /**
+     * What the changed files define.
+     *
+     * @param fullSuite reason to run every scenario recorded on the commit, or {@code null}
+     * @param classes   classes changed as a whole, e.g. deleted or changed outside any method
+     * @param methods   changed methods, as {@code <class>#<method>}
+     * @param locators  locators on changed lines, as {@code By.toString()}
+     * @param features  changed feature files
+     * @param hookTags  tag expressions of the changed hooks; empty for untagged hooks
+     */
+    record Changes(String fullSuite, Set<String> classes, Set<String> methods, Set<String> locators, Set<String> features,
+                   Set<String> hookTags) {
+
+        static Changes full(String reason) {
+            return new Changes(reason, Set.of(), Set.of(), Set.of(), Set.of(), Set.of());
+        }
+
+        static Changes none() {
+            return new Changes(null, new TreeSet<>(), new TreeSet<>(), new TreeSet<>(), new TreeSet<>(), new TreeSet<>());
+        }
+
+        boolean affects(String key, ImpactMap.Entry entry, List<String> tags) {
+            if (features.contains(key.substring(0, key.lastIndexOf(':')))) {
+                return true;
+            }
+            for (String expression : hookTags) {
+                if (expression.isBlank() || TagExpressionParser.parse(expression).evaluate(tags)) {
+                    return true;
+                }
+            }
+            for (String page : entry.pages()) {
+                if (classes.contains(page)) {
+                    return true;
+                }
+            }
+            for (String glue : entry.glue()) {
+                if (methods.contains(glue) || classes.contains(glue.substring(0, glue.indexOf('#')))) {
+                    return true;
+                }
+            }
+            return !Collections.disjoint(entry.methods(), methods) || !Collections.disjoint(entry.locators(), locators);
+        }
+    }
+
+    /** A member of a changed class and the lines it spans. */
+    record Member(String name, boolean method, long startLine, long endLine, Set<String> identifiers) {
+    }
+
+    private TestImpact() {
+    }
+
+    /**
+     * Returns the rows of {@code scenarios} affected by the changes since they were last recorded,
+     * or all of them when selection is off.
+     */
+    public static Object[][] select(Object[][] scenarios) {
+        if (!ConfigReader.getBoolean("impact.select", false)) {
+            return scenarios;
+        }
+        Path mapFile = Path.of(ConfigReader.getProperty("impact.mapFile", "test-history/test-impact.json"));
+        ImpactMap map;
+        try {
+            map = ImpactMap.load(mapFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read test impact map " + mapFile, e);
+        }
+        if (map.size() == 0) {
+            logger.info("Test impact: running all {} scenarios, there is no test impact map yet", scenarios.length);
+            return scenarios;
+        }
+        Set<String> alwaysRunTags = new HashSet<>();
+        for (String tag : ConfigReader.getProperty("impact.alwaysRunTags", "").split(",")) {
+            if (!tag.isBlank()) {
+                alwaysRunTags.add(tag.trim());
+            }
+        }
+        Instant staleBefore = Instant.now().minus(Duration.ofDays(ConfigReader.getInt("impact.maxAgeDays", 30)));
+        Context context = new Context(map);
+        Map<String, Changes> changesByCommit = new HashMap<>();
+        Map<String, Integer> reasons = new TreeMap<>();
+        List<Object[]> selected = new ArrayList<>();
+        for (Object[] row : scenarios) {
+            Pickle pickle = ((PickleWrapper) row[0]).getPickle();
+            String key = ScenarioTimings.key(pickle.getUri(), pickle.getLine());
+            ImpactMap.Entry entry = map.get(key);
+            String reason;
+            if (entry == null) {
+                reason = "not in the map";
+            } else if (entry.commit() == null) {
+                reason = "recorded outside git";
+            } else if (entry.recordedAt().isBefore(staleBefore)) {
+                reason = "recorded too long ago";
+            } else {
+                Changes changes = changesByCommit.computeIfAbsent(entry.commit(), commit -> changes(commit, context));
+                if (changes.fullSuite() != null) {
+                    reason = changes.fullSuite();
+                } else if (changes.affects(key, entry, pickle.getTags())) {
+                    reason = "affected by changes";
+                } else if (pickle.getTags().stream().anyMatch(alwaysRunTags::contains)) {
+                    reason = "always run";
+                } else {
+                    continue;
+                }
+            }
+            reasons.merge(reason, 1, Integer::sum);
+            selected.add(row);
+        }
+        logger.info("Test impact: running {} of {} scenarios {}", selected.size(), scenarios.length, reasons);
+        changesByCommit.forEach((commit, changes) -> logger.debug("Test impact changes since {}: {}", abbreviate(commit), changes));
+        return selected.toArray(Object[][]::new);
+    }
+
+    /**
+     * Returns the commit checked out, or {@code null} outside a git work tree.
+     */
+    public static String headCommit() {
+        List<String> output = git("rev-parse", "HEAD");
+        return output == null || output.isEmpty() ? null : output.get(0);
+    }
+
+    /**
+     * What is needed to map changed files, worked out once per selection.
+     */
+    static final class Context {
+        final ImpactMap map;
+        /** Classes holding step definitions or scenario hooks. */
+        final Set<String> glueClasses = new HashSet<>();
+        /** Glue methods as {@code <class>#<method>}, with the tag expression of hooks and {@code null} for steps. */
+        final Map<String, String> glueMethods = new HashMap<>();
+        final List<PathMatcher> ignored = new ArrayList<>();
+
+        Context(ImpactMap map) {
+            this(map, GlueIndex.read(TestImpact.class.getClassLoader()));
+        }
+
+        Context(ImpactMap map, List<GlueIndex.Entry> index) {
+            this.map = map;
+            classifyGlue(index);
+            for (String glob : ConfigReader.getProperty("impact.ignore", "**.md,src/jmh/**,test-history/**").split(",")) {
+                if (!glob.isBlank()) {
+                    ignored.add(FileSystems.getDefault().getPathMatcher("glob:" + glob.trim()));
+                }
+            }
+        }
+
+        /**
+         * Finds the glue classes and methods in the glue index, or else the recorded glue classes in
+         * the map. Classes with {@code @BeforeAll}/{@code @AfterAll} hooks or glue the index cannot
+         * represent are left out, so a change to them runs everything.
+         */
+        private void classifyGlue(List<GlueIndex.Entry> index) {
+            if (index == null) {
+                map.entries().forEach(entry -> entry.glue().forEach(glue -> glueClasses.add(glue.substring(0, glue.indexOf('#')))));
+                return;
+            }
+            Set<String> global = new HashSet<>();
+            for (GlueIndex.Entry entry : index) {
+                switch (entry.kind()) {
+                    case STEP -> glueMethods.put(entry.className() + "#" + entry.methodName(), null);
+                    case BEFORE, AFTER, BEFORE_STEP, AFTER_STEP -> glueMethods.put(entry.className() + "#" + entry.methodName(), entry.value());
+                    default -> global.add(entry.className());
+                }
+                glueClasses.add(entry.className());
+            }
+            glueClasses.removeAll(global);
+        }
+    }
+
+    /**
+     * Works out what changed since {@code commit}, or why every scenario recorded on it has to run.
+     */
+    private static Changes changes(String commit, Context context) {
+        if (git("merge-base", "--is-ancestor", commit, "HEAD") == null) {
+            return Changes.full("recorded on a commit not in the current history");
+        }
+        List<String> changed = git("diff", "--name-only", "--relative", "--no-renames", commit);
+        List<String> untracked = git("ls-files", "--others", "--exclude-standard");
+        if (changed == null || untracked == null) {
+            return Changes.full("git diff failed");
+        }
+        Set<String> paths = new TreeSet<>(changed);
+        paths.addAll(untracked);
+
+        Changes changes = Changes.none();
+        for (String path : paths) {
+            if (context.ignored.stream().anyMatch(matcher -> matcher.matches(Path.of(path)))) {
+                continue;
+            }
+            if (path.endsWith(".feature")) {
+                changes.features().add(path);
+                continue;
+            }
+            String root = SOURCE_ROOTS.stream().filter(path::startsWith).findFirst().orElse(null);
+            if (root == null || !path.endsWith(".java")) {
+                return Changes.full(path + " changed");
+            }
+            String className = path.substring(root.length(), path.length() - ".java".length()).replace('/', '.');
+            if (!isPageObject(className, context.map) && !context.glueClasses.contains(className)) {
+                return Changes.full(className + " changed");
+            }
+            String reason = javaChanges(commit, Path.of(path), className, untracked.contains(path), changes);
+            if (reason != null) {
+                return Changes.full(reason);
+            }
+        }
+        classifyGlueChanges(changes, context);
+        return changes;
+    }
+
+    /**
+     * Adds the tag expressions of changed hooks to {@code changes}, and counts a changed glue method
+     * that is neither a step definition nor a hook, such as a helper, as a change to its whole class.
+     * A glue class changed as a whole counts as a change to each of its hooks.
+     */
+    static void classifyGlueChanges(Changes changes, Context context) {
+        if (context.glueMethods.isEmpty()) {
+            // no glue index: only the recorded glue methods are known
+            return;
+        }
+        for (String method : changes.methods()) {
+            String className = method.substring(0, method.indexOf('#'));
+            if (!context.glueClasses.contains(className)) {
+                continue;
+            }
+            if (!context.glueMethods.containsKey(method)) {
+                changes.classes().add(className);
+            } else if (context.glueMethods.get(method) != null) {
+                changes.hookTags().add(context.glueMethods.get(method));
+            }
+        }
+        context.glueMethods.forEach((method, tags) -> {
+            if (tags != null && changes.classes().contains(method.substring(0, method.indexOf('#')))) {
+                changes.hookTags().add(tags);
+            }
+        });
+    }
+
+    /**
+     * Adds what changed in one Java file to {@code changes}; returns a reason to run everything if
+     * the diff cannot be mapped.
+     */
+    private static String javaChanges(String commit, Path file, String className, boolean untracked, Changes changes) {
+        if (!Files.exists(file) || untracked) {
+            // deleted, or new and so not used by any recorded scenario yet
+            changes.classes().add(className);
+            return null;
+        }
+        List<String> diff = git("diff", "-U0", "--relative", "--no-renames", commit, "--", file.toString());
+        if (diff == null) {
+            return "git diff of " + file + " failed";
+        }
+        List<Member> members;
+        try {
+            members = members(file, className.substring(className.lastIndexOf('.') + 1));
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Failed to parse {}", file, e);
+            changes.classes().add(className);
+            return null;
+        }
+        if (members == null) {
+            changes.classes().add(className);
+            return null;
+        }
+        mapDiff(diff, members, className, changes);
+        return null;
+    }
+
+    /**
+     * Maps the hunks of a {@code git diff -U0} of one class to the members of its new version.
+     */
+    static void mapDiff(List<String> diff, List<Member> members, String className, Changes changes) {
+        long newLine = 0;
+        long hunkStart = 0;
+        long hunkLength = 0;
+        boolean removedCode = false;
+        List<long[]> regions = new ArrayList<>();
+        for (String line : diff) {
+            Matcher hunk = HUNK.matcher(line);
+            if (hunk.find()) {
+                if (removedCode) {
+                    regions.add(removedRegion(hunkStart, hunkLength));
+                }
+                hunkStart = Long.parseLong(hunk.group(1));
+                hunkLength = hunk.group(2) == null ? 1 : Long.parseLong(hunk.group(2));
+                newLine = hunkStart;
+                removedCode = false;
+            } else if (hunkStart > 0 && (line.startsWith("+") || line.startsWith("-"))) {
+                String content = line.substring(1);
+                Matcher locator = LOCATOR.matcher(content);
+                while (locator.find()) {
+                    changes.locators().add("By." + locator.group(1) + ": " + locator.group(2).replaceAll("\\\\(.)", "$1"));
+                }
+                boolean code = isCode(content);
+                if (line.startsWith("+")) {
+                    if (code) {
+                        regions.add(new long[]{newLine, newLine});
+                    }
+                    newLine++;
+                } else {
+                    removedCode |= code;
+                }
+            }
+        }
+        if (removedCode) {
+            regions.add(removedRegion(hunkStart, hunkLength));
+        }
+
+        for (long[] region : regions) {
+            Member member = members.stream()
+                    .filter(m -> m.startLine() <= region[0] && region[1] <= m.endLine())
+                    .findFirst()
+                    .orElse(null);
+            if (member == null) {
+                changes.classes().add(className);
+            } else if (member.method()) {
+                changes.methods().add(className + "#" + member.name());
+            } else {
+                List<String> readers = members.stream()
+                        .filter(m -> m.method() && m.identifiers().contains(member.name()))
+                        .map(m -> className + "#" + m.name())
+                        .toList();
+                if (readers.isEmpty()) {
+                    changes.classes().add(className);
+                } else {
+                    changes.methods().addAll(readers);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lines of the new file around code that a hunk removed: the replaced lines, or the two lines
+     * either side of a pure deletion.
+     */
+    private static long[] removedRegion(long start, long length) {
+        return length == 0 ? new long[]{start, start + 1} : new long[]{start, start + length - 1};
+    }
+
+    private static boolean isCode(String line) {
+        String trimmed = line.trim();
+        return !(trimmed.isEmpty() || trimmed.startsWith("//") || trimmed.startsWith("/*") || trimmed.startsWith("*"));
+    }
+
+    /**
+     * Parses a source file and returns the methods and fields of its top-level class, or {@code null}
+     * if the class is not found. Nested classes are left out, so changes in them count for the whole class.
+     */
+    static List<Member> members(Path file, String simpleName) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("No Java compiler available to parse " + file);
+        }
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            JavacTask task = (JavacTask) compiler.getTask(null, fileManager, diagnostic -> {
+            }, List.of("-proc:none"), null, fileManager.getJavaFileObjects(file));
+            SourcePositions positions = Trees.instance(task).getSourcePositions();
+            for (CompilationUnitTree unit : task.parse()) {
+                LineMap lines = unit.getLineMap();
+                for (Tree type : unit.getTypeDecls()) {
+                    if (type instanceof ClassTree classTree && classTree.getSimpleName().contentEquals(simpleName)) {
+                        List<Member> members = new ArrayList<>();
+                        for (Tree member : classTree.getMembers()) {
+                            long start = lines.getLineNumber(positions.getStartPosition(unit, member));
+                            long end = lines.getLineNumber(positions.getEndPosition(unit, member));
+                            if (member instanceof MethodTree method) {
+                                members.add(new Member(method.getName().toString(), true, start, end, identifiers(method)));
+                            } else if (member instanceof VariableTree field) {
+                                members.add(new Member(field.getName().toString(), false, start, end, Set.of()));
+                            }
+                        }
+                        return members;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Set<String> identifiers(MethodTree method) {
+        Set<String> names = new HashSet<>();
+        method.accept(new TreeScanner<Void, Void>() {
+            @Override
+            public Void visitIdentifier(IdentifierTree node, Void unused) {
+                names.add(node.getName().toString());
+                return null;
+            }
+
+            @Override
+            public Void visitMemberSelect(MemberSelectTree node, Void unused) {
+                names.add(node.getIdentifier().toString());
+                return super.visitMemberSelect(node, unused);
+            }
+        }, null);
+        return names;
+    }
+
+    private static boolean isPageObject(String className, ImpactMap map) {
+        try {
+            Class<?> type = Class.forName(className, false, TestImpact.class.getClassLoader());
+            return BasePage.class.isAssignableFrom(type) && type != BasePage.class;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return map.entries().stream().anyMatch(entry -> entry.pages().contains(className));
+        }
+    }
+
+
+    /**
+     * Runs git in the working directory and returns its output lines, or {@code null} if it failed.
+     */
+    private static List<String> git(String... args) {
+        List<String> command = new ArrayList<>(args.length + 1);
+        command.add("git");
+        command.addAll(Arrays.asList(args));
+        try {
+            Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+            try (InputStream in = process.getInputStream()) {
+                String output = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                return process.waitFor() == 0 ? output.lines().toList() : null;
+            }
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static String abbreviate(String commit) {
+        return commit == null || commit.length() <= 10 ? commit : commit.substring(0, 10);
+    }
+}
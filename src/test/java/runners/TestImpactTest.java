@@ -0,0 +1,137 @@
+package runners;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import utils.GlueIndex;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+public class TestImpactTest {
+
+    private static final String PAGE=String.join("\n",
+            "package pages;",                                          // 1
+            "",                                                        // 2
+            "public class FooPage {",                                  // 3
+            "    private static final By SAVE = By.id(\"save\");",     // 4
+            "",                                                        // 5
+            "    public void save() {",                                // 6
+            "        click(SAVE);",                                    // 7
+            "    }",                                                   // 8
+            "",                                                        // 9
+            "    public String title() {",                             // 10
+            "        return getText(By.id(\"title\"));",               // 11
+            "    }",                                                   // 12
+            "}",                                                       // 13
+            "");
+
+    private static List<TestImpact.Member> members() throws IOException {
+        Path file=Files.createTempDirectory("impact").resolve("FooPage.java");
+        Files.writeString(file, PAGE);
+        return TestImpact.members(file, "FooPage");
+    }
+
+    private static GlueIndex.Entry glue(GlueIndex.Kind kind, String className, String methodName, String value){
+        return new GlueIndex.Entry(kind, className, methodName, List.of(), List.of(), value, 0, "X.java", 1);
+    }
+
+    private static TestImpact.Context context(List<GlueIndex.Entry> index) throws IOException {
+        return new TestImpact.Context(ImpactMap.load(Files.createTempDirectory("impact").resolve("none.json")), index);
+    }
+
+    private static ImpactMap.Entry entry(Set<String> methods, Set<String> glue){
+        return new ImpactMap.Entry("scenario", "abc", Instant.now(), Set.of("pages.FooPage"), methods, Set.of(), glue);
+    }
+
+    @Test
+    public void changedLineInsideAMethodMapsToThatMethod() throws IOException {
+        TestImpact.Changes changes=TestImpact.Changes.none();
+        TestImpact.mapDiff(List.of("@@ -11 +11 @@", "-        return getText(By.id(\"heading\"));", "+        return getText(By.id(\"title\"));"),
+                members(), "pages.FooPage", changes);
+
+        Assert.assertEquals(changes.methods(), Set.of("pages.FooPage#title"));
+        Assert.assertEquals(changes.locators(), Set.of("By.id: heading", "By.id: title"));
+        Assert.assertTrue(changes.classes().isEmpty());
+    }
+
+    @Test
+    public void changedFieldMapsToTheMethodsReadingIt() throws IOException {
+        TestImpact.Changes changes=TestImpact.Changes.none();
+        TestImpact.mapDiff(List.of("@@ -4 +4 @@", "-    private static final By SAVE = By.id(\"submit\");", "+    private static final By SAVE = By.id(\"save\");"),
+                members(), "pages.FooPage", changes);
+
+        Assert.assertEquals(changes.methods(), Set.of("pages.FooPage#save"));
+        Assert.assertEquals(changes.locators(), Set.of("By.id: submit", "By.id: save"));
+    }
+
+    @Test
+    public void changeOutsideAnyMemberMapsToTheClass() throws IOException {
+        TestImpact.Changes changes=TestImpact.Changes.none();
+        TestImpact.mapDiff(List.of("@@ -3 +3 @@", "-public class FooPage extends BasePage {", "+public class FooPage {"),
+                members(), "pages.FooPage", changes);
+
+        Assert.assertEquals(changes.classes(), Set.of("pages.FooPage"));
+        Assert.assertTrue(changes.methods().isEmpty());
+    }
+
+    @Test
+    public void commentOnlyChangesAreIgnored() throws IOException {
+        TestImpact.Changes changes=TestImpact.Changes.none();
+        TestImpact.mapDiff(List.of("@@ -7,0 +7 @@", "+        // saves the form"), members(), "pages.FooPage", changes);
+
+        Assert.assertTrue(changes.methods().isEmpty());
+        Assert.assertTrue(changes.classes().isEmpty());
+    }
+
+    @Test
+    public void changedHookSelectsTheScenariosItsTagsMatch() throws IOException {
+        TestImpact.Context context=context(List.of(
+                glue(GlueIndex.Kind.STEP, "steps.PerfSteps", "loadsWithin", "the page loads within {int} ms"),
+                glue(GlueIndex.Kind.BEFORE, "steps.PerfSteps", "startTimer", "@Performance")));
+        TestImpact.Changes changes=TestImpact.Changes.none();
+        changes.methods().add("steps.PerfSteps#startTimer");
+        TestImpact.classifyGlueChanges(changes, context);
+
+        ImpactMap.Entry unrelated=entry(Set.of(), Set.of("steps.LoginSteps#login"));
+        Assert.assertEquals(changes.hookTags(), Set.of("@Performance"));
+        Assert.assertTrue(changes.affects("features/perf.feature:3", unrelated, List.of("@Performance")));
+        Assert.assertFalse(changes.affects("features/login.feature:3", unrelated, List.of("@Smoke")));
+    }
+
+    @Test
+    public void changedUntaggedHookSelectsEveryScenario() throws IOException {
+        TestImpact.Context context=context(List.of(glue(GlueIndex.Kind.BEFORE, "hooks.Hooks", "setUp", "")));
+        TestImpact.Changes changes=TestImpact.Changes.none();
+        changes.methods().add("hooks.Hooks#setUp");
+        TestImpact.classifyGlueChanges(changes, context);
+
+        Assert.assertTrue(changes.affects("features/login.feature:3", entry(Set.of(), Set.of()), List.of()));
+    }
+
+    @Test
+    public void changedGlueHelperCountsForTheWholeClassAndItsHooks() throws IOException {
+        TestImpact.Context context=context(List.of(
+                glue(GlueIndex.Kind.STEP, "steps.PerfSteps", "loadsWithin", "the page loads within {int} ms"),
+                glue(GlueIndex.Kind.AFTER, "steps.PerfSteps", "report", "@Performance")));
+        TestImpact.Changes changes=TestImpact.Changes.none();
+        changes.methods().add("steps.PerfSteps#measure");
+        TestImpact.classifyGlueChanges(changes, context);
+
+        Assert.assertEquals(changes.classes(), Set.of("steps.PerfSteps"));
+        Assert.assertEquals(changes.hookTags(), Set.of("@Performance"));
+        Assert.assertTrue(changes.affects("features/perf.feature:3", entry(Set.of(), Set.of("steps.PerfSteps#loadsWithin")), List.of()));
+    }
+
+    @Test
+    public void classesWithBeforeAllHooksAreNotGlueClasses() throws IOException {
+        TestImpact.Context context=context(List.of(
+                glue(GlueIndex.Kind.STEP, "steps.SetupSteps", "ready", "the shop is ready"),
+                glue(GlueIndex.Kind.BEFORE_ALL, "steps.SetupSteps", "startShop", "")));
+
+        Assert.assertFalse(context.glueClasses.contains("steps.SetupSteps"));
+    }
+}
@@ -1,14 +1,183 @@
 package runners;
 
-import io.cucumber.testng.AbstractTestNGCucumberTests;
 import io.cucumber.testng.CucumberOptions;
+import io.cucumber.testng.CucumberPropertiesProvider;
+import io.cucumber.testng.FeatureWrapper;
+import io.cucumber.testng.Pickle;
+import io.cucumber.testng.PickleWrapper;
+import io.cucumber.testng.TestNGCucumberRunner;
+import org.testng.ITestContext;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import plugins.EventStreamPlugin;
+import utils.ConfigReader;
+import utils.GlueIndex;
+import utils.GlueIndexBackend;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Runs the Cucumber scenarios through TestNG, one TestNG test per scenario.
+ * <p>
+ * This is {@code AbstractTestNGCucumberTests} with two scheduling modes, chosen with
+ * {@code scenario.scheduler}:
+ * <ul>
+ *     <li>{@code testng} (default): TestNG's parallel data provider runs each scenario on a platform
+ *     thread, {@code -Dparallel.threads=N} at a time.</li>
+ *     <li>{@code virtual}: every scenario is handed to a {@link ScenarioScheduler} up front and runs on
+ *     a virtual thread; the TestNG test for a scenario only waits for its result. Leave
+ *     {@code parallel.threads} at 1 and size the run with {@code scheduler.maxInFlight} and
+ *     {@code browser.maxLive} instead.</li>
+ * </ul>
+ * Scenarios tagged {@code @data:<file>} run once per row of the file, see {@link DataDrivenRun}.
+ * A failed scenario, or row, is rerun in place up to {@code rerun.attempts} times, see {@link ScenarioRetry}.
+ * With {@code browser.matrix} every scenario runs once per listed browser, see {@link BrowserMatrix}.
+ * With {@code impact.select=true} only the scenarios affected by the changes since the last run are
+ * provided, see {@link TestImpact}.
+ * Results are streamed as they happen by {@link EventStreamPlugin}, which is told how many scenarios
+ * were provided so that it can report progress.
+ * The glue is loaded from the build-time {@link GlueIndex} rather than by scanning the glue packages
+ * unless {@code glue.index=false}, see {@link #withGlueIndex}.
+ */
 @CucumberOptions(
         features = "src/test/resources/features",      // path to feature files
         glue = {"stepDefinitions", "hooks"},                    // package containing step definitions
-        plugin = { "html:target/cucumber-reports.html"} // reports
+        tags = "not @Performance",                      // timing assertions run when selected
+        plugin = { "html:target/cucumber-reports.html",  // reports
+                "plugins.MetricsPlugin",                   // step/scenario latency metrics
+                "plugins.ShardResultsPlugin",              // per-shard results and scenario timings
+                "plugins.LogContextPlugin",                // scenario name in the log context
+                "plugins.TestImpactPlugin",                // pages and steps each scenario uses
+                "plugins.EventStreamPlugin"}               // streamed results and live progress
         //monochrome = true                              // cleaner console output
 )
 
-public class TestRunner extends AbstractTestNGCucumberTests {
+public class TestRunner {
+    private static final Logger logger = LoggerFactory.getLogger(TestRunner.class);
+
+    private TestNGCucumberRunner testNGCucumberRunner;
+    private ScenarioScheduler scheduler;
+    private ScenarioRetry retry;
+
+    @BeforeClass(alwaysRun = true)
+    public void setUpClass(ITestContext context) {
+        testNGCucumberRunner = new TestNGCucumberRunner(getClass(), withGlueIndex(context.getCurrentXmlTest()::getParameter));
+        retry = new ScenarioRetry(testNGCucumberRunner::runScenario);
+    }
+
+    @Test(groups = "cucumber", description = "Runs Cucumber Scenarios", dataProvider = "scenarios")
+    public void runScenario(PickleWrapper pickleWrapper, FeatureWrapper featureWrapper) throws Throwable {
+        BrowserMatrix.nameResult(pickleWrapper);
+        try {
+            if (scheduler != null) {
+                scheduler.await(pickleWrapper);
+            } else {
+                BrowserMatrix.run(pickleWrapper, this::run);
+            }
+        } finally {
+            retry.report(pickleWrapper);
+        }
+    }
+
+    /**
+     * Provides the scenarios to run. Each scenario gets its own thread-confined browser from
+     * {@link utils.DriverFactory}; in {@code testng} mode the number of concurrent scenarios is
+     * controlled by TestNG's {@code dataproviderthreadcount} (set via {@code -Dparallel.threads=N}).
+     * <p>
+     * With {@code -DshardCount=N -DshardIndex=i} only shard {@code i} (zero-based) of a
+     * duration-balanced split is run; see {@link ShardPlanner}. Data-driven scenarios run on every
+     * shard, each over its own partition of the rows.
+     * <p>
+     * With {@code browser.matrix} set, each scenario this shard runs is provided once per browser; see
+     * {@link BrowserMatrix}.
+     */
+    @DataProvider(parallel = true)
+    public Object[][] scenarios() {
+        if (testNGCucumberRunner == null) {
+            return new Object[0][0];
+        }
+        Object[][] scenarios = TestImpact.select(testNGCucumberRunner.provideScenarios());
+        int shardCount = ConfigReader.getInt("shardCount", 1);
+        if (shardCount > 1) {
+            Object[][] dataDriven = Arrays.stream(scenarios).filter(TestRunner::isDataDriven).toArray(Object[][]::new);
+            Object[][] planned = ShardPlanner.select(
+                    Arrays.stream(scenarios).filter(row -> !isDataDriven(row)).toArray(Object[][]::new),
+                    timings(), ConfigReader.getInt("shardIndex", 0), shardCount);
+            scenarios = Stream.concat(Arrays.stream(planned), Arrays.stream(dataDriven)).toArray(Object[][]::new);
+        }
+        scenarios = BrowserMatrix.expand(scenarios);
+        EventStreamPlugin.plan(scenarios.length, (int) Arrays.stream(scenarios).filter(TestRunner::isDataDriven).count());
+        if ("virtual".equalsIgnoreCase(ConfigReader.getProperty("scenario.scheduler", "testng"))) {
+            List<String> priorityTags = Arrays.stream(ConfigReader.getProperty("scheduler.priorityTags", "").split(","))
+                    .map(String::trim)
+                    .filter(tag -> !tag.isEmpty())
+                    .toList();
+            scheduler = new ScenarioScheduler(this::run,
+                    ConfigReader.getInt("scheduler.maxInFlight", 32), priorityTags, timings());
+            scenarios = scheduler.submitAll(scenarios);
+        }
+        return scenarios;
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDownClass() throws InterruptedException {
+        if (scheduler != null) {
+            scheduler.close();
+        }
+        if (testNGCucumberRunner == null) {
+            return;
+        }
+        retry.finish();
+        testNGCucumberRunner.finish();
+    }
+
+    private void run(Pickle pickle) throws Throwable {
+        if (DataDrivenRun.isDataDriven(pickle)) {
+            DataDrivenRun.run(pickle, retry::run);
+        } else {
+            retry.run(pickle);
+        }
+    }
+
+    /**
+     * Points Cucumber at the glue index instead of the {@code @CucumberOptions} glue packages, when
+     * {@code glue.index} is on (the default), the index was generated and it covers all of the glue.
+     * A {@code cucumber.glue} given explicitly still wins.
+     */
+    static CucumberPropertiesProvider withGlueIndex(CucumberPropertiesProvider properties) {
+        if (!ConfigReader.getBoolean("glue.index", true)) {
+            return properties;
+        }
+        String unusable = GlueIndexBackend.unusableReason(Thread.currentThread().getContextClassLoader());
+        if (unusable != null) {
+            logger.info("Not using the glue index, {}; scanning the glue packages", unusable);
+            return properties;
+        }
+        return key -> {
+            String value = properties.get(key);
+            return value == null && "cucumber.glue".equals(key) ? GlueIndex.GLUE_PACKAGE : value;
+        };
+    }
+
+    private static boolean isDataDriven(Object[] row) {
+        return DataDrivenRun.isDataDriven(((PickleWrapper) row[0]).getPickle());
+    }
+
+    private static ScenarioTimings timings() {
+        Path timingsFile = Path.of(ConfigReader.getProperty("shard.timingsFile", "test-history/scenario-timings.json"));
+        try {
+            return ScenarioTimings.load(timingsFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read scenario timings " + timingsFile, e);
+        }
+    }
 }
@@ -0,0 +1,21 @@
+package runners;
+
+/**
+ * One simulated user of a load run, see {@link LoadRunner}. Each virtual user runs on its own
+ * thread and is used by that thread only.
+ */
+interface VirtualUser extends AutoCloseable {
+
+    /**
+     * Runs one iteration of the user's flow, timing each step with {@link LoadReport#step}.
+     *
+     * @throws Exception if the iteration failed
+     */
+    void iterate(LoadReport report) throws Exception;
+
+    /**
+     * Releases what the user holds, e.g. its browser.
+     */
+    @Override
+    void close();
+}
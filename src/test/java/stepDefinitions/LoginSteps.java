@@ -7,11 +7,18 @@ import io.cucumber.java.en.When;
 import org.openqa.selenium.WebDriver;
 import org.testng.Assert;
 import pages.LoginPage;
+import pages.Pages;
 import pages.ProductsPage;
 import utils.ConfigReader;
+import utils.DataRow;
 import utils.DriverFactory;
+import utils.SessionCache;
 
 public class LoginSteps {
+    /** A row of a login data file, e.g. {@code data/login-errors.csv}. */
+    record LoginAttempt(String username, String password, String expectedError) {
+    }
+
     WebDriver driver;
     LoginPage loginPage;
     ProductsPage productsPage;
@@ -19,12 +26,24 @@ public class LoginSteps {
     @Given("I am on the SauceDemo login page")
     public void i_am_on_the_sauce_demo_login_page() {
         driver = DriverFactory.getDriver();
-        loginPage = new LoginPage(driver);
+        loginPage = Pages.of(driver).get(LoginPage.class);
         String url = ConfigReader.getProperty("url");
         driver.get(url);
+        Pages.of(driver).navigated();
         Assert.assertEquals(driver.getCurrentUrl(), url);
     }
 
+    @Given("I am logged in as {word}")
+    public void iAmLoggedInAs(String username) {
+        driver = DriverFactory.getDriver();
+        String password = ConfigReader.getProperty(username + ".password", ConfigReader.getProperty("password"));
+        SessionCache.loginAs(driver, username,
+                d -> {
+                    d.get(ConfigReader.getProperty("url"));
+                    Pages.of(d).get(LoginPage.class).enterUsername(username).enterPassword(password).clickLoginButton();
+                },
+                d -> Pages.of(d).get(ProductsPage.class).isLoaded());
+    }
 
     @When("I enter username and password")
     public void iEnterUsernameAndPassword() {
@@ -34,13 +53,13 @@ public class LoginSteps {
 
     @And("I click on the submit button")
     public void iClickOnTheSubmitButton() {
-        loginPage.clickLoginButton();
+        productsPage = loginPage.clickLoginButton();
     }
 
     @Then("I should see the Products page")
     public void iShouldSeeTheProductsPage() {
-        productsPage = new ProductsPage(driver);
-        Assert.assertEquals(productsPage.getTitleText(), "Product", "Page title mismatch!");
+        productsPage = Pages.of(driver).get(ProductsPage.class);
+        Assert.assertEquals(productsPage.getTitleText(), "Products", "Page title mismatch!");
     }
 
 
@@ -60,4 +79,15 @@ public class LoginSteps {
         String password = passwordKey.trim().isEmpty() ? "" : ConfigReader.getProperty("password");
         loginPage.enterUsername(username).enterPassword(password);
     }
+
+    @When("the user enters the credentials from the data row")
+    public void theUserEntersTheCredentialsFromTheDataRow() {
+        LoginAttempt attempt = DataRow.current().as(LoginAttempt.class);
+        loginPage.enterUsername(attempt.username()).enterPassword(attempt.password());
+    }
+
+    @Then("the error message from the data row should be displayed")
+    public void theErrorMessageFromTheDataRowShouldBeDisplayed() {
+        anErrorMessageShouldBeDisplayed(DataRow.current().as(LoginAttempt.class).expectedError());
+    }
 }
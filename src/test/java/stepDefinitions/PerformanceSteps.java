@@ -0,0 +1,55 @@
+package stepDefinitions;
+
+import io.cucumber.java.Before;
+import io.cucumber.java.Scenario;
+import io.cucumber.java.en.Then;
+import org.testng.Assert;
+import pages.PagePerformance;
+import pages.Pages;
+import pages.ProductsPage;
+import utils.DriverFactory;
+import utils.PerformanceHistory;
+
+import java.util.List;
+
+/**
+ * Page performance assertions. The Products page is measured once per scenario, on the first
+ * assertion; the snapshot is logged to the scenario in the report and recorded in
+ * {@link PerformanceHistory}.
+ * <p>
+ * {@code @Performance} scenarios time a real page load and are left out of the default run, see
+ * {@code runners.TestRunner}.
+ */
+public class PerformanceSteps {
+
+    Scenario scenario;
+    PagePerformance.Snapshot productsPage;
+
+    @Before
+    public void rememberScenario(Scenario scenario) {
+        this.scenario = scenario;
+    }
+
+    @Then("the Products page should load within {int} ms")
+    public void theProductsPageShouldLoadWithin(int budgetMillis) {
+        PagePerformance.Snapshot snapshot = productsPage();
+        Assert.assertNotNull(snapshot.loadMillis(), "Products page load time is not available");
+        Assert.assertTrue(snapshot.loadMillis() <= budgetMillis,
+                "Products page loaded in " + Math.round(snapshot.loadMillis()) + " ms, budget " + budgetMillis + " ms");
+    }
+
+    @Then("the Products page should meet its performance budgets")
+    public void theProductsPageShouldMeetItsPerformanceBudgets() {
+        List<String> exceeded = productsPage().exceededBudgets();
+        Assert.assertTrue(exceeded.isEmpty(), "Performance budgets exceeded: " + exceeded);
+    }
+
+    private PagePerformance.Snapshot productsPage() {
+        if (productsPage == null) {
+            productsPage = Pages.of(DriverFactory.getDriver()).get(ProductsPage.class).measureLoad();
+            scenario.log(productsPage.toString());
+            PerformanceHistory.record(productsPage.page(), productsPage.metrics());
+        }
+        return productsPage;
+    }
+}
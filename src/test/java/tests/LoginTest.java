@@ -15,7 +15,7 @@ public class LoginTest extends baseTest {
         String password=ConfigReader.getProperty("password");
         LoginPage loginPage=new LoginPage(driver);
         ProductsPage productsPage=new ProductsPage(driver);
-        driver.get("https://www.saucedemo.com/");
+        driver.get(ConfigReader.getProperty("url"));
         loginPage.enterUsername(username);
         loginPage.enterPassword(password);
         loginPage.clickLoginButton();
@@ -0,0 +1,71 @@
+package utils;
+
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.remote.AbstractDriverOptions;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+public class BrowserOptionsTest {
+
+    private static final BrowserProfile PROFILE=new BrowserProfile("test", true, PageLoadStrategy.EAGER, List.of());
+
+    @AfterMethod(alwaysRun = true)
+    public void clearCapabilities(){
+        System.clearProperty("browser.firefox.capabilities");
+    }
+
+    @Test
+    public void edgeAliasesAreNormalized(){
+        Assert.assertEquals(BrowserOptions.normalize("msedge"), "edge");
+        Assert.assertEquals(BrowserOptions.normalize(" MicrosoftEdge "), "edge");
+        Assert.assertEquals(BrowserOptions.normalize("Edge"), "edge");
+        Assert.assertEquals(BrowserOptions.normalize("CHROME"), "chrome");
+    }
+
+    @Test
+    public void unsupportedBrowserNamesTheSupportedOnes(){
+        try {
+            BrowserOptions.normalize("safari");
+            Assert.fail("safari is not supported");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals(e.getMessage(), "Browser not supported: safari; use one of [chrome, edge, firefox]");
+        }
+    }
+
+    @Test
+    public void onlyFirefoxIsNotChromium(){
+        Assert.assertTrue(BrowserOptions.isChromium("chrome"));
+        Assert.assertTrue(BrowserOptions.isChromium("msedge"));
+        Assert.assertFalse(BrowserOptions.isChromium("firefox"));
+    }
+
+    @Test
+    public void capabilitiesAreParsedIntoTypedValues(){
+        System.setProperty("browser.firefox.capabilities", "acceptInsecureCerts=true, framework:retries = 3 ,framework:label=a=b,,framework:off=FALSE");
+
+        AbstractDriverOptions<?> options=BrowserOptions.of("firefox", PROFILE);
+
+        Assert.assertEquals(options.getCapability("acceptInsecureCerts"), Boolean.TRUE);
+        Assert.assertEquals(options.getCapability("framework:retries"), 3);
+        Assert.assertEquals(options.getCapability("framework:label"), "a=b");
+        Assert.assertEquals(options.getCapability("framework:off"), Boolean.FALSE);
+        Assert.assertEquals(options.getCapability("pageLoadStrategy"), PageLoadStrategy.EAGER);
+    }
+
+    @Test
+    public void malformedCapabilityPairFails(){
+        System.setProperty("browser.firefox.capabilities", "acceptInsecureCerts=true,=true");
+
+        try {
+            BrowserOptions.of("firefox", PROFILE);
+            Assert.fail("a pair without a name is rejected");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals(e.getMessage(), "Property 'browser.firefox.capabilities' entry is not name=value: =true");
+        }
+        System.setProperty("browser.firefox.capabilities", "acceptInsecureCerts");
+        Assert.assertThrows(IllegalArgumentException.class, () -> BrowserOptions.of("firefox", PROFILE));
+    }
+}
@@ -0,0 +1,115 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DataSourceTest {
+
+    private static Path file(String name, String content) throws IOException {
+        Path file=Files.createTempDirectory("data").resolve(name);
+        Files.writeString(file, content);
+        return file;
+    }
+
+    private static List<DataRow> rows(Path file, int partition, int partitions) throws IOException {
+        List<DataRow> rows=new ArrayList<>();
+        try(DataSource source=DataSource.open(file, partition, partitions)){
+            source.forEachRemaining(rows::add);
+        }
+        return rows;
+    }
+
+    private static List<DataRow> rows(Path file) throws IOException {
+        return rows(file, 0, 1);
+    }
+
+    @Test
+    public void csvRowsAreKeyedByTheHeader() throws IOException {
+        List<DataRow> rows=rows(file("users.csv", "username,password\nstandard_user,secret\nlocked_out_user,secret\n"));
+
+        Assert.assertEquals(rows.size(), 2);
+        Assert.assertEquals(rows.get(1).get("username"), "locked_out_user");
+        Assert.assertEquals(rows.get(1).index(), 2);
+        Assert.assertEquals(rows.get(1).source(), "users.csv");
+    }
+
+    @Test
+    public void quotedFieldsKeepCommasQuotesAndLineBreaks() throws IOException {
+        List<DataRow> rows=rows(file("notes.csv", "name,note\n\"Doe, Jane\",\"said \"\"hi\"\"\nand left\"\n"));
+
+        Assert.assertEquals(rows.get(0).get("name"), "Doe, Jane");
+        Assert.assertEquals(rows.get(0).get("note"), "said \"hi\"\nand left");
+    }
+
+    @Test
+    public void blankLinesAndCarriageReturnsAreIgnored() throws IOException {
+        List<DataRow> rows=rows(file("users.csv", "username,password\r\n\r\nstandard_user,secret\r\n\n"));
+
+        Assert.assertEquals(rows.size(), 1);
+        Assert.assertEquals(rows.get(0).get("password"), "secret");
+    }
+
+    @Test
+    public void emptyFieldsAreEmptyStrings() throws IOException {
+        List<DataRow> rows=rows(file("users.csv", "username,password\nstandard_user,\n"));
+
+        Assert.assertEquals(rows.get(0).get("password"), "");
+    }
+
+    @Test
+    public void lastRecordWithoutNewlineIsRead() throws IOException {
+        Assert.assertEquals(rows(file("users.csv", "username\na\nb")).size(), 2);
+    }
+
+    @Test
+    public void rowWithTheWrongNumberOfFieldsNamesItsLine() throws IOException {
+        Path file=file("users.csv", "username,password\nstandard_user,secret\nproblem_user\n");
+
+        IllegalArgumentException e=Assert.expectThrows(IllegalArgumentException.class, () -> rows(file));
+        Assert.assertTrue(e.getMessage().contains("line 3"), e.getMessage());
+    }
+
+    @Test(expectedExceptions=IllegalArgumentException.class, expectedExceptionsMessageRegExp=".*unterminated quoted field.*")
+    public void unterminatedQuoteIsRejected() throws IOException {
+        rows(file("users.csv", "username\n\"standard_user\n"));
+    }
+
+    @Test(expectedExceptions=IllegalArgumentException.class, expectedExceptionsMessageRegExp=".*needs a header.*")
+    public void emptyCsvIsRejected() throws IOException {
+        DataSource.open(file("users.csv", ""));
+    }
+
+    @Test(expectedExceptions=IllegalArgumentException.class, expectedExceptionsMessageRegExp="Unsupported data file.*")
+    public void unknownExtensionIsRejected() throws IOException {
+        DataSource.open(file("users.txt", "username\n"));
+    }
+
+    @Test
+    public void partitionsSplitTheRowsWithoutOverlap() throws IOException {
+        Path file=file("numbers.csv", "n\n1\n2\n3\n4\n5\n");
+
+        Assert.assertEquals(rows(file, 0, 2).stream().map(row -> row.get("n")).toList(), List.of("1", "3", "5"));
+        Assert.assertEquals(rows(file, 1, 2).stream().map(row -> row.get("n")).toList(), List.of("2", "4"));
+        Assert.assertEquals(rows(file, 1, 2).get(0).index(), 2);
+    }
+
+    @Test
+    public void jsonLinesKeepTheirKeysAndSkipBlankLines() throws IOException {
+        List<DataRow> rows=rows(file("users.jsonl", "{\"username\": \"standard_user\", \"attempts\": 3}\n\n{\"username\": \"problem_user\", \"attempts\": 1}\n"));
+
+        Assert.assertEquals(rows.size(), 2);
+        Assert.assertEquals(rows.get(0).get("attempts"), "3");
+        Assert.assertEquals(rows.get(1).get("username"), "problem_user");
+    }
+
+    @Test(expectedExceptions=IllegalArgumentException.class, expectedExceptionsMessageRegExp=".*line 2 is not a JSON object")
+    public void invalidJsonLineIsRejectedWithItsLine() throws IOException {
+        rows(file("users.jsonl", "{\"username\": \"standard_user\"}\nnot json\n"));
+    }
+}
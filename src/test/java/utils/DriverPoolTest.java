@@ -0,0 +1,70 @@
+package utils;
+
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DriverPoolTest {
+
+    /** Driver that only counts quit() calls and reports one open window. */
+    private static WebDriver driver(AtomicInteger quits){
+        return (WebDriver) Proxy.newProxyInstance(WebDriver.class.getClassLoader(), new Class<?>[]{WebDriver.class},
+                (proxy, method, args) -> switch(method.getName()){
+                    case "quit" -> {
+                        quits.incrementAndGet();
+                        yield null;
+                    }
+                    case "getWindowHandles" -> Set.of("main");
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy==args[0];
+                    case "toString" -> "stub driver";
+                    default -> null;
+                });
+    }
+
+    @Test
+    public void sessionPrewarmedAfterCloseIsQuit() throws InterruptedException {
+        AtomicInteger quits=new AtomicInteger();
+        CountDownLatch launching=new CountDownLatch(1);
+        CountDownLatch closed=new CountDownLatch(1);
+        DriverPool pool=new DriverPool("stub", () -> {
+            launching.countDown();
+            try {
+                closed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return driver(quits);
+        }, 1, 5, Duration.ofSeconds(1));
+
+        pool.prewarm(1);
+        Assert.assertTrue(launching.await(5, TimeUnit.SECONDS));
+        pool.close();
+        closed.countDown();
+
+        long deadline=System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(quits.get()==0 && System.nanoTime()<deadline){
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(quits.get(), 1, "the late prewarmed session is quit, not left idle");
+    }
+
+    @Test
+    public void sessionCheckedInAfterCloseIsQuit(){
+        AtomicInteger quits=new AtomicInteger();
+        DriverPool pool=new DriverPool("stub", () -> driver(quits), 1, 5, Duration.ofSeconds(1));
+        WebDriver session=pool.checkout();
+
+        pool.close();
+        pool.checkin(session);
+
+        Assert.assertEquals(quits.get(), 1);
+    }
+}
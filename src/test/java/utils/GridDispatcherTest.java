@@ -0,0 +1,161 @@
+package utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openqa.selenium.MutableCapabilities;
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class GridDispatcherTest {
+
+    private HttpServer grid;
+    private final AtomicInteger statusReads=new AtomicInteger();
+
+    @AfterMethod(alwaysRun = true)
+    public void stopGrid(){
+        if(grid!=null){
+            grid.stop(0);
+        }
+        System.clearProperty("grid.statusCacheMillis");
+        System.clearProperty("grid.queueTimeoutSeconds");
+    }
+
+    /** Starts a stand-in Grid that answers {@code /status} with {@code status} and creates every session asked for. */
+    private GridDispatcher dispatcherFor(String status) throws IOException {
+        statusReads.set(0);
+        grid=HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        grid.createContext("/status", exchange -> {
+            statusReads.incrementAndGet();
+            respond(exchange, status);
+        });
+        AtomicInteger sessions=new AtomicInteger();
+        grid.createContext("/session", exchange -> respond(exchange, "POST".equals(exchange.getRequestMethod())
+                ? "{\"value\":{\"sessionId\":\"s" + sessions.incrementAndGet() + "\",\"capabilities\":{}}}"
+                : "{\"value\":null}"));
+        grid.setExecutor(Executors.newCachedThreadPool());
+        grid.start();
+        return new GridDispatcher(List.of(URI.create("http://localhost:" + grid.getAddress().getPort()).toURL()));
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes=body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    private static MutableCapabilities browser(String name){
+        MutableCapabilities capabilities=new MutableCapabilities();
+        capabilities.setCapability("browserName", name);
+        return capabilities;
+    }
+
+    private static String status(String... nodes){
+        return "{\"value\":{\"ready\":true,\"message\":\"Selenium Grid ready.\",\"nodes\":[" + String.join(",", nodes) + "]}}";
+    }
+
+    private static String node(String uri, String availability, int maxSessions, String... slots){
+        return "{\"id\":\"" + uri + "\",\"uri\":\"" + uri + "\",\"availability\":\"" + availability + "\",\"maxSessions\":"
+                + maxSessions + ",\"slots\":[" + String.join(",", slots) + "]}";
+    }
+
+    private static String slot(String browserName, boolean busy){
+        return "{\"id\":{\"hostId\":\"h\",\"id\":\"s\"},\"session\":" + (busy ? "{\"sessionId\":\"1\"}" : "null")
+                + ",\"stereotype\":{\"browserName\":\"" + browserName + "\",\"platformName\":\"linux\"}}";
+    }
+
+    @Test
+    public void countsFreeSlotsOfTheRequestedBrowser(){
+        String body=status(node("http://node-a:5555", "UP", 4,
+                slot("chrome", true), slot("chrome", false), slot("chrome", false), slot("firefox", false)));
+
+        List<GridDispatcher.Node> nodes=GridDispatcher.parseStatus(body, "chrome");
+
+        Assert.assertEquals(nodes, List.of(new GridDispatcher.Node("http://node-a:5555", 2, 3)));
+    }
+
+    @Test
+    public void capsFreeSlotsByMaxSessionsAcrossBrowsers(){
+        // one session of another browser already takes one of the node's two sessions
+        String body=status(node("http://node-a:5555", "UP", 2,
+                slot("firefox", true), slot("chrome", false), slot("chrome", false)));
+
+        List<GridDispatcher.Node> nodes=GridDispatcher.parseStatus(body, "chrome");
+
+        Assert.assertEquals(nodes, List.of(new GridDispatcher.Node("http://node-a:5555", 1, 2)));
+    }
+
+    @Test
+    public void skipsNodesThatAreDownOrLackTheBrowser(){
+        String body=status(
+                node("http://draining:5555", "DRAINING", 2, slot("chrome", false)),
+                node("http://gecko:5555", "UP", 2, slot("firefox", false)),
+                node("http://up:5555", "UP", 1, slot("chrome", false)));
+
+        List<GridDispatcher.Node> nodes=GridDispatcher.parseStatus(body, "chrome");
+
+        Assert.assertEquals(nodes, List.of(new GridDispatcher.Node("http://up:5555", 1, 1)));
+    }
+
+    @Test
+    public void matchesBrowserNamesIgnoringCase(){
+        String body=status(node("http://edge:5555", "UP", 1, slot("MicrosoftEdge", false)));
+
+        Assert.assertEquals(GridDispatcher.parseStatus(body, "microsoftedge").size(), 1);
+    }
+
+    @Test
+    public void gridWithoutNodesHasNoSlots(){
+        Assert.assertTrue(GridDispatcher.parseStatus("{\"value\":{\"ready\":false}}", "chrome").isEmpty());
+    }
+
+    @Test
+    public void requestWaitingForABusyBrowserDoesNotHoldUpAnother() throws Exception {
+        GridDispatcher dispatcher=dispatcherFor(status(node("http://node-a:5555", "UP", 4,
+                slot("firefox", true), slot("chrome", false))));
+        System.setProperty("grid.queueTimeoutSeconds", "3");
+        ExecutorService executor=Executors.newSingleThreadExecutor();
+        try {
+            Future<WebDriver> firefox=executor.submit(() -> dispatcher.newSession(browser("firefox")));
+            Thread.sleep(300);
+
+            WebDriver chrome=dispatcher.newSession(browser("chrome"));
+
+            Assert.assertNotNull(chrome);
+            Assert.assertFalse(firefox.isDone(), "the firefox request is still waiting for its own slot");
+            chrome.quit();
+            Assert.assertNull(firefox.get(10, TimeUnit.SECONDS), "no firefox slot became free");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void statusIsCachedPerBrowser() throws Exception {
+        System.setProperty("grid.statusCacheMillis", "60000");
+        GridDispatcher dispatcher=dispatcherFor(status(node("http://node-a:5555", "UP", 8,
+                slot("chrome", false), slot("chrome", false), slot("firefox", false), slot("firefox", false))));
+
+        for(int i=0; i<2; i++){
+            Assert.assertNotNull(dispatcher.newSession(browser("chrome")));
+            Assert.assertNotNull(dispatcher.newSession(browser("firefox")));
+        }
+
+        Assert.assertEquals(statusReads.get(), 2, "one status read per browser");
+    }
+}
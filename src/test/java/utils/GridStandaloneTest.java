@@ -0,0 +1,93 @@
+package utils;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dispatches sessions to a real Selenium Grid, by default a standalone server on localhost:
+ * <pre>
+ *   java -jar selenium-server-4.25.0.jar standalone --max-sessions 2
+ *   mvn test -P grid [-Dgrid.it.url=http://host:4444]
+ * </pre>
+ * Skipped unless {@code grid.urls} names exactly one endpoint, as the {@code grid} profile does.
+ */
+public class GridStandaloneTest {
+
+    private String url;
+
+    @BeforeClass
+    public void requireGrid(){
+        url=ConfigReader.getProperty("grid.urls", "");
+        if(url.isEmpty() || url.contains(",")){
+            throw new SkipException("Set grid.urls to one Selenium Grid endpoint, e.g. mvn test -P grid");
+        }
+        System.setProperty("grid.fallbackLocal", "false");
+    }
+
+    @Test
+    public void sessionsQueueForFreeSlotsAndNeverFallBack() throws Exception {
+        GridDispatcher dispatcher=GridDispatcher.configured();
+        int capacity=freeSlots();
+        Assert.assertTrue(capacity>0, "the Grid at " + url + " has no free chrome slot");
+        int requests=capacity + 2;
+        AtomicInteger live=new AtomicInteger();
+        AtomicInteger maxLive=new AtomicInteger();
+
+        ExecutorService threads=Executors.newFixedThreadPool(requests);
+        try {
+            List<Future<String>> sessions=new ArrayList<>();
+            for(int i=0; i<requests; i++){
+                sessions.add(threads.submit(() -> {
+                    WebDriver session=dispatcher.newSession(new ChromeOptions().addArguments("--headless=new"));
+                    Assert.assertNotNull(session, "the dispatcher fell back to a local browser");
+                    try {
+                        maxLive.accumulateAndGet(live.incrementAndGet(), Math::max);
+                        session.get("about:blank");
+                        Thread.sleep(1000);
+                        return session.getClass().getSimpleName();
+                    } finally {
+                        live.decrementAndGet();
+                        session.quit();
+                    }
+                }));
+            }
+            for(Future<String> session : sessions){
+                Assert.assertEquals(session.get(), "GridSession");
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+
+        Assert.assertTrue(maxLive.get()<=capacity,
+                maxLive.get() + " sessions were live at once on " + capacity + " slots");
+        int free=freeSlots();
+        for(int i=0; i<20 && free<capacity; i++){
+            Thread.sleep(500);
+            free=freeSlots();
+        }
+        Assert.assertEquals(free, capacity, "slots were not given back");
+    }
+
+    private int freeSlots() throws IOException, InterruptedException {
+        HttpResponse<String> response=HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(url.replaceAll("/$", "") + "/status")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        return GridDispatcher.parseStatus(response.body(), "chrome").stream().mapToInt(GridDispatcher.Node::free).sum();
+    }
+}
@@ -0,0 +1,109 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogramReportsZero(){
+        LatencyHistogram histogram=new LatencyHistogram();
+
+        Assert.assertEquals(histogram.count(), 0);
+        Assert.assertEquals(histogram.mean(), 0.0);
+        Assert.assertEquals(histogram.percentile(99), 0);
+        Assert.assertTrue(histogram.buckets().isEmpty());
+    }
+
+    @Test
+    public void smallValuesAreExact(){
+        LatencyHistogram histogram=new LatencyHistogram();
+        for(int i=1; i<=10; i++){
+            histogram.record(i);
+        }
+
+        Assert.assertEquals(histogram.percentile(50), 5);
+        Assert.assertEquals(histogram.percentile(90), 9);
+        Assert.assertEquals(histogram.percentile(100), 10);
+        Assert.assertEquals(histogram.mean(), 5.5);
+    }
+
+    @Test
+    public void everyValueFallsInABucketWhoseBoundIsWithinSixPercent(){
+        for(int i=0; i<10_000; i++){
+            long value=ThreadLocalRandom.current().nextLong(1, 1L << 40);
+            long bound=LatencyHistogram.upperBound(LatencyHistogram.bucketFor(value));
+
+            Assert.assertTrue(bound>=value, value + " above its bucket bound " + bound);
+            Assert.assertTrue(bound - value<=value / 16, value + " too far below its bucket bound " + bound);
+        }
+    }
+
+    @Test
+    public void percentilesAreWithinTheBucketPrecision(){
+        LatencyHistogram histogram=new LatencyHistogram();
+        for(int i=1; i<=100_000; i++){
+            histogram.record(i);
+        }
+
+        Assert.assertEquals(histogram.count(), 100_000);
+        Assert.assertEquals(histogram.percentile(50), 50_000, 50_000 / 16.0);
+        Assert.assertEquals(histogram.percentile(99), 99_000, 99_000 / 16.0);
+        Assert.assertEquals(histogram.percentile(100), 100_000);
+    }
+
+    @Test
+    public void percentileNeverExceedsTheMaximum(){
+        LatencyHistogram histogram=new LatencyHistogram();
+        histogram.record(1_000);
+
+        Assert.assertEquals(histogram.percentile(50), 1_000);
+        Assert.assertEquals(histogram.max(), 1_000);
+    }
+
+    @Test
+    public void negativeValuesAreRecordedAsZero(){
+        LatencyHistogram histogram=new LatencyHistogram();
+        histogram.record(-5);
+
+        Assert.assertEquals(histogram.max(), 0);
+        Assert.assertEquals(histogram.buckets().size(), 1);
+        Assert.assertEquals(histogram.buckets().get(0), new long[]{0, 1});
+    }
+
+    @Test
+    public void bucketsAreAscendingAndCountEveryValue(){
+        LatencyHistogram histogram=new LatencyHistogram();
+        for(long value : new long[]{3, 3, 500, 20_000, 20_100, 7}){
+            histogram.record(value);
+        }
+
+        List<long[]> buckets=histogram.buckets();
+        Assert.assertEquals(buckets.stream().mapToLong(bucket -> bucket[1]).sum(), 6);
+        for(int i=1; i<buckets.size(); i++){
+            Assert.assertTrue(buckets.get(i)[0]>buckets.get(i - 1)[0]);
+        }
+    }
+
+    @Test
+    public void concurrentRecordsAreAllCounted() throws InterruptedException {
+        LatencyHistogram histogram=new LatencyHistogram();
+        Thread[] threads=new Thread[8];
+        for(int i=0; i<threads.length; i++){
+            threads[i]=Thread.ofPlatform().start(() -> {
+                for(int j=0; j<10_000; j++){
+                    histogram.record(j);
+                }
+            });
+        }
+        for(Thread thread : threads){
+            thread.join();
+        }
+
+        Assert.assertEquals(histogram.count(), 80_000);
+        Assert.assertEquals(histogram.max(), 9_999);
+    }
+}
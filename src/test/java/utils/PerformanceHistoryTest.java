@@ -0,0 +1,94 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class PerformanceHistoryTest {
+
+    private Path historyFile;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        historyFile=Files.createTempFile("page-performance", ".jsonl");
+        Files.delete(historyFile);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(historyFile);
+    }
+
+    @Test
+    public void percentileIsNearestRank(){
+        List<Double> sorted=List.of(10.0, 20.0, 30.0, 40.0);
+
+        Assert.assertEquals(PerformanceHistory.percentile(sorted, 50), 20.0);
+        Assert.assertEquals(PerformanceHistory.percentile(sorted, 75), 30.0);
+        Assert.assertEquals(PerformanceHistory.percentile(sorted, 95), 40.0);
+        Assert.assertEquals(PerformanceHistory.percentile(sorted, 0), 10.0);
+        Assert.assertEquals(PerformanceHistory.percentile(List.of(7.0), 75), 7.0);
+    }
+
+    @Test
+    public void baselineIsTheMedianOfEarlierRuns(){
+        List<Map<String, Object>> history=List.of(run(100), run(300), run(200), Map.of("metrics", Map.of()));
+
+        Assert.assertEquals(PerformanceHistory.baseline(history, "ProductsPage.load", "p75"), 200.0);
+        Assert.assertNull(PerformanceHistory.baseline(history, "ProductsPage.lcp", "p75"));
+    }
+
+    @Test
+    public void firstRunHasNoBaselineAndIsAppended() throws IOException {
+        List<String> regressions=PerformanceHistory.finishRun(samples(900, 950, 1000), historyFile);
+
+        Assert.assertTrue(regressions.isEmpty());
+        List<String> lines=Files.readAllLines(historyFile, StandardCharsets.UTF_8);
+        Assert.assertEquals(lines.size(), 1);
+        Assert.assertTrue(lines.get(0).contains("\"ProductsPage.load\""), lines.get(0));
+    }
+
+    @Test
+    public void flagsAPercentileAboveTheBaselineByMoreThanTheAllowedPercent(){
+        PerformanceHistory.finishRun(samples(100, 100, 100), historyFile);
+        PerformanceHistory.finishRun(samples(100, 100, 100), historyFile);
+
+        Assert.assertTrue(PerformanceHistory.finishRun(samples(110, 115, 119), historyFile).isEmpty(),
+                "within 20% of the baseline");
+        List<String> regressions=PerformanceHistory.finishRun(samples(150, 160, 170), historyFile);
+
+        Assert.assertEquals(regressions.size(), 1);
+        Assert.assertTrue(regressions.get(0).startsWith("ProductsPage.load p75 170.0 vs baseline 100.0"), regressions.get(0));
+    }
+
+    @Test
+    public void tooFewSamplesAreRecordedButNotFlagged(){
+        PerformanceHistory.finishRun(samples(100, 100, 100), historyFile);
+
+        Assert.assertTrue(PerformanceHistory.finishRun(samples(500, 500), historyFile).isEmpty());
+    }
+
+    @Test
+    public void unreadableHistoryIsIgnored() throws IOException {
+        Files.writeString(historyFile, "not json\n");
+
+        Assert.assertTrue(PerformanceHistory.readHistory(historyFile, 5).isEmpty());
+    }
+
+    private static Map<String, Object> run(double p75){
+        return Map.of("metrics", Map.of("ProductsPage.load", Map.of("p75", p75)));
+    }
+
+    private static Map<String, List<Double>> samples(double... values){
+        return Map.of("ProductsPage.load", Arrays.stream(values).boxed().toList());
+    }
+}
@@ -0,0 +1,142 @@
+package utils;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.AppenderRef;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.apache.logging.log4j.core.config.DefaultConfiguration;
+import org.apache.logging.log4j.core.config.Property;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.apache.logging.log4j.util.SortedArrayStringMap;
+import org.slf4j.MDC;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Runs the scenario buffer against a programmatic configuration whose only target collects what
+ * reaches it, instead of the console and log file of {@code log4j2.xml}.
+ */
+public class ScenarioLogTest {
+
+    /** Appender recording the level and message of every event written to it. */
+    private static final class Collected extends AbstractAppender {
+        private final List<String> events=new CopyOnWriteArrayList<>();
+
+        private Collected(){
+            super("Collected", null, null, true, Property.EMPTY_ARRAY);
+        }
+
+        @Override
+        public void append(LogEvent event){
+            events.add(event.getLevel() + " " + event.getMessage().getFormattedMessage());
+        }
+    }
+
+    private Collected collected;
+    private ScenarioLogAppender appender;
+
+    @BeforeMethod
+    public void configure(){
+        DefaultConfiguration configuration=new DefaultConfiguration();
+        collected=new Collected();
+        collected.start();
+        configuration.addAppender(collected);
+        appender=ScenarioLogAppender.createAppender("ScenarioBuffer", "WARN",
+                new AppenderRef[]{AppenderRef.createAppenderRef("Collected", null, null)}, null, null, configuration);
+        appender.start();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void stop(){
+        ScenarioLog.end(false);
+        appender.stop();
+        collected.stop();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void restoreLogging(){
+        // the appender of log4j2.xml stopped being the active one when this test started its own
+        Configurator.reconfigure();
+    }
+
+    /** Logs {@code message} on the calling thread, with its scenario buffer if it has one. */
+    private void log(Level level, String message){
+        SortedArrayStringMap context=new SortedArrayStringMap();
+        if(MDC.get(ScenarioLog.KEY)!=null){
+            context.putValue(ScenarioLog.KEY, MDC.get(ScenarioLog.KEY));
+        }
+        appender.append(Log4jLogEvent.newBuilder()
+                .setLoggerName("ScenarioLogTest")
+                .setLevel(level)
+                .setMessage(new SimpleMessage(message))
+                .setContextData(context)
+                .build());
+    }
+
+    @Test
+    public void eventsOutsideAScenarioAreWrittenStraightAway(){
+        log(Level.INFO, "startup");
+
+        Assert.assertEquals(collected.events, List.of("INFO startup"));
+    }
+
+    @Test
+    public void fullBufferDropsTheOldestEventsAndCountsThem(){
+        ScenarioLog.begin(new ScenarioLog.Buffer(3));
+        for(int i=1; i<=5; i++){
+            log(Level.INFO, "step " + i);
+        }
+
+        String text=ScenarioLog.end(true);
+
+        Assert.assertEquals(collected.events, List.of("INFO step 3", "INFO step 4", "INFO step 5"));
+        Assert.assertTrue(text.startsWith("... 2 earlier events dropped (log.scenarioBufferSize)"), text);
+        Assert.assertTrue(text.contains("step 3") && text.contains("step 5") && !text.contains("step 2"), text);
+    }
+
+    @Test
+    public void warningsPassThroughWhileTheRestIsHeldBack(){
+        ScenarioLog.begin(new ScenarioLog.Buffer(10));
+        log(Level.INFO, "typing");
+        log(Level.WARN, "slow page");
+        log(Level.ERROR, "no title");
+
+        Assert.assertEquals(collected.events, List.of("WARN slow page", "ERROR no title"));
+    }
+
+    @Test
+    public void passedScenarioDropsItsBuffer(){
+        ScenarioLog.begin(new ScenarioLog.Buffer(10));
+        log(Level.INFO, "typing");
+        log(Level.WARN, "slow page");
+
+        Assert.assertNull(ScenarioLog.end(false));
+
+        Assert.assertEquals(collected.events, List.of("WARN slow page"));
+        log(Level.INFO, "after");
+        Assert.assertEquals(collected.events.get(1), "INFO after", "the thread is no longer buffered");
+    }
+
+    @Test
+    public void failedScenarioWritesOutWhatWasHeldBackOnce(){
+        ScenarioLog.begin(new ScenarioLog.Buffer(10));
+        log(Level.INFO, "typing");
+        log(Level.WARN, "slow page");
+        log(Level.DEBUG, "clicked");
+
+        String text=ScenarioLog.end(true);
+
+        Assert.assertEquals(collected.events, List.of("WARN slow page", "INFO typing", "DEBUG clicked"));
+        Assert.assertEquals(text.lines().count(), 3);
+        Assert.assertTrue(text.lines().toList().get(1).contains("WARN  ScenarioLogTest - slow page"), text);
+        Assert.assertNull(ScenarioLog.end(true), "a buffer is written out only once");
+    }
+}
@@ -0,0 +1,151 @@
+package utils;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openqa.selenium.chrome.ChromeDriverService;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+/**
+ * Runs the shared driver service against a stub driver process that answers {@code /status} like
+ * chromedriver, fails it on request and exits on {@code /shutdown}.
+ */
+public class SharedDriverServiceTest {
+
+    private Path dir;
+    private Path control;
+    private SharedDriverService<ChromeDriverService> shared;
+
+    /**
+     * The stub driver: {@code StubDriver <controlFile> --port=<port>}. {@code /status} answers 500 while
+     * the control file contains {@code fail}.
+     */
+    public static final class StubDriver {
+        public static void main(String[] args) throws IOException {
+            Path control = Path.of(args[0]);
+            int port = Integer.parseInt(args[1].substring("--port=".length()));
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+            server.createContext("/status", exchange -> {
+                boolean failing = Files.exists(control) && Files.readString(control).contains("fail");
+                byte[] body = "{\"value\":{\"ready\":true}}".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(failing ? 500 : 200, body.length);
+                exchange.getResponseBody().write(body);
+                exchange.close();
+            });
+            server.createContext("/shutdown", exchange -> {
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+                Runtime.getRuntime().halt(0);
+            });
+            server.start();
+        }
+    }
+
+    @BeforeClass
+    public void requirePosix(){
+        if(System.getProperty("os.name").toLowerCase().startsWith("windows")){
+            throw new SkipException("The stub driver is started through a shell script");
+        }
+        System.setProperty("driver.healthCheckSeconds", "0");
+    }
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        dir=Files.createTempDirectory("stub-driver");
+        control=dir.resolve("control");
+        shared=SharedDriverService.chrome();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() throws IOException {
+        SharedDriverService.shutdownAll();
+        try(var files=Files.list(dir)){
+            for(Path file : files.toList()){
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    public void liveProcessFailingStatusIsNotRestarted() throws IOException {
+        String driver=stubDriver("driver");
+        ChromeDriverService first=shared.running(driver);
+        Files.writeString(control, "fail");
+
+        for(int i=0; i<3; i++){
+            shared.check();
+        }
+
+        Assert.assertTrue(first.isRunning(), "the busy driver process was stopped");
+        Assert.assertSame(shared.running(driver), first);
+    }
+
+    @Test
+    public void exitedProcessIsReplaced() throws Exception {
+        String driver=stubDriver("driver");
+        ChromeDriverService first=shared.running(driver);
+        shutdown(first);
+        waitUntilStopped(first);
+
+        shared.check();
+
+        Assert.assertTrue(shared.isAlive());
+        ChromeDriverService second=shared.running(driver);
+        Assert.assertNotSame(second, first);
+        Assert.assertNotEquals(second.getUrl(), first.getUrl());
+    }
+
+    @Test
+    public void changedDriverRetiresTheRunningProcess() throws IOException {
+        ChromeDriverService first=shared.running(stubDriver("driver"));
+
+        ChromeDriverService second=shared.running(stubDriver("other-driver"));
+
+        Assert.assertNotSame(second, first);
+        Assert.assertTrue(first.isRunning(), "the retired driver process was stopped while it had sessions");
+        SharedDriverService.shutdownAll();
+        Assert.assertFalse(first.isRunning());
+        Assert.assertFalse(second.isRunning());
+    }
+
+    private String stubDriver(String name) throws IOException {
+        String java=Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        String script="#!/bin/sh\nexec '" + java + "' -cp '" + System.getProperty("java.class.path") + "' "
+                + "'" + StubDriver.class.getName() + "' '" + control + "' \"$@\"\n";
+        Path file=dir.resolve(name);
+        Files.writeString(file, script);
+        Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rwx------"));
+        return file.toString();
+    }
+
+    private static void shutdown(ChromeDriverService service) throws InterruptedException {
+        try {
+            HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(service.getUrl() + "/shutdown")).build(),
+                    HttpResponse.BodyHandlers.discarding());
+        } catch (IOException e) {
+            // the process may exit before the response is read
+        }
+    }
+
+    private static void waitUntilStopped(ChromeDriverService service) throws InterruptedException {
+        for(int i=0; i<100 && service.isRunning(); i++){
+            Thread.sleep(50);
+        }
+        Assert.assertFalse(service.isRunning(), "the stub driver did not exit");
+    }
+}
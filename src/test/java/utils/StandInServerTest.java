@@ -0,0 +1,91 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+public class StandInServerTest {
+
+    private HttpClient client;
+    private URI baseUri;
+
+    @BeforeClass
+    public void setUp(){
+        client=HttpClient.newHttpClient();
+        baseUri=URI.create(StandInServer.shared().baseUrl());
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown(){
+        client.close();
+    }
+
+    private HttpResponse<String> send(String method, String path) throws IOException, InterruptedException {
+        HttpRequest request=HttpRequest.newBuilder(baseUri.resolve(path))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    public void servesTheLoginPageAtTheRoot() throws IOException, InterruptedException {
+        HttpResponse<String> response=send("GET", "/");
+
+        Assert.assertEquals(response.statusCode(), 200);
+        Assert.assertEquals(response.headers().firstValue("Content-Type").orElse(""), "text/html; charset=utf-8");
+        Assert.assertTrue(response.body().contains("id=\"login-button\""));
+        Assert.assertEquals(send("GET", "/index.html").body(), response.body());
+    }
+
+    @Test
+    public void servesEveryRouteWithItsContentType() throws IOException, InterruptedException {
+        Assert.assertTrue(send("GET", "/inventory.html").body().contains("class=\"title\""));
+        Assert.assertEquals(send("GET", "/static/login.js").headers().firstValue("Content-Type").orElse(""), "text/javascript; charset=utf-8");
+        Assert.assertEquals(send("GET", "/static/session.js").statusCode(), 200);
+        Assert.assertEquals(send("GET", "/static/standin.css").headers().firstValue("Content-Type").orElse(""), "text/css; charset=utf-8");
+    }
+
+    @Test
+    public void unknownPathIsNotFound() throws IOException, InterruptedException {
+        Assert.assertEquals(send("GET", "/cart.html").statusCode(), 404);
+        Assert.assertEquals(send("POST", "/cart.html").statusCode(), 404);
+    }
+
+    @Test
+    public void otherMethodsThanGetAndHeadAreNotAllowed() throws IOException, InterruptedException {
+        HttpResponse<String> response=send("POST", "/");
+
+        Assert.assertEquals(response.statusCode(), 405);
+        Assert.assertEquals(response.headers().firstValue("Allow").orElse(""), "GET, HEAD");
+    }
+
+    @Test
+    public void headReturnsTheHeadersWithoutABody() throws IOException, InterruptedException {
+        HttpResponse<String> response=send("HEAD", "/inventory.html");
+
+        Assert.assertEquals(response.statusCode(), 200);
+        Assert.assertEquals(response.headers().firstValue("Content-Type").orElse(""), "text/html; charset=utf-8");
+        Assert.assertEquals(response.body(), "");
+    }
+
+    @Test
+    public void loginSetsTheSessionCookieThatTheInventoryPageRequires() throws IOException, InterruptedException {
+        // the login and the redirect happen in the browser; check that the served pages are wired for them
+        Assert.assertTrue(send("GET", "/").body().contains("src=\"/static/login.js\""));
+        String login=send("GET", "/static/login.js").body();
+        Assert.assertTrue(login.contains("document.cookie = 'session-username='"));
+        Assert.assertTrue(login.contains("window.location.href = '/inventory.html'"));
+
+        Assert.assertTrue(send("GET", "/inventory.html").body().contains("src=\"/static/session.js\""));
+        String session=send("GET", "/static/session.js").body();
+        Assert.assertTrue(session.contains("session-username="));
+        Assert.assertTrue(session.contains("window.location.replace('/?error='"));
+    }
+}
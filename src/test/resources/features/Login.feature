@@ -30,6 +30,14 @@ Feature: Login functionality
       |             | passwordKey | Epic sadface: Username is required |
       | usernameKey |             | Epic sadface: Password is required |
 
+  # One run per row of src/test/resources/data/login-errors.csv, streamed from the file (see runners.DataDrivenRun)
+  @Negative @data:login-errors.csv
+  Scenario: Display the expected error for each login attempt in the data file
+    Given I am on the SauceDemo login page
+    When the user enters the credentials from the data row
+    And I click on the submit button
+    Then the error message from the data row should be displayed
+
 
 
 
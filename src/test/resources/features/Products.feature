@@ -0,0 +1,17 @@
+@Smoke @Products
+Feature: Products page
+  As a logged in user of Sauce Demo
+  I want to see the Products page
+  So that I can browse the inventory
+
+  Scenario: Products page is shown for a logged in user
+    Given I am logged in as standard_user
+    Then I should see the Products page
+
+  @Performance
+  Scenario: Products page loads within its performance budgets
+    Given I am on the SauceDemo login page
+    When I enter username and password
+    And I click on the submit button
+    Then the Products page should load within 800 ms
+    And the Products page should meet its performance budgets